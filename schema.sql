@@ -177,6 +177,137 @@ CREATE TABLE IF NOT EXISTS prescriptions (
 COMMENT ON TABLE prescriptions IS 'Patient prescriptions with optional link to originating visit';
 COMMENT ON COLUMN prescriptions.visit_id IS 'Optional reference to the visit where prescription was written';
 
+-- refill queue: open prescriptions are 'active', a refill uses one of refills_remaining,
+-- with none left the prescription needs a renewal. RefillQueueDAO runs the nightly pass.
+-- when status is first added, rows that were already there are sorted by their dates:
+-- a course that has run out with no refill still ahead is completed, a planned refill
+-- date counts as one refill left
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'prescriptions' AND column_name = 'status') THEN
+        ALTER TABLE prescriptions ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'active';
+        ALTER TABLE prescriptions ADD COLUMN IF NOT EXISTS refills_remaining INTEGER NOT NULL DEFAULT 0;
+        UPDATE prescriptions SET status = 'completed'
+        WHERE prescribed_date + COALESCE(duration_days, 0) < CURRENT_DATE
+          AND (refill_date IS NULL OR refill_date < CURRENT_DATE);
+        UPDATE prescriptions SET refills_remaining = 1
+        WHERE status = 'active' AND refill_date IS NOT NULL;
+    END IF;
+END $$;
+ALTER TABLE prescriptions ADD COLUMN IF NOT EXISTS refills_remaining INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE prescriptions ADD COLUMN IF NOT EXISTS last_filled_date DATE;
+
+COMMENT ON COLUMN prescriptions.status IS 'active (in the refill queue), completed or cancelled';
+COMMENT ON COLUMN prescriptions.refills_remaining IS 'Refills left before the prescription has to be renewed';
+
+-- every refill dispensed, last_filled_date only keeps the latest one. the first fill is the
+-- prescription itself (prescribed_date). adherence coverage is built from both.
+-- when the table is first created, the latest fill already on record is copied in
+DO $$
+BEGIN
+    IF to_regclass('prescription_fills') IS NULL THEN
+        CREATE TABLE prescription_fills (
+            id SERIAL PRIMARY KEY,
+            prescription_id INTEGER NOT NULL,
+            filled_date DATE NOT NULL,
+            days_supply INTEGER NOT NULL DEFAULT 0,
+            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+            CONSTRAINT fk_prescription_fills_prescription
+                FOREIGN KEY (prescription_id)
+                REFERENCES prescriptions (id)
+                ON DELETE CASCADE
+        );
+        INSERT INTO prescription_fills (prescription_id, filled_date, days_supply)
+        SELECT id, last_filled_date, COALESCE(duration_days, 0) FROM prescriptions
+        WHERE last_filled_date IS NOT NULL;
+    END IF;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_prescription_fills_prescription ON prescription_fills (prescription_id, filled_date);
+
+-- =========================
+-- Recurring Appointments
+-- =========================
+
+CREATE TABLE IF NOT EXISTS appointment_series (
+    id SERIAL PRIMARY KEY,
+    patient_id INTEGER NOT NULL,
+    frequency VARCHAR(20) NOT NULL,
+    interval_count INTEGER NOT NULL DEFAULT 1,
+    start_date TIMESTAMP NOT NULL,
+    until_date DATE,
+    occurrence_count INTEGER,
+    reason TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_appointment_series_patient
+        FOREIGN KEY (patient_id)
+        REFERENCES patients (id)
+        ON UPDATE CASCADE
+        ON DELETE CASCADE,
+    CONSTRAINT ck_appointment_series_frequency
+        CHECK (frequency IN ('daily', 'weekly', 'monthly')),
+    CONSTRAINT ck_appointment_series_interval
+        CHECK (interval_count > 0)
+);
+
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS series_id INTEGER
+    REFERENCES appointment_series (id) ON DELETE SET NULL;
+
+COMMENT ON TABLE appointment_series IS 'Recurrence rule for appointments generated as a series (weekly/monthly follow-ups).';
+COMMENT ON COLUMN appointments.series_id IS 'Series this appointment was generated from, NULL for one-off appointments';
+
+-- =========================
+-- Export Watermarks
+-- =========================
+
+CREATE TABLE IF NOT EXISTS export_watermarks (
+    report_name VARCHAR(50) PRIMARY KEY,
+    last_exported_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+COMMENT ON TABLE export_watermarks IS 'Per-report high-water mark for incremental exports: rows with updated_at after it have not been exported yet.';
+
+-- =========================
+-- Appointment Daily Stats
+-- =========================
+
+CREATE TABLE IF NOT EXISTS appointment_daily_stats (
+    stat_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    appointment_count INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (stat_date, status)
+);
+
+COMMENT ON TABLE appointment_daily_stats IS 'Appointments per day and status, kept up to date by triggers on appointments. Rebuild with SELECT rebuild_appointment_daily_stats();';
+
+-- =========================
+-- Clinical Full-Text Search
+-- =========================
+
+-- generated tsvector columns, postgres keeps them current on every write.
+-- weights: A = diagnosis / condition name, B = clinical notes and treatment, C = the rest
+ALTER TABLE visits ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english'::regconfig, coalesce(diagnosis, '')), 'A') ||
+        setweight(to_tsvector('english'::regconfig, coalesce(clinical_notes, '') || ' ' || coalesce(treatment, '')), 'B') ||
+        setweight(to_tsvector('english'::regconfig, coalesce(notes, '') || ' ' || coalesce(follow_up_notes, '')), 'C')
+    ) STORED;
+
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('english'::regconfig, coalesce(reason, ''))) STORED;
+
+ALTER TABLE medical_conditions ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english'::regconfig, coalesce(condition_name, '')), 'A') ||
+        setweight(to_tsvector('english'::regconfig, coalesce(notes, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_visits_search ON visits USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_appointments_search ON appointments USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_medical_conditions_search ON medical_conditions USING GIN (search_vector);
+
 -- =========================
 -- Indexes for Query Performance
 -- =========================
@@ -184,24 +315,38 @@ COMMENT ON COLUMN prescriptions.visit_id IS 'Optional reference to the visit whe
 CREATE INDEX IF NOT EXISTS idx_patients_name ON patients (last_name, first_name);
 CREATE INDEX IF NOT EXISTS idx_patients_email ON patients (email);
 CREATE INDEX IF NOT EXISTS idx_patients_phone ON patients (phone_number);
+CREATE INDEX IF NOT EXISTS idx_patients_updated_at ON patients (updated_at);
 
 CREATE INDEX IF NOT EXISTS idx_appointments_date ON appointments (appointment_date);
 CREATE INDEX IF NOT EXISTS idx_appointments_patient ON appointments (patient_id);
+-- (patient_id, date, id) indexes: one patient's newest events without a sort (patient timeline)
+CREATE INDEX IF NOT EXISTS idx_appointments_patient_date ON appointments (patient_id, appointment_date, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_series ON appointments (series_id, appointment_date);
+CREATE INDEX IF NOT EXISTS idx_appointments_updated_at ON appointments (updated_at);
 
 CREATE INDEX IF NOT EXISTS idx_visits_patient ON visits (patient_id);
+CREATE INDEX IF NOT EXISTS idx_visits_patient_date ON visits (patient_id, visit_date);
 CREATE INDEX IF NOT EXISTS idx_visits_date ON visits (visit_date);
 CREATE INDEX IF NOT EXISTS idx_visits_appointment ON visits (appointment_id);
+CREATE INDEX IF NOT EXISTS idx_visits_updated_at ON visits (updated_at);
 
 CREATE INDEX IF NOT EXISTS idx_medical_conditions_patient ON medical_conditions (patient_id);
+CREATE INDEX IF NOT EXISTS idx_medical_conditions_patient_date ON medical_conditions (patient_id, diagnosis_date, id);
 CREATE INDEX IF NOT EXISTS idx_medical_conditions_status ON medical_conditions (status, resolved_date);
+-- cohort queries look up a patient's active conditions / medications, the form stores "Active"
+CREATE INDEX IF NOT EXISTS idx_medical_conditions_patient_status ON medical_conditions (patient_id, lower(status));
 
 CREATE INDEX IF NOT EXISTS idx_allergies_patient ON allergies (patient_id);
 
 CREATE INDEX IF NOT EXISTS idx_medications_patient ON medications (patient_id);
+CREATE INDEX IF NOT EXISTS idx_medications_patient_status ON medications (patient_id, lower(status));
 
 CREATE INDEX IF NOT EXISTS idx_prescriptions_patient ON prescriptions (patient_id);
+CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_date ON prescriptions (patient_id, prescribed_date, id);
 CREATE INDEX IF NOT EXISTS idx_prescriptions_visit ON prescriptions (visit_id);
 CREATE INDEX IF NOT EXISTS idx_prescriptions_refill ON prescriptions (refill_date);
+-- only open prescriptions, so the queue index stays the size of the queue
+CREATE INDEX IF NOT EXISTS idx_prescriptions_refill_open ON prescriptions (refill_date, id) WHERE status = 'active';
 
 -- =========================
 -- Updated-at Maintenance Triggers
@@ -233,6 +378,449 @@ CREATE TRIGGER trg_visits_updated_at
     FOR EACH ROW
     EXECUTE FUNCTION update_updated_at_column();
 
+-- =========================
+-- Appointment Daily Stats Maintenance
+-- =========================
+
+-- moves one count from the old (day, status) to the new one, so the rollup
+-- never has to be recomputed from the appointments table.
+-- rows that drop to 0 are left in place, readers SUM over them anyway
+CREATE OR REPLACE FUNCTION maintain_appointment_daily_stats()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF NEW.appointment_date::date = OLD.appointment_date::date
+           AND COALESCE(NEW.status, 'scheduled') = COALESCE(OLD.status, 'scheduled') THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        UPDATE appointment_daily_stats
+           SET appointment_count = appointment_count - 1
+         WHERE stat_date = OLD.appointment_date::date
+           AND status = COALESCE(OLD.status, 'scheduled');
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO appointment_daily_stats (stat_date, status, appointment_count)
+        VALUES (NEW.appointment_date::date, COALESCE(NEW.status, 'scheduled'), 1)
+        ON CONFLICT (stat_date, status)
+        DO UPDATE SET appointment_count = appointment_daily_stats.appointment_count + 1;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION truncate_appointment_daily_stats()
+RETURNS TRIGGER AS $$
+BEGIN
+    TRUNCATE appointment_daily_stats;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- recomputes the whole rollup from appointments, returns the number of (day, status) rows.
+-- appointment writes wait until it commits so no trigger update is lost
+CREATE OR REPLACE FUNCTION rebuild_appointment_daily_stats()
+RETURNS INTEGER AS $$
+DECLARE
+    rows_written INTEGER;
+BEGIN
+    LOCK TABLE appointments IN SHARE MODE;
+    DELETE FROM appointment_daily_stats;
+    INSERT INTO appointment_daily_stats (stat_date, status, appointment_count)
+    SELECT appointment_date::date, COALESCE(status, 'scheduled'), COUNT(*)
+    FROM appointments
+    GROUP BY 1, 2;
+    GET DIAGNOSTICS rows_written = ROW_COUNT;
+    RETURN rows_written;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_appointments_daily_stats ON appointments;
+CREATE TRIGGER trg_appointments_daily_stats
+    AFTER INSERT OR UPDATE OR DELETE ON appointments
+    FOR EACH ROW
+    EXECUTE FUNCTION maintain_appointment_daily_stats();
+
+DROP TRIGGER IF EXISTS trg_appointments_daily_stats_truncate ON appointments;
+CREATE TRIGGER trg_appointments_daily_stats_truncate
+    AFTER TRUNCATE ON appointments
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION truncate_appointment_daily_stats();
+
+-- backfill for existing data
+SELECT rebuild_appointment_daily_stats();
+
+-- =========================
+-- Drug Safety Reference Data
+-- =========================
+
+-- local reference tables for the prescribing safety checks (DrugSafetyIndex).
+-- names are lower case; a drug or allergen can be in several classes. an allergy rules out
+-- every drug sharing a class with the allergen, allergy_cross_reactions adds related classes.
+-- interactions are stored once per pair, either order. extend with site-specific rows
+
+CREATE TABLE IF NOT EXISTS drug_classes (
+    drug_name VARCHAR(255) NOT NULL,
+    drug_class VARCHAR(100) NOT NULL,
+    PRIMARY KEY (drug_name, drug_class)
+);
+
+CREATE TABLE IF NOT EXISTS drug_interactions (
+    class_a VARCHAR(100) NOT NULL,
+    class_b VARCHAR(100) NOT NULL,
+    severity VARCHAR(20) NOT NULL,
+    description TEXT,
+    PRIMARY KEY (class_a, class_b),
+    CONSTRAINT ck_drug_interactions_severity
+        CHECK (severity IN ('contraindicated', 'major', 'moderate', 'minor'))
+);
+
+CREATE TABLE IF NOT EXISTS allergy_cross_reactions (
+    allergy_class VARCHAR(100) NOT NULL,
+    drug_class VARCHAR(100) NOT NULL,
+    description TEXT,
+    PRIMARY KEY (allergy_class, drug_class)
+);
+
+COMMENT ON TABLE drug_classes IS 'Drug and allergen names (lower case) and the classes they belong to.';
+COMMENT ON TABLE drug_interactions IS 'Interacting drug classes, one row per pair in either order.';
+COMMENT ON TABLE allergy_cross_reactions IS 'Drug classes to warn about for an allergy to allergy_class.';
+
+INSERT INTO drug_classes (drug_name, drug_class) VALUES
+    ('penicillin', 'penicillins'), ('amoxicillin', 'penicillins'), ('ampicillin', 'penicillins'),
+    ('piperacillin', 'penicillins'), ('flucloxacillin', 'penicillins'),
+    ('cephalexin', 'cephalosporins'), ('cefuroxime', 'cephalosporins'), ('ceftriaxone', 'cephalosporins'),
+    ('meropenem', 'carbapenems'), ('imipenem', 'carbapenems'),
+    ('sulfa', 'sulfonamide antibiotics'), ('sulfamethoxazole', 'sulfonamide antibiotics'),
+    ('clarithromycin', 'macrolides'), ('erythromycin', 'macrolides'), ('azithromycin', 'macrolides'),
+    ('ibuprofen', 'nsaids'), ('naproxen', 'nsaids'), ('diclofenac', 'nsaids'), ('aspirin', 'nsaids'),
+    ('aspirin', 'antiplatelets'), ('clopidogrel', 'antiplatelets'),
+    ('warfarin', 'anticoagulants'), ('warfarin', 'vitamin k antagonists'),
+    ('apixaban', 'anticoagulants'), ('rivaroxaban', 'anticoagulants'), ('heparin', 'anticoagulants'),
+    ('sertraline', 'ssris'), ('fluoxetine', 'ssris'), ('citalopram', 'ssris'), ('escitalopram', 'ssris'),
+    ('phenelzine', 'maois'), ('selegiline', 'maois'),
+    ('tramadol', 'opioids'), ('tramadol', 'serotonergic opioids'),
+    ('codeine', 'opioids'), ('morphine', 'opioids'), ('oxycodone', 'opioids'),
+    ('diazepam', 'benzodiazepines'), ('lorazepam', 'benzodiazepines'), ('alprazolam', 'benzodiazepines'),
+    ('lisinopril', 'ace inhibitors'), ('enalapril', 'ace inhibitors'), ('ramipril', 'ace inhibitors'),
+    ('spironolactone', 'potassium-sparing diuretics'), ('potassium chloride', 'potassium supplements'),
+    ('simvastatin', 'statins'), ('atorvastatin', 'statins')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO drug_interactions (class_a, class_b, severity, description) VALUES
+    ('ssris', 'maois', 'contraindicated', 'serotonin syndrome'),
+    ('serotonergic opioids', 'maois', 'contraindicated', 'serotonin syndrome'),
+    ('ssris', 'serotonergic opioids', 'major', 'serotonin syndrome, lowered seizure threshold'),
+    ('anticoagulants', 'nsaids', 'major', 'bleeding risk'),
+    ('anticoagulants', 'antiplatelets', 'major', 'bleeding risk'),
+    ('opioids', 'benzodiazepines', 'major', 'respiratory depression'),
+    ('ace inhibitors', 'potassium-sparing diuretics', 'major', 'hyperkalaemia'),
+    ('statins', 'macrolides', 'major', 'myopathy, rhabdomyolysis'),
+    ('ace inhibitors', 'potassium supplements', 'moderate', 'hyperkalaemia'),
+    ('ssris', 'nsaids', 'moderate', 'gastrointestinal bleeding'),
+    ('vitamin k antagonists', 'macrolides', 'moderate', 'raised INR')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO allergy_cross_reactions (allergy_class, drug_class, description) VALUES
+    ('penicillins', 'cephalosporins', 'penicillin allergy, low cross-reactivity with cephalosporins'),
+    ('penicillins', 'carbapenems', 'penicillin allergy, low cross-reactivity with carbapenems'),
+    ('cephalosporins', 'penicillins', 'cephalosporin allergy, low cross-reactivity with penicillins')
+ON CONFLICT DO NOTHING;
+
+-- =========================
+-- Medication Adherence Summary
+-- =========================
+
+-- written by the adherence job (AdherenceJob), one row per patient and drug for the last
+-- measurement period. drug_name is the lower case name without strength/form.
+-- pdc is proportion of days covered from the first covered day to period_end.
+-- a whole run replaces the table, rows for drugs no longer seen are deleted
+
+CREATE TABLE IF NOT EXISTS medication_adherence (
+    patient_id INTEGER NOT NULL,
+    drug_name VARCHAR(255) NOT NULL,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    days_covered INTEGER NOT NULL,
+    pdc NUMERIC(5,4) NOT NULL,
+    gap_days INTEGER NOT NULL,
+    longest_gap INTEGER NOT NULL,
+    episodes INTEGER NOT NULL,
+    duplicate_therapy BOOLEAN NOT NULL DEFAULT FALSE,
+    duplicate_with TEXT,
+    computed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (patient_id, drug_name),
+    CONSTRAINT fk_medication_adherence_patient
+        FOREIGN KEY (patient_id)
+        REFERENCES patients (id)
+        ON DELETE CASCADE
+);
+
+-- low adherence and duplicate therapy lists only look at the flagged rows
+CREATE INDEX IF NOT EXISTS idx_medication_adherence_low ON medication_adherence (pdc) WHERE pdc < 0.8;
+CREATE INDEX IF NOT EXISTS idx_medication_adherence_duplicate ON medication_adherence (patient_id) WHERE duplicate_therapy;
+
+-- =========================
+-- Date Partitioning (optional)
+-- =========================
+
+-- appointments and visits can be range partitioned by appointment_date / visit_date so that
+-- date-range queries only touch the partitions they need and old history can be archived.
+-- off by default. convert once with SELECT partition_clinical_tables('month'); (or 'year'),
+-- or set db.partitioning in database.properties. the primary keys become (id, date) and
+-- the foreign keys pointing at these tables are replaced by delete triggers.
+-- archive old partitions with SELECT archive_date_partitions('2020-01-01');
+
+CREATE TABLE IF NOT EXISTS date_partitioned_tables (
+    table_name VARCHAR(63) PRIMARY KEY,
+    date_column VARCHAR(63) NOT NULL,
+    granularity VARCHAR(5) NOT NULL,
+    CONSTRAINT ck_date_partitioned_tables_granularity
+        CHECK (granularity IN ('month', 'year'))
+);
+
+COMMENT ON TABLE date_partitioned_tables IS 'Tables converted by partition_by_date(). ensure_date_partitions() keeps partitions ahead for them.';
+
+-- creates the missing partitions of tbl covering [from_ts, to_ts), named <tbl>_pYYYYMM or <tbl>_pYYYY.
+-- rows that already landed in the default partition for a new range are moved into it: the
+-- default is detached, the rows are copied into the new table before it is attached and deleted
+-- from the default with its triggers off (it is a move, not a delete), then the default goes back
+CREATE OR REPLACE FUNCTION create_date_partitions(tbl TEXT, grain TEXT, from_ts TIMESTAMP, to_ts TIMESTAMP)
+RETURNS INTEGER AS $$
+DECLARE
+    step INTERVAL := ('1 ' || grain)::interval;
+    part_start TIMESTAMP := date_trunc(grain, from_ts);
+    part_name TEXT;
+    default_name TEXT := tbl || '_pdefault';
+    date_col TEXT;
+    copy_columns TEXT;
+    has_rows BOOLEAN;
+    created INTEGER := 0;
+BEGIN
+    IF to_regclass(default_name) IS NOT NULL THEN
+        SELECT a.attname INTO date_col
+          FROM pg_partitioned_table p
+          JOIN pg_attribute a ON a.attrelid = p.partrelid AND a.attnum = p.partattrs[0]
+         WHERE p.partrelid = tbl::regclass;
+        SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) INTO copy_columns
+          FROM pg_attribute WHERE attrelid = tbl::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = '';
+    END IF;
+    WHILE part_start < to_ts LOOP
+        part_name := tbl || '_p' || to_char(part_start, CASE grain WHEN 'year' THEN 'YYYY' ELSE 'YYYYMM' END);
+        IF to_regclass(part_name) IS NULL THEN
+            has_rows := FALSE;
+            IF date_col IS NOT NULL THEN
+                EXECUTE format('SELECT EXISTS (SELECT 1 FROM %1$I WHERE %2$I >= %3$L AND %2$I < %4$L)',
+                    default_name, date_col, part_start, part_start + step) INTO has_rows;
+            END IF;
+            IF has_rows THEN
+                EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', tbl, default_name);
+                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING CONSTRAINTS)',
+                    part_name, tbl);
+                EXECUTE format('INSERT INTO %1$I (%2$s) SELECT %2$s FROM %3$I WHERE %4$I >= %5$L AND %4$I < %6$L',
+                    part_name, copy_columns, default_name, date_col, part_start, part_start + step);
+                EXECUTE format('ALTER TABLE %I DISABLE TRIGGER USER', default_name);
+                EXECUTE format('DELETE FROM %1$I WHERE %2$I >= %3$L AND %2$I < %4$L',
+                    default_name, date_col, part_start, part_start + step);
+                EXECUTE format('ALTER TABLE %I ENABLE TRIGGER USER', default_name);
+                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                    tbl, part_name, part_start, part_start + step);
+                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I DEFAULT', tbl, default_name);
+                RAISE NOTICE 'moved the rows of % out of the default partition', part_name;
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                    part_name, tbl, part_start, part_start + step);
+            END IF;
+            created := created + 1;
+        END IF;
+        part_start := part_start + step;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- turns tbl into a table range partitioned by date_col with its rows, defaults, checks,
+-- generated columns, outgoing foreign keys, indexes, triggers and id sequence.
+-- foreign keys pointing at tbl are dropped, postgres cannot reference a partitioned table by id alone.
+-- returns false if tbl is partitioned already
+CREATE OR REPLACE FUNCTION partition_by_date(tbl TEXT, date_col TEXT, grain TEXT)
+RETURNS BOOLEAN AS $$
+DECLARE
+    legacy TEXT := tbl || '_unpartitioned';
+    id_seq TEXT := pg_get_serial_sequence(tbl, 'id');
+    table_comment TEXT := obj_description(tbl::regclass, 'pg_class');
+    index_defs TEXT[];
+    trigger_defs TEXT[];
+    fk_defs TEXT[];
+    copy_columns TEXT;
+    lo TIMESTAMP;
+    hi TIMESTAMP;
+    def TEXT;
+    fk RECORD;
+BEGIN
+    IF grain NOT IN ('month', 'year') THEN
+        RAISE EXCEPTION 'granularity must be month or year, got %', grain;
+    END IF;
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = tbl::regclass) THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', tbl);
+
+    FOR fk IN SELECT conname, conrelid::regclass AS child FROM pg_constraint
+              WHERE contype = 'f' AND confrelid = tbl::regclass LOOP
+        RAISE NOTICE 'dropping foreign key % on %', fk.conname, fk.child;
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.child, fk.conname);
+    END LOOP;
+
+    -- definitions are captured before the rename, so they still name tbl
+    SELECT array_agg(pg_get_indexdef(indexrelid)) INTO index_defs
+      FROM pg_index WHERE indrelid = tbl::regclass AND NOT indisprimary;
+    SELECT array_agg(pg_get_triggerdef(oid)) INTO trigger_defs
+      FROM pg_trigger WHERE tgrelid = tbl::regclass AND NOT tgisinternal;
+    SELECT array_agg(format('ALTER TABLE %I ADD CONSTRAINT %I %s', tbl, conname, pg_get_constraintdef(oid))) INTO fk_defs
+      FROM pg_constraint WHERE conrelid = tbl::regclass AND contype = 'f';
+    -- generated columns (search_vector) are recomputed, they cannot be inserted
+    SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) INTO copy_columns
+      FROM pg_attribute WHERE attrelid = tbl::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = '';
+
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, legacy);
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING CONSTRAINTS INCLUDING COMMENTS) ' ||
+        'PARTITION BY RANGE (%I)', tbl, legacy, date_col);
+
+    EXECUTE format('SELECT min(%1$I), max(%1$I) FROM %2$I', date_col, legacy) INTO lo, hi;
+    PERFORM create_date_partitions(tbl, grain, COALESCE(lo, now()::timestamp),
+        GREATEST(hi, now()::timestamp) + interval '1 year');
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_pdefault', tbl);
+    EXECUTE format('INSERT INTO %I (%s) SELECT %s FROM %I', tbl, copy_columns, copy_columns, legacy);
+
+    IF id_seq IS NOT NULL THEN
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', id_seq, tbl);
+    END IF;
+    EXECUTE format('DROP TABLE %I', legacy);
+
+    -- unique per partition only, so the key has to include the date. ids still come from one sequence
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, %I)', tbl, date_col);
+    FOREACH def IN ARRAY COALESCE(fk_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    FOREACH def IN ARRAY COALESCE(index_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    FOREACH def IN ARRAY COALESCE(trigger_defs, '{}') LOOP
+        EXECUTE def;
+    END LOOP;
+    IF table_comment IS NOT NULL THEN
+        EXECUTE format('COMMENT ON TABLE %I IS %L', tbl, table_comment);
+    END IF;
+
+    INSERT INTO date_partitioned_tables (table_name, date_column, granularity)
+    VALUES (tbl, date_col, grain)
+    ON CONFLICT (table_name) DO UPDATE SET date_column = EXCLUDED.date_column, granularity = EXCLUDED.granularity;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- stand-ins for the ON DELETE actions of the dropped foreign keys. moving a row to another
+-- partition (a rescheduled appointment) fires DELETE too, so only act if the id is really gone
+CREATE OR REPLACE FUNCTION delete_appointment_visits()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM appointments WHERE id = OLD.id) THEN
+        DELETE FROM visits WHERE appointment_id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION release_visit_prescriptions()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM visits WHERE id = OLD.id) THEN
+        UPDATE prescriptions SET visit_id = NULL WHERE visit_id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- converts appointments and visits and puts the delete triggers in place of their foreign keys
+CREATE OR REPLACE FUNCTION partition_clinical_tables(grain TEXT)
+RETURNS BOOLEAN AS $$
+DECLARE
+    changed BOOLEAN;
+BEGIN
+    changed := partition_by_date('appointments', 'appointment_date', grain);
+    changed := partition_by_date('visits', 'visit_date', grain) OR changed;
+    IF changed THEN
+        DROP TRIGGER IF EXISTS trg_appointments_delete_visits ON appointments;
+        CREATE TRIGGER trg_appointments_delete_visits
+            AFTER DELETE ON appointments
+            FOR EACH ROW
+            EXECUTE FUNCTION delete_appointment_visits();
+        IF to_regclass('prescriptions') IS NOT NULL THEN
+            DROP TRIGGER IF EXISTS trg_visits_release_prescriptions ON visits;
+            CREATE TRIGGER trg_visits_release_prescriptions
+                AFTER DELETE ON visits
+                FOR EACH ROW
+                EXECUTE FUNCTION release_visit_prescriptions();
+        END IF;
+    END IF;
+    RETURN changed;
+END;
+$$ LANGUAGE plpgsql;
+
+-- keeps a year of partitions ahead for every converted table, run at startup. recurring series
+-- book years ahead, so the range also reaches the latest row, and starts at the oldest row still
+-- in the default partition so ranges that filled up there get their partition too
+CREATE OR REPLACE FUNCTION ensure_date_partitions()
+RETURNS INTEGER AS $$
+DECLARE
+    t RECORD;
+    lo TIMESTAMP;
+    hi TIMESTAMP;
+    created INTEGER := 0;
+BEGIN
+    FOR t IN SELECT table_name, date_column, granularity FROM date_partitioned_tables LOOP
+        EXECUTE format('SELECT max(%I) FROM %I', t.date_column, t.table_name) INTO hi;
+        lo := NULL;
+        IF to_regclass(t.table_name || '_pdefault') IS NOT NULL THEN
+            EXECUTE format('SELECT min(%I) FROM %I', t.date_column, t.table_name || '_pdefault') INTO lo;
+        END IF;
+        created := created + create_date_partitions(t.table_name, t.granularity,
+            LEAST(lo, now()::timestamp),
+            GREATEST(hi + interval '1 day', now()::timestamp + interval '1 year'));
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- detaches every partition that ends on or before cutoff and moves it to archive_schema,
+-- where it can still be queried, dumped or dropped. returns how many were moved.
+-- appointment_daily_stats keeps the counts of archived appointments
+CREATE OR REPLACE FUNCTION archive_date_partitions(cutoff TIMESTAMP, archive_schema TEXT DEFAULT 'archive')
+RETURNS INTEGER AS $$
+DECLARE
+    part RECORD;
+    moved INTEGER := 0;
+BEGIN
+    EXECUTE format('CREATE SCHEMA IF NOT EXISTS %I', archive_schema);
+    FOR part IN
+        SELECT t.table_name, c.oid::regclass AS partition_name,
+               substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \(''([^'']+)''\)')::timestamp AS upper_bound
+        FROM date_partitioned_tables t
+        JOIN pg_inherits i ON i.inhparent = t.table_name::regclass
+        JOIN pg_class c ON c.oid = i.inhrelid
+    LOOP
+        IF part.upper_bound IS NOT NULL AND part.upper_bound <= cutoff THEN
+            EXECUTE format('ALTER TABLE %I DETACH PARTITION %s', part.table_name, part.partition_name);
+            EXECUTE format('ALTER TABLE %s SET SCHEMA %I', part.partition_name, archive_schema);
+            moved := moved + 1;
+        END IF;
+    END LOOP;
+    RETURN moved;
+END;
+$$ LANGUAGE plpgsql;
+
 -- =========================
 -- Authentication & Users
 -- =========================
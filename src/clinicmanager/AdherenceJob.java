@@ -0,0 +1,33 @@
+package clinicmanager;
+
+import clinicmanager.controllers.AdherenceAnalytics;
+import clinicmanager.dao.AdherenceDAO;
+import clinicmanager.dao.DrugSafetyDAO;
+import clinicmanager.database.DatabaseConnection;
+import java.sql.Connection;
+import java.time.LocalDate;
+
+// medication adherence analytics, meant to run from cron like RefillBatchJob:
+//   java -cp ... clinicmanager.AdherenceJob [periodDays]
+// rewrites medication_adherence for the period ending today
+public class AdherenceJob {
+    public static void main(String[] args) {
+        int periodDays = args.length > 0 ? Integer.parseInt(args[0]) : AdherenceAnalytics.DEFAULT_PERIOD_DAYS;
+        int exitCode = 0;
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            AdherenceAnalytics analytics = new AdherenceAnalytics(new AdherenceDAO(connection), new DrugSafetyDAO(connection));
+            AdherenceAnalytics.RunSummary summary = analytics.run(LocalDate.now(), periodDays);
+            System.out.println("Patients: " + summary.patients);
+            System.out.println("Patient/drug rows written: " + summary.rowsWritten);
+            System.out.println("Stale rows deleted: " + summary.rowsDeleted);
+            System.out.println("Below 80% days covered: " + summary.lowAdherence);
+            System.out.println("Duplicate therapy: " + summary.duplicateTherapy);
+        } catch (Exception e) {
+            System.err.println("Adherence run failed: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            DatabaseConnection.closeConnectionPool();
+        }
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,30 @@
+package clinicmanager;
+
+import clinicmanager.controllers.DashboardController;
+import clinicmanager.dao.RefillQueueDAO;
+import clinicmanager.database.DatabaseConnection;
+import java.sql.Connection;
+import java.time.LocalDate;
+
+// nightly refill pass, meant to run from cron next to the app:
+//   java -cp ... clinicmanager.RefillBatchJob [horizonDays]
+// each step is one set-based statement so a hundred thousand open prescriptions is one pass
+public class RefillBatchJob {
+    public static void main(String[] args) {
+        int horizonDays = args.length > 0 ? Integer.parseInt(args[0]) : DashboardController.REFILL_HORIZON_DAYS;
+        int exitCode = 0;
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            RefillQueueDAO.BatchResult result = new RefillQueueDAO(connection).runNightlyPass(LocalDate.now(), horizonDays);
+            System.out.println("Refill dates set: " + result.refillDatesSet);
+            System.out.println("Expired: " + result.expired);
+            System.out.println("Refills due in " + horizonDays + " days: " + result.dueRefills);
+            System.out.println("Renewal candidates: " + result.renewalCandidates);
+        } catch (Exception e) {
+            System.err.println("Refill pass failed: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            DatabaseConnection.closeConnectionPool();
+        }
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,105 @@
+package clinicmanager.controllers;
+
+import clinicmanager.dao.AdherenceDAO;
+import clinicmanager.dao.DrugSafetyDAO;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// medication adherence over the last periodDays: the DAO streams the intervals a chunk of
+// patients at a time, each chunk is split across a fork-join pool (patients are independent)
+// and the rows go back to the DAO to be written. the database work stays on the one connection
+public class AdherenceAnalytics {
+    public static final int DEFAULT_PERIOD_DAYS = 365;
+    // patients in memory at once
+    public static final int CHUNK_PATIENTS = 5000;
+    // a fork-join leaf computes this many patients itself instead of splitting further
+    private static final int LEAF_PATIENTS = 64;
+
+    private final AdherenceDAO adherenceDAO;
+    private final DrugSafetyDAO drugSafetyDAO;
+    private final ForkJoinPool pool;
+
+    public AdherenceAnalytics(AdherenceDAO adherenceDAO, DrugSafetyDAO drugSafetyDAO) {
+        this(adherenceDAO, drugSafetyDAO, ForkJoinPool.commonPool());
+    }
+
+    public AdherenceAnalytics(AdherenceDAO adherenceDAO, DrugSafetyDAO drugSafetyDAO, ForkJoinPool pool) {
+        this.adherenceDAO = adherenceDAO;
+        this.drugSafetyDAO = drugSafetyDAO;
+        this.pool = pool;
+    }
+
+    public static class RunSummary {
+        public int patients;
+        public int rowsWritten;
+        public int rowsDeleted;
+        // rows under the usual 80% adherence line
+        public int lowAdherence;
+        public int duplicateTherapy;
+    }
+
+    // the period is the periodDays ending with asOf
+    public RunSummary run(LocalDate asOf, int periodDays) throws SQLException {
+        LocalDate from = asOf.minusDays(periodDays - 1);
+        LocalDate to = asOf.plusDays(1);
+        AdherenceCalculator calculator = new AdherenceCalculator(new DrugSafetyIndex(drugSafetyDAO.loadRules()));
+        RunSummary summary = new RunSummary();
+
+        AdherenceDAO.RebuildResult result = adherenceDAO.rebuild(from, to, CHUNK_PATIENTS, patients -> {
+            List<AdherenceDAO.AdherenceRow> rows = pool.invoke(new ChunkTask(calculator, patients, 0, patients.size(), from, to));
+            for (AdherenceDAO.AdherenceRow row : rows) {
+                if (row.pdc < 0.8) summary.lowAdherence++;
+                if (row.duplicateTherapy) summary.duplicateTherapy++;
+            }
+            return rows;
+        });
+        summary.patients = result.patients;
+        summary.rowsWritten = result.rowsWritten;
+        summary.rowsDeleted = result.rowsDeleted;
+        return summary;
+    }
+
+    // patients [start, end) of the chunk, halves until a piece is small enough to compute
+    private static class ChunkTask extends RecursiveTask<List<AdherenceDAO.AdherenceRow>> {
+        private final AdherenceCalculator calculator;
+        private final List<AdherenceDAO.PatientIntervals> patients;
+        private final int start;
+        private final int end;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        ChunkTask(AdherenceCalculator calculator, List<AdherenceDAO.PatientIntervals> patients, int start, int end,
+                  LocalDate from, LocalDate to) {
+            this.calculator = calculator;
+            this.patients = patients;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<AdherenceDAO.AdherenceRow> compute() {
+            if (end - start <= LEAF_PATIENTS) {
+                List<AdherenceDAO.AdherenceRow> rows = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    AdherenceDAO.PatientIntervals patient = patients.get(i);
+                    rows.addAll(calculator.compute(patient.patientId, patient.intervals, from, to));
+                }
+                return rows;
+            }
+            int mid = (start + end) >>> 1;
+            ChunkTask left = new ChunkTask(calculator, patients, start, mid, from, to);
+            ChunkTask right = new ChunkTask(calculator, patients, mid, end, from, to);
+            left.fork();
+            List<AdherenceDAO.AdherenceRow> rows = right.compute();
+            List<AdherenceDAO.AdherenceRow> leftRows = left.join();
+            leftRows.addAll(rows);
+            return leftRows;
+        }
+    }
+}
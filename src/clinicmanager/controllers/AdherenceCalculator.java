@@ -0,0 +1,149 @@
+package clinicmanager.controllers;
+
+import clinicmanager.dao.AdherenceDAO;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// adherence for one patient from their supply intervals. per drug the intervals are clipped to
+// the period, sorted and merged (overlaps and back-to-back fills become one run), proportion of
+// days covered runs from the first covered day to the end of the period. drugs sharing a class
+// that overlap long enough are flagged as duplicate therapy.
+// no state besides the index, safe to use from several threads
+public class AdherenceCalculator {
+    // a gap longer than this ends a treatment episode
+    public static final int PERMISSIBLE_GAP_DAYS = 30;
+    // same-class drugs overlapping at least this long count as duplicate therapy, shorter is a switch
+    public static final int DUPLICATE_MIN_DAYS = 14;
+
+    private final DrugSafetyIndex index;
+
+    public AdherenceCalculator(DrugSafetyIndex index) {
+        this.index = index;
+    }
+
+    // from inclusive, to exclusive. intervals are one patient's, any drug and order
+    public List<AdherenceDAO.AdherenceRow> compute(int patientId, List<AdherenceDAO.Interval> intervals, LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+
+        // drug -> [start, end) epoch days clipped to the period, sorted by drug so the output is stable
+        Map<String, List<long[]>> byDrug = new TreeMap<>();
+        for (AdherenceDAO.Interval interval : intervals) {
+            if (interval.start == null || interval.end == null) continue;
+            long start = Math.max(interval.start.toEpochDay(), fromDay);
+            long end = Math.min(interval.end.toEpochDay(), toDay);
+            if (end <= start) continue;
+            byDrug.computeIfAbsent(drugKey(interval.medicationName), k -> new ArrayList<>()).add(new long[] {start, end});
+        }
+
+        List<String> drugs = new ArrayList<>(byDrug.keySet());
+        List<List<long[]>> merged = new ArrayList<>();
+        List<AdherenceDAO.AdherenceRow> rows = new ArrayList<>();
+        for (String drug : drugs) {
+            List<long[]> runs = merge(byDrug.get(drug));
+            merged.add(runs);
+            rows.add(summarize(patientId, drug, runs, toDay));
+        }
+
+        // drug lists are short, every pair is fine
+        for (int i = 0; i < drugs.size(); i++) {
+            for (int j = i + 1; j < drugs.size(); j++) {
+                if (index.sameClass(drugs.get(i), drugs.get(j))
+                        && overlapDays(merged.get(i), merged.get(j)) >= DUPLICATE_MIN_DAYS) {
+                    flagDuplicate(rows.get(i), drugs.get(j));
+                    flagDuplicate(rows.get(j), drugs.get(i));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // sorted, non-overlapping, non-touching runs
+    private static List<long[]> merge(List<long[]> intervals) {
+        intervals.sort(Comparator.comparingLong(interval -> interval[0]));
+        List<long[]> runs = new ArrayList<>();
+        long[] current = null;
+        for (long[] interval : intervals) {
+            if (current != null && interval[0] <= current[1]) {
+                current[1] = Math.max(current[1], interval[1]);
+            } else {
+                current = new long[] {interval[0], interval[1]};
+                runs.add(current);
+            }
+        }
+        return runs;
+    }
+
+    private static AdherenceDAO.AdherenceRow summarize(int patientId, String drug, List<long[]> runs, long toDay) {
+        AdherenceDAO.AdherenceRow row = new AdherenceDAO.AdherenceRow();
+        row.patientId = patientId;
+        row.drugName = drug;
+        long periodStart = runs.get(0)[0];
+        row.periodStart = LocalDate.ofEpochDay(periodStart);
+        row.periodEnd = LocalDate.ofEpochDay(toDay - 1);
+        row.episodes = 1;
+        long covered = 0;
+        long longestGap = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            covered += runs.get(i)[1] - runs.get(i)[0];
+            // the last gap runs to the end of the period, it counts but doesnt start an episode
+            long gap = (i + 1 < runs.size() ? runs.get(i + 1)[0] : toDay) - runs.get(i)[1];
+            longestGap = Math.max(longestGap, gap);
+            if (i + 1 < runs.size() && gap > PERMISSIBLE_GAP_DAYS) {
+                row.episodes++;
+            }
+        }
+        long days = toDay - periodStart;
+        row.daysCovered = (int) covered;
+        row.gapDays = (int) (days - covered);
+        row.longestGap = (int) longestGap;
+        // NUMERIC(5,4)
+        row.pdc = Math.round(covered * 10000.0 / days) / 10000.0;
+        return row;
+    }
+
+    // days both drugs were covered, runs are sorted and non-overlapping so one pass does it
+    private static long overlapDays(List<long[]> a, List<long[]> b) {
+        long overlap = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            long start = Math.max(a.get(i)[0], b.get(j)[0]);
+            long end = Math.min(a.get(i)[1], b.get(j)[1]);
+            if (end > start) {
+                overlap += end - start;
+            }
+            if (a.get(i)[1] < b.get(j)[1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return overlap;
+    }
+
+    private static void flagDuplicate(AdherenceDAO.AdherenceRow row, String otherDrug) {
+        row.duplicateTherapy = true;
+        row.duplicateWith = row.duplicateWith == null ? otherDrug : row.duplicateWith + ", " + otherDrug;
+    }
+
+    // lower case name up to the first word starting with a digit, so "Lisinopril 10mg" and
+    // "lisinopril 20 mg tablets" are one drug but "Insulin glargine" and "Insulin lispro" are not
+    private static String drugKey(String name) {
+        String normalized = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder();
+        for (String word : normalized.split("\\s+")) {
+            if (word.isEmpty() || Character.isDigit(word.charAt(0))) {
+                break;
+            }
+            if (key.length() > 0) key.append(' ');
+            key.append(word);
+        }
+        return key.length() > 0 ? key.toString() : normalized;
+    }
+}
@@ -1,49 +1,183 @@
 package clinicmanager.controllers;
 
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentSeriesDAO;
 import clinicmanager.dao.PatientDAO;
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentSeries;
+import clinicmanager.models.AppointmentStatus;
 import clinicmanager.models.Patient;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 // business logic for appointments
 public class AppointmentController implements IAppointmentController {
+    // how long an existing appointment blocks the calendar (no duration column yet)
+    public static final int DEFAULT_APPOINTMENT_MINUTES = 30;
+    // same limit hasConflict uses
+    public static final int DEFAULT_MAX_CONCURRENT = 5;
+    public static final int SLOT_SEARCH_HORIZON_DAYS = 90;
+    private static final int SLOT_STEP_MINUTES = 15;
+    private static final LocalTime CLINIC_OPEN = LocalTime.of(8, 0);
+    private static final LocalTime CLINIC_CLOSE = LocalTime.of(18, 0);
+    // hard cap so a typo in the until date can't generate years of appointments
+    public static final int MAX_SERIES_OCCURRENCES = 366;
+
     private final AppointmentDAO appointmentDAO;
     private final PatientDAO patientDAO;
+    private final AppointmentSeriesDAO seriesDAO;
+    private final AppointmentSlotIndex slotIndex = new AppointmentSlotIndex(DEFAULT_APPOINTMENT_MINUTES);
 
     public AppointmentController(AppointmentDAO appointmentDAO, PatientDAO patientDAO) {
+        this(appointmentDAO, patientDAO, null);
+    }
+
+    public AppointmentController(AppointmentDAO appointmentDAO, PatientDAO patientDAO, AppointmentSeriesDAO seriesDAO) {
         this.appointmentDAO = appointmentDAO;
         this.patientDAO = patientDAO;
+        this.seriesDAO = seriesDAO;
     }
 
     // validate appointment data before save/update
-    public String validateAppointment(int patientId, String dateTime, String status) {
+    public String validateAppointment(int patientId, LocalDateTime dateTime, AppointmentStatus status) {
         if (patientId == -1) {
             return "Please select a patient.";
         }
-        if (dateTime == null || dateTime.trim().isEmpty()) {
+        if (dateTime == null) {
             return "Appointment date is required.";
         }
-        if (status == null || status.trim().isEmpty()) {
+        if (status == null) {
             return "Status is required.";
         }
         return null;
     }
 
     // check if another appointment exists at same time
-    public boolean hasConflict(String dateTime) throws SQLException {
+    public boolean hasConflict(LocalDateTime dateTime) throws SQLException {
         return appointmentDAO.hasConflict(dateTime);
     }
 
+    // find the next free slots starting at from
+    // walks forward day by day up to SLOT_SEARCH_HORIZON_DAYS
+    public List<LocalDateTime> findNextAvailableSlots(LocalDateTime from, int durationMinutes, int maxConcurrent, int count) throws SQLException {
+        LocalDate firstDay = from.toLocalDate();
+        LocalDate lastDay = firstDay.plusDays(SLOT_SEARCH_HORIZON_DAYS);
+        if (!slotIndex.covers(firstDay, lastDay)) {
+            // one range query for the whole horizon
+            slotIndex.load(firstDay, lastDay, appointmentDAO.getActiveAppointmentTimesBetween(
+                firstDay.atStartOfDay(), lastDay.atStartOfDay()));
+        }
+
+        return slotIndex.findFreeSlots(from, lastDay, durationMinutes, maxConcurrent, count,
+            CLINIC_OPEN, CLINIC_CLOSE, SLOT_STEP_MINUTES);
+    }
+
+    // forget cached availability, called when appointments change
+    public void invalidateAvailability() {
+        slotIndex.clear();
+    }
+
     // save new appointment
     public void saveAppointment(Appointment appointment) throws SQLException {
         appointmentDAO.addAppointment(appointment);
+        invalidateAvailability();
     }
 
     // update existing appointment
     public void updateAppointment(Appointment appointment) throws SQLException {
         appointmentDAO.updateAppointment(appointment);
+        invalidateAvailability();
+    }
+
+    // expand the recurrence rule into occurrence times
+    // monthly steps are counted from the start date so the 31st doesn't drift to the 28th
+    public List<LocalDateTime> generateOccurrences(AppointmentSeries series) throws SQLException {
+        LocalDateTime start = series.getStartDate();
+        if (start == null) {
+            throw new SQLException("Appointment date is required.");
+        }
+        LocalDate until = series.getUntilDate();
+        if (until == null && series.getOccurrenceCount() <= 0) {
+            throw new SQLException("A series needs an occurrence count or an until date.");
+        }
+
+        int interval = Math.max(1, series.getIntervalCount());
+        int limit = series.getOccurrenceCount() > 0
+            ? Math.min(series.getOccurrenceCount(), MAX_SERIES_OCCURRENCES) : MAX_SERIES_OCCURRENCES;
+
+        List<LocalDateTime> occurrences = new ArrayList<>();
+        for (int i = 0; i < limit; i++) {
+            LocalDateTime next;
+            if (AppointmentSeries.DAILY.equals(series.getFrequency())) {
+                next = start.plusDays((long) i * interval);
+            } else if (AppointmentSeries.MONTHLY.equals(series.getFrequency())) {
+                next = start.plusMonths((long) i * interval);
+            } else if (AppointmentSeries.WEEKLY.equals(series.getFrequency())) {
+                next = start.plusWeeks((long) i * interval);
+            } else {
+                throw new SQLException("Unknown frequency: " + series.getFrequency());
+            }
+            if (until != null && next.toLocalDate().isAfter(until)) {
+                break;
+            }
+            occurrences.add(next);
+        }
+        return occurrences;
+    }
+
+    // occurrences that are already fully booked, checked with one query for the whole series
+    public List<LocalDateTime> findSeriesConflicts(List<LocalDateTime> occurrences) throws SQLException {
+        return requireSeriesDAO().findConflicts(occurrences, DEFAULT_MAX_CONCURRENT);
+    }
+
+    // save the series and all given occurrences in one transaction, returns the series id
+    public int createSeries(AppointmentSeries series, List<LocalDateTime> occurrences) throws SQLException {
+        if (occurrences.isEmpty()) {
+            throw new SQLException("The series has no occurrences to schedule.");
+        }
+        int seriesId = requireSeriesDAO().createSeries(series, occurrences);
+        invalidateAvailability();
+        return seriesId;
+    }
+
+    // series id of an appointment, null for one-off appointments
+    public Integer getSeriesId(int appointmentId) throws SQLException {
+        if (seriesDAO == null) {
+            return null;
+        }
+        return seriesDAO.getSeriesIdForAppointment(appointmentId);
+    }
+
+    // fully booked slots the following occurrences would move into, empty when the date doesnt change
+    public List<LocalDateTime> findMoveConflicts(int seriesId, LocalDateTime original, LocalDateTime updated) throws SQLException {
+        long shift = ChronoUnit.MINUTES.between(original, updated);
+        if (shift == 0) {
+            return new ArrayList<>();
+        }
+        return requireSeriesDAO().findMoveConflicts(seriesId, original, shift, DEFAULT_MAX_CONCURRENT);
+    }
+
+    // edit this occurrence and all following ones: the time shift between the old and
+    // new date is applied to every later occurrence, reason/status are copied over
+    public int updateThisAndFollowing(int seriesId, LocalDateTime original, LocalDateTime updated,
+                                      String reason, AppointmentStatus status) throws SQLException {
+        long shift = ChronoUnit.MINUTES.between(original, updated);
+        int updatedRows = requireSeriesDAO().updateFollowing(seriesId, original, shift, reason,
+            status != null ? status.getValue() : null);
+        invalidateAvailability();
+        return updatedRows;
+    }
+
+    private AppointmentSeriesDAO requireSeriesDAO() throws SQLException {
+        if (seriesDAO == null) {
+            throw new SQLException("Recurring appointments are not available.");
+        }
+        return seriesDAO;
     }
 
     // get all appointments
@@ -51,6 +185,12 @@ public class AppointmentController implements IAppointmentController {
         return appointmentDAO.getAllAppointments();
     }
 
+    // one page of appointments for days [start, end), pass the returned token to get the next page
+    public AppointmentDAO.AppointmentPage getAppointmentsBetween(LocalDate start, LocalDate end,
+            AppointmentDAO.AppointmentFilter filter, String pageToken) throws SQLException {
+        return appointmentDAO.getAppointmentsBetween(start.atStartOfDay(), end.atStartOfDay(), filter, pageToken);
+    }
+
     // get patient by id for display
     public Patient getPatientById(int patientId) throws SQLException {
         return patientDAO.getPatientById(patientId);
@@ -59,11 +199,11 @@ public class AppointmentController implements IAppointmentController {
     // get today's appointments only
     public List<Appointment> getTodaysAppointments() throws SQLException {
         List<Appointment> all = appointmentDAO.getAllAppointments();
-        String today = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
+        LocalDate today = LocalDate.now();
         
         List<Appointment> today_appts = new java.util.ArrayList<>();
         for (Appointment apt : all) {
-            if (apt.getAppointmentDate() != null && apt.getAppointmentDate().startsWith(today)) {
+            if (apt.getAppointmentDate() != null && apt.getAppointmentDate().toLocalDate().equals(today)) {
                 today_appts.add(apt);
             }
         }
@@ -0,0 +1,118 @@
+package clinicmanager.controllers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// in-memory occupancy index for finding free appointment slots
+// every day is split in 5 minute buckets, each bucket holds how many active
+// appointments overlap it (built with a sweep line / difference array)
+public class AppointmentSlotIndex {
+    public static final int BUCKET_MINUTES = 5;
+    private static final int BUCKETS_PER_DAY = 24 * 60 / BUCKET_MINUTES;
+    private static final int[] EMPTY_DAY = new int[BUCKETS_PER_DAY];
+
+    private final int appointmentMinutes;
+    private final Map<LocalDate, int[]> occupancy = new HashMap<>();
+    private LocalDate loadedFrom;  // inclusive
+    private LocalDate loadedTo;    // exclusive
+
+    // appointmentMinutes = how long an existing appointment blocks the calendar
+    public AppointmentSlotIndex(int appointmentMinutes) {
+        this.appointmentMinutes = appointmentMinutes;
+    }
+
+    // true if the days [from, to) are already loaded
+    public synchronized boolean covers(LocalDate from, LocalDate to) {
+        return loadedFrom != null && !from.isBefore(loadedFrom) && !to.isAfter(loadedTo);
+    }
+
+    // rebuild the index for [from, to) from the appointment start times of that range
+    public synchronized void load(LocalDate from, LocalDate to, List<LocalDateTime> appointmentStarts) {
+        occupancy.clear();
+        int span = toBuckets(appointmentMinutes);
+
+        // difference array per day, +1 at start bucket, -1 after end bucket
+        for (LocalDateTime start : appointmentStarts) {
+            int[] diff = occupancy.computeIfAbsent(start.toLocalDate(), d -> new int[BUCKETS_PER_DAY + 1]);
+            int first = bucketOf(start.toLocalTime());
+            int last = Math.min(first + span, BUCKETS_PER_DAY);
+            diff[first]++;
+            diff[last]--;
+        }
+
+        // prefix sum turns each diff array into the occupancy counts
+        for (Map.Entry<LocalDate, int[]> entry : occupancy.entrySet()) {
+            int[] diff = entry.getValue();
+            int[] counts = new int[BUCKETS_PER_DAY];
+            int running = 0;
+            for (int b = 0; b < BUCKETS_PER_DAY; b++) {
+                running += diff[b];
+                counts[b] = running;
+            }
+            entry.setValue(counts);
+        }
+
+        loadedFrom = from;
+        loadedTo = to;
+    }
+
+    // drop everything, next search reloads from the database
+    public synchronized void clear() {
+        occupancy.clear();
+        loadedFrom = null;
+        loadedTo = null;
+    }
+
+    // walks forward day by day from 'from' until 'until' (exclusive) and returns
+    // up to 'count' start times where 'durationMinutes' fits with less than
+    // maxConcurrent overlapping appointments in every bucket
+    public synchronized List<LocalDateTime> findFreeSlots(LocalDateTime from, LocalDate until, int durationMinutes,
+                                                          int maxConcurrent, int count, LocalTime open,
+                                                          LocalTime close, int stepMinutes) {
+        List<LocalDateTime> slots = new ArrayList<>();
+        int need = toBuckets(durationMinutes);
+        int step = Math.max(1, toBuckets(stepMinutes));
+        int openBucket = bucketOf(open);
+        int closeBucket = close.equals(LocalTime.MIDNIGHT) ? BUCKETS_PER_DAY : bucketOf(close);
+        int[] freeRun = new int[BUCKETS_PER_DAY + 1];
+
+        for (LocalDate day = from.toLocalDate(); day.isBefore(until) && slots.size() < count; day = day.plusDays(1)) {
+            int[] counts = occupancy.getOrDefault(day, EMPTY_DAY);
+
+            // freeRun[b] = how many free buckets in a row start at b
+            freeRun[closeBucket] = 0;
+            for (int b = closeBucket - 1; b >= openBucket; b--) {
+                freeRun[b] = counts[b] < maxConcurrent ? freeRun[b + 1] + 1 : 0;
+            }
+
+            int firstCandidate = openBucket;
+            if (day.equals(from.toLocalDate())) {
+                // round up to the next step after 'from'
+                int fromBucket = (from.getHour() * 60 + from.getMinute() + BUCKET_MINUTES - 1) / BUCKET_MINUTES;
+                while (firstCandidate < fromBucket) {
+                    firstCandidate += step;
+                }
+            }
+
+            for (int b = firstCandidate; b + need <= closeBucket && slots.size() < count; b += step) {
+                if (freeRun[b] >= need) {
+                    slots.add(day.atStartOfDay().plusMinutes((long) b * BUCKET_MINUTES));
+                }
+            }
+        }
+        return slots;
+    }
+
+    private static int bucketOf(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / BUCKET_MINUTES;
+    }
+
+    private static int toBuckets(int minutes) {
+        return Math.max(1, (minutes + BUCKET_MINUTES - 1) / BUCKET_MINUTES);
+    }
+}
@@ -1,109 +1,123 @@
 package clinicmanager.controllers;
 
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentStatsDAO;
 import clinicmanager.dao.PatientDAO;
+import clinicmanager.dao.RefillQueueDAO;
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentStatus;
 import clinicmanager.models.Patient;
+import clinicmanager.util.DateTimeUtil;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 // business logic for dashboard
 public class DashboardController implements IDashboardController {
     private final PatientDAO patientDAO;
     private final AppointmentDAO appointmentDAO;
+    private final AppointmentStatsDAO statsDAO;
+    private final RefillQueueDAO refillQueueDAO;
 
-    public DashboardController(PatientDAO patientDAO, AppointmentDAO appointmentDAO) {
+    // how far ahead the refill queue looks, same horizon as the nightly pass
+    public static final int REFILL_HORIZON_DAYS = 7;
+
+    public DashboardController(PatientDAO patientDAO, AppointmentDAO appointmentDAO, AppointmentStatsDAO statsDAO,
+                               RefillQueueDAO refillQueueDAO) {
         this.patientDAO = patientDAO;
         this.appointmentDAO = appointmentDAO;
+        this.statsDAO = statsDAO;
+        this.refillQueueDAO = refillQueueDAO;
     }
 
     // get total patients count
     public int getTotalPatients() throws SQLException {
-        return patientDAO.getAllPatients().size();
+        return patientDAO.countPatients();
+    }
+
+    // all appointment counts in one query on the daily rollup
+    public AppointmentStatsDAO.StatusTotals getAppointmentTotals() throws SQLException {
+        return statsDAO.getStatusTotals();
     }
 
     // get all appointments count
     public int getTotalAppointments() throws SQLException {
-        return appointmentDAO.getAllAppointments().size();
+        return getAppointmentTotals().total;
     }
 
     // get completed appointments count
     public int getCompletedAppointments() throws SQLException {
-        List<Appointment> all = appointmentDAO.getAllAppointments();
-        int count = 0;
-        for (Appointment apt : all) {
-            if ("completed".equals(apt.getStatus())) {
-                count++;
-            }
-        }
-        return count;
+        return getAppointmentTotals().get(AppointmentStatus.COMPLETED);
     }
 
     // get missed appointments count
     public int getMissedAppointments() throws SQLException {
-        List<Appointment> all = appointmentDAO.getAllAppointments();
-        int count = 0;
-        for (Appointment apt : all) {
-            if ("missed".equals(apt.getStatus())) {
-                count++;
-            }
-        }
-        return count;
+        return getAppointmentTotals().get(AppointmentStatus.MISSED);
     }
 
     // get cancelled appointments count
     public int getCancelledAppointments() throws SQLException {
-        List<Appointment> all = appointmentDAO.getAllAppointments();
-        int count = 0;
-        for (Appointment apt : all) {
-            if ("cancelled".equals(apt.getStatus())) {
-                count++;
-            }
-        }
-        return count;
+        return getAppointmentTotals().get(AppointmentStatus.CANCELLED);
     }
 
     // get today's appointments that are not cancelled
     public List<AppointmentInfo> getTodayAppointments() throws SQLException {
-        List<Appointment> all = appointmentDAO.getAllAppointments();
-        String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
         List<AppointmentInfo> result = new ArrayList<>();
 
-        for (Appointment apt : all) {
-            String status = apt.getStatus() != null ? apt.getStatus() : "scheduled";
-            // dont show cancelled appointments
-            if ("cancelled".equalsIgnoreCase(status)) {
+        // range query on appointment_date, not the whole table
+        for (Appointment apt : appointmentDAO.getTodayAppointmentsStream()) {
+            AppointmentStatus status = apt.getStatus() != null ? apt.getStatus() : AppointmentStatus.SCHEDULED;
+            // dont show cancelled or no-show appointments
+            if (!status.isActive()) {
                 continue;
             }
 
-            if (apt.getAppointmentDate() != null && apt.getAppointmentDate().startsWith(today)) {
-                try {
-                    Patient patient = patientDAO.getPatientById(apt.getPatientId());
-                    String patientName = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
-                    String time = apt.getAppointmentDate().substring(11);
-                    
-                    result.add(new AppointmentInfo(
-                        time, patientName, apt.getReason() != null ? apt.getReason() : "", status
-                    ));
-                } catch (SQLException e) {
-                    // skip if cant load patient
-                }
+            try {
+                Patient patient = patientDAO.getPatientById(apt.getPatientId());
+                String patientName = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
+                String time = apt.getAppointmentDate().format(DateTimeUtil.TIME);
+                
+                result.add(new AppointmentInfo(
+                    time, patientName, apt.getReason() != null ? apt.getReason() : "", status
+                ));
+            } catch (SQLException e) {
+                // skip if cant load patient
             }
         }
         return result;
     }
 
+    // recompute the daily rollup from scratch
+    public int rebuildStats() throws SQLException {
+        return statsDAO.rebuild();
+    }
+
+    // one page of prescriptions due within the horizon, overdue ones first
+    public RefillQueueDAO.QueuePage getRefillQueue(String pageToken) throws SQLException {
+        return refillQueueDAO.getQueue(LocalDate.now().plusDays(REFILL_HORIZON_DAYS), pageToken);
+    }
+
+    // filled today
+    public void recordRefill(int prescriptionId) throws SQLException {
+        refillQueueDAO.recordRefill(prescriptionId, LocalDate.now());
+    }
+
+    public void renewPrescription(int prescriptionId, int refills) throws SQLException {
+        if (refills < 1) {
+            throw new SQLException("A renewal needs at least one refill.");
+        }
+        refillQueueDAO.renew(prescriptionId, refills);
+    }
+
     // simple wrapper class for appointment display data
     public static class AppointmentInfo {
         public String time;
         public String patientName;
         public String reason;
-        public String status;
+        public AppointmentStatus status;
 
-        public AppointmentInfo(String time, String patientName, String reason, String status) {
+        public AppointmentInfo(String time, String patientName, String reason, AppointmentStatus status) {
             this.time = time;
             this.patientName = patientName;
             this.reason = reason;
@@ -0,0 +1,41 @@
+package clinicmanager.controllers;
+
+import clinicmanager.dao.DrugSafetyDAO;
+import java.sql.SQLException;
+import java.util.List;
+
+// allergy / interaction checks for new medications.
+// the index is built from the reference tables on first use and kept until reload()
+public class DrugSafetyChecker {
+    private final DrugSafetyDAO drugSafetyDAO;
+    private volatile DrugSafetyIndex index;
+
+    public DrugSafetyChecker(DrugSafetyDAO drugSafetyDAO) {
+        this.drugSafetyDAO = drugSafetyDAO;
+    }
+
+    public DrugSafetyIndex getIndex() throws SQLException {
+        DrugSafetyIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) {
+                    index = new DrugSafetyIndex(drugSafetyDAO.loadRules());
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    // after the drug_* tables were edited
+    public void reload() {
+        index = null;
+    }
+
+    // medicationNames are the lines about to be added for the patient, empty list = nothing to warn about
+    public List<DrugSafetyIndex.SafetyAlert> checkNewMedications(int patientId, List<String> medicationNames) throws SQLException {
+        DrugSafetyIndex safetyIndex = getIndex();
+        DrugSafetyDAO.PatientProfile profile = drugSafetyDAO.loadProfile(patientId);
+        return safetyIndex.check(profile.allergens, profile.activeMedications, medicationNames);
+    }
+}
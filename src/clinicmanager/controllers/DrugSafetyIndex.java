@@ -0,0 +1,214 @@
+package clinicmanager.controllers;
+
+import clinicmanager.dao.DrugSafetyDAO;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// in-memory lookup for prescribing safety checks, built once from the reference tables.
+// class names are interned to small ints, so a drug's classes, the classes an allergy rules
+// out and the classes a class interacts with are all BitSets and a check is a few
+// intersects() per line. never changes after construction, safe to share between threads
+public class DrugSafetyIndex {
+    private static final BitSet NO_CLASSES = new BitSet();
+
+    public enum AlertType {
+        ALLERGY, CROSS_REACTIVITY, INTERACTION
+    }
+
+    public static class SafetyAlert {
+        public final AlertType type;
+        public final String severity;
+        // the drug being checked and the allergen / medication it clashes with
+        public final String drug;
+        public final String conflictsWith;
+        public final String description;
+
+        public SafetyAlert(AlertType type, String severity, String drug, String conflictsWith, String description) {
+            this.type = type;
+            this.severity = severity;
+            this.drug = drug;
+            this.conflictsWith = conflictsWith;
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case ALLERGY:
+                    return drug + ": patient is allergic to " + conflictsWith;
+                case CROSS_REACTIVITY:
+                    return drug + ": possible cross-reaction with " + conflictsWith + " allergy (" + description + ")";
+                default:
+                    return drug + " + " + conflictsWith + ": " + severity + " interaction (" + description + ")";
+            }
+        }
+    }
+
+    private final Map<String, Integer> classIds = new HashMap<>();
+    // normalized drug / allergen name -> its classes
+    private final Map<String, BitSet> drugClasses = new HashMap<>();
+    // class id -> classes it interacts with / classes that cross-react with an allergy to it
+    private final BitSet[] interactsWith;
+    private final BitSet[] crossReactsWith;
+    // pairKey(a, b) -> {severity, description} and pairKey(allergy, drug) -> description
+    private final Map<Long, String[]> interactionInfo = new HashMap<>();
+    private final Map<Long, String> crossReactionInfo = new HashMap<>();
+
+    public DrugSafetyIndex(DrugSafetyDAO.Rules rules) {
+        for (String[] member : rules.classMembers) {
+            internClass(member[1]);
+        }
+        for (String[] interaction : rules.interactions) {
+            internClass(interaction[0]);
+            internClass(interaction[1]);
+        }
+        for (String[] cross : rules.crossReactions) {
+            internClass(cross[0]);
+            internClass(cross[1]);
+        }
+        interactsWith = emptySets(classIds.size());
+        crossReactsWith = emptySets(classIds.size());
+
+        for (String[] member : rules.classMembers) {
+            drugClasses.computeIfAbsent(normalize(member[0]), k -> new BitSet()).set(classIds.get(normalize(member[1])));
+        }
+        for (String[] interaction : rules.interactions) {
+            int a = classIds.get(normalize(interaction[0]));
+            int b = classIds.get(normalize(interaction[1]));
+            interactsWith[a].set(b);
+            interactsWith[b].set(a);
+            interactionInfo.put(pairKey(a, b), new String[] {interaction[2], interaction[3]});
+        }
+        for (String[] cross : rules.crossReactions) {
+            int allergy = classIds.get(normalize(cross[0]));
+            int drug = classIds.get(normalize(cross[1]));
+            crossReactsWith[allergy].set(drug);
+            crossReactionInfo.put(((long) allergy << 32) | drug, cross[2]);
+        }
+    }
+
+    // checks newDrugs against the allergies, the medications already taken and each other.
+    // names are free text, "Amoxicillin 500mg" is looked up as "amoxicillin 500mg" then "amoxicillin"
+    public List<SafetyAlert> check(List<String> allergens, List<String> activeMedications, List<String> newDrugs) {
+        List<SafetyAlert> alerts = new ArrayList<>();
+
+        // everything the allergies rule out, built once per check
+        Set<String> allergenNames = new HashSet<>();
+        BitSet allergyClasses = new BitSet();
+        BitSet crossClasses = new BitSet();
+        for (String allergen : allergens) {
+            allergenNames.add(normalize(allergen));
+            BitSet classes = classesOf(allergen);
+            allergyClasses.or(classes);
+            for (int c = classes.nextSetBit(0); c >= 0; c = classes.nextSetBit(c + 1)) {
+                crossClasses.or(crossReactsWith[c]);
+            }
+        }
+
+        // medications already taken, then each new line is also checked against the lines before it
+        List<String> others = new ArrayList<>(activeMedications);
+        List<BitSet> otherClasses = new ArrayList<>();
+        for (String medication : activeMedications) {
+            otherClasses.add(classesOf(medication));
+        }
+
+        for (String drug : newDrugs) {
+            BitSet classes = classesOf(drug);
+            if (allergenNames.contains(normalize(drug)) || allergenNames.contains(firstWord(drug))
+                    || classes.intersects(allergyClasses)) {
+                alerts.add(new SafetyAlert(AlertType.ALLERGY, "contraindicated", drug,
+                    allergyCause(allergens, drug, classes), null));
+            } else if (classes.intersects(crossClasses)) {
+                alerts.add(crossReaction(allergens, drug, classes));
+            }
+
+            for (int i = 0; i < others.size(); i++) {
+                BitSet other = otherClasses.get(i);
+                for (int c = classes.nextSetBit(0); c >= 0; c = classes.nextSetBit(c + 1)) {
+                    if (interactsWith[c].intersects(other)) {
+                        BitSet hit = (BitSet) interactsWith[c].clone();
+                        hit.and(other);
+                        String[] info = interactionInfo.get(pairKey(c, hit.nextSetBit(0)));
+                        alerts.add(new SafetyAlert(AlertType.INTERACTION, info[0], drug, others.get(i), info[1]));
+                        break;
+                    }
+                }
+            }
+            others.add(drug);
+            otherClasses.add(classes);
+        }
+        return alerts;
+    }
+
+    // the slow path, only runs once a clash is known: which allergy caused it
+    private String allergyCause(List<String> allergens, String drug, BitSet classes) {
+        for (String allergen : allergens) {
+            String name = normalize(allergen);
+            if (name.equals(normalize(drug)) || name.equals(firstWord(drug)) || classesOf(allergen).intersects(classes)) {
+                return allergen;
+            }
+        }
+        return null;
+    }
+
+    private SafetyAlert crossReaction(List<String> allergens, String drug, BitSet classes) {
+        for (String allergen : allergens) {
+            BitSet allergyClasses = classesOf(allergen);
+            for (int a = allergyClasses.nextSetBit(0); a >= 0; a = allergyClasses.nextSetBit(a + 1)) {
+                for (int d = classes.nextSetBit(0); d >= 0; d = classes.nextSetBit(d + 1)) {
+                    if (crossReactsWith[a].get(d)) {
+                        return new SafetyAlert(AlertType.CROSS_REACTIVITY, "moderate", drug, allergen,
+                            crossReactionInfo.get(((long) a << 32) | d));
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // true when the tables put both drugs in at least one common class (duplicate therapy)
+    public boolean sameClass(String drugA, String drugB) {
+        return classesOf(drugA).intersects(classesOf(drugB));
+    }
+
+    // classes of a drug or allergen name, NO_CLASSES if the tables dont know it. dont modify the result
+    private BitSet classesOf(String name) {
+        BitSet classes = drugClasses.get(normalize(name));
+        if (classes == null) {
+            classes = drugClasses.get(firstWord(name));
+        }
+        return classes != null ? classes : NO_CLASSES;
+    }
+
+    private void internClass(String name) {
+        classIds.putIfAbsent(normalize(name), classIds.size());
+    }
+
+    private static BitSet[] emptySets(int count) {
+        BitSet[] sets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            sets[i] = new BitSet();
+        }
+        return sets;
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String firstWord(String name) {
+        String normalized = normalize(name);
+        int space = normalized.indexOf(' ');
+        return space > 0 ? normalized.substring(0, space) : normalized;
+    }
+}
@@ -1,16 +1,32 @@
 package clinicmanager.controllers;
 
+import clinicmanager.dao.AppointmentDAO;
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentSeries;
+import clinicmanager.models.AppointmentStatus;
 import clinicmanager.models.Patient;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface IAppointmentController {
-    String validateAppointment(int patientId, String dateTime, String status);
-    boolean hasConflict(String dateTime) throws SQLException;
+    String validateAppointment(int patientId, LocalDateTime dateTime, AppointmentStatus status);
+    boolean hasConflict(LocalDateTime dateTime) throws SQLException;
+    List<LocalDateTime> findNextAvailableSlots(LocalDateTime from, int durationMinutes, int maxConcurrent, int count) throws SQLException;
+    void invalidateAvailability();
     void saveAppointment(Appointment appointment) throws SQLException;
     void updateAppointment(Appointment appointment) throws SQLException;
+    List<LocalDateTime> generateOccurrences(AppointmentSeries series) throws SQLException;
+    List<LocalDateTime> findSeriesConflicts(List<LocalDateTime> occurrences) throws SQLException;
+    int createSeries(AppointmentSeries series, List<LocalDateTime> occurrences) throws SQLException;
+    Integer getSeriesId(int appointmentId) throws SQLException;
+    List<LocalDateTime> findMoveConflicts(int seriesId, LocalDateTime original, LocalDateTime updated) throws SQLException;
+    int updateThisAndFollowing(int seriesId, LocalDateTime original, LocalDateTime updated,
+                               String reason, AppointmentStatus status) throws SQLException;
     List<Appointment> getAllAppointments() throws SQLException;
+    AppointmentDAO.AppointmentPage getAppointmentsBetween(LocalDate start, LocalDate end,
+            AppointmentDAO.AppointmentFilter filter, String pageToken) throws SQLException;
     Patient getPatientById(int patientId) throws SQLException;
     List<Appointment> getTodaysAppointments() throws SQLException;
     List<Patient> getAllPatients() throws SQLException;
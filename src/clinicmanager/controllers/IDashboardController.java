@@ -1,13 +1,20 @@
 package clinicmanager.controllers;
 
+import clinicmanager.dao.AppointmentStatsDAO;
+import clinicmanager.dao.RefillQueueDAO;
 import java.sql.SQLException;
 import java.util.List;
 
 public interface IDashboardController {
     int getTotalPatients() throws SQLException;
+    AppointmentStatsDAO.StatusTotals getAppointmentTotals() throws SQLException;
     int getTotalAppointments() throws SQLException;
     int getCompletedAppointments() throws SQLException;
     int getMissedAppointments() throws SQLException;
     int getCancelledAppointments() throws SQLException;
     List<DashboardController.AppointmentInfo> getTodayAppointments() throws SQLException;
+    int rebuildStats() throws SQLException;
+    RefillQueueDAO.QueuePage getRefillQueue(String pageToken) throws SQLException;
+    void recordRefill(int prescriptionId) throws SQLException;
+    void renewPrescription(int prescriptionId, int refills) throws SQLException;
 }
@@ -27,6 +27,7 @@ public interface IMedicalHistoryController {
     void addMedication(Medication medication) throws SQLException;
     void updateMedication(Medication medication) throws SQLException;
     void deleteMedication(int medicationId) throws SQLException;
+    List<DrugSafetyIndex.SafetyAlert> checkMedicationSafety(int patientId, String medicationName) throws SQLException;
     
     String validateCondition(String conditionName);
     String validateAllergy(String allergyName);
@@ -1,8 +1,20 @@
 package clinicmanager.controllers;
 
+import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentStatsDAO;
+import clinicmanager.dao.ClinicalSearchDAO;
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentStatus;
 import clinicmanager.models.Patient;
+import clinicmanager.reports.BatchExporter;
+import clinicmanager.reports.CsvExport;
+import clinicmanager.reports.IncrementalExporter;
+import clinicmanager.reports.ReportExporter;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface IReportsController {
@@ -10,9 +22,17 @@ public interface IReportsController {
     List<Appointment> getAllAppointments() throws SQLException;
     List<Appointment> getTodaysAppointments() throws SQLException;
     String getPatientNameById(int patientId) throws SQLException;
-    int getAppointmentCountByStatus(String status) throws SQLException;
+    AppointmentStatsDAO.StatusTotals getAppointmentTotals() throws SQLException;
+    int getAppointmentCountByStatus(AppointmentStatus status) throws SQLException;
     int getTotalAppointments() throws SQLException;
     int getTotalPatients() throws SQLException;
-    String formatDate(String dateString);
+    String formatDate(LocalDateTime dateTime);
     String getAppointmentSummary(int patientId) throws SQLException;
+    ReportExporter createExporter(CsvExport export, boolean fast);
+    BatchExporter createBatchExport(List<CsvExport> exports, Path directory, String suffix, boolean fast, BatchExporter.Listener listener);
+    IncrementalExporter createIncrementalExport();
+    AppointmentDAO.AppointmentAnalytics getAnalytics(LocalDate start, LocalDate end) throws SQLException;
+    void invalidateAnalytics();
+    void exportAnalytics(AppointmentDAO.AppointmentAnalytics analytics, Path target) throws IOException;
+    ClinicalSearchDAO.SearchPage searchClinicalNotes(String query, String pageToken) throws SQLException;
 }
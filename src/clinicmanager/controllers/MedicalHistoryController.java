@@ -9,6 +9,7 @@ import clinicmanager.models.MedicalCondition;
 import clinicmanager.models.Allergy;
 import clinicmanager.models.Medication;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 
 // business logic for medical history management
@@ -17,13 +18,16 @@ public class MedicalHistoryController implements IMedicalHistoryController {
     private final MedicalConditionDAO medicalConditionDAO;
     private final AllergyDAO allergyDAO;
     private final MedicationDAO medicationDAO;
+    private final DrugSafetyChecker drugSafetyChecker;
 
     public MedicalHistoryController(PatientDAO patientDAO, MedicalConditionDAO medicalConditionDAO, 
-                                   AllergyDAO allergyDAO, MedicationDAO medicationDAO) {
+                                   AllergyDAO allergyDAO, MedicationDAO medicationDAO,
+                                   DrugSafetyChecker drugSafetyChecker) {
         this.patientDAO = patientDAO;
         this.medicalConditionDAO = medicalConditionDAO;
         this.allergyDAO = allergyDAO;
         this.medicationDAO = medicationDAO;
+        this.drugSafetyChecker = drugSafetyChecker;
     }
 
     // get all patients for dropdown
@@ -99,6 +103,11 @@ public class MedicalHistoryController implements IMedicalHistoryController {
         medicationDAO.deleteMedication(medicationId);
     }
 
+    // warnings for adding medicationName to the patient, empty if nothing clashes
+    public List<DrugSafetyIndex.SafetyAlert> checkMedicationSafety(int patientId, String medicationName) throws SQLException {
+        return drugSafetyChecker.checkNewMedications(patientId, Collections.singletonList(medicationName));
+    }
+
     // validate condition name
     public String validateCondition(String conditionName) {
         if (conditionName == null || conditionName.trim().isEmpty()) {
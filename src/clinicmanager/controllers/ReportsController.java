@@ -1,23 +1,53 @@
 package clinicmanager.controllers;
 
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentStatsDAO;
+import clinicmanager.dao.ClinicalSearchDAO;
 import clinicmanager.dao.PatientDAO;
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentStatus;
 import clinicmanager.models.Patient;
+import clinicmanager.reports.AnalyticsReport;
+import clinicmanager.reports.BatchExporter;
+import clinicmanager.reports.CopyExporter;
+import clinicmanager.reports.CsvExport;
+import clinicmanager.reports.CsvExporter;
+import clinicmanager.reports.IncrementalExporter;
+import clinicmanager.reports.ReportExporter;
+import clinicmanager.util.DateTimeUtil;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 // business logic for reports and exports
 public class ReportsController implements IReportsController {
     private final AppointmentDAO appointmentDAO;
     private final PatientDAO patientDAO;
+    private final AppointmentStatsDAO statsDAO;
+    private final ClinicalSearchDAO searchDAO;
+    private static final int MAX_CACHED_RANGES = 8;
+    // analytics per date range, cleared on the next appointment change
+    private final Map<String, AppointmentDAO.AppointmentAnalytics> analyticsCache = new LinkedHashMap<String, AppointmentDAO.AppointmentAnalytics>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AppointmentDAO.AppointmentAnalytics> eldest) {
+            return size() > MAX_CACHED_RANGES;
+        }
+    };
+    // bumped on every invalidate so a result computed before the change isnt cached after it
+    private long analyticsVersion;
 
-    public ReportsController(AppointmentDAO appointmentDAO, PatientDAO patientDAO) {
+    public ReportsController(AppointmentDAO appointmentDAO, PatientDAO patientDAO, AppointmentStatsDAO statsDAO,
+                             ClinicalSearchDAO searchDAO) {
         this.appointmentDAO = appointmentDAO;
         this.patientDAO = patientDAO;
+        this.statsDAO = statsDAO;
+        this.searchDAO = searchDAO;
     }
 
     // get all patients for reports
@@ -33,11 +63,11 @@ public class ReportsController implements IReportsController {
     // get today's appointments only
     public List<Appointment> getTodaysAppointments() throws SQLException {
         List<Appointment> all = appointmentDAO.getAllAppointments();
-        String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        LocalDate today = LocalDate.now();
         
         List<Appointment> today_appts = new ArrayList<>();
         for (Appointment apt : all) {
-            if (apt.getAppointmentDate() != null && apt.getAppointmentDate().startsWith(today)) {
+            if (apt.getAppointmentDate() != null && apt.getAppointmentDate().toLocalDate().equals(today)) {
                 today_appts.add(apt);
             }
         }
@@ -51,43 +81,92 @@ public class ReportsController implements IReportsController {
         return patient.getFirstName() + " " + patient.getLastName();
     }
 
+    // appointment counts per status from the daily rollup, O(days) whatever the table size
+    public AppointmentStatsDAO.StatusTotals getAppointmentTotals() throws SQLException {
+        return statsDAO.getStatusTotals();
+    }
+
     // get appointment count by status
-    public int getAppointmentCountByStatus(String status) throws SQLException {
-        List<Appointment> all = appointmentDAO.getAllAppointments();
-        int count = 0;
-        for (Appointment apt : all) {
-            if (status.equalsIgnoreCase(apt.getStatus() != null ? apt.getStatus() : "")) {
-                count++;
-            }
-        }
-        return count;
+    public int getAppointmentCountByStatus(AppointmentStatus status) throws SQLException {
+        return getAppointmentTotals().get(status);
     }
 
     // get total appointments count
     public int getTotalAppointments() throws SQLException {
-        return appointmentDAO.getAllAppointments().size();
+        return getAppointmentTotals().total;
     }
 
     // get total patients count
     public int getTotalPatients() throws SQLException {
-        return patientDAO.getAllPatients().size();
+        return patientDAO.countPatients();
     }
 
     // format date for reports
-    public String formatDate(String dateString) {
-        if (dateString == null || dateString.isEmpty()) return "";
-        try {
-            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm");
-            Date date = inputFormat.parse(dateString);
-            return outputFormat.format(date);
-        } catch (Exception e) {
-            return dateString;
-        }
+    public String formatDate(LocalDateTime dateTime) {
+        if (dateTime == null) return "";
+        return dateTime.format(DateTimeUtil.DISPLAY_DATE_TIME);
     }
 
     // get appointment status summary for a patient
     public String getAppointmentSummary(int patientId) throws SQLException {
         return appointmentDAO.getStatusSummaryForPatient(patientId);
     }
+
+    // exporter for one export, fast uses COPY TO STDOUT when the export has a COPY query
+    // and falls back to the streaming cursor export otherwise. call export() off the EDT,
+    // keep the exporter to cancel() it
+    public ReportExporter createExporter(CsvExport export, boolean fast) {
+        if (fast && export.supportsCopy()) {
+            return new CopyExporter();
+        }
+        return new CsvExporter();
+    }
+
+    // several exports in parallel, each on its own connection. call run() off the EDT
+    public BatchExporter createBatchExport(List<CsvExport> exports, Path directory, String suffix, boolean fast, BatchExporter.Listener listener) {
+        return new BatchExporter(exports, directory, suffix, fast, listener);
+    }
+
+    // exports only rows created/updated since the last run of a report, call export() off the EDT
+    public IncrementalExporter createIncrementalExport() {
+        return new IncrementalExporter();
+    }
+
+    // time-series analytics for days [start, end), computed in sql and cached per range
+    // can run off the EDT, the cache is only touched under the lock
+    public AppointmentDAO.AppointmentAnalytics getAnalytics(LocalDate start, LocalDate end) throws SQLException {
+        String key = start + "|" + end;
+        long version;
+        synchronized (analyticsCache) {
+            AppointmentDAO.AppointmentAnalytics cached = analyticsCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            version = analyticsVersion;
+        }
+        AppointmentDAO.AppointmentAnalytics analytics = appointmentDAO.getAnalytics(start, end);
+        synchronized (analyticsCache) {
+            if (version == analyticsVersion) {
+                analyticsCache.put(key, analytics);
+            }
+        }
+        return analytics;
+    }
+
+    // forget cached analytics, called when appointments change
+    public void invalidateAnalytics() {
+        synchronized (analyticsCache) {
+            analyticsVersion++;
+            analyticsCache.clear();
+        }
+    }
+
+    public void exportAnalytics(AppointmentDAO.AppointmentAnalytics analytics, Path target) throws IOException {
+        AnalyticsReport.write(analytics, target);
+    }
+
+    // ranked clinical note search, pageToken null for the first page
+    public ClinicalSearchDAO.SearchPage searchClinicalNotes(String query, String pageToken) throws SQLException {
+        return searchDAO.search(query, pageToken);
+    }
 }
@@ -0,0 +1,201 @@
+package clinicmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// reads medication supply intervals and rewrites the medication_adherence summary.
+// intervals come from the medication list (start to end, open-ended while active) and from
+// prescriptions: the first fill on prescribed_date plus every refill in prescription_fills,
+// each covering its days supply. they are streamed in patient order over a
+// cursor and handed out a chunk of patients at a time, so memory is bounded by the chunk
+// and not by the number of prescriptions
+public class AdherenceDAO {
+    // rows per executeBatch when writing results
+    public static final int BATCH_SIZE = 500;
+
+    private final Connection connection;
+
+    public AdherenceDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // days covered by one medication list entry or one fill, end is exclusive
+    public static class Interval {
+        public int patientId;
+        public String medicationName;
+        public LocalDate start;
+        public LocalDate end;
+    }
+
+    // one patient / drug row of medication_adherence, period dates are inclusive
+    public static class AdherenceRow {
+        public int patientId;
+        public String drugName;
+        public LocalDate periodStart;
+        public LocalDate periodEnd;
+        public int daysCovered;
+        public double pdc;
+        public int gapDays;
+        public int longestGap;
+        public int episodes;
+        public boolean duplicateTherapy;
+        // other drugs of the same class taken at the same time, comma separated
+        public String duplicateWith;
+    }
+
+    // one patient's intervals
+    public static class PatientIntervals {
+        public final int patientId;
+        public final List<Interval> intervals = new ArrayList<>();
+
+        public PatientIntervals(int patientId) {
+            this.patientId = patientId;
+        }
+    }
+
+    // computes the rows for one chunk of patients
+    public interface ChunkProcessor {
+        List<AdherenceRow> process(List<PatientIntervals> patients);
+    }
+
+    // what one rebuild did
+    public static class RebuildResult {
+        public int patients;
+        public int rowsWritten;
+        public int rowsDeleted;
+    }
+
+    private static final String INTERVALS_SQL =
+        "SELECT patient_id, medication_name, start_date, end_date FROM (" +
+        "  SELECT patient_id, medication_name, start_date, COALESCE(end_date + 1, ?) AS end_date FROM medications " +
+        "  WHERE start_date IS NOT NULL AND start_date < ? AND (end_date IS NULL OR end_date >= ?) " +
+        "    AND (end_date IS NOT NULL OR lower(status) = 'active') " +
+        "  UNION ALL " +
+        "  SELECT patient_id, medication_name, prescribed_date, prescribed_date + duration_days FROM prescriptions " +
+        "  WHERE status <> 'cancelled' AND duration_days > 0 AND prescribed_date < ? AND prescribed_date + duration_days > ? " +
+        "  UNION ALL " +
+        "  SELECT pr.patient_id, pr.medication_name, f.filled_date, f.filled_date + f.days_supply " +
+        "  FROM prescription_fills f JOIN prescriptions pr ON pr.id = f.prescription_id " +
+        "  WHERE pr.status <> 'cancelled' AND f.days_supply > 0 " +
+        "    AND f.filled_date < ? AND f.filled_date + f.days_supply > ?" +
+        ") i ORDER BY patient_id";
+
+    // rewrites medication_adherence for intervals touching [from, to) in one transaction.
+    // the processor gets chunkPatients patients at a time (each patient whole), its rows are
+    // upserted as they come back and rows from earlier runs the run didnt produce are deleted
+    // at the end. a failure rolls everything back and leaves the previous results
+    public RebuildResult rebuild(LocalDate from, LocalDate to, int chunkPatients, ChunkProcessor processor) throws SQLException {
+        RebuildResult result = new RebuildResult();
+        LocalDateTime computedAt = LocalDateTime.now();
+        boolean autoCommit = connection.getAutoCommit();
+        // the cursor and the writes share this one transaction, the cursor never commits it
+        connection.setAutoCommit(false);
+        try {
+            try (Stream<Interval> intervals = streamIntervals(from, to)) {
+                List<PatientIntervals> chunk = new ArrayList<>();
+                PatientIntervals current = null;
+                Iterator<Interval> it = intervals.iterator();
+                while (it.hasNext()) {
+                    Interval interval = it.next();
+                    if (current == null || current.patientId != interval.patientId) {
+                        // the previous patient is complete, safe to cut the chunk here
+                        if (chunk.size() == chunkPatients) {
+                            result.rowsWritten += saveResults(processor.process(chunk), computedAt);
+                            chunk = new ArrayList<>();
+                        }
+                        current = new PatientIntervals(interval.patientId);
+                        chunk.add(current);
+                        result.patients++;
+                    }
+                    current.intervals.add(interval);
+                }
+                if (!chunk.isEmpty()) {
+                    result.rowsWritten += saveResults(processor.process(chunk), computedAt);
+                }
+            } catch (CursorStream.UncheckedSQLException e) {
+                throw e.getCause();
+            }
+            result.rowsDeleted = deleteOlderThan(computedAt);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return result;
+    }
+
+    // every interval touching [from, to), grouped by patient. close the stream when done
+    private Stream<Interval> streamIntervals(LocalDate from, LocalDate to) throws SQLException {
+        return CursorStream.open(connection, INTERVALS_SQL, stmt -> {
+            stmt.setObject(1, to);
+            stmt.setObject(2, to);
+            stmt.setObject(3, from);
+            stmt.setObject(4, to);
+            stmt.setObject(5, from);
+            stmt.setObject(6, to);
+            stmt.setObject(7, from);
+        }, rs -> {
+            Interval interval = new Interval();
+            interval.patientId = rs.getInt("patient_id");
+            interval.medicationName = rs.getString("medication_name");
+            interval.start = rs.getObject("start_date", LocalDate.class);
+            interval.end = rs.getObject("end_date", LocalDate.class);
+            return interval;
+        });
+    }
+
+    // upserts the rows, stamped with the run's start so deleteOlderThan can drop what the run didnt see
+    private int saveResults(List<AdherenceRow> rows, LocalDateTime computedAt) throws SQLException {
+        String sql = "INSERT INTO medication_adherence (patient_id, drug_name, period_start, period_end, days_covered, pdc, " +
+            "gap_days, longest_gap, episodes, duplicate_therapy, duplicate_with, computed_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (patient_id, drug_name) DO UPDATE SET period_start = EXCLUDED.period_start, " +
+            "period_end = EXCLUDED.period_end, days_covered = EXCLUDED.days_covered, pdc = EXCLUDED.pdc, " +
+            "gap_days = EXCLUDED.gap_days, longest_gap = EXCLUDED.longest_gap, episodes = EXCLUDED.episodes, " +
+            "duplicate_therapy = EXCLUDED.duplicate_therapy, duplicate_with = EXCLUDED.duplicate_with, " +
+            "computed_at = EXCLUDED.computed_at";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (AdherenceRow row : rows) {
+                stmt.setInt(1, row.patientId);
+                stmt.setString(2, row.drugName);
+                stmt.setObject(3, row.periodStart);
+                stmt.setObject(4, row.periodEnd);
+                stmt.setInt(5, row.daysCovered);
+                stmt.setDouble(6, row.pdc);
+                stmt.setInt(7, row.gapDays);
+                stmt.setInt(8, row.longestGap);
+                stmt.setInt(9, row.episodes);
+                stmt.setBoolean(10, row.duplicateTherapy);
+                stmt.setString(11, row.duplicateWith);
+                stmt.setObject(12, computedAt);
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        return rows.size();
+    }
+
+    // rows from earlier runs for drugs or patients this run had no intervals for
+    private int deleteOlderThan(LocalDateTime computedAt) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM medication_adherence WHERE computed_at < ?")) {
+            stmt.setObject(1, computedAt);
+            return stmt.executeUpdate();
+        }
+    }
+}
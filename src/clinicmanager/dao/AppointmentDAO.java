@@ -1,13 +1,16 @@
 package clinicmanager.dao;
 
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentStatus;
+import clinicmanager.util.DateTimeUtil;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public class AppointmentDAO {
     private Connection connection;
@@ -23,40 +26,35 @@ public class AppointmentDAO {
             "INSERT INTO Appointments (patient_id, appointment_date, reason, status) VALUES (?, ?, ?, ?)" :
             "INSERT INTO Appointments (patient_id, appointment_date, reason) VALUES (?, ?, ?)";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = connection.prepareStatement(sql, new String[] {"id"})) {
             int paramIndex = 1;
             stmt.setInt(paramIndex++, appointment.getPatientId());
             
-            // Convert string timestamp to java.sql.Timestamp
-            if (appointment.getAppointmentDate() != null && !appointment.getAppointmentDate().trim().isEmpty()) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                    java.util.Date utilDate = sdf.parse(appointment.getAppointmentDate().trim());
-                    stmt.setTimestamp(paramIndex++, new java.sql.Timestamp(utilDate.getTime()));
-                } catch (Exception e) {
-                    // Try alternative format with seconds
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                        java.util.Date utilDate = sdf.parse(appointment.getAppointmentDate().trim());
-                        stmt.setTimestamp(paramIndex++, new java.sql.Timestamp(utilDate.getTime()));
-                    } catch (Exception e2) {
-                        throw new SQLException("Invalid date format. Please use YYYY-MM-DD HH:MM or YYYY-MM-DD HH:MM:SS format.", e2);
-                    }
-                }
-            } else {
+            if (appointment.getAppointmentDate() == null) {
                 throw new SQLException("Appointment date is required.");
             }
+            stmt.setObject(paramIndex++, appointment.getAppointmentDate());
             
             stmt.setString(paramIndex++, appointment.getReason());
             
             if (hasStatusColumn) {
-                stmt.setString(paramIndex++, appointment.getStatus() != null ? appointment.getStatus() : "scheduled");
+                stmt.setString(paramIndex++, statusValue(appointment.getStatus()));
             }
             
             stmt.executeUpdate();
+            // hand the new id back so the change event can name the row
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    appointment.setId(keys.getInt(1));
+                }
+            }
         }
     }
     
+    private static String statusValue(AppointmentStatus status) {
+        return (status != null ? status : AppointmentStatus.SCHEDULED).getValue();
+    }
+
     // check if theres a status colum or not
     private boolean checkIfStatusExists() {
         try {
@@ -131,8 +129,8 @@ public class AppointmentDAO {
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
                         int total = rs.getInt("total");
-                        Timestamp first = rs.getTimestamp("first_date");
-                        String firstStr = first != null ? new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm").format(first) : "-";
+                        LocalDateTime first = rs.getObject("first_date", LocalDateTime.class);
+                        String firstStr = first != null ? first.format(DateTimeUtil.DATE_TIME) : "-";
                         return String.format("Scheduled: %d (%s)", total, firstStr);
                     }
                 }
@@ -141,7 +139,7 @@ public class AppointmentDAO {
         }
 
         int scheduled = 0, completed = 0, missed = 0;
-        Timestamp firstScheduled = null, lastCompleted = null, lastMissed = null;
+        LocalDateTime firstScheduled = null, lastCompleted = null, lastMissed = null;
         
         // grabs scheduled ones, using earliest date
         String scheduledSql = "SELECT COUNT(*) AS cnt, MIN(appointment_date) AS first_date FROM Appointments WHERE patient_id = ? AND (status IS NULL OR status = 'scheduled')";
@@ -150,7 +148,7 @@ public class AppointmentDAO {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     scheduled = rs.getInt("cnt");
-                    firstScheduled = rs.getTimestamp("first_date");
+                    firstScheduled = rs.getObject("first_date", LocalDateTime.class);
                 }
             }
         }
@@ -162,7 +160,7 @@ public class AppointmentDAO {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     completed = rs.getInt("cnt");
-                    lastCompleted = rs.getTimestamp("last_date");
+                    lastCompleted = rs.getObject("last_date", LocalDateTime.class);
                 }
             }
         }
@@ -174,22 +172,21 @@ public class AppointmentDAO {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     missed = rs.getInt("cnt");
-                    lastMissed = rs.getTimestamp("last_date");
+                    lastMissed = rs.getObject("last_date", LocalDateTime.class);
                 }
             }
         }
 
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm");
-        String schedStr = scheduled + formatDate(firstScheduled, sdf, "");
-        String compStr = completed + formatDate(lastCompleted, sdf, "last: ");
-        String missStr = missed + formatDate(lastMissed, sdf, "last: ");
+        String schedStr = scheduled + formatDate(firstScheduled, "");
+        String compStr = completed + formatDate(lastCompleted, "last: ");
+        String missStr = missed + formatDate(lastMissed, "last: ");
 
         return String.format("Scheduled: %s\nCompleted: %s\nMissed: %s", schedStr, compStr, missStr);
     }
 
-    private String formatDate(Timestamp ts, java.text.SimpleDateFormat sdf, String label) {
+    private String formatDate(LocalDateTime ts, String label) {
         if (ts == null) return "";
-        return " (" + label + sdf.format(ts) + ")";
+        return " (" + label + ts.format(DateTimeUtil.DATE_TIME) + ")";
     }
 
     // gets all appointments
@@ -198,39 +195,70 @@ public class AppointmentDAO {
         boolean hasStatusColumn = checkIfStatusExists();
         boolean hasAuditColumns = checkIfAuditColumnsExist();
         String sql = "SELECT * FROM Appointments ORDER BY appointment_date";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-        SimpleDateFormat auditSdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         
         try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                Timestamp timestamp = rs.getTimestamp("appointment_date");
-                String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
-                
-                String status = hasStatusColumn ? rs.getString("status") : "scheduled";
-                String createdAt = null;
-                String updatedAt = null;
-                
-                if (hasAuditColumns) {
-                    Timestamp created = rs.getTimestamp("created_at");
-                    Timestamp updated = rs.getTimestamp("updated_at");
-                    createdAt = (created != null) ? auditSdf.format(created) : null;
-                    updatedAt = (updated != null) ? auditSdf.format(updated) : null;
-                }
-                
-                Appointment appointment = new Appointment(
-                    rs.getInt("id"),
-                    rs.getInt("patient_id"),
-                    dateString,
-                    rs.getString("reason"),
-                    status,
-                    createdAt,
-                    updatedAt
-                );
-                appointments.add(appointment);
+                appointments.add(mapAppointment(rs, hasStatusColumn, hasAuditColumns));
             }
         }
         return appointments;
     }
+
+    // appointments matching criteria (null = all) as a lazy stream over a server-side cursor,
+    // ordered by date then id. close it when done, limit/findFirst stop the fetch early
+    public Stream<Appointment> streamAppointments(AppointmentFilter criteria) throws SQLException {
+        return streamAppointments(null, null, criteria);
+    }
+
+    // same but only appointments in [from, to), either end can be null
+    public Stream<Appointment> streamAppointments(LocalDateTime from, LocalDateTime to, AppointmentFilter criteria) throws SQLException {
+        boolean hasStatusColumn = checkIfStatusExists();
+        boolean hasAuditColumns = checkIfAuditColumnsExist();
+        boolean byPatient = criteria != null && criteria.patientId != null;
+        boolean byStatus = criteria != null && criteria.status != null && hasStatusColumn;
+        boolean byText = criteria != null && criteria.textQuery != null;
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM Appointments WHERE 1=1");
+        if (from != null) sql.append(" AND appointment_date >= ?");
+        if (to != null) sql.append(" AND appointment_date < ?");
+        if (byPatient) sql.append(" AND patient_id = ?");
+        if (byStatus) sql.append(" AND status = ?");
+        if (byText) sql.append(" AND search_vector @@ websearch_to_tsquery('english', ?)");
+        sql.append(" ORDER BY appointment_date, id");
+
+        return CursorStream.open(sql.toString(), stmt -> {
+            int paramIndex = 1;
+            if (from != null) stmt.setObject(paramIndex++, from);
+            if (to != null) stmt.setObject(paramIndex++, to);
+            if (byPatient) stmt.setInt(paramIndex++, criteria.patientId);
+            if (byStatus) stmt.setString(paramIndex++, criteria.status.getValue());
+            if (byText) stmt.setString(paramIndex++, criteria.textQuery);
+        }, rs -> mapAppointment(rs, hasStatusColumn, hasAuditColumns));
+    }
+
+    // one row to an Appointment, no string parsing, dates come straight from the driver
+    private Appointment mapAppointment(ResultSet rs, boolean hasStatusColumn, boolean hasAuditColumns) throws SQLException {
+        return new Appointment(
+            rs.getInt("id"),
+            rs.getInt("patient_id"),
+            rs.getObject("appointment_date", LocalDateTime.class),
+            rs.getString("reason"),
+            hasStatusColumn ? mapStatus(rs.getString("status")) : AppointmentStatus.SCHEDULED,
+            hasAuditColumns ? rs.getObject("created_at", LocalDateTime.class) : null,
+            hasAuditColumns ? rs.getObject("updated_at", LocalDateTime.class) : null
+        );
+    }
+
+    // a status the app doesnt know (written by another tool or a newer version) shouldnt make
+    // the whole list fail, it is logged and read as the column default
+    private static AppointmentStatus mapStatus(String value) {
+        try {
+            return AppointmentStatus.fromValue(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown appointment status '" + value + "', reading it as scheduled");
+            return AppointmentStatus.SCHEDULED;
+        }
+    }
     
     // check if audit colums exist
     private boolean checkIfAuditColumnsExist() {
@@ -251,51 +279,130 @@ public class AppointmentDAO {
         boolean hasStatusColumn = checkIfStatusExists();
         boolean hasAuditColumns = checkIfAuditColumnsExist();
         String sql = "SELECT * FROM Appointments WHERE patient_id = ? ORDER BY appointment_date";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-        SimpleDateFormat auditSdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, patientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Timestamp timestamp = rs.getTimestamp("appointment_date");
-                    String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
-                    
-                    String status = hasStatusColumn ? rs.getString("status") : "scheduled";
-                    String createdAt = null;
-                    String updatedAt = null;
-                    
-                    if (hasAuditColumns) {
-                        Timestamp created = rs.getTimestamp("created_at");
-                        Timestamp updated = rs.getTimestamp("updated_at");
-                        createdAt = (created != null) ? auditSdf.format(created) : null;
-                        updatedAt = (updated != null) ? auditSdf.format(updated) : null;
+                    appointments.add(mapAppointment(rs, hasStatusColumn, hasAuditColumns));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    // optional filters for range queries, null means dont filter
+    public static class AppointmentFilter {
+        public Integer patientId;
+        public AppointmentStatus status;
+        // only these appointments, used to reload single rows after a change (range queries only)
+        public java.util.Collection<Integer> ids;
+        // full-text match on search_vector (web search syntax), uses the GIN index (stream queries only)
+        public String textQuery;
+    }
+
+    // one page of a range query plus the token for the next page (null when done)
+    public static class AppointmentPage {
+        public List<Appointment> appointments = new ArrayList<>();
+        public Map<Integer, String> patientNames = new java.util.HashMap<>();
+        public String nextPageToken;
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    // appointments in [start, end) ordered by date then id, paged with a keyset
+    // token ("id|timestamp" of the last row) so later pages dont use OFFSET
+    public AppointmentPage getAppointmentsBetween(LocalDateTime start, LocalDateTime end, AppointmentFilter filter, String pageToken) throws SQLException {
+        return getAppointmentsBetween(start, end, filter, pageToken, DEFAULT_PAGE_SIZE);
+    }
+
+    public AppointmentPage getAppointmentsBetween(LocalDateTime start, LocalDateTime end, AppointmentFilter filter, String pageToken, int pageSize) throws SQLException {
+        boolean hasStatusColumn = checkIfStatusExists();
+        StringBuilder sql = new StringBuilder(
+            "SELECT a.id, a.patient_id, a.appointment_date, a.reason" + (hasStatusColumn ? ", a.status" : "") +
+            ", p.first_name, p.last_name FROM Appointments a LEFT JOIN Patients p ON p.id = a.patient_id" +
+            " WHERE a.appointment_date >= ? AND a.appointment_date < ?");
+
+        LocalDateTime afterDate = null;
+        int afterId = 0;
+        if (pageToken != null && !pageToken.isEmpty()) {
+            try {
+                int sep = pageToken.indexOf('|');
+                afterId = Integer.parseInt(pageToken.substring(0, sep));
+                afterDate = LocalDateTime.parse(pageToken.substring(sep + 1));
+            } catch (Exception e) {
+                throw new SQLException("Invalid page token: " + pageToken, e);
+            }
+            sql.append(" AND (a.appointment_date, a.id) > (?, ?)");
+        }
+        if (filter != null && filter.patientId != null) {
+            sql.append(" AND a.patient_id = ?");
+        }
+        if (filter != null && filter.status != null && hasStatusColumn) {
+            sql.append(" AND a.status = ?");
+        }
+        if (filter != null && filter.ids != null) {
+            sql.append(" AND a.id = ANY(?)");
+        }
+        sql.append(" ORDER BY a.appointment_date, a.id LIMIT ?");
+
+        AppointmentPage page = new AppointmentPage();
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            int paramIndex = 1;
+            stmt.setObject(paramIndex++, start);
+            stmt.setObject(paramIndex++, end);
+            if (afterDate != null) {
+                stmt.setObject(paramIndex++, afterDate);
+                stmt.setInt(paramIndex++, afterId);
+            }
+            if (filter != null && filter.patientId != null) {
+                stmt.setInt(paramIndex++, filter.patientId);
+            }
+            if (filter != null && filter.status != null && hasStatusColumn) {
+                stmt.setString(paramIndex++, filter.status.getValue());
+            }
+            if (filter != null && filter.ids != null) {
+                stmt.setArray(paramIndex++, connection.createArrayOf("integer", filter.ids.toArray()));
+            }
+            // fetch one extra row to know if theres another page
+            stmt.setInt(paramIndex++, pageSize + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                LocalDateTime lastDate = null;
+                int lastId = 0;
+                while (rs.next()) {
+                    if (page.appointments.size() == pageSize) {
+                        page.nextPageToken = lastId + "|" + lastDate;
+                        break;
                     }
-                    
-                    Appointment appointment = new Appointment(
-                        rs.getInt("id"),
-                        rs.getInt("patient_id"),
-                        dateString,
+                    lastDate = rs.getObject("appointment_date", LocalDateTime.class);
+                    lastId = rs.getInt("id");
+                    int patientId = rs.getInt("patient_id");
+                    page.appointments.add(new Appointment(
+                        lastId,
+                        patientId,
+                        lastDate,
                         rs.getString("reason"),
-                        status,
-                        createdAt,
-                        updatedAt
-                    );
-                    appointments.add(appointment);
+                        hasStatusColumn ? mapStatus(rs.getString("status")) : AppointmentStatus.SCHEDULED,
+                        null,
+                        null
+                    ));
+                    String firstName = rs.getString("first_name");
+                    page.patientNames.put(patientId, firstName != null ? firstName + " " + rs.getString("last_name") : "Unknown");
                 }
             }
         }
-        return appointments;
+        return page;
     }
 
     // checks if theres too many appointments at same time
     // skips cancelled stuff
     // returns true if maxed out
-    public boolean hasConflict(String appointmentDate) throws SQLException {
+    public boolean hasConflict(LocalDateTime appointmentDate) throws SQLException {
         return hasConflict(appointmentDate, -1, 5); // i set max to 5 appointments
     }
     
-    public boolean hasConflict(String appointmentDate, int excludeAppointmentId, int maxConcurrent) throws SQLException {
+    public boolean hasConflict(LocalDateTime appointmentDate, int excludeAppointmentId, int maxConcurrent) throws SQLException {
         boolean hasStatusColumn = checkIfStatusExists();
         
         // dont count canceled ones
@@ -304,22 +411,7 @@ public class AppointmentDAO {
             "SELECT COUNT(*) FROM Appointments WHERE appointment_date = ? AND id != ?";
         
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            // covert the date string
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                java.util.Date utilDate = sdf.parse(appointmentDate.trim());
-                stmt.setTimestamp(1, new java.sql.Timestamp(utilDate.getTime()));
-            } catch (Exception e) {
-                // trying with seconds too
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    java.util.Date utilDate = sdf.parse(appointmentDate.trim());
-                    stmt.setTimestamp(1, new java.sql.Timestamp(utilDate.getTime()));
-                } catch (Exception e2) {
-                    throw new SQLException("Invalid date format.", e2);
-                }
-            }
-            
+            stmt.setObject(1, appointmentDate);
             stmt.setInt(2, excludeAppointmentId);
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -332,34 +424,199 @@ public class AppointmentDAO {
         return false;
     }
 
+    // gets start times of active appointments in [start, end) with one range query
+    // used by the slot finder so it doesnt have to call hasConflict for every candidate time
+    public List<LocalDateTime> getActiveAppointmentTimesBetween(LocalDateTime start, LocalDateTime end) throws SQLException {
+        List<LocalDateTime> times = new ArrayList<>();
+        boolean hasStatusColumn = checkIfStatusExists();
+        String sql = hasStatusColumn ?
+            "SELECT appointment_date FROM Appointments WHERE appointment_date >= ? AND appointment_date < ? AND status NOT IN ('cancelled', 'no_show') ORDER BY appointment_date" :
+            "SELECT appointment_date FROM Appointments WHERE appointment_date >= ? AND appointment_date < ? ORDER BY appointment_date";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, start);
+            stmt.setObject(2, end);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDateTime ts = rs.getObject(1, LocalDateTime.class);
+                    if (ts != null) {
+                        times.add(ts);
+                    }
+                }
+            }
+        }
+        return times;
+    }
+
+    // one bucket of the volume time series
+    public static class VolumeBucket {
+        public LocalDateTime start;
+        public int total;
+        public int completed;
+        public int noShows;
+        public int cancelled;
+        public double noShowRate;
+        public double cancellationRate;
+        public long runningTotal;
+        public double movingAverage;
+    }
+
+    // everything the analytics report shows for one date range
+    public static class AppointmentAnalytics {
+        public LocalDate start;
+        public LocalDate end;
+        public List<VolumeBucket> daily;
+        public List<VolumeBucket> weekly;
+        public List<VolumeBucket> monthly;
+        // [iso weekday - 1][hour], cancelled appointments not counted
+        public int[][] heatmap = new int[7][24];
+        // days between booking (created_at) and the appointment
+        public double averageLeadDays;
+        public double medianLeadDays;
+        public int total;
+        public int noShows;
+        public int cancelled;
+    }
+
+    public static final String DAY = "day";
+    public static final String WEEK = "week";
+    public static final String MONTH = "month";
+
+    // whole analytics report for days [start, end), a few grouped queries instead of loading every row
+    public AppointmentAnalytics getAnalytics(LocalDate start, LocalDate end) throws SQLException {
+        AppointmentAnalytics analytics = new AppointmentAnalytics();
+        analytics.start = start;
+        analytics.end = end;
+        analytics.daily = getVolume(DAY, start.atStartOfDay(), end.atStartOfDay());
+        analytics.weekly = getVolume(WEEK, start.atStartOfDay(), end.atStartOfDay());
+        analytics.monthly = getVolume(MONTH, start.atStartOfDay(), end.atStartOfDay());
+        analytics.heatmap = getLoadHeatmap(start.atStartOfDay(), end.atStartOfDay());
+        double[] lead = getLeadTimeDays(start.atStartOfDay(), end.atStartOfDay());
+        analytics.averageLeadDays = lead[0];
+        analytics.medianLeadDays = lead[1];
+        for (VolumeBucket bucket : analytics.daily) {
+            analytics.total += bucket.total;
+            analytics.noShows += bucket.noShows;
+            analytics.cancelled += bucket.cancelled;
+        }
+        return analytics;
+    }
+
+    // appointment counts per day/week/month in [start, end)
+    // generate_series fills in empty buckets so charts dont skip days, the window functions
+    // give a running total and a 7 bucket moving average. 'missed' is the old name for no_show.
+    // the range is widened to whole buckets (start down, end up to the bucket boundary) so the
+    // first and last week/month are not partial and dont drag the running total and average
+    public List<VolumeBucket> getVolume(String granularity, LocalDateTime start, LocalDateTime end) throws SQLException {
+        if (!DAY.equals(granularity) && !WEEK.equals(granularity) && !MONTH.equals(granularity)) {
+            throw new SQLException("Unknown granularity: " + granularity);
+        }
+        // granularity is one of the constants above so it can go into the sql as a literal
+        String unit = "'" + granularity + "'";
+        String status = statusExpression();
+        String sql = "WITH buckets AS (" +
+            "  SELECT generate_series(date_trunc(" + unit + ", ?::timestamp), ?::timestamp - interval '1 microsecond', interval '1 " + granularity + "') AS bucket" +
+            "), counts AS (" +
+            "  SELECT date_trunc(" + unit + ", appointment_date) AS bucket, COUNT(*) AS total, " +
+            "    COUNT(*) FILTER (WHERE " + status + " = 'completed') AS completed, " +
+            "    COUNT(*) FILTER (WHERE " + status + " IN ('no_show', 'missed')) AS no_shows, " +
+            "    COUNT(*) FILTER (WHERE " + status + " = 'cancelled') AS cancelled " +
+            "  FROM appointments WHERE appointment_date >= date_trunc(" + unit + ", ?::timestamp) " +
+            "    AND appointment_date < date_trunc(" + unit + ", ?::timestamp - interval '1 microsecond') + interval '1 " + granularity + "' " +
+            "  GROUP BY 1" +
+            ") " +
+            "SELECT b.bucket, COALESCE(c.total, 0) AS total, COALESCE(c.completed, 0) AS completed, " +
+            "  COALESCE(c.no_shows, 0) AS no_shows, COALESCE(c.cancelled, 0) AS cancelled, " +
+            "  COALESCE(100.0 * c.no_shows / NULLIF(c.total, 0), 0) AS no_show_rate, " +
+            "  COALESCE(100.0 * c.cancelled / NULLIF(c.total, 0), 0) AS cancellation_rate, " +
+            "  SUM(COALESCE(c.total, 0)) OVER (ORDER BY b.bucket) AS running_total, " +
+            "  AVG(COALESCE(c.total, 0)) OVER (ORDER BY b.bucket ROWS BETWEEN 6 PRECEDING AND CURRENT ROW) AS moving_avg " +
+            "FROM buckets b LEFT JOIN counts c ON c.bucket = b.bucket ORDER BY b.bucket";
+
+        List<VolumeBucket> buckets = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, start);
+            stmt.setObject(2, end);
+            stmt.setObject(3, start);
+            stmt.setObject(4, end);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    VolumeBucket bucket = new VolumeBucket();
+                    bucket.start = rs.getObject("bucket", LocalDateTime.class);
+                    bucket.total = rs.getInt("total");
+                    bucket.completed = rs.getInt("completed");
+                    bucket.noShows = rs.getInt("no_shows");
+                    bucket.cancelled = rs.getInt("cancelled");
+                    bucket.noShowRate = rs.getDouble("no_show_rate");
+                    bucket.cancellationRate = rs.getDouble("cancellation_rate");
+                    bucket.runningTotal = rs.getLong("running_total");
+                    bucket.movingAverage = rs.getDouble("moving_avg");
+                    buckets.add(bucket);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    // status for the analytics queries, a null status (or no status column) counts as scheduled
+    // like everywhere else
+    private String statusExpression() {
+        return checkIfStatusExists() ? "COALESCE(status, 'scheduled')" : "'scheduled'";
+    }
+
+    // appointments per weekday and hour in [start, end), [0][..] is monday
+    public int[][] getLoadHeatmap(LocalDateTime start, LocalDateTime end) throws SQLException {
+        String sql = "SELECT EXTRACT(ISODOW FROM appointment_date)::int AS dow, EXTRACT(HOUR FROM appointment_date)::int AS hour, COUNT(*) AS cnt " +
+            "FROM appointments WHERE appointment_date >= ? AND appointment_date < ? AND " + statusExpression() + " <> 'cancelled' GROUP BY 1, 2";
+        int[][] heatmap = new int[7][24];
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, start);
+            stmt.setObject(2, end);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    heatmap[rs.getInt("dow") - 1][rs.getInt("hour")] = rs.getInt("cnt");
+                }
+            }
+        }
+        return heatmap;
+    }
+
+    // {average, median} days from booking to appointment in [start, end)
+    // rows entered after the fact (created after their own date) are left out
+    public double[] getLeadTimeDays(LocalDateTime start, LocalDateTime end) throws SQLException {
+        // no booking time on databases without the audit columns
+        if (!checkIfAuditColumnsExist()) {
+            return new double[] {0, 0};
+        }
+        String sql = "SELECT AVG(lead_days) AS avg_lead, percentile_cont(0.5) WITHIN GROUP (ORDER BY lead_days) AS median_lead FROM (" +
+            "  SELECT (EXTRACT(EPOCH FROM (appointment_date - created_at)) / 86400.0)::float8 AS lead_days FROM appointments " +
+            "  WHERE appointment_date >= ? AND appointment_date < ? AND created_at IS NOT NULL AND appointment_date >= created_at" +
+            ") t";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, start);
+            stmt.setObject(2, end);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new double[] {rs.getDouble("avg_lead"), rs.getDouble("median_lead")};
+                }
+            }
+        }
+        return new double[] {0, 0};
+    }
+
     // update appointment
     public void updateAppointment(Appointment appointment) throws SQLException {
         String sql = "UPDATE Appointments SET patient_id = ?, appointment_date = ?, reason = ?, status = ? WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, appointment.getPatientId());
             
-            // gotta convert this too
-            if (appointment.getAppointmentDate() != null && !appointment.getAppointmentDate().trim().isEmpty()) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                    java.util.Date utilDate = sdf.parse(appointment.getAppointmentDate().trim());
-                    stmt.setTimestamp(2, new java.sql.Timestamp(utilDate.getTime()));
-                } catch (Exception e) {
-                    // trying alt format
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                        java.util.Date utilDate = sdf.parse(appointment.getAppointmentDate().trim());
-                        stmt.setTimestamp(2, new java.sql.Timestamp(utilDate.getTime()));
-                    } catch (Exception e2) {
-                        throw new SQLException("Invalid date format. Please use YYYY-MM-DD HH:MM or YYYY-MM-DD HH:MM:SS format.", e2);
-                    }
-                }
-            } else {
+            if (appointment.getAppointmentDate() == null) {
                 throw new SQLException("Appointment date is required.");
             }
+            stmt.setObject(2, appointment.getAppointmentDate());
             
             stmt.setString(3, appointment.getReason());
-            stmt.setString(4, appointment.getStatus() != null ? appointment.getStatus() : "scheduled");
+            stmt.setString(4, statusValue(appointment.getStatus()));
             stmt.setInt(5, appointment.getId());
             stmt.executeUpdate();
         }
@@ -377,18 +634,14 @@ public class AppointmentDAO {
     // get one apointment by id
     public Appointment getAppointmentById(int id) throws SQLException {
         String sql = "SELECT * FROM Appointments WHERE id = ?";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Timestamp timestamp = rs.getTimestamp("appointment_date");
-                    String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
-                    
                     return new Appointment(
                         rs.getInt("id"),
                         rs.getInt("patient_id"),
-                        dateString,
+                        rs.getObject("appointment_date", LocalDateTime.class),
                         rs.getString("reason")
                     );
                 }
@@ -400,43 +653,36 @@ public class AppointmentDAO {
     //  Exaemppp of Stream API with filter for date matching
     
     public List<Appointment> getTodayAppointmentsStream() throws SQLException {
-        List<Appointment> allAppointments = getAllAppointments();
-        String today = LocalDate.now().toString();
+        LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
         
-        return allAppointments.stream()
-            .filter(a -> a.getAppointmentDate() != null && 
-                        a.getAppointmentDate().startsWith(today))
-            .collect(Collectors.toList());
+        return CursorStream.consume(streamAppointments(startOfToday, startOfToday.plusDays(1), null),
+            appointments -> appointments.collect(Collectors.toList()));
     }
     
  //yjibli upcoming appointments using stream
     public List<Appointment> getUpcomingAppointmentsStream() throws SQLException {
-        List<Appointment> allAppointments = getAllAppointments();
-        String today = LocalDate.now().toString();
+        LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
         
-        return allAppointments.stream()
-            .filter(a -> a.getAppointmentDate() != null && 
-                        a.getAppointmentDate().compareTo(today) >= 0)
-            .collect(Collectors.toList());
+        return CursorStream.consume(streamAppointments(startOfToday, null, null),
+            appointments -> appointments.collect(Collectors.toList()));
     }
     
     
      //ehseb 9dh appoin lel patient
     public Map<Integer, Long> countAppointmentsPerPatientStream() throws SQLException {
-        List<Appointment> allAppointments = getAllAppointments();
-        return allAppointments.stream()
+        return CursorStream.consume(streamAppointments(null), appointments -> appointments
             .collect(Collectors.groupingBy(
                 Appointment::getPatientId,
                 Collectors.counting()
-            ));
+            )));
     }
     
    //filtri il appointments bel reason using stream
+   // the reason match is done by postgres on the search_vector index (whole words, stemmed)
     public List<Appointment> filterAppointmentsByReasonStream(String keyword) throws SQLException {
-        List<Appointment> allAppointments = getAllAppointments();
-        return allAppointments.stream()
-            .filter(a -> a.getReason() != null && 
-                        a.getReason().toLowerCase().contains(keyword.toLowerCase()))
-            .collect(Collectors.toList());
+        AppointmentFilter byKeyword = new AppointmentFilter();
+        byKeyword.textQuery = keyword;
+        return CursorStream.consume(streamAppointments(byKeyword), appointments -> appointments
+            .collect(Collectors.toList()));
     }
 }
@@ -0,0 +1,216 @@
+package clinicmanager.dao;
+
+import clinicmanager.models.AppointmentSeries;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AppointmentSeriesDAO {
+    private Connection connection;
+
+    public AppointmentSeriesDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // check if status column exists
+    private boolean checkIfStatusExists() {
+        try {
+            String sql = "SELECT status FROM Appointments LIMIT 0";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.executeQuery();
+                return true;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // returns the occurrence times that already have maxConcurrent active appointments
+    // one query for the whole series instead of hasConflict per occurrence
+    public List<LocalDateTime> findConflicts(List<LocalDateTime> occurrences, int maxConcurrent) throws SQLException {
+        return findConflicts(occurrences, maxConcurrent, null, null);
+    }
+
+    // where a "this and following" move would put the series: the active occurrences from
+    // fromDate on shifted by shiftMinutes, checked against every other appointment.
+    // the occurrences being moved dont count, they leave their old slots
+    public List<LocalDateTime> findMoveConflicts(int seriesId, LocalDateTime fromDate, long shiftMinutes, int maxConcurrent) throws SQLException {
+        boolean hasStatusColumn = checkIfStatusExists();
+        String sql = "SELECT appointment_date FROM appointments WHERE series_id = ? AND appointment_date >= ?" +
+            (hasStatusColumn ? " AND status NOT IN ('cancelled', 'no_show')" : "") +
+            " ORDER BY appointment_date";
+        List<LocalDateTime> moved = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, seriesId);
+            stmt.setObject(2, fromDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    moved.add(rs.getObject(1, LocalDateTime.class).plusMinutes(shiftMinutes));
+                }
+            }
+        }
+        return findConflicts(moved, maxConcurrent, seriesId, fromDate);
+    }
+
+    // occurrences must be sorted. excludeSeriesId/excludeFrom leave that series' rows from that date on out of the count
+    private List<LocalDateTime> findConflicts(List<LocalDateTime> occurrences, int maxConcurrent,
+                                              Integer excludeSeriesId, LocalDateTime excludeFrom) throws SQLException {
+        List<LocalDateTime> conflicts = new ArrayList<>();
+        if (occurrences.isEmpty()) {
+            return conflicts;
+        }
+        LocalDateTime first = occurrences.get(0);
+        LocalDateTime last = occurrences.get(occurrences.size() - 1);
+        String sql = "SELECT appointment_date FROM appointments " +
+            "WHERE appointment_date BETWEEN ? AND ? AND appointment_date = ANY(?) " +
+            (checkIfStatusExists() ? "AND status NOT IN ('cancelled', 'no_show') " : "") +
+            (excludeSeriesId != null ? "AND (series_id IS DISTINCT FROM ? OR appointment_date < ?) " : "") +
+            "GROUP BY appointment_date HAVING COUNT(*) >= ? ORDER BY appointment_date";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = 1;
+            stmt.setObject(paramIndex++, first);
+            stmt.setObject(paramIndex++, last);
+            stmt.setArray(paramIndex++, toTimestampArray(occurrences));
+            if (excludeSeriesId != null) {
+                stmt.setInt(paramIndex++, excludeSeriesId);
+                stmt.setObject(paramIndex++, excludeFrom);
+            }
+            stmt.setInt(paramIndex++, maxConcurrent);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    conflicts.add(rs.getObject(1, LocalDateTime.class));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    // saves the series row and all its appointments in one transaction
+    // the appointments go in with a single INSERT ... SELECT FROM unnest(array)
+    public int createSeries(AppointmentSeries series, List<LocalDateTime> occurrences) throws SQLException {
+        String seriesSql = "INSERT INTO appointment_series (patient_id, frequency, interval_count, start_date, until_date, occurrence_count, reason) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) RETURNING id";
+        // probed before the transaction starts, a failed probe would abort it. older databases
+        // have no status column, same check as AppointmentDAO.addAppointment
+        boolean hasStatusColumn = checkIfStatusExists();
+        String appointmentsSql = "INSERT INTO appointments (patient_id, appointment_date, reason, " +
+            (hasStatusColumn ? "status, " : "") + "series_id) " +
+            "SELECT ?, t, ?, " + (hasStatusColumn ? "'scheduled', " : "") + "? FROM unnest(?::timestamp[]) AS t";
+
+        boolean oldAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            int seriesId;
+            try (PreparedStatement stmt = connection.prepareStatement(seriesSql)) {
+                stmt.setInt(1, series.getPatientId());
+                stmt.setString(2, series.getFrequency());
+                stmt.setInt(3, series.getIntervalCount());
+                stmt.setObject(4, occurrences.isEmpty() ? null : occurrences.get(0));
+                if (series.getUntilDate() != null) {
+                    stmt.setObject(5, series.getUntilDate());
+                } else {
+                    stmt.setNull(5, java.sql.Types.DATE);
+                }
+                if (series.getOccurrenceCount() > 0) {
+                    stmt.setInt(6, series.getOccurrenceCount());
+                } else {
+                    stmt.setNull(6, java.sql.Types.INTEGER);
+                }
+                stmt.setString(7, series.getReason());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    seriesId = rs.getInt(1);
+                }
+            }
+
+            try (PreparedStatement stmt = connection.prepareStatement(appointmentsSql)) {
+                stmt.setInt(1, series.getPatientId());
+                stmt.setString(2, series.getReason());
+                stmt.setInt(3, seriesId);
+                stmt.setArray(4, toTimestampArray(occurrences));
+                stmt.executeUpdate();
+            }
+
+            connection.commit();
+            series.setId(seriesId);
+            return seriesId;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(oldAutoCommit);
+        }
+    }
+
+    // series the appointment belongs to, null if its a single appointment
+    public Integer getSeriesIdForAppointment(int appointmentId) throws SQLException {
+        String sql = "SELECT series_id FROM appointments WHERE id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, appointmentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            // older database without series_id column
+            return null;
+        }
+        return null;
+    }
+
+    // "this and following" edit as one UPDATE: moves every occurrence from fromDate on
+    // by shiftMinutes and sets reason/status (null keeps the current value).
+    // check findMoveConflicts first, this doesnt look at other bookings
+    public int updateFollowing(int seriesId, LocalDateTime fromDate, long shiftMinutes, String reason, String status) throws SQLException {
+        boolean hasStatusColumn = checkIfStatusExists();
+        String sql = "UPDATE appointments SET appointment_date = appointment_date + make_interval(mins => ?), " +
+            "reason = COALESCE(?, reason)" + (hasStatusColumn ? ", status = COALESCE(?, status)" : "") +
+            " WHERE series_id = ? AND appointment_date >= ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = 1;
+            stmt.setInt(paramIndex++, (int) shiftMinutes);
+            stmt.setString(paramIndex++, reason);
+            if (hasStatusColumn) {
+                stmt.setString(paramIndex++, status);
+            }
+            stmt.setInt(paramIndex++, seriesId);
+            stmt.setObject(paramIndex++, fromDate);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // get one series by id
+    public AppointmentSeries getSeriesById(int id) throws SQLException {
+        String sql = "SELECT * FROM appointment_series WHERE id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new AppointmentSeries(
+                        rs.getInt("id"),
+                        rs.getInt("patient_id"),
+                        rs.getString("frequency"),
+                        rs.getInt("interval_count"),
+                        rs.getObject("start_date", LocalDateTime.class),
+                        rs.getObject("until_date", LocalDate.class),
+                        rs.getInt("occurrence_count"),
+                        rs.getString("reason")
+                    );
+                }
+            }
+        }
+        return null;
+    }
+
+    // the driver has no array type for LocalDateTime, so arrays still go through Timestamp
+    private Array toTimestampArray(List<LocalDateTime> dateTimes) throws SQLException {
+        Timestamp[] timestamps = new Timestamp[dateTimes.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = Timestamp.valueOf(dateTimes.get(i));
+        }
+        return connection.createArrayOf("timestamp", timestamps);
+    }
+}
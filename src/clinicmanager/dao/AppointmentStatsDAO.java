@@ -0,0 +1,67 @@
+package clinicmanager.dao;
+
+import clinicmanager.models.AppointmentStatus;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+// reads the appointment_daily_stats rollup (appointments per day and status)
+// the triggers on appointments keep it current, so these queries cost O(days) not O(appointments)
+public class AppointmentStatsDAO {
+    private Connection connection;
+
+    public AppointmentStatsDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // counts per status plus the overall total
+    public static class StatusTotals {
+        public int total;
+        public final Map<AppointmentStatus, Integer> counts = new EnumMap<>(AppointmentStatus.class);
+
+        public int get(AppointmentStatus status) {
+            return counts.getOrDefault(status, 0);
+        }
+    }
+
+    // all appointments ever
+    public StatusTotals getStatusTotals() throws SQLException {
+        return getStatusTotals(null, null);
+    }
+
+    // appointments on days [from, to), either bound can be null
+    public StatusTotals getStatusTotals(LocalDate from, LocalDate to) throws SQLException {
+        String sql = "SELECT status, SUM(appointment_count) AS cnt FROM appointment_daily_stats " +
+            "WHERE (?::date IS NULL OR stat_date >= ?::date) AND (?::date IS NULL OR stat_date < ?::date) " +
+            "GROUP BY status";
+        StatusTotals totals = new StatusTotals();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, from);
+            stmt.setObject(2, from);
+            stmt.setObject(3, to);
+            stmt.setObject(4, to);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int count = rs.getInt("cnt");
+                    totals.total += count;
+                    try {
+                        totals.counts.merge(AppointmentStatus.fromValue(rs.getString("status")), count, Integer::sum);
+                    } catch (IllegalArgumentException e) {
+                        // status the app doesnt know, only counted in the total
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    // recompute the rollup from the appointments table, returns the number of (day, status) rows.
+    // only needed after bulk changes made with the triggers disabled or to repair drift
+    public int rebuild() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT rebuild_appointment_daily_stats()");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package clinicmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// ranked full-text search over visit notes/diagnoses, appointment reasons and
+// condition notes. matching goes through the search_vector GIN indexes, ranks are
+// computed for the matches only and snippets (ts_headline, the slow part) only for
+// the rows of the page. paged with a "rank|source|id" keyset token
+public class ClinicalSearchDAO {
+    public static final int DEFAULT_PAGE_SIZE = 25;
+    // ts_headline puts these around matched words, the UI swaps them for its own markup
+    public static final String HIGHLIGHT_START = "[[";
+    public static final String HIGHLIGHT_END = "]]";
+
+    private final Connection connection;
+
+    public ClinicalSearchDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // ordinal is stored in the token and breaks ties between equal ranks
+    public enum Source {
+        VISIT, APPOINTMENT, CONDITION
+    }
+
+    public static class SearchHit {
+        public Source source;
+        // id in the source table
+        public int id;
+        public int patientId;
+        public String patientName;
+        public LocalDateTime at;
+        public float rank;
+        // matched words are wrapped in HIGHLIGHT_START / HIGHLIGHT_END
+        public String snippet;
+    }
+
+    public static class SearchPage {
+        public List<SearchHit> hits = new ArrayList<>();
+        public String nextPageToken;
+    }
+
+    private static final String HEADLINE_OPTIONS =
+        "StartSel=" + HIGHLIGHT_START + ", StopSel=" + HIGHLIGHT_END +
+        ", MaxFragments=2, MaxWords=18, MinWords=6, FragmentDelimiter=\" ... \"";
+
+    public SearchPage search(String query, String pageToken) throws SQLException {
+        return search(query, pageToken, DEFAULT_PAGE_SIZE);
+    }
+
+    // query uses web search syntax: words, "quoted phrases", OR, -excluded
+    public SearchPage search(String query, String pageToken, int pageSize) throws SQLException {
+        SearchPage page = new SearchPage();
+        if (query == null || query.trim().isEmpty()) {
+            return page;
+        }
+        float afterRank = 0;
+        int afterSource = 0;
+        int afterId = 0;
+        boolean hasToken = pageToken != null && !pageToken.isEmpty();
+        if (hasToken) {
+            try {
+                String[] parts = pageToken.split("\\|");
+                afterRank = Float.parseFloat(parts[0]);
+                afterSource = Integer.parseInt(parts[1]);
+                afterId = Integer.parseInt(parts[2]);
+            } catch (Exception e) {
+                throw new SQLException("Invalid page token: " + pageToken, e);
+            }
+        }
+
+        String sql =
+            "WITH q AS (SELECT websearch_to_tsquery('english', ?) AS query), " +
+            "hits AS (" +
+            "  SELECT 0 AS source, v.id, v.patient_id, v.visit_date AS hit_at, ts_rank(v.search_vector, q.query) AS rank " +
+            "  FROM visits v, q WHERE v.search_vector @@ q.query " +
+            "  UNION ALL " +
+            "  SELECT 1, a.id, a.patient_id, a.appointment_date, ts_rank(a.search_vector, q.query) " +
+            "  FROM appointments a, q WHERE a.search_vector @@ q.query " +
+            "  UNION ALL " +
+            "  SELECT 2, c.id, c.patient_id, c.diagnosis_date::timestamp, ts_rank(c.search_vector, q.query) " +
+            "  FROM medical_conditions c, q WHERE c.search_vector @@ q.query" +
+            "), " +
+            "page AS (" +
+            "  SELECT * FROM hits" +
+            (hasToken ? " WHERE rank < ? OR (rank = ? AND (source, id) > (?, ?))" : "") +
+            "  ORDER BY rank DESC, source, id LIMIT ?" +
+            ") " +
+            "SELECT page.*, p.first_name, p.last_name, " +
+            "  ts_headline('english', CASE page.source " +
+            "    WHEN 0 THEN concat_ws(' ', v.diagnosis, v.clinical_notes, v.treatment, v.notes, v.follow_up_notes) " +
+            "    WHEN 1 THEN a.reason " +
+            "    ELSE concat_ws(' ', c.condition_name, c.notes) END, q.query, ?) AS snippet " +
+            "FROM page CROSS JOIN q " +
+            "LEFT JOIN visits v ON page.source = 0 AND v.id = page.id " +
+            "LEFT JOIN appointments a ON page.source = 1 AND a.id = page.id " +
+            "LEFT JOIN medical_conditions c ON page.source = 2 AND c.id = page.id " +
+            "LEFT JOIN patients p ON p.id = page.patient_id " +
+            "ORDER BY page.rank DESC, page.source, page.id";
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = 1;
+            stmt.setString(paramIndex++, query.trim());
+            if (hasToken) {
+                stmt.setFloat(paramIndex++, afterRank);
+                stmt.setFloat(paramIndex++, afterRank);
+                stmt.setInt(paramIndex++, afterSource);
+                stmt.setInt(paramIndex++, afterId);
+            }
+            // fetch one extra row to know if theres another page
+            stmt.setInt(paramIndex++, pageSize + 1);
+            stmt.setString(paramIndex++, HEADLINE_OPTIONS);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                SearchHit last = null;
+                while (rs.next()) {
+                    if (page.hits.size() == pageSize) {
+                        page.nextPageToken = last.rank + "|" + last.source.ordinal() + "|" + last.id;
+                        break;
+                    }
+                    SearchHit hit = new SearchHit();
+                    hit.source = Source.values()[rs.getInt("source")];
+                    hit.id = rs.getInt("id");
+                    hit.patientId = rs.getInt("patient_id");
+                    String firstName = rs.getString("first_name");
+                    hit.patientName = firstName != null ? firstName + " " + rs.getString("last_name") : null;
+                    hit.at = rs.getObject("hit_at", LocalDateTime.class);
+                    hit.rank = rs.getFloat("rank");
+                    hit.snippet = rs.getString("snippet");
+                    page.hits.add(hit);
+                    last = hit;
+                }
+            }
+        }
+        return page;
+    }
+}
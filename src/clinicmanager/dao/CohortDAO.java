@@ -0,0 +1,46 @@
+package clinicmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.stream.Stream;
+
+// runs a CohortQuery, the matching patients come back as one statement
+public class CohortDAO {
+    private final Connection connection;
+
+    public CohortDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static class CohortMember {
+        public final int patientId;
+        public final String firstName;
+        public final String lastName;
+
+        public CohortMember(int patientId, String firstName, String lastName) {
+            this.patientId = patientId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+        }
+    }
+
+    // matching patients by name over a server-side cursor, close it when done
+    public Stream<CohortMember> streamMembers(CohortQuery query) throws SQLException {
+        String sql = "SELECT p.id, p.first_name, p.last_name FROM patients p" + query.whereClause() +
+            " ORDER BY p.last_name, p.first_name, p.id";
+        return CursorStream.open(sql, query::bind,
+            rs -> new CohortMember(rs.getInt("id"), rs.getString("first_name"), rs.getString("last_name")));
+    }
+
+    public int count(CohortQuery query) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM patients p" + query.whereClause();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            query.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package clinicmanager.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// patient cohort criteria, all of them have to match ("active diabetes, on metformin, no visit
+// in 6 months"). every criterion becomes an EXISTS / NOT EXISTS correlated on patients p, so
+// postgres checks each patient through the patient_id indexes and the whole cohort is one query.
+// names match anywhere, case-insensitive: "diabetes" finds "Type 2 Diabetes"
+public class CohortQuery {
+    private final StringBuilder where = new StringBuilder(" WHERE 1=1");
+    private final List<Object> params = new ArrayList<>();
+
+    public CohortQuery withActiveCondition(String conditionName) {
+        return exists(true, "medical_conditions c", "lower(c.status) = 'active' AND c.condition_name ILIKE ?", like(conditionName));
+    }
+
+    public CohortQuery withoutActiveCondition(String conditionName) {
+        return exists(false, "medical_conditions c", "lower(c.status) = 'active' AND c.condition_name ILIKE ?", like(conditionName));
+    }
+
+    public CohortQuery onMedication(String medicationName) {
+        return exists(true, "medications m", "lower(m.status) = 'active' AND m.medication_name ILIKE ?", like(medicationName));
+    }
+
+    public CohortQuery notOnMedication(String medicationName) {
+        return exists(false, "medications m", "lower(m.status) = 'active' AND m.medication_name ILIKE ?", like(medicationName));
+    }
+
+    public CohortQuery withAllergy(String allergen) {
+        return exists(true, "allergies al", "al.allergen ILIKE ?", like(allergen));
+    }
+
+    public CohortQuery withoutAllergy(String allergen) {
+        return exists(false, "allergies al", "al.allergen ILIKE ?", like(allergen));
+    }
+
+    // at least one visit at or after since (walk-ins count)
+    public CohortQuery visitedSince(LocalDateTime since) {
+        return exists(true, "visits v", "v.visit_date >= ?", since);
+    }
+
+    public CohortQuery noVisitSince(LocalDateTime since) {
+        return exists(false, "visits v", "v.visit_date >= ?", since);
+    }
+
+    public boolean isEmpty() {
+        return params.isEmpty();
+    }
+
+    // " WHERE ..." over patients aliased p
+    public String whereClause() {
+        return where.toString();
+    }
+
+    // binds the parameters of whereClause() starting at 1, returns the next index
+    public int bind(PreparedStatement stmt) throws SQLException {
+        int paramIndex = 1;
+        for (Object param : params) {
+            stmt.setObject(paramIndex++, param);
+        }
+        return paramIndex;
+    }
+
+    private CohortQuery exists(boolean match, String table, String condition, Object param) {
+        String alias = table.substring(table.indexOf(' ') + 1);
+        where.append(match ? " AND EXISTS" : " AND NOT EXISTS")
+            .append(" (SELECT 1 FROM ").append(table)
+            .append(" WHERE ").append(alias).append(".patient_id = p.id AND ").append(condition).append(")");
+        params.add(param);
+        return this;
+    }
+
+    // the text is matched literally, % and _ typed by the user are not wildcards
+    private static String like(String text) {
+        String escaped = text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,181 @@
+package clinicmanager.dao;
+
+import clinicmanager.database.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// lazy Stream over a query backed by a server-side cursor
+// postgres only uses a cursor when autocommit is off and a fetch size is set,
+// so rows come over fetchSize at a time instead of the whole table at once.
+// by default the cursor gets its own pooled connection (like CsvExporter), so it never
+// changes the transaction state of the connection the DAO shares with the UI.
+// a caller already running its own transaction can pass that connection instead,
+// the cursor then lives in the caller's transaction and leaves commit/rollback to it.
+// always close the stream (try-with-resources), that ends the cursor and gives
+// the connection back. a stream that runs to the end closes itself too.
+public final class CursorStream {
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    // binds the query parameters
+    public interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    // turns the current row into an object
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // SQLException thrown while the stream is being consumed, getCause() has the original
+    public static class UncheckedSQLException extends RuntimeException {
+        public UncheckedSQLException(SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    private CursorStream() {
+    }
+
+    // cursor on its own connection, committed and given back when the stream closes
+    // (rolled back if reading failed)
+    public static <T> Stream<T> open(String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        return open(sql, binder, mapper, DEFAULT_FETCH_SIZE);
+    }
+
+    public static <T> Stream<T> open(String sql, Binder binder, RowMapper<T> mapper, int fetchSize) throws SQLException {
+        Connection connection = DatabaseConnection.getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return start(new Cursor<>(connection, true, mapper), sql, binder, fetchSize);
+    }
+
+    // cursor inside the caller's open transaction (autocommit already off). only the
+    // statement is closed with the stream, the transaction and connection stay the caller's
+    public static <T> Stream<T> open(Connection connection, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        if (connection.getAutoCommit()) {
+            throw new SQLException("A cursor on a caller's connection needs a transaction, turn autocommit off first");
+        }
+        return start(new Cursor<>(connection, false, mapper), sql, binder, DEFAULT_FETCH_SIZE);
+    }
+
+    private static <T> Stream<T> start(Cursor<T> cursor, String sql, Binder binder, int fetchSize) throws SQLException {
+        try {
+            cursor.start(sql, binder, fetchSize);
+        } catch (SQLException | RuntimeException e) {
+            cursor.close(false);
+            throw e;
+        }
+        return StreamSupport.stream(cursor, false).onClose(() -> cursor.close(true));
+    }
+
+    // runs body on the stream, closes it and turns UncheckedSQLException back into SQLException
+    public static <T, R> R consume(Stream<T> stream, Function<Stream<T>, R> body) throws SQLException {
+        try (Stream<T> s = stream) {
+            return body.apply(s);
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection connection;
+        // true when the cursor opened the connection itself and ends its transaction
+        private final boolean ownsConnection;
+        private final RowMapper<T> mapper;
+        private PreparedStatement stmt;
+        private ResultSet rs;
+        private boolean closed;
+
+        Cursor(Connection connection, boolean ownsConnection, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.ownsConnection = ownsConnection;
+            this.mapper = mapper;
+        }
+
+        void start(String sql, Binder binder, int fetchSize) throws SQLException {
+            stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            if (binder != null) {
+                binder.bind(stmt);
+            }
+            rs = stmt.executeQuery();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close(true);
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                close(false);
+                throw new UncheckedSQLException(e);
+            }
+        }
+
+        // safe to call more than once. succeeded false rolls back an owned connection's transaction
+        void close(boolean succeeded) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (rs != null) rs.close();
+            } catch (SQLException e) {
+                // ignore, closing the statement cleans up anyway
+            }
+            try {
+                if (stmt != null) stmt.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+            if (!ownsConnection) {
+                return;
+            }
+            try {
+                if (succeeded) {
+                    connection.commit();
+                } else {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                System.err.println("Error ending cursor transaction: " + e.getMessage());
+            }
+            try {
+                // back to the pool the way it came out
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                // closing below drops it anyway
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cursor connection: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package clinicmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// reads the drug safety reference tables and what patients are allergic to / currently take.
+// the checks themselves are done in memory by DrugSafetyIndex
+public class DrugSafetyDAO {
+    private final Connection connection;
+
+    public DrugSafetyDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // raw rows of the three reference tables
+    public static class Rules {
+        // {drug_name, drug_class}
+        public final List<String[]> classMembers = new ArrayList<>();
+        // {class_a, class_b, severity, description}
+        public final List<String[]> interactions = new ArrayList<>();
+        // {allergy_class, drug_class, description}
+        public final List<String[]> crossReactions = new ArrayList<>();
+    }
+
+    // allergens and active medication names of one patient
+    public static class PatientProfile {
+        public final int patientId;
+        public final List<String> allergens = new ArrayList<>();
+        public final List<String> activeMedications = new ArrayList<>();
+
+        public PatientProfile(int patientId) {
+            this.patientId = patientId;
+        }
+    }
+
+    public Rules loadRules() throws SQLException {
+        Rules rules = new Rules();
+        readRows("SELECT drug_name, drug_class FROM drug_classes", 2, rules.classMembers);
+        readRows("SELECT class_a, class_b, severity, description FROM drug_interactions", 4, rules.interactions);
+        readRows("SELECT allergy_class, drug_class, description FROM allergy_cross_reactions", 3, rules.crossReactions);
+        return rules;
+    }
+
+    private void readRows(String sql, int columns, List<String[]> into) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String[] row = new String[columns];
+                for (int i = 0; i < columns; i++) {
+                    row[i] = rs.getString(i + 1);
+                }
+                into.add(row);
+            }
+        }
+    }
+
+    // allergies and active medications in one query. the form stores "Active", older rows "active"
+    private static final String PROFILE_SQL =
+        "SELECT 'A' AS kind, allergen AS name FROM allergies WHERE allergen IS NOT NULL AND patient_id = ? " +
+        "UNION ALL " +
+        "SELECT 'M', medication_name FROM medications WHERE lower(status) = 'active' AND patient_id = ?";
+
+    public PatientProfile loadProfile(int patientId) throws SQLException {
+        PatientProfile profile = new PatientProfile(patientId);
+        try (PreparedStatement stmt = connection.prepareStatement(PROFILE_SQL)) {
+            stmt.setInt(1, patientId);
+            stmt.setInt(2, patientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    addToProfile(profile, rs);
+                }
+            }
+        }
+        return profile;
+    }
+
+    private static void addToProfile(PatientProfile profile, ResultSet rs) throws SQLException {
+        String name = rs.getString("name");
+        if ("A".equals(rs.getString("kind"))) {
+            profile.allergens.add(name);
+        } else {
+            profile.activeMedications.add(name);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package clinicmanager.dao;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+
+// high-water marks for incremental exports, one row per report
+public class ExportWatermarkDAO {
+    private Connection connection;
+
+    public ExportWatermarkDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // last exported updated_at for the report, null if it never ran
+    public LocalDateTime getWatermark(String reportName) throws SQLException {
+        String sql = "SELECT last_exported_at FROM export_watermarks WHERE report_name = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, reportName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getObject("last_exported_at", LocalDateTime.class);
+                }
+            }
+        }
+        return null;
+    }
+
+    public void saveWatermark(String reportName, LocalDateTime exportedUntil) throws SQLException {
+        String sql = "INSERT INTO export_watermarks (report_name, last_exported_at) VALUES (?, ?) " +
+            "ON CONFLICT (report_name) DO UPDATE SET last_exported_at = EXCLUDED.last_exported_at, updated_at = CURRENT_TIMESTAMP";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, reportName);
+            stmt.setObject(2, exportedUntil);
+            stmt.executeUpdate();
+        }
+    }
+
+    // next run exports everything again
+    public void resetWatermark(String reportName) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM export_watermarks WHERE report_name = ?")) {
+            stmt.setString(1, reportName);
+            stmt.executeUpdate();
+        }
+    }
+
+    // how far behind the clock the upper bound stays, covers statements that have started
+    // but not opened their transaction yet when the bound is read
+    public static final int SAFETY_LAG_SECONDS = 5;
+
+    // upper bound for an incremental export, on the database clock so it matches updated_at.
+    // updated_at is the writing transaction's start time, and a transaction that is still open
+    // (appointment series edits run several statements in one) commits its rows later with an
+    // updated_at from the past. so the bound stops before the oldest transaction still open on
+    // this database and trails the clock by SAFETY_LAG_SECONDS; rows past it go out next run
+    public LocalDateTime safeUpperBound() throws SQLException {
+        String sql = "SELECT LEAST(LOCALTIMESTAMP, " +
+            "(SELECT min(xact_start) FROM pg_stat_activity " +
+            " WHERE datname = current_database() AND pid <> pg_backend_pid() AND xact_start IS NOT NULL)::timestamp) " +
+            "- make_interval(secs => ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, SAFETY_LAG_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getObject(1, LocalDateTime.class);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package clinicmanager.dao;
 
 import clinicmanager.models.MedicalCondition;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,16 +24,16 @@ public class MedicalConditionDAO {
             int paramIndex = 1;
             stmt.setInt(paramIndex++, condition.getPatientId());
             stmt.setString(paramIndex++, condition.getConditionName());
-            if (condition.getDiagnosisDate() != null && !condition.getDiagnosisDate().isEmpty()) {
-                stmt.setDate(paramIndex++, java.sql.Date.valueOf(condition.getDiagnosisDate()));
+            if (condition.getDiagnosisDate() != null) {
+                stmt.setObject(paramIndex++, condition.getDiagnosisDate());
             } else {
                 stmt.setNull(paramIndex++, java.sql.Types.DATE);
             }
             stmt.setString(paramIndex++, condition.getStatus() != null ? condition.getStatus() : "active");
             
             if (hasResolvedDate) {
-                if (condition.getResolvedDate() != null && !condition.getResolvedDate().isEmpty()) {
-                    stmt.setDate(paramIndex++, java.sql.Date.valueOf(condition.getResolvedDate()));
+                if (condition.getResolvedDate() != null) {
+                    stmt.setObject(paramIndex++, condition.getResolvedDate());
                 } else {
                     stmt.setNull(paramIndex++, java.sql.Types.DATE);
                 }
@@ -65,24 +66,21 @@ public class MedicalConditionDAO {
             stmt.setInt(1, patientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date diagnosisDate = rs.getDate("diagnosis_date");
-                    Date resolvedDate = hasResolvedDate ? rs.getDate("resolved_date") : null;
-                    
                     MedicalCondition condition = hasResolvedDate ?
                         new MedicalCondition(
                             rs.getInt("id"),
                             rs.getInt("patient_id"),
                             rs.getString("condition_name"),
-                            diagnosisDate != null ? diagnosisDate.toString() : "",
+                            rs.getObject("diagnosis_date", LocalDate.class),
                             rs.getString("status"),
-                            resolvedDate != null ? resolvedDate.toString() : null,
+                            rs.getObject("resolved_date", LocalDate.class),
                             rs.getString("notes")
                         ) :
                         new MedicalCondition(
                             rs.getInt("id"),
                             rs.getInt("patient_id"),
                             rs.getString("condition_name"),
-                            diagnosisDate != null ? diagnosisDate.toString() : "",
+                            rs.getObject("diagnosis_date", LocalDate.class),
                             rs.getString("status"),
                             rs.getString("notes")
                         );
@@ -98,8 +96,8 @@ public class MedicalConditionDAO {
         String sql = "UPDATE medical_conditions SET condition_name = ?, diagnosis_date = ?, status = ?, notes = ? WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, condition.getConditionName());
-            if (condition.getDiagnosisDate() != null && !condition.getDiagnosisDate().isEmpty()) {
-                stmt.setDate(2, java.sql.Date.valueOf(condition.getDiagnosisDate()));
+            if (condition.getDiagnosisDate() != null) {
+                stmt.setObject(2, condition.getDiagnosisDate());
             } else {
                 stmt.setNull(2, java.sql.Types.DATE);
             }
@@ -126,12 +124,11 @@ public class MedicalConditionDAO {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Date diagnosisDate = rs.getDate("diagnosis_date");
                     return new MedicalCondition(
                         rs.getInt("id"),
                         rs.getInt("patient_id"),
                         rs.getString("condition_name"),
-                        diagnosisDate != null ? diagnosisDate.toString() : "",
+                        rs.getObject("diagnosis_date", LocalDate.class),
                         rs.getString("status"),
                         rs.getString("notes")
                     );
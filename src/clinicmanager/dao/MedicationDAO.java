@@ -2,6 +2,7 @@ package clinicmanager.dao;
 
 import clinicmanager.models.Medication;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,26 +22,14 @@ public class MedicationDAO {
             stmt.setString(3, medication.getDosage());
             stmt.setString(4, medication.getFrequency());
             
-            // handle start date, dont be strict
-            if (medication.getStartDate() != null && !medication.getStartDate().trim().isEmpty()) {
-                try {
-                    stmt.setDate(5, java.sql.Date.valueOf(medication.getStartDate().trim()));
-                } catch (IllegalArgumentException e) {
-                    // if date is bad just set null
-                    stmt.setNull(5, java.sql.Types.DATE);
-                }
+            if (medication.getStartDate() != null) {
+                stmt.setObject(5, medication.getStartDate());
             } else {
                 stmt.setNull(5, java.sql.Types.DATE);
             }
             
-            // end date too
-            if (medication.getEndDate() != null && !medication.getEndDate().trim().isEmpty()) {
-                try {
-                    stmt.setDate(6, java.sql.Date.valueOf(medication.getEndDate().trim()));
-                } catch (IllegalArgumentException e) {
-                    // same thing, just set null
-                    stmt.setNull(6, java.sql.Types.DATE);
-                }
+            if (medication.getEndDate() != null) {
+                stmt.setObject(6, medication.getEndDate());
             } else {
                 stmt.setNull(6, java.sql.Types.DATE);
             }
@@ -59,16 +48,14 @@ public class MedicationDAO {
             stmt.setInt(1, patientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date startDate = rs.getDate("start_date");
-                    Date endDate = rs.getDate("end_date");
                     Medication med = new Medication(
                         rs.getInt("id"),
                         rs.getInt("patient_id"),
                         rs.getString("medication_name"),
                         rs.getString("dosage"),
                         rs.getString("frequency"),
-                        startDate != null ? startDate.toString() : "",
-                        endDate != null ? endDate.toString() : "",
+                        rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class),
                         rs.getString("status"),
                         rs.getString("notes")
                     );
@@ -87,16 +74,14 @@ public class MedicationDAO {
             stmt.setInt(1, patientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date startDate = rs.getDate("start_date");
-                    Date endDate = rs.getDate("end_date");
                     Medication med = new Medication(
                         rs.getInt("id"),
                         rs.getInt("patient_id"),
                         rs.getString("medication_name"),
                         rs.getString("dosage"),
                         rs.getString("frequency"),
-                        startDate != null ? startDate.toString() : "",
-                        endDate != null ? endDate.toString() : "",
+                        rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class),
                         rs.getString("status"),
                         rs.getString("notes")
                     );
@@ -114,13 +99,13 @@ public class MedicationDAO {
             stmt.setString(1, medication.getMedicationName());
             stmt.setString(2, medication.getDosage());
             stmt.setString(3, medication.getFrequency());
-            if (medication.getStartDate() != null && !medication.getStartDate().isEmpty()) {
-                stmt.setDate(4, java.sql.Date.valueOf(medication.getStartDate()));
+            if (medication.getStartDate() != null) {
+                stmt.setObject(4, medication.getStartDate());
             } else {
                 stmt.setNull(4, java.sql.Types.DATE);
             }
-            if (medication.getEndDate() != null && !medication.getEndDate().isEmpty()) {
-                stmt.setDate(5, java.sql.Date.valueOf(medication.getEndDate()));
+            if (medication.getEndDate() != null) {
+                stmt.setObject(5, medication.getEndDate());
             } else {
                 stmt.setNull(5, java.sql.Types.DATE);
             }
@@ -147,16 +132,14 @@ public class MedicationDAO {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Date startDate = rs.getDate("start_date");
-                    Date endDate = rs.getDate("end_date");
                     return new Medication(
                         rs.getInt("id"),
                         rs.getInt("patient_id"),
                         rs.getString("medication_name"),
                         rs.getString("dosage"),
                         rs.getString("frequency"),
-                        startDate != null ? startDate.toString() : "",
-                        endDate != null ? endDate.toString() : "",
+                        rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class),
                         rs.getString("status"),
                         rs.getString("notes")
                     );
@@ -0,0 +1,152 @@
+package clinicmanager.dao;
+
+import clinicmanager.models.Allergy;
+import clinicmanager.models.MedicalCondition;
+import clinicmanager.models.Medication;
+import clinicmanager.models.Prescription;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// everything the chart shows for one patient in a single round trip.
+// the four selects go out as one multi-statement batch (the driver sends them
+// with one sync) and come back as four result sets, each mapped like its own DAO does
+public class PatientChartDAO {
+    public static final int RECENT_PRESCRIPTIONS = 20;
+
+    private final Connection connection;
+
+    public PatientChartDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // each list is ordered like the per-table DAO queries
+    public static class Snapshot {
+        public final List<MedicalCondition> conditions = new ArrayList<>();
+        public final List<Allergy> allergies = new ArrayList<>();
+        public final List<Medication> activeMedications = new ArrayList<>();
+        // inactive, completed or anything else that isnt active
+        public final List<Medication> pastMedications = new ArrayList<>();
+        // newest first, at most RECENT_PRESCRIPTIONS
+        public final List<Prescription> recentPrescriptions = new ArrayList<>();
+    }
+
+    private static final String SNAPSHOT_SQL =
+        "SELECT * FROM medical_conditions WHERE patient_id = ? ORDER BY diagnosis_date DESC;" +
+        "SELECT * FROM allergies WHERE patient_id = ? ORDER BY severity DESC;" +
+        "SELECT * FROM medications WHERE patient_id = ? ORDER BY start_date DESC;" +
+        "SELECT * FROM prescriptions WHERE patient_id = ? ORDER BY prescribed_date DESC, id DESC LIMIT ?";
+
+    public Snapshot loadSnapshot(int patientId) throws SQLException {
+        Snapshot snapshot = new Snapshot();
+        try (PreparedStatement stmt = connection.prepareStatement(SNAPSHOT_SQL)) {
+            stmt.setInt(1, patientId);
+            stmt.setInt(2, patientId);
+            stmt.setInt(3, patientId);
+            stmt.setInt(4, patientId);
+            stmt.setInt(5, RECENT_PRESCRIPTIONS);
+            boolean hasResults = stmt.execute();
+            int section = 0;
+            while (hasResults || stmt.getUpdateCount() != -1) {
+                if (hasResults) {
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        readSection(section++, rs, snapshot);
+                    }
+                }
+                hasResults = stmt.getMoreResults();
+            }
+        }
+        return snapshot;
+    }
+
+    private void readSection(int section, ResultSet rs, Snapshot snapshot) throws SQLException {
+        // SELECT * so older databases without resolved_date / visit_id still work,
+        // the metadata says which optional columns came back
+        Set<String> columns = columnNames(rs);
+        while (rs.next()) {
+            switch (section) {
+                case 0:
+                    snapshot.conditions.add(columns.contains("resolved_date") ?
+                        new MedicalCondition(
+                            rs.getInt("id"),
+                            rs.getInt("patient_id"),
+                            rs.getString("condition_name"),
+                            rs.getObject("diagnosis_date", LocalDate.class),
+                            rs.getString("status"),
+                            rs.getObject("resolved_date", LocalDate.class),
+                            rs.getString("notes")) :
+                        new MedicalCondition(
+                            rs.getInt("id"),
+                            rs.getInt("patient_id"),
+                            rs.getString("condition_name"),
+                            rs.getObject("diagnosis_date", LocalDate.class),
+                            rs.getString("status"),
+                            rs.getString("notes")));
+                    break;
+                case 1:
+                    Allergy allergy = new Allergy(
+                        rs.getInt("id"),
+                        rs.getInt("patient_id"),
+                        rs.getString("allergen"),
+                        rs.getString("reaction"),
+                        rs.getString("severity"));
+                    allergy.setNotes(rs.getString("notes"));
+                    snapshot.allergies.add(allergy);
+                    break;
+                case 2:
+                    Medication med = new Medication(
+                        rs.getInt("id"),
+                        rs.getInt("patient_id"),
+                        rs.getString("medication_name"),
+                        rs.getString("dosage"),
+                        rs.getString("frequency"),
+                        rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class),
+                        rs.getString("status"),
+                        rs.getString("notes"));
+                    // the form stores "Active", older rows "active"
+                    if ("active".equalsIgnoreCase(med.getStatus())) {
+                        snapshot.activeMedications.add(med);
+                    } else {
+                        snapshot.pastMedications.add(med);
+                    }
+                    break;
+                default:
+                    Integer visitId = columns.contains("visit_id") && rs.getObject("visit_id") != null ? rs.getInt("visit_id") : null;
+                    Prescription prescription = new Prescription(
+                        rs.getInt("id"),
+                        rs.getInt("patient_id"),
+                        visitId,
+                        rs.getString("medication_name"),
+                        rs.getString("dosage"),
+                        rs.getInt("quantity"),
+                        rs.getString("frequency"),
+                        rs.getInt("duration_days"),
+                        rs.getObject("prescribed_date", LocalDate.class),
+                        rs.getObject("refill_date", LocalDate.class),
+                        rs.getString("notes"));
+                    if (columns.contains("refills_remaining")) {
+                        prescription.setRefillsRemaining(rs.getInt("refills_remaining"));
+                    }
+                    snapshot.recentPrescriptions.add(prescription);
+                    break;
+            }
+        }
+    }
+
+    private static Set<String> columnNames(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        Set<String> columns = new HashSet<>();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            columns.add(meta.getColumnName(i).toLowerCase());
+        }
+        return columns;
+    }
+}
@@ -2,7 +2,7 @@ package clinicmanager.dao;
 
 import clinicmanager.models.Patient;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.Comparator;
 import java.util.Optional;
 
@@ -26,27 +27,26 @@ public class PatientDAO {
     // Create a new patient
     public void addPatient(Patient patient) throws SQLException {
         String sql = "INSERT INTO Patients (first_name, last_name, date_of_birth, phone_number, email, address) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = connection.prepareStatement(sql, new String[] {"id"})) {
             stmt.setString(1, patient.getFirstName());
             stmt.setString(2, patient.getLastName());
             
-            // Convert string date to java.sql.Date
-            if (patient.getDateOfBirth() != null && !patient.getDateOfBirth().trim().isEmpty()) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date utilDate = sdf.parse(patient.getDateOfBirth().trim());
-                    stmt.setDate(3, new java.sql.Date(utilDate.getTime()));
-                } catch (Exception e) {
-                    throw new SQLException("Invalid date format. Please use YYYY-MM-DD format.", e);
-                }
+            if (patient.getDateOfBirth() != null) {
+                stmt.setObject(3, patient.getDateOfBirth());
             } else {
-                stmt.setDate(3, null);
+                stmt.setNull(3, Types.DATE);
             }
             
             stmt.setString(4, patient.getPhoneNumber());
             stmt.setString(5, patient.getEmail());
             stmt.setString(6, patient.getAddress());
             stmt.executeUpdate();
+            // hand the new id back so the change event can name the row
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    patient.setId(keys.getInt(1));
+                }
+            }
         }
     }
 
@@ -54,27 +54,39 @@ public class PatientDAO {
     public List<Patient> getAllPatients() throws SQLException {
         List<Patient> patients = new ArrayList<>();
         String sql = "SELECT * FROM Patients";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                Date dob = rs.getDate("date_of_birth");
-                String dobString = (dob != null) ? sdf.format(dob) : null;
-                
-                Patient patient = new Patient(
-                    rs.getInt("id"),
-                    rs.getString("first_name"),
-                    rs.getString("last_name"),
-                    dobString,
-                    rs.getString("phone_number"),
-                    rs.getString("email"),
-                    rs.getString("address")
-                );
-                patients.add(patient);
+                patients.add(mapPatient(rs));
             }
         }
         return patients;
     }
 
+    // number of patients without loading them
+    public int countPatients() throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Patients")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // all patients as a lazy stream over a server-side cursor, ordered by id
+    // memory stays flat no matter how big the table is, close it when done
+    public Stream<Patient> streamAllPatients() throws SQLException {
+        return CursorStream.open("SELECT * FROM Patients ORDER BY id", null, this::mapPatient);
+    }
+
+    private Patient mapPatient(ResultSet rs) throws SQLException {
+        return new Patient(
+            rs.getInt("id"),
+            rs.getString("first_name"),
+            rs.getString("last_name"),
+            rs.getObject("date_of_birth", LocalDate.class),
+            rs.getString("phone_number"),
+            rs.getString("email"),
+            rs.getString("address")
+        );
+    }
+
     // Update an existing patient
     public void updatePatient(Patient patient) throws SQLException {
         String sql = "UPDATE Patients SET first_name = ?, last_name = ?, date_of_birth = ?, phone_number = ?, email = ?, address = ? WHERE id = ?";
@@ -82,17 +94,10 @@ public class PatientDAO {
             stmt.setString(1, patient.getFirstName());
             stmt.setString(2, patient.getLastName());
             
-            // Convert string date to java.sql.Date
-            if (patient.getDateOfBirth() != null && !patient.getDateOfBirth().trim().isEmpty()) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date utilDate = sdf.parse(patient.getDateOfBirth().trim());
-                    stmt.setDate(3, new java.sql.Date(utilDate.getTime()));
-                } catch (Exception e) {
-                    throw new SQLException("Invalid date format. Please use YYYY-MM-DD format.", e);
-                }
+            if (patient.getDateOfBirth() != null) {
+                stmt.setObject(3, patient.getDateOfBirth());
             } else {
-                stmt.setDate(3, null);
+                stmt.setNull(3, Types.DATE);
             }
             
             stmt.setString(4, patient.getPhoneNumber());
@@ -115,19 +120,15 @@ public class PatientDAO {
     // Get patient by ID
     public Patient getPatientById(int id) throws SQLException {
         String sql = "SELECT * FROM Patients WHERE id = ?";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Date dob = rs.getDate("date_of_birth");
-                    String dobString = (dob != null) ? sdf.format(dob) : null;
-                    
                     return new Patient(
                         rs.getInt("id"),
                         rs.getString("first_name"),
                         rs.getString("last_name"),
-                        dobString,
+                        rs.getObject("date_of_birth", LocalDate.class),
                         rs.getString("phone_number"),
                         rs.getString("email"),
                         rs.getString("address")
@@ -142,7 +143,6 @@ public class PatientDAO {
     public List<Patient> searchPatients(String searchTerm) throws SQLException {
         List<Patient> patients = new ArrayList<>();
         String sql = "SELECT * FROM Patients WHERE first_name LIKE ? OR last_name LIKE ? OR email LIKE ? OR phone_number LIKE ?";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             String searchPattern = "%" + searchTerm + "%";
             stmt.setString(1, searchPattern);
@@ -151,14 +151,11 @@ public class PatientDAO {
             stmt.setString(4, searchPattern);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date dob = rs.getDate("date_of_birth");
-                    String dobString = (dob != null) ? sdf.format(dob) : null;
-                    
                     Patient patient = new Patient(
                         rs.getInt("id"),
                         rs.getString("first_name"),
                         rs.getString("last_name"),
-                        dobString,
+                        rs.getObject("date_of_birth", LocalDate.class),
                         rs.getString("phone_number"),
                         rs.getString("email"),
                         rs.getString("address")
@@ -171,7 +168,7 @@ public class PatientDAO {
     }
 
     // Advanced search with multiple criteria
-    public List<Patient> advancedSearch(String name, String phone, String email, String appointmentDateStart, String appointmentDateEnd) throws SQLException {
+    public List<Patient> advancedSearch(String name, String phone, String email, LocalDate appointmentDateStart, LocalDate appointmentDateEnd) throws SQLException {
         List<Patient> patients = new ArrayList<>();
         StringBuilder sql = new StringBuilder("SELECT DISTINCT p.* FROM Patients p LEFT JOIN appointments a ON p.id = a.patient_id WHERE 1=1");
         
@@ -185,19 +182,15 @@ public class PatientDAO {
         if (email != null && !email.trim().isEmpty()) {
             sql.append(" AND p.email LIKE ?");
         }
-        if ((appointmentDateStart != null && !appointmentDateStart.trim().isEmpty()) ||
-            (appointmentDateEnd != null && !appointmentDateEnd.trim().isEmpty())) {
-            if (appointmentDateStart != null && !appointmentDateStart.trim().isEmpty()) {
-                sql.append(" AND a.appointment_date >= ?");
-            }
-            if (appointmentDateEnd != null && !appointmentDateEnd.trim().isEmpty()) {
-                sql.append(" AND a.appointment_date <= ?");
-            }
+        if (appointmentDateStart != null) {
+            sql.append(" AND a.appointment_date >= ?");
+        }
+        if (appointmentDateEnd != null) {
+            // end day is inclusive
+            sql.append(" AND a.appointment_date < ?");
         }
         
         sql.append(" ORDER BY p.last_name, p.first_name");
-        
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
             int paramIndex = 1;
             
@@ -212,23 +205,20 @@ public class PatientDAO {
             if (email != null && !email.trim().isEmpty()) {
                 stmt.setString(paramIndex++, "%" + email + "%");
             }
-            if (appointmentDateStart != null && !appointmentDateStart.trim().isEmpty()) {
-                stmt.setDate(paramIndex++, java.sql.Date.valueOf(appointmentDateStart));
+            if (appointmentDateStart != null) {
+                stmt.setObject(paramIndex++, appointmentDateStart.atStartOfDay());
             }
-            if (appointmentDateEnd != null && !appointmentDateEnd.trim().isEmpty()) {
-                stmt.setDate(paramIndex++, java.sql.Date.valueOf(appointmentDateEnd + " 23:59:59"));
+            if (appointmentDateEnd != null) {
+                stmt.setObject(paramIndex++, appointmentDateEnd.plusDays(1).atStartOfDay());
             }
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date dob = rs.getDate("date_of_birth");
-                    String dobString = (dob != null) ? sdf.format(dob) : null;
-                    
                     Patient patient = new Patient(
                         rs.getInt("id"),
                         rs.getString("first_name"),
                         rs.getString("last_name"),
-                        dobString,
+                        rs.getObject("date_of_birth", LocalDate.class),
                         rs.getString("phone_number"),
                         rs.getString("email"),
                         rs.getString("address")
@@ -247,11 +237,10 @@ public class PatientDAO {
      * Example of Stream API with filter and collect operations
      */
     public List<Patient> searchPatientsByLastNameStream(String lastName) throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .filter(p -> p.getLastName() != null && 
                         p.getLastName().toLowerCase().contains(lastName.toLowerCase()))
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
     
     /**
@@ -259,10 +248,9 @@ public class PatientDAO {
      * Example of Stream API with filter for non-null values
      */
     public List<Patient> getPatientsWithEmailStream() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .filter(p -> p.getEmail() != null && !p.getEmail().trim().isEmpty())
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
     
     /**
@@ -270,11 +258,10 @@ public class PatientDAO {
      * Example of Stream API with sorted and Comparator
      */
     public List<Patient> getSortedPatientsStream() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .sorted(Comparator.comparing(Patient::getLastName)
                              .thenComparing(Patient::getFirstName))
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
     
     /**
@@ -282,11 +269,10 @@ public class PatientDAO {
      * Example of Stream API with map and count operations
      */
     public long countPatientsWithAreaCode(String areaCode) throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .filter(p -> p.getPhoneNumber() != null && 
                         p.getPhoneNumber().startsWith(areaCode))
-            .count();
+            .count());
     }
     
     /**
@@ -294,24 +280,26 @@ public class PatientDAO {
      * Example of Stream API with findFirst and Optional
      */
     public Optional<Patient> findPatientByIdStream(int id) throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        // findFirst stops reading the cursor as soon as it matches
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .filter(p -> p.getId() == id)
-            .findFirst();
+            .findFirst());
     }
     
    
     public Set<String> getUniqueEmailDomains() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
         Set<String> domains = new HashSet<>();
         
-        allPatients.stream()
-            .filter(p -> p.getEmail() != null && p.getEmail().contains("@"))
-            .forEach(p -> {
-                String email = p.getEmail();
-                String domain = email.substring(email.indexOf("@") + 1);
-                domains.add(domain.toLowerCase());
-            });
+        CursorStream.consume(streamAllPatients(), patients -> {
+            patients
+                .filter(p -> p.getEmail() != null && p.getEmail().contains("@"))
+                .forEach(p -> {
+                    String email = p.getEmail();
+                    String domain = email.substring(email.indexOf("@") + 1);
+                    domains.add(domain.toLowerCase());
+                });
+            return null;
+        });
         
         return domains;
     }
@@ -321,12 +309,11 @@ public class PatientDAO {
      * Example of Set with stream operations
      */
     public Set<String> getUniqueAreaCodes() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .map(Patient::getPhoneNumber)
             .filter(phone -> phone != null && phone.length() >= 3)
             .map(phone -> phone.substring(0, 3))
-            .collect(Collectors.toSet());
+            .collect(Collectors.toSet()));
     }
     
     // ============== MAP COLLECTION EXAMPLES ==============
@@ -351,9 +338,8 @@ public class PatientDAO {
      * Example of Stream API with Collectors.toMap
      */
     public Map<Integer, Patient> getPatientsMapByIdStream() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
-            .collect(Collectors.toMap(Patient::getId, patient -> patient));
+        return CursorStream.consume(streamAllPatients(), patients -> patients
+            .collect(Collectors.toMap(Patient::getId, patient -> patient)));
     }
     
     /**
@@ -361,13 +347,12 @@ public class PatientDAO {
      * Example of Map with List values and stream groupingBy
      */
     public Map<String, List<Patient>> groupPatientsByEmailDomain() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .filter(p -> p.getEmail() != null && p.getEmail().contains("@"))
             .collect(Collectors.groupingBy(p -> {
                 String email = p.getEmail();
                 return email.substring(email.indexOf("@") + 1).toLowerCase();
-            }));
+            })));
     }
     
     /**
@@ -375,12 +360,11 @@ public class PatientDAO {
      * Example of Map with counting using streams
      */
     public Map<String, Long> countPatientsByAreaCode() throws SQLException {
-        List<Patient> allPatients = getAllPatients();
-        return allPatients.stream()
+        return CursorStream.consume(streamAllPatients(), patients -> patients
             .filter(p -> p.getPhoneNumber() != null && p.getPhoneNumber().length() >= 3)
             .collect(Collectors.groupingBy(
                 p -> p.getPhoneNumber().substring(0, 3),
                 Collectors.counting()
-            ));
+            )));
     }
 }
\ No newline at end of file
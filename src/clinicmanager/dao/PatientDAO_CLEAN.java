@@ -2,7 +2,7 @@ package clinicmanager.dao;
 
 import clinicmanager.models.Patient;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,16 +21,10 @@ public class PatientDAO_CLEAN {
             stmt.setString(1, patient.getFirstName());
             stmt.setString(2, patient.getLastName());
             
-            if (patient.getDateOfBirth() != null && !patient.getDateOfBirth().trim().isEmpty()) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date utilDate = sdf.parse(patient.getDateOfBirth().trim());
-                    stmt.setDate(3, new java.sql.Date(utilDate.getTime()));
-                } catch (Exception e) {
-                    throw new SQLException("Invalid date format. Use YYYY-MM-DD.", e);
-                }
+            if (patient.getDateOfBirth() != null) {
+                stmt.setObject(3, patient.getDateOfBirth());
             } else {
-                stmt.setDate(3, null);
+                stmt.setNull(3, Types.DATE);
             }
             
             stmt.setString(4, patient.getPhoneNumber());
@@ -44,18 +38,16 @@ public class PatientDAO_CLEAN {
     public List<Patient> getAllPatients() throws SQLException {
         List<Patient> patients = new ArrayList<>();
         String sql = "SELECT * FROM Patients";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                Date dob = rs.getDate("date_of_birth");
                 Patient patient = new Patient(
                     rs.getInt("id"),
                     rs.getString("first_name"),
                     rs.getString("last_name"),
+                    rs.getObject("date_of_birth", LocalDate.class),
                     rs.getString("phone_number"),
                     rs.getString("email"),
-                    rs.getString("address"),
-                    dob != null ? sdf.format(dob) : ""
+                    rs.getString("address")
                 );
                 patients.add(patient);
             }
@@ -66,20 +58,18 @@ public class PatientDAO_CLEAN {
     // get patient by id
     public Patient getPatientById(int id) throws SQLException {
         String sql = "SELECT * FROM Patients WHERE id = ?";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Date dob = rs.getDate("date_of_birth");
                     return new Patient(
                         rs.getInt("id"),
                         rs.getString("first_name"),
                         rs.getString("last_name"),
+                        rs.getObject("date_of_birth", LocalDate.class),
                         rs.getString("phone_number"),
                         rs.getString("email"),
-                        rs.getString("address"),
-                        dob != null ? sdf.format(dob) : ""
+                        rs.getString("address")
                     );
                 }
             }
@@ -94,16 +84,10 @@ public class PatientDAO_CLEAN {
             stmt.setString(1, patient.getFirstName());
             stmt.setString(2, patient.getLastName());
             
-            if (patient.getDateOfBirth() != null && !patient.getDateOfBirth().trim().isEmpty()) {
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date utilDate = sdf.parse(patient.getDateOfBirth().trim());
-                    stmt.setDate(3, new java.sql.Date(utilDate.getTime()));
-                } catch (Exception e) {
-                    throw new SQLException("Invalid date format. Use YYYY-MM-DD.", e);
-                }
+            if (patient.getDateOfBirth() != null) {
+                stmt.setObject(3, patient.getDateOfBirth());
             } else {
-                stmt.setDate(3, null);
+                stmt.setNull(3, Types.DATE);
             }
             
             stmt.setString(4, patient.getPhoneNumber());
@@ -127,7 +111,6 @@ public class PatientDAO_CLEAN {
     public List<Patient> searchPatients(String searchTerm) throws SQLException {
         List<Patient> patients = new ArrayList<>();
         String sql = "SELECT * FROM Patients WHERE first_name LIKE ? OR last_name LIKE ? OR phone_number LIKE ? OR email LIKE ?";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             String term = "%" + searchTerm + "%";
@@ -138,15 +121,14 @@ public class PatientDAO_CLEAN {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date dob = rs.getDate("date_of_birth");
                     Patient patient = new Patient(
                         rs.getInt("id"),
                         rs.getString("first_name"),
                         rs.getString("last_name"),
+                        rs.getObject("date_of_birth", LocalDate.class),
                         rs.getString("phone_number"),
                         rs.getString("email"),
-                        rs.getString("address"),
-                        dob != null ? sdf.format(dob) : ""
+                        rs.getString("address")
                     );
                     patients.add(patient);
                 }
@@ -0,0 +1,135 @@
+package clinicmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// one patient's appointments, visits (walk-ins too), prescriptions and diagnoses
+// as a single newest-first timeline, paged with a keyset token.
+// every branch walks its table's (patient_id, date) index newest first and stops after
+// one page, so a page costs about the same for a patient with ten events or a thousand.
+// visits break date ties with a small sort, the other tables have id in the index too
+public class PatientTimelineDAO {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final Connection connection;
+
+    public PatientTimelineDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // ordinal is the tie-break when two events share a timestamp, keep the order stable
+    public enum EventType {
+        APPOINTMENT, VISIT, PRESCRIPTION, DIAGNOSIS
+    }
+
+    public static class TimelineEvent {
+        public EventType type;
+        // id in the event's own table
+        public int sourceId;
+        // prescriptions and diagnoses only have a date, they sit at midnight
+        public LocalDateTime at;
+        public String title;
+        public String detail;
+    }
+
+    public static class TimelinePage {
+        public List<TimelineEvent> events = new ArrayList<>();
+        public String nextPageToken;
+    }
+
+    // {kind, source_id, event_at, title, detail, table, patient filter, date column}
+    // the date column is the raw column so the keyset filter and the per-branch ORDER BY can use
+    // the index, prescriptions and diagnoses only cast to timestamp in the output
+    private static final String[][] BRANCHES = {
+        {"0", "id", "appointment_date", "'Appointment (' || COALESCE(status, 'scheduled') || ')'", "reason",
+            "appointments", "appointment_date"},
+        {"1", "id", "visit_date", "CASE WHEN appointment_id IS NULL THEN 'Walk-in visit' ELSE 'Visit' END", "notes",
+            "visits", "visit_date"},
+        {"2", "id", "prescribed_date::timestamp", "'Prescribed ' || medication_name || COALESCE(' ' || dosage, '')",
+            "COALESCE(frequency, '') || COALESCE(' - ' || notes, '')", "prescriptions", "prescribed_date"},
+        {"3", "id", "diagnosis_date::timestamp", "'Diagnosed ' || condition_name", "status",
+            "medical_conditions", "diagnosis_date"},
+    };
+
+    public TimelinePage getTimeline(int patientId, String pageToken) throws SQLException {
+        return getTimeline(patientId, pageToken, DEFAULT_PAGE_SIZE);
+    }
+
+    public TimelinePage getTimeline(int patientId, String pageToken, int pageSize) throws SQLException {
+        // token is "timestamp|kind|id" of the last event handed out
+        LocalDateTime afterAt = null;
+        int afterKind = 0;
+        int afterId = 0;
+        if (pageToken != null && !pageToken.isEmpty()) {
+            try {
+                String[] parts = pageToken.split("\\|");
+                afterAt = LocalDateTime.parse(parts[0]);
+                afterKind = Integer.parseInt(parts[1]);
+                afterId = Integer.parseInt(parts[2]);
+            } catch (Exception e) {
+                throw new SQLException("Invalid page token: " + pageToken, e);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT kind, source_id, event_at, title, detail FROM (");
+        for (int i = 0; i < BRANCHES.length; i++) {
+            String[] b = BRANCHES[i];
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("(SELECT ").append(b[0]).append(" AS kind, ").append(b[1]).append(" AS source_id, ")
+                .append(b[2]).append(" AS event_at, ").append(b[3]).append(" AS title, ")
+                .append(b[4]).append(" AS detail FROM ").append(b[5])
+                .append(" WHERE patient_id = ? AND ").append(b[6]).append(" IS NOT NULL");
+            if (afterAt != null) {
+                // the plain upper bound is what lets postgres prune date partitions, the row compare alone doesnt
+                // the token is a timestamp, date columns compare against it without a cast of their own
+                sql.append(" AND ").append(b[6]).append(" <= ?::timestamp AND (").append(b[6]).append(", ").append(b[0])
+                    .append(", id) < (?::timestamp, ?, ?)");
+            }
+            sql.append(" ORDER BY ").append(b[6]).append(" DESC, id DESC LIMIT ?)");
+        }
+        sql.append(") t ORDER BY event_at DESC, kind DESC, source_id DESC LIMIT ?");
+
+        TimelinePage page = new TimelinePage();
+        try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
+            int paramIndex = 1;
+            for (int i = 0; i < BRANCHES.length; i++) {
+                stmt.setInt(paramIndex++, patientId);
+                if (afterAt != null) {
+                    stmt.setObject(paramIndex++, afterAt);
+                    stmt.setObject(paramIndex++, afterAt);
+                    stmt.setInt(paramIndex++, afterKind);
+                    stmt.setInt(paramIndex++, afterId);
+                }
+                stmt.setInt(paramIndex++, pageSize + 1);
+            }
+            // fetch one extra row to know if theres another page
+            stmt.setInt(paramIndex++, pageSize + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                TimelineEvent last = null;
+                while (rs.next()) {
+                    if (page.events.size() == pageSize) {
+                        page.nextPageToken = last.at + "|" + last.type.ordinal() + "|" + last.sourceId;
+                        break;
+                    }
+                    TimelineEvent event = new TimelineEvent();
+                    event.type = EventType.values()[rs.getInt("kind")];
+                    event.sourceId = rs.getInt("source_id");
+                    event.at = rs.getObject("event_at", LocalDateTime.class);
+                    event.title = rs.getString("title");
+                    event.detail = rs.getString("detail");
+                    page.events.add(event);
+                    last = event;
+                }
+            }
+        }
+        return page;
+    }
+}
@@ -2,6 +2,7 @@ package clinicmanager.dao;
 
 import clinicmanager.models.Prescription;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,9 +16,11 @@ public class PrescriptionDAO {
     // adds prescription
     public void addPrescription(Prescription prescription) throws SQLException {
         boolean hasVisitId = checkIfVisitIdExists();
-        String sql = hasVisitId ?
-            "INSERT INTO prescriptions (patient_id, visit_id, medication_name, dosage, quantity, frequency, duration_days, prescribed_date, refill_date, notes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" :
-            "INSERT INTO prescriptions (patient_id, medication_name, dosage, quantity, frequency, duration_days, prescribed_date, refill_date, notes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        boolean hasRefills = checkIfRefillsExist();
+        String sql = "INSERT INTO prescriptions (patient_id, " + (hasVisitId ? "visit_id, " : "") +
+            "medication_name, dosage, quantity, frequency, duration_days, prescribed_date, refill_date, notes" +
+            (hasRefills ? ", refills_remaining" : "") + ") VALUES (?, " + (hasVisitId ? "?, " : "") +
+            "?, ?, ?, ?, ?, ?, ?, ?" + (hasRefills ? ", ?" : "") + ")";
         
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             int paramIndex = 1;
@@ -36,21 +39,37 @@ public class PrescriptionDAO {
             stmt.setInt(paramIndex++, prescription.getQuantity());
             stmt.setString(paramIndex++, prescription.getFrequency());
             stmt.setInt(paramIndex++, prescription.getDurationDays());
-            if (prescription.getPrescribedDate() != null && !prescription.getPrescribedDate().isEmpty()) {
-                stmt.setDate(paramIndex++, java.sql.Date.valueOf(prescription.getPrescribedDate()));
+            if (prescription.getPrescribedDate() != null) {
+                stmt.setObject(paramIndex++, prescription.getPrescribedDate());
             } else {
-                stmt.setDate(paramIndex++, new java.sql.Date(System.currentTimeMillis()));
+                stmt.setObject(paramIndex++, LocalDate.now());
             }
-            if (prescription.getRefillDate() != null && !prescription.getRefillDate().isEmpty()) {
-                stmt.setDate(paramIndex++, java.sql.Date.valueOf(prescription.getRefillDate()));
+            if (prescription.getRefillDate() != null) {
+                stmt.setObject(paramIndex++, prescription.getRefillDate());
             } else {
                 stmt.setNull(paramIndex++, java.sql.Types.DATE);
             }
             stmt.setString(paramIndex++, prescription.getNotes());
+            if (hasRefills) {
+                stmt.setInt(paramIndex++, prescription.getRefillsRemaining());
+            }
             stmt.executeUpdate();
         }
     }
     
+    // check if the refill queue columns exist
+    private boolean checkIfRefillsExist() {
+        try {
+            String sql = "SELECT refills_remaining FROM prescriptions LIMIT 0";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.executeQuery();
+                return true;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
     // check if visit_id col exists
     private boolean checkIfVisitIdExists() {
         try {
@@ -68,13 +87,12 @@ public class PrescriptionDAO {
     public List<Prescription> getPrescriptionsByPatientId(int patientId) throws SQLException {
         List<Prescription> prescriptions = new ArrayList<>();
         boolean hasVisitId = checkIfVisitIdExists();
+        boolean hasRefills = checkIfRefillsExist();
         String sql = "SELECT * FROM prescriptions WHERE patient_id = ? ORDER BY prescribed_date DESC";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, patientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Date prescribedDate = rs.getDate("prescribed_date");
-                    Date refillDate = rs.getDate("refill_date");
                     Integer visitId = hasVisitId && rs.getObject("visit_id") != null ? rs.getInt("visit_id") : null;
                     
                     Prescription prescription = new Prescription(
@@ -86,10 +104,13 @@ public class PrescriptionDAO {
                         rs.getInt("quantity"),
                         rs.getString("frequency"),
                         rs.getInt("duration_days"),
-                        prescribedDate != null ? prescribedDate.toString() : "",
-                        refillDate != null ? refillDate.toString() : "",
+                        rs.getObject("prescribed_date", LocalDate.class),
+                        rs.getObject("refill_date", LocalDate.class),
                         rs.getString("notes")
                     );
+                    if (hasRefills) {
+                        prescription.setRefillsRemaining(rs.getInt("refills_remaining"));
+                    }
                     prescriptions.add(prescription);
                 }
             }
@@ -97,32 +118,41 @@ public class PrescriptionDAO {
         return prescriptions;
     }
 
-    // gets refills that are comming up soon
+    // gets refills that are comming up soon (next 7 days) for open prescriptions.
+    // plain date bounds on the open-prescription partial index, RefillQueueDAO pages the full queue
     public List<Prescription> getUpcomingRefills() throws SQLException {
         List<Prescription> prescriptions = new ArrayList<>();
         boolean hasVisitId = checkIfVisitIdExists();
-        String sql = "SELECT * FROM prescriptions WHERE refill_date IS NOT NULL AND refill_date <= CURRENT_DATE + INTERVAL '7 days' AND refill_date > CURRENT_DATE ORDER BY refill_date ASC";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Date prescribedDate = rs.getDate("prescribed_date");
-                Date refillDate = rs.getDate("refill_date");
-                Integer visitId = hasVisitId && rs.getObject("visit_id") != null ? rs.getInt("visit_id") : null;
-                
-                Prescription prescription = new Prescription(
-                    rs.getInt("id"),
-                    rs.getInt("patient_id"),
-                    visitId,
-                    rs.getString("medication_name"),
-                    rs.getString("dosage"),
-                    rs.getInt("quantity"),
-                    rs.getString("frequency"),
-                    rs.getInt("duration_days"),
-                    prescribedDate != null ? prescribedDate.toString() : "",
-                    refillDate != null ? refillDate.toString() : "",
-                    rs.getString("notes")
-                );
-                prescriptions.add(prescription);
+        boolean hasRefills = checkIfRefillsExist();
+        LocalDate today = LocalDate.now();
+        // status came with the refill columns, older databases have every prescription open
+        String sql = "SELECT * FROM prescriptions WHERE " + (hasRefills ? "status = 'active' AND " : "") +
+            "refill_date > ? AND refill_date <= ? ORDER BY refill_date, id";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, today);
+            stmt.setObject(2, today.plusDays(7));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Integer visitId = hasVisitId && rs.getObject("visit_id") != null ? rs.getInt("visit_id") : null;
+                    
+                    Prescription prescription = new Prescription(
+                        rs.getInt("id"),
+                        rs.getInt("patient_id"),
+                        visitId,
+                        rs.getString("medication_name"),
+                        rs.getString("dosage"),
+                        rs.getInt("quantity"),
+                        rs.getString("frequency"),
+                        rs.getInt("duration_days"),
+                        rs.getObject("prescribed_date", LocalDate.class),
+                        rs.getObject("refill_date", LocalDate.class),
+                        rs.getString("notes")
+                    );
+                    if (hasRefills) {
+                        prescription.setRefillsRemaining(rs.getInt("refills_remaining"));
+                    }
+                    prescriptions.add(prescription);
+                }
             }
         }
         return prescriptions;
@@ -130,25 +160,32 @@ public class PrescriptionDAO {
 
     // update prescription
     public void updatePrescription(Prescription prescription) throws SQLException {
-        String sql = "UPDATE prescriptions SET medication_name = ?, dosage = ?, quantity = ?, frequency = ?, duration_days = ?, prescribed_date = ?, refill_date = ?, notes = ? WHERE id = ?";
+        boolean hasRefills = checkIfRefillsExist();
+        String sql = "UPDATE prescriptions SET medication_name = ?, dosage = ?, quantity = ?, frequency = ?, duration_days = ?, prescribed_date = ?, refill_date = ?, notes = ?" +
+            (hasRefills ? ", refills_remaining = ?" : "") + " WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, prescription.getMedicationName());
             stmt.setString(2, prescription.getDosage());
             stmt.setInt(3, prescription.getQuantity());
             stmt.setString(4, prescription.getFrequency());
             stmt.setInt(5, prescription.getDurationDays());
-            if (prescription.getPrescribedDate() != null && !prescription.getPrescribedDate().isEmpty()) {
-                stmt.setDate(6, java.sql.Date.valueOf(prescription.getPrescribedDate()));
+            if (prescription.getPrescribedDate() != null) {
+                stmt.setObject(6, prescription.getPrescribedDate());
             } else {
                 stmt.setNull(6, java.sql.Types.DATE);
             }
-            if (prescription.getRefillDate() != null && !prescription.getRefillDate().isEmpty()) {
-                stmt.setDate(7, java.sql.Date.valueOf(prescription.getRefillDate()));
+            if (prescription.getRefillDate() != null) {
+                stmt.setObject(7, prescription.getRefillDate());
             } else {
                 stmt.setNull(7, java.sql.Types.DATE);
             }
             stmt.setString(8, prescription.getNotes());
-            stmt.setInt(9, prescription.getId());
+            if (hasRefills) {
+                stmt.setInt(9, prescription.getRefillsRemaining());
+                stmt.setInt(10, prescription.getId());
+            } else {
+                stmt.setInt(9, prescription.getId());
+            }
             stmt.executeUpdate();
         }
     }
@@ -164,14 +201,13 @@ public class PrescriptionDAO {
 
     // get one prescription
     public Prescription getPrescriptionById(int id) throws SQLException {
+        boolean hasRefills = checkIfRefillsExist();
         String sql = "SELECT * FROM prescriptions WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Date prescribedDate = rs.getDate("prescribed_date");
-                    Date refillDate = rs.getDate("refill_date");
-                    return new Prescription(
+                    Prescription prescription = new Prescription(
                         rs.getInt("id"),
                         rs.getInt("patient_id"),
                         rs.getString("medication_name"),
@@ -179,10 +215,14 @@ public class PrescriptionDAO {
                         rs.getInt("quantity"),
                         rs.getString("frequency"),
                         rs.getInt("duration_days"),
-                        prescribedDate != null ? prescribedDate.toString() : "",
-                        refillDate != null ? refillDate.toString() : "",
+                        rs.getObject("prescribed_date", LocalDate.class),
+                        rs.getObject("refill_date", LocalDate.class),
                         rs.getString("notes")
                     );
+                    if (hasRefills) {
+                        prescription.setRefillsRemaining(rs.getInt("refills_remaining"));
+                    }
+                    return prescription;
                 }
             }
         }
@@ -0,0 +1,184 @@
+package clinicmanager.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// work queue of active prescriptions that need a refill or, with no refills left, a renewal.
+// everything filters on status = 'active' with refill_date ranges, which is exactly the
+// partial index idx_prescriptions_refill_open, so finished prescriptions never get scanned
+public class RefillQueueDAO {
+    public static final int DEFAULT_PAGE_SIZE = 25;
+    // a finished course that nobody renewed drops out of the queue this long after its refill date
+    public static final int EXPIRE_AFTER_DAYS = 30;
+
+    private final Connection connection;
+
+    public RefillQueueDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    public enum Action {
+        REFILL, RENEW
+    }
+
+    public static class QueueEntry {
+        public int prescriptionId;
+        public int patientId;
+        public String patientName;
+        public String medicationName;
+        public String dosage;
+        public LocalDate refillDate;
+        public int refillsRemaining;
+        public Action action;
+    }
+
+    public static class QueuePage {
+        public List<QueueEntry> entries = new ArrayList<>();
+        public String nextPageToken;
+    }
+
+    // what one nightly pass did
+    public static class BatchResult {
+        public int refillDatesSet;
+        public int expired;
+        public int dueRefills;
+        public int renewalCandidates;
+    }
+
+    public QueuePage getQueue(LocalDate dueBy, String pageToken) throws SQLException {
+        return getQueue(dueBy, pageToken, DEFAULT_PAGE_SIZE);
+    }
+
+    // open prescriptions with a refill date up to dueBy, most overdue first. token is "refill_date|id"
+    public QueuePage getQueue(LocalDate dueBy, String pageToken, int pageSize) throws SQLException {
+        LocalDate afterDate = null;
+        int afterId = 0;
+        if (pageToken != null && !pageToken.isEmpty()) {
+            try {
+                String[] parts = pageToken.split("\\|");
+                afterDate = LocalDate.parse(parts[0]);
+                afterId = Integer.parseInt(parts[1]);
+            } catch (Exception e) {
+                throw new SQLException("Invalid page token: " + pageToken, e);
+            }
+        }
+
+        String sql = "SELECT pr.id, pr.patient_id, p.first_name, p.last_name, pr.medication_name, pr.dosage, " +
+            "pr.refill_date, pr.refills_remaining " +
+            "FROM prescriptions pr LEFT JOIN patients p ON p.id = pr.patient_id " +
+            "WHERE pr.status = 'active' AND pr.refill_date <= ?" +
+            (afterDate != null ? " AND (pr.refill_date, pr.id) > (?, ?)" : "") +
+            " ORDER BY pr.refill_date, pr.id LIMIT ?";
+
+        QueuePage page = new QueuePage();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = 1;
+            stmt.setObject(paramIndex++, dueBy);
+            if (afterDate != null) {
+                stmt.setObject(paramIndex++, afterDate);
+                stmt.setInt(paramIndex++, afterId);
+            }
+            // fetch one extra row to know if theres another page
+            stmt.setInt(paramIndex++, pageSize + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                QueueEntry last = null;
+                while (rs.next()) {
+                    if (page.entries.size() == pageSize) {
+                        page.nextPageToken = last.refillDate + "|" + last.prescriptionId;
+                        break;
+                    }
+                    QueueEntry entry = new QueueEntry();
+                    entry.prescriptionId = rs.getInt("id");
+                    entry.patientId = rs.getInt("patient_id");
+                    String firstName = rs.getString("first_name");
+                    entry.patientName = firstName != null ? firstName + " " + rs.getString("last_name") : "Unknown";
+                    entry.medicationName = rs.getString("medication_name");
+                    entry.dosage = rs.getString("dosage");
+                    entry.refillDate = rs.getObject("refill_date", LocalDate.class);
+                    entry.refillsRemaining = rs.getInt("refills_remaining");
+                    entry.action = entry.refillsRemaining > 0 ? Action.REFILL : Action.RENEW;
+                    page.entries.add(entry);
+                    last = entry;
+                }
+            }
+        }
+        return page;
+    }
+
+    // the nightly pass, three set-based statements in one transaction whatever the number of
+    // prescriptions: give open prescriptions without a refill date one (last fill or prescribed
+    // date + days supplied), expire finished courses nobody renewed, then count the work due
+    // within horizonDays of asOf
+    public BatchResult runNightlyPass(LocalDate asOf, int horizonDays) throws SQLException {
+        BatchResult result = new BatchResult();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "UPDATE prescriptions SET refill_date = COALESCE(last_filled_date, prescribed_date) + duration_days " +
+                    "WHERE status = 'active' AND refill_date IS NULL AND duration_days > 0")) {
+                result.refillDatesSet = stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "UPDATE prescriptions SET status = 'completed' " +
+                    "WHERE status = 'active' AND refill_date < ? AND refills_remaining <= 0")) {
+                stmt.setObject(1, asOf.minusDays(EXPIRE_AFTER_DAYS));
+                result.expired = stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT COUNT(*) FILTER (WHERE refills_remaining > 0) AS due, " +
+                    "COUNT(*) FILTER (WHERE refills_remaining <= 0) AS renewals " +
+                    "FROM prescriptions WHERE status = 'active' AND refill_date <= ?")) {
+                stmt.setObject(1, asOf.plusDays(horizonDays));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        result.dueRefills = rs.getInt("due");
+                        result.renewalCandidates = rs.getInt("renewals");
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return result;
+    }
+
+    // a refill was dispensed: uses up one refill, moves the next refill date one supply ahead
+    // and adds the fill to prescription_fills, one statement so both or neither happen
+    public void recordRefill(int prescriptionId, LocalDate filledOn) throws SQLException {
+        String sql = "WITH filled AS (" +
+            "  UPDATE prescriptions SET last_filled_date = ?, " +
+            "  refills_remaining = GREATEST(refills_remaining - 1, 0), " +
+            "  refill_date = CASE WHEN duration_days > 0 THEN ?::date + duration_days END " +
+            "  WHERE id = ? AND status = 'active' RETURNING id, duration_days" +
+            ") INSERT INTO prescription_fills (prescription_id, filled_date, days_supply) " +
+            "SELECT id, ?, COALESCE(duration_days, 0) FROM filled";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setObject(1, filledOn);
+            stmt.setObject(2, filledOn);
+            stmt.setInt(3, prescriptionId);
+            stmt.setObject(4, filledOn);
+            stmt.executeUpdate();
+        }
+    }
+
+    // the prescriber renewed it with this many refills, the current refill date stays
+    public void renew(int prescriptionId, int refills) throws SQLException {
+        String sql = "UPDATE prescriptions SET refills_remaining = ? WHERE id = ? AND status = 'active'";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, refills);
+            stmt.setInt(2, prescriptionId);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package clinicmanager.dao;
 
 import clinicmanager.models.Visit;
+import clinicmanager.models.VisitStatus;
+import clinicmanager.models.VisitSummary;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.Comparator;
+import java.util.stream.Stream;
 
 public class VisitDAO {
     private Connection connection;
@@ -48,33 +51,10 @@ public class VisitDAO {
                 stmt.setNull(paramIndex++, java.sql.Types.INTEGER);
             }
             
-            // Convert string timestamp to java.sql.Timestamp
-            if (visit.getVisitDate() != null && !visit.getVisitDate().trim().isEmpty()) {
-                try {
-                    // Try date format first (YYYY-MM-DD)
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date utilDate = sdf.parse(visit.getVisitDate().trim());
-                    stmt.setTimestamp(paramIndex++, new java.sql.Timestamp(utilDate.getTime()));
-                } catch (Exception e) {
-                    // Try timestamp format (YYYY-MM-DD HH:MM)
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                        java.util.Date utilDate = sdf.parse(visit.getVisitDate().trim());
-                        stmt.setTimestamp(paramIndex++, new java.sql.Timestamp(utilDate.getTime()));
-                    } catch (Exception e2) {
-                        // Try with seconds
-                        try {
-                            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                            java.util.Date utilDate = sdf.parse(visit.getVisitDate().trim());
-                            stmt.setTimestamp(paramIndex++, new java.sql.Timestamp(utilDate.getTime()));
-                        } catch (Exception e3) {
-                            throw new SQLException("Invalid date format. Please use YYYY-MM-DD or YYYY-MM-DD HH:MM format.", e3);
-                        }
-                    }
-                }
-            } else {
+            if (visit.getVisitDate() == null) {
                 throw new SQLException("Visit date is required.");
             }
+            stmt.setObject(paramIndex++, visit.getVisitDate());
             
             stmt.setString(paramIndex++, visit.getNotes());
             
@@ -86,7 +66,7 @@ public class VisitDAO {
             }
             
             if (hasPatientId) {
-                stmt.setString(paramIndex++, visit.getStatus() != null ? visit.getStatus() : "completed");
+                stmt.setString(paramIndex++, (visit.getStatus() != null ? visit.getStatus() : VisitStatus.COMPLETED).getValue());
             }
             
             stmt.executeUpdate();
@@ -123,58 +103,247 @@ public class VisitDAO {
     public List<Visit> getAllVisits() throws SQLException {
         List<Visit> visits = new ArrayList<>();
         String sql = "SELECT * FROM Visits";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         boolean hasNewColumns = checkIfColumnsExist();
         boolean hasPatientId = checkIfPatientIdExists();
         
         try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                Timestamp timestamp = rs.getTimestamp("visit_date");
-                String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
-                
-                Visit visit;
-                if (hasPatientId && hasNewColumns) {
-                    // New schema with patient_id and clinical fields
-                    Integer appointmentId = rs.getObject("appointment_id") != null ? rs.getInt("appointment_id") : null;
-                    visit = new Visit(
-                        rs.getInt("id"),
-                        rs.getInt("patient_id"),
-                        appointmentId,
-                        dateString,
-                        rs.getString("notes"),
-                        rs.getString("clinical_notes"),
-                        rs.getString("diagnosis"),
-                        rs.getString("treatment"),
-                        rs.getString("follow_up_notes"),
-                        rs.getString("status")
-                    );
-                } else if (hasNewColumns) {
-                    // Old schema with clinical fields but no patient_id
-                    visit = new Visit(
-                        rs.getInt("id"),
-                        rs.getInt("appointment_id"),
-                        dateString,
-                        rs.getString("notes"),
-                        rs.getString("clinical_notes"),
-                        rs.getString("diagnosis"),
-                        rs.getString("treatment"),
-                        rs.getString("follow_up_notes")
-                    );
-                } else {
-                    // Original schema
-                    visit = new Visit(
-                        rs.getInt("id"),
-                        rs.getInt("appointment_id"),
-                        dateString,
-                        rs.getString("notes")
-                    );
+                visits.add(mapVisit(rs, hasNewColumns, hasPatientId));
+            }
+        }
+        return visits;
+    }
+
+    // optional filters for the visit queries below, null means dont filter
+    public static class VisitFilter {
+        public Integer patientId;
+        public Integer appointmentId;
+        public VisitStatus status;
+        public boolean newestFirst;
+        // full-text match on search_vector (web search syntax), uses the GIN index
+        public String textQuery;
+        // visit_date in [from, to), either end can be null
+        public LocalDateTime from;
+        public LocalDateTime to;
+    }
+
+    // visits matching criteria (null = all) as a lazy stream over a server-side cursor,
+    // ordered by visit date. close it when done, limit/findFirst stop the fetch early
+    public Stream<Visit> streamVisits(VisitFilter criteria) throws SQLException {
+        boolean hasNewColumns = checkIfColumnsExist();
+        boolean hasPatientId = checkIfPatientIdExists();
+        // visit_date is NOT NULL, plain ASC/DESC lets postgres walk idx_visits_date either way
+        String order = criteria != null && criteria.newestFirst ? "DESC" : "ASC";
+
+        String sql = "SELECT * FROM Visits" + whereClause(criteria, hasPatientId) +
+            " ORDER BY visit_date " + order + ", id " + order;
+        return CursorStream.open(sql, stmt -> bindFilter(stmt, 1, criteria, hasPatientId),
+            rs -> mapVisit(rs, hasNewColumns, hasPatientId));
+    }
+
+    // the newest `limit` visits matching criteria (null = all). the LIMIT is in SQL so postgres
+    // stops after `limit` index entries (idx_visits_date, idx_visits_patient_date for one patient)
+    public List<Visit> getRecentVisits(VisitFilter criteria, int limit) throws SQLException {
+        boolean hasNewColumns = checkIfColumnsExist();
+        boolean hasPatientId = checkIfPatientIdExists();
+        String sql = "SELECT * FROM Visits" + whereClause(criteria, hasPatientId) +
+            " ORDER BY visit_date DESC, id DESC LIMIT ?";
+        List<Visit> visits = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = bindFilter(stmt, 1, criteria, hasPatientId);
+            stmt.setInt(paramIndex, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visits.add(mapVisit(rs, hasNewColumns, hasPatientId));
                 }
-                visits.add(visit);
             }
         }
         return visits;
     }
 
+    public List<Visit> getRecentVisitsForPatient(int patientId, int limit) throws SQLException {
+        VisitFilter criteria = new VisitFilter();
+        criteria.patientId = patientId;
+        return getRecentVisits(criteria, limit);
+    }
+
+    public List<Visit> getRecentVisitsBetween(LocalDateTime from, LocalDateTime to, int limit) throws SQLException {
+        VisitFilter criteria = new VisitFilter();
+        criteria.from = from;
+        criteria.to = to;
+        return getRecentVisits(criteria, limit);
+    }
+
+    // visits per appointment for the visits matching criteria (null = all), counted by postgres.
+    // walk-ins have no appointment and are left out
+    public Map<Integer, Long> countVisitsPerAppointment(VisitFilter criteria) throws SQLException {
+        boolean hasPatientId = checkIfPatientIdExists();
+        String sql = "SELECT appointment_id, COUNT(*) AS visit_count FROM Visits" +
+            whereClause(criteria, hasPatientId) +
+            " AND appointment_id IS NOT NULL GROUP BY appointment_id";
+        Map<Integer, Long> counts = new HashMap<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            bindFilter(stmt, 1, criteria, hasPatientId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getInt("appointment_id"), rs.getLong("visit_count"));
+                }
+            }
+        }
+        return counts;
+    }
+
+    // newest `limit` visits matching criteria (null = all) without the clinical text columns.
+    // those are TOASTed and can be kilobytes each, a list only needs dates and status
+    public List<VisitSummary> getVisitSummaries(VisitFilter criteria, int limit) throws SQLException {
+        boolean hasNewColumns = checkIfColumnsExist();
+        boolean hasPatientId = checkIfPatientIdExists();
+        String sql = "SELECT " + summaryColumns(hasNewColumns, hasPatientId) + " FROM Visits" +
+            whereClause(criteria, hasPatientId) +
+            " ORDER BY visit_date DESC, id DESC LIMIT ?";
+        List<VisitSummary> summaries = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int paramIndex = bindFilter(stmt, 1, criteria, hasPatientId);
+            stmt.setInt(paramIndex, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(mapSummary(rs));
+                }
+            }
+        }
+        return summaries;
+    }
+
+    // same as streamVisits but summaries only, close it when done
+    public Stream<VisitSummary> streamVisitSummaries(VisitFilter criteria) throws SQLException {
+        boolean hasNewColumns = checkIfColumnsExist();
+        boolean hasPatientId = checkIfPatientIdExists();
+        String order = criteria != null && criteria.newestFirst ? "DESC" : "ASC";
+        String sql = "SELECT " + summaryColumns(hasNewColumns, hasPatientId) + " FROM Visits" +
+            whereClause(criteria, hasPatientId) +
+            " ORDER BY visit_date " + order + ", id " + order;
+        return CursorStream.open(sql, stmt -> bindFilter(stmt, 1, criteria, hasPatientId),
+            this::mapSummary);
+    }
+
+    // IS NOT NULL only looks at the null bitmap, so has_notes costs nothing even for huge notes.
+    // older databases get patient_id through the appointment and no status
+    private String summaryColumns(boolean hasNewColumns, boolean hasPatientId) {
+        String patientId = hasPatientId ? "patient_id" :
+            "(SELECT a.patient_id FROM appointments a WHERE a.id = Visits.appointment_id) AS patient_id";
+        String status = hasPatientId ? "status" : "NULL AS status";
+        String hasNotes = hasNewColumns ?
+            "(notes IS NOT NULL OR clinical_notes IS NOT NULL OR diagnosis IS NOT NULL OR treatment IS NOT NULL OR follow_up_notes IS NOT NULL)" :
+            "(notes IS NOT NULL)";
+        return "id, " + patientId + ", appointment_id, visit_date, " + status + ", " + hasNotes + " AS has_notes";
+    }
+
+    private VisitSummary mapSummary(ResultSet rs) throws SQLException {
+        Integer appointmentId = rs.getObject("appointment_id") != null ? rs.getInt("appointment_id") : null;
+        return new VisitSummary(
+            rs.getInt("id"),
+            rs.getInt("patient_id"),
+            appointmentId,
+            rs.getObject("visit_date", LocalDateTime.class),
+            mapStatus(rs.getString("status")),
+            rs.getBoolean("has_notes")
+        );
+    }
+
+    // a status the app doesnt know is logged and read as the column default
+    private static VisitStatus mapStatus(String value) {
+        try {
+            return VisitStatus.fromValue(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown visit status '" + value + "', reading it as completed");
+            return VisitStatus.COMPLETED;
+        }
+    }
+
+    // " WHERE ..." for criteria. no filter is ever dropped: without patient_id the patient is
+    // found through the appointments, without status every visit reads as completed
+    private String whereClause(VisitFilter criteria, boolean hasPatientId) {
+        StringBuilder where = new StringBuilder(" WHERE 1=1");
+        if (criteria == null) {
+            return where.toString();
+        }
+        if (criteria.patientId != null) {
+            where.append(hasPatientId ? " AND patient_id = ?"
+                : " AND appointment_id IN (SELECT id FROM appointments WHERE patient_id = ?)");
+        }
+        if (criteria.appointmentId != null) where.append(" AND appointment_id = ?");
+        if (criteria.status != null) {
+            // VisitDAO writes status whenever patient_id exists
+            if (hasPatientId) {
+                where.append(" AND status = ?");
+            } else if (criteria.status != VisitStatus.COMPLETED) {
+                where.append(" AND 1=0");
+            }
+        }
+        if (criteria.textQuery != null) where.append(" AND search_vector @@ websearch_to_tsquery('english', ?)");
+        if (criteria.from != null) where.append(" AND visit_date >= ?");
+        if (criteria.to != null) where.append(" AND visit_date < ?");
+        return where.toString();
+    }
+
+    // binds what whereClause added, returns the next parameter index
+    private int bindFilter(PreparedStatement stmt, int paramIndex, VisitFilter criteria, boolean hasPatientId) throws SQLException {
+        if (criteria == null) {
+            return paramIndex;
+        }
+        if (criteria.patientId != null) stmt.setInt(paramIndex++, criteria.patientId);
+        if (criteria.appointmentId != null) stmt.setInt(paramIndex++, criteria.appointmentId);
+        if (criteria.status != null && hasPatientId) stmt.setString(paramIndex++, criteria.status.getValue());
+        if (criteria.textQuery != null) stmt.setString(paramIndex++, criteria.textQuery);
+        if (criteria.from != null) stmt.setObject(paramIndex++, criteria.from);
+        if (criteria.to != null) stmt.setObject(paramIndex++, criteria.to);
+        return paramIndex;
+    }
+
+    // one row to a Visit, picks the constructor that matches the schema version
+    private Visit mapVisit(ResultSet rs, boolean hasNewColumns, boolean hasPatientId) throws SQLException {
+        LocalDateTime visitDate = rs.getObject("visit_date", LocalDateTime.class);
+        
+        Visit visit;
+        if (hasPatientId && hasNewColumns) {
+            // New schema with patient_id and clinical fields
+            Integer appointmentId = rs.getObject("appointment_id") != null ? rs.getInt("appointment_id") : null;
+            visit = new Visit(
+                rs.getInt("id"),
+                rs.getInt("patient_id"),
+                appointmentId,
+                visitDate,
+                rs.getString("notes"),
+                rs.getString("clinical_notes"),
+                rs.getString("diagnosis"),
+                rs.getString("treatment"),
+                rs.getString("follow_up_notes"),
+                mapStatus(rs.getString("status"))
+            );
+        } else if (hasNewColumns) {
+            // Old schema with clinical fields but no patient_id
+            visit = new Visit(
+                rs.getInt("id"),
+                rs.getInt("appointment_id"),
+                visitDate,
+                rs.getString("notes"),
+                rs.getString("clinical_notes"),
+                rs.getString("diagnosis"),
+                rs.getString("treatment"),
+                rs.getString("follow_up_notes")
+            );
+        } else {
+            // Original schema
+            visit = new Visit(
+                rs.getInt("id"),
+                rs.getInt("appointment_id"),
+                visitDate,
+                rs.getString("notes")
+            );
+        }
+        return visit;
+    }
+
     // Update an existing visit
     public void updateVisit(Visit visit) throws SQLException {
         boolean hasNewColumns = checkIfColumnsExist();
@@ -182,35 +351,17 @@ public class VisitDAO {
             "UPDATE Visits SET appointment_id = ?, visit_date = ?, notes = ?, clinical_notes = ?, diagnosis = ?, treatment = ?, follow_up_notes = ? WHERE id = ?" :
             "UPDATE Visits SET appointment_id = ?, visit_date = ?, notes = ? WHERE id = ?";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, visit.getAppointmentId());
-            
-            // Convert string timestamp to java.sql.Timestamp
-            if (visit.getVisitDate() != null && !visit.getVisitDate().trim().isEmpty()) {
-                try {
-                    // Try date format first (YYYY-MM-DD)
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    java.util.Date utilDate = sdf.parse(visit.getVisitDate().trim());
-                    stmt.setTimestamp(2, new java.sql.Timestamp(utilDate.getTime()));
-                } catch (Exception e) {
-                    // Try timestamp format (YYYY-MM-DD HH:MM)
-                    try {
-                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                        java.util.Date utilDate = sdf.parse(visit.getVisitDate().trim());
-                        stmt.setTimestamp(2, new java.sql.Timestamp(utilDate.getTime()));
-                    } catch (Exception e2) {
-                        // Try with seconds
-                        try {
-                            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                            java.util.Date utilDate = sdf.parse(visit.getVisitDate().trim());
-                            stmt.setTimestamp(2, new java.sql.Timestamp(utilDate.getTime()));
-                        } catch (Exception e3) {
-                            throw new SQLException("Invalid date format. Please use YYYY-MM-DD or YYYY-MM-DD HH:MM format.", e3);
-                        }
-                    }
-                }
+            // walk-in visits have no appointment
+            if (visit.getAppointmentId() != null) {
+                stmt.setInt(1, visit.getAppointmentId());
             } else {
+                stmt.setNull(1, java.sql.Types.INTEGER);
+            }
+            
+            if (visit.getVisitDate() == null) {
                 throw new SQLException("Visit date is required.");
             }
+            stmt.setObject(2, visit.getVisitDate());
             
             stmt.setString(3, visit.getNotes());
             if (hasNewColumns) {
@@ -235,37 +386,16 @@ public class VisitDAO {
         }
     }
 
-    // Get visit by ID
+    // Get visit by ID, with all the clinical text. this is the detail load for a VisitSummary
     public Visit getVisitById(int id) throws SQLException {
         String sql = "SELECT * FROM Visits WHERE id = ?";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         boolean hasNewColumns = checkIfColumnsExist();
+        boolean hasPatientId = checkIfPatientIdExists();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Timestamp timestamp = rs.getTimestamp("visit_date");
-                    String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
-                    
-                    if (hasNewColumns) {
-                        return new Visit(
-                            rs.getInt("id"),
-                            rs.getInt("appointment_id"),
-                            dateString,
-                            rs.getString("notes"),
-                            rs.getString("clinical_notes"),
-                            rs.getString("diagnosis"),
-                            rs.getString("treatment"),
-                            rs.getString("follow_up_notes")
-                        );
-                    } else {
-                        return new Visit(
-                            rs.getInt("id"),
-                            rs.getInt("appointment_id"),
-                            dateString,
-                            rs.getString("notes")
-                        );
-                    }
+                    return mapVisit(rs, hasNewColumns, hasPatientId);
                 }
             }
         }
@@ -276,21 +406,19 @@ public class VisitDAO {
     public List<Visit> getVisitsByAppointmentId(int appointmentId) throws SQLException {
         List<Visit> visits = new ArrayList<>();
         String sql = "SELECT * FROM Visits WHERE appointment_id = ? ORDER BY visit_date DESC";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         boolean hasNewColumns = checkIfColumnsExist();
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, appointmentId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Timestamp timestamp = rs.getTimestamp("visit_date");
-                    String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
+                    LocalDateTime visitDate = rs.getObject("visit_date", LocalDateTime.class);
                     
                     Visit visit;
                     if (hasNewColumns) {
                         visit = new Visit(
                             rs.getInt("id"),
                             rs.getInt("appointment_id"),
-                            dateString,
+                            visitDate,
                             rs.getString("notes"),
                             rs.getString("clinical_notes"),
                             rs.getString("diagnosis"),
@@ -301,7 +429,7 @@ public class VisitDAO {
                         visit = new Visit(
                             rs.getInt("id"),
                             rs.getInt("appointment_id"),
-                            dateString,
+                            visitDate,
                             rs.getString("notes")
                         );
                     }
@@ -312,25 +440,20 @@ public class VisitDAO {
         return visits;
     }
 
-    // Get visits by patient ID (through appointments)
+    // Get visits by patient ID, walk-ins included. uses visits.patient_id (idx_visits_patient),
+    // only databases without that column still go through appointments
     public List<Visit> getVisitsByPatientId(int patientId) throws SQLException {
         List<Visit> visits = new ArrayList<>();
-        String sql = "SELECT v.* FROM Visits v INNER JOIN Appointments a ON v.appointment_id = a.id WHERE a.patient_id = ? ORDER BY v.visit_date DESC";
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        boolean hasNewColumns = checkIfColumnsExist();
+        boolean hasPatientId = checkIfPatientIdExists();
+        String sql = hasPatientId ?
+            "SELECT * FROM Visits WHERE patient_id = ? ORDER BY visit_date DESC, id DESC" :
+            "SELECT v.* FROM Visits v INNER JOIN Appointments a ON v.appointment_id = a.id WHERE a.patient_id = ? ORDER BY v.visit_date DESC, v.id DESC";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, patientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Timestamp timestamp = rs.getTimestamp("visit_date");
-                    String dateString = (timestamp != null) ? sdf.format(timestamp) : null;
-                    
-                    Visit visit = new Visit(
-                        rs.getInt("id"),
-                        rs.getInt("appointment_id"),
-                        dateString,
-                        rs.getString("notes")
-                    );
-                    visits.add(visit);
+                    visits.add(mapVisit(rs, hasNewColumns, hasPatientId));
                 }
             }
         }
@@ -344,48 +467,35 @@ public class VisitDAO {
      * Example of Stream API with sorted
      */
     public List<Visit> getVisitsSortedByDateStream() throws SQLException {
-        List<Visit> allVisits = getAllVisits();
-        return allVisits.stream()
-            .sorted(Comparator.comparing(Visit::getVisitDate, 
-                                        Comparator.nullsLast(String::compareTo)))
-            .collect(Collectors.toList());
+        // the cursor query is already ordered by visit_date
+        return CursorStream.consume(streamVisits(null), visits -> visits.collect(Collectors.toList()));
     }
     
     /**
-     * Filter visits by notes keyword using streams
-     * Example of Stream API with filter
+     * Filter visits by keyword using streams
+     * the match runs in postgres on the search_vector index (all the note columns,
+     * whole words with stemming), the stream only collects the hits
      */
     public List<Visit> filterVisitsByNotesStream(String keyword) throws SQLException {
-        List<Visit> allVisits = getAllVisits();
-        return allVisits.stream()
-            .filter(v -> v.getNotes() != null && 
-                        v.getNotes().toLowerCase().contains(keyword.toLowerCase()))
-            .collect(Collectors.toList());
+        VisitFilter byKeyword = new VisitFilter();
+        byKeyword.textQuery = keyword;
+        return CursorStream.consume(streamVisits(byKeyword), visits -> visits
+            .collect(Collectors.toList()));
     }
     
     /**
      * Count visits per appointment
-     * Example of Stream API with groupingBy and counting
+     * the GROUP BY runs in postgres now, kept for existing callers
      */
     public Map<Integer, Long> countVisitsPerAppointmentStream() throws SQLException {
-        List<Visit> allVisits = getAllVisits();
-        return allVisits.stream()
-            .collect(Collectors.groupingBy(
-                Visit::getAppointmentId,
-                Collectors.counting()
-            ));
+        return countVisitsPerAppointment(null);
     }
     
     /**
-     * Get recent visits (limit using streams)
-     * Example of Stream API with limit
+     * Get recent visits
+     * ORDER BY visit_date DESC LIMIT in SQL, kept for existing callers
      */
     public List<Visit> getRecentVisitsStream(int limit) throws SQLException {
-        List<Visit> allVisits = getAllVisits();
-        return allVisits.stream()
-            .sorted(Comparator.comparing(Visit::getVisitDate, 
-                                        Comparator.nullsLast(String::compareTo)).reversed())
-            .limit(limit)
-            .collect(Collectors.toList());
+        return getRecentVisits(null, limit);
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package clinicmanager.database;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
@@ -291,6 +292,50 @@ public class DatabaseConnection {
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "CONSTRAINT fk_appointment FOREIGN KEY (appointment_id) REFERENCES appointments(id) ON DELETE CASCADE" +
                 ")");
+            // walk-in visits have no appointment, so visits point at the patient directly
+            // (schema.sql has this column from the start). older rows get it from their appointment
+            stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS patient_id INTEGER " +
+                "REFERENCES patients(id) ON DELETE CASCADE");
+            stmt.execute("UPDATE visits v SET patient_id = a.patient_id FROM appointments a " +
+                "WHERE v.patient_id IS NULL AND a.id = v.appointment_id");
+            // VisitDAO writes status whenever patient_id exists
+            stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS status VARCHAR(20) DEFAULT 'completed'");
+            // clinical columns from schema.sql, the search vector below is built from them
+            stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS clinical_notes TEXT");
+            stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS diagnosis TEXT");
+            stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS treatment TEXT");
+            stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS follow_up_notes TEXT");
+            
+            // Recurring appointment series, appointments point back to their series
+            stmt.execute("CREATE TABLE IF NOT EXISTS appointment_series (" +
+                "id SERIAL PRIMARY KEY, " +
+                "patient_id INTEGER NOT NULL, " +
+                "frequency VARCHAR(20) NOT NULL, " +
+                "interval_count INTEGER NOT NULL DEFAULT 1, " +
+                "start_date TIMESTAMP NOT NULL, " +
+                "until_date DATE, " +
+                "occurrence_count INTEGER, " +
+                "reason TEXT, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "CONSTRAINT fk_series_patient FOREIGN KEY (patient_id) REFERENCES patients(id) ON DELETE CASCADE" +
+                ")");
+            stmt.execute("ALTER TABLE appointments ADD COLUMN IF NOT EXISTS series_id INTEGER " +
+                "REFERENCES appointment_series(id) ON DELETE SET NULL");
+            
+            // last exported updated_at per report, for incremental exports
+            stmt.execute("CREATE TABLE IF NOT EXISTS export_watermarks (" +
+                "report_name VARCHAR(50) PRIMARY KEY, " +
+                "last_exported_at TIMESTAMP NOT NULL, " +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")");
+            
+            // appointments per day and status, kept current by triggers
+            stmt.execute("CREATE TABLE IF NOT EXISTS appointment_daily_stats (" +
+                "stat_date DATE NOT NULL, " +
+                "status VARCHAR(20) NOT NULL, " +
+                "appointment_count INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (stat_date, status)" +
+                ")");
             
             // Create indexes for better query performance
             createIndexes(stmt);
@@ -301,6 +346,24 @@ public class DatabaseConnection {
             // Create triggers to automatically update updated_at
             createUpdateTriggers(stmt);
             
+            // triggers for appointment_daily_stats, backfilled the first time
+            createDailyStatsTriggers(stmt);
+            
+            // tsvector columns + GIN indexes for clinical search
+            createSearchColumns(stmt);
+            
+            // status / refills columns and the partial index for the refill queue
+            createRefillQueueColumns(stmt);
+            
+            // drug classes, interactions and cross-reactions for prescribing checks
+            createDrugSafetyTables(stmt);
+            
+            // per patient / drug adherence results written by AdherenceJob
+            createAdherenceTable(stmt);
+            
+            // optional date partitioning, last so the conversion copies every index and trigger
+            createDatePartitioning(stmt);
+            
         } catch (SQLException e) {
             System.err.println("Error initializing database schema: " + e.getMessage());
             e.printStackTrace();
@@ -316,13 +379,24 @@ public class DatabaseConnection {
         stmt.execute("CREATE INDEX IF NOT EXISTS idx_patients_email ON patients(email)");
         stmt.execute("CREATE INDEX IF NOT EXISTS idx_patients_phone ON patients(phone_number)");
         
+        // updated_at indexes for incremental exports
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_patients_updated_at ON patients(updated_at)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_updated_at ON appointments(updated_at)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_visits_updated_at ON visits(updated_at)");
+        
         // Index on appointment dates for faster queries
         stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_date ON appointments(appointment_date)");
         stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_patient ON appointments(patient_id)");
+        // one patient's newest appointments without a sort (patient timeline)
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_patient_date ON appointments(patient_id, appointment_date, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_series ON appointments(series_id, appointment_date)");
         
         // Index on visit dates
         stmt.execute("CREATE INDEX IF NOT EXISTS idx_visits_date ON visits(visit_date)");
         stmt.execute("CREATE INDEX IF NOT EXISTS idx_visits_appointment ON visits(appointment_id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_visits_patient ON visits(patient_id)");
+        // newest visits of one patient without a sort
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_visits_patient_date ON visits(patient_id, visit_date)");
     }
     
     /**
@@ -385,6 +459,489 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * Generated tsvector columns and GIN indexes for clinical search (same as schema.sql).
+     * medical_conditions only comes from schema.sql, so it is skipped when missing
+     */
+    private static void createSearchColumns(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE visits ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+            "GENERATED ALWAYS AS (" +
+            "setweight(to_tsvector('english'::regconfig, coalesce(diagnosis, '')), 'A') || " +
+            "setweight(to_tsvector('english'::regconfig, coalesce(clinical_notes, '') || ' ' || coalesce(treatment, '')), 'B') || " +
+            "setweight(to_tsvector('english'::regconfig, coalesce(notes, '') || ' ' || coalesce(follow_up_notes, '')), 'C')" +
+            ") STORED");
+        stmt.execute("ALTER TABLE appointments ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+            "GENERATED ALWAYS AS (to_tsvector('english'::regconfig, coalesce(reason, ''))) STORED");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_visits_search ON visits USING GIN (search_vector)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_appointments_search ON appointments USING GIN (search_vector)");
+
+        boolean hasConditions;
+        try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('medical_conditions') IS NOT NULL")) {
+            hasConditions = rs.next() && rs.getBoolean(1);
+        }
+        if (hasConditions) {
+            stmt.execute("ALTER TABLE medical_conditions ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                "GENERATED ALWAYS AS (" +
+                "setweight(to_tsvector('english'::regconfig, coalesce(condition_name, '')), 'A') || " +
+                "setweight(to_tsvector('english'::regconfig, coalesce(notes, '')), 'B')" +
+                ") STORED");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_medical_conditions_search ON medical_conditions USING GIN (search_vector)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_medical_conditions_patient_date ON medical_conditions(patient_id, diagnosis_date, id)");
+        }
+    }
+
+    /**
+     * Create the triggers that keep appointment_daily_stats in sync with appointments
+     * (same functions as schema.sql), and fill it if it is still empty
+     */
+    private static void createDailyStatsTriggers(Statement stmt) throws SQLException {
+        stmt.execute("CREATE OR REPLACE FUNCTION maintain_appointment_daily_stats() " +
+            "RETURNS TRIGGER AS $$ " +
+            "BEGIN " +
+            "    IF TG_OP = 'UPDATE' THEN " +
+            "        IF NEW.appointment_date::date = OLD.appointment_date::date " +
+            "           AND COALESCE(NEW.status, 'scheduled') = COALESCE(OLD.status, 'scheduled') THEN " +
+            "            RETURN NULL; " +
+            "        END IF; " +
+            "    END IF; " +
+            "    IF TG_OP IN ('UPDATE', 'DELETE') THEN " +
+            "        UPDATE appointment_daily_stats SET appointment_count = appointment_count - 1 " +
+            "         WHERE stat_date = OLD.appointment_date::date AND status = COALESCE(OLD.status, 'scheduled'); " +
+            "    END IF; " +
+            "    IF TG_OP IN ('INSERT', 'UPDATE') THEN " +
+            "        INSERT INTO appointment_daily_stats (stat_date, status, appointment_count) " +
+            "        VALUES (NEW.appointment_date::date, COALESCE(NEW.status, 'scheduled'), 1) " +
+            "        ON CONFLICT (stat_date, status) " +
+            "        DO UPDATE SET appointment_count = appointment_daily_stats.appointment_count + 1; " +
+            "    END IF; " +
+            "    RETURN NULL; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION truncate_appointment_daily_stats() " +
+            "RETURNS TRIGGER AS $$ " +
+            "BEGIN " +
+            "    TRUNCATE appointment_daily_stats; " +
+            "    RETURN NULL; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION rebuild_appointment_daily_stats() " +
+            "RETURNS INTEGER AS $$ " +
+            "DECLARE " +
+            "    rows_written INTEGER; " +
+            "BEGIN " +
+            "    LOCK TABLE appointments IN SHARE MODE; " +
+            "    DELETE FROM appointment_daily_stats; " +
+            "    INSERT INTO appointment_daily_stats (stat_date, status, appointment_count) " +
+            "    SELECT appointment_date::date, COALESCE(status, 'scheduled'), COUNT(*) " +
+            "    FROM appointments GROUP BY 1, 2; " +
+            "    GET DIAGNOSTICS rows_written = ROW_COUNT; " +
+            "    RETURN rows_written; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        
+        stmt.execute("DROP TRIGGER IF EXISTS trg_appointments_daily_stats ON appointments");
+        stmt.execute("CREATE TRIGGER trg_appointments_daily_stats " +
+            "AFTER INSERT OR UPDATE OR DELETE ON appointments " +
+            "FOR EACH ROW " +
+            "EXECUTE FUNCTION maintain_appointment_daily_stats()");
+        stmt.execute("DROP TRIGGER IF EXISTS trg_appointments_daily_stats_truncate ON appointments");
+        stmt.execute("CREATE TRIGGER trg_appointments_daily_stats_truncate " +
+            "AFTER TRUNCATE ON appointments " +
+            "FOR EACH STATEMENT " +
+            "EXECUTE FUNCTION truncate_appointment_daily_stats()");
+        
+        // existing database that had appointments before the rollup existed
+        boolean needsBackfill;
+        try (ResultSet rs = stmt.executeQuery("SELECT NOT EXISTS (SELECT 1 FROM appointment_daily_stats) " +
+                "AND EXISTS (SELECT 1 FROM appointments)")) {
+            needsBackfill = rs.next() && rs.getBoolean(1);
+        }
+        if (needsBackfill) {
+            stmt.execute("SELECT rebuild_appointment_daily_stats()");
+        }
+    }
+
+    /**
+     * Refill queue columns and partial index on prescriptions (same as schema.sql).
+     * prescriptions only comes from schema.sql, so it is skipped when missing
+     */
+    private static void createRefillQueueColumns(Statement stmt) throws SQLException {
+        boolean hasPrescriptions;
+        try (ResultSet rs = stmt.executeQuery("SELECT to_regclass('prescriptions') IS NOT NULL")) {
+            hasPrescriptions = rs.next() && rs.getBoolean(1);
+        }
+        if (!hasPrescriptions) {
+            return;
+        }
+        // status is added once, existing rows get a status from their dates instead of all being open
+        stmt.execute("DO $$ " +
+            "BEGIN " +
+            "    IF NOT EXISTS (SELECT 1 FROM information_schema.columns " +
+            "                   WHERE table_schema = current_schema() AND table_name = 'prescriptions' AND column_name = 'status') THEN " +
+            "        ALTER TABLE prescriptions ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'active'; " +
+            "        ALTER TABLE prescriptions ADD COLUMN IF NOT EXISTS refills_remaining INTEGER NOT NULL DEFAULT 0; " +
+            "        UPDATE prescriptions SET status = 'completed' " +
+            "        WHERE prescribed_date + COALESCE(duration_days, 0) < CURRENT_DATE " +
+            "          AND (refill_date IS NULL OR refill_date < CURRENT_DATE); " +
+            "        UPDATE prescriptions SET refills_remaining = 1 " +
+            "        WHERE status = 'active' AND refill_date IS NOT NULL; " +
+            "    END IF; " +
+            "END $$");
+        stmt.execute("ALTER TABLE prescriptions ADD COLUMN IF NOT EXISTS refills_remaining INTEGER NOT NULL DEFAULT 0");
+        stmt.execute("ALTER TABLE prescriptions ADD COLUMN IF NOT EXISTS last_filled_date DATE");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_prescriptions_refill_open ON prescriptions(refill_date, id) WHERE status = 'active'");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_date ON prescriptions(patient_id, prescribed_date, id)");
+        // fill history, seeded once with the latest fill already on record
+        stmt.execute("DO $$ " +
+            "BEGIN " +
+            "    IF to_regclass('prescription_fills') IS NULL THEN " +
+            "        CREATE TABLE prescription_fills ( " +
+            "            id SERIAL PRIMARY KEY, " +
+            "            prescription_id INTEGER NOT NULL, " +
+            "            filled_date DATE NOT NULL, " +
+            "            days_supply INTEGER NOT NULL DEFAULT 0, " +
+            "            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "            CONSTRAINT fk_prescription_fills_prescription " +
+            "                FOREIGN KEY (prescription_id) " +
+            "                REFERENCES prescriptions (id) " +
+            "                ON DELETE CASCADE " +
+            "        ); " +
+            "        INSERT INTO prescription_fills (prescription_id, filled_date, days_supply) " +
+            "        SELECT id, last_filled_date, COALESCE(duration_days, 0) FROM prescriptions " +
+            "        WHERE last_filled_date IS NOT NULL; " +
+            "    END IF; " +
+            "END $$");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_prescription_fills_prescription ON prescription_fills(prescription_id, filled_date)");
+    }
+
+    /**
+     * Reference tables for the prescribing safety checks with the starter rows (same as schema.sql).
+     * ON CONFLICT keeps rows a site has edited or added
+     */
+    private static void createDrugSafetyTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS drug_classes ( " +
+            "    drug_name VARCHAR(255) NOT NULL, " +
+            "    drug_class VARCHAR(100) NOT NULL, " +
+            "    PRIMARY KEY (drug_name, drug_class) " +
+            ")");
+        stmt.execute("CREATE TABLE IF NOT EXISTS drug_interactions ( " +
+            "    class_a VARCHAR(100) NOT NULL, " +
+            "    class_b VARCHAR(100) NOT NULL, " +
+            "    severity VARCHAR(20) NOT NULL, " +
+            "    description TEXT, " +
+            "    PRIMARY KEY (class_a, class_b), " +
+            "    CONSTRAINT ck_drug_interactions_severity " +
+            "        CHECK (severity IN ('contraindicated', 'major', 'moderate', 'minor')) " +
+            ")");
+        stmt.execute("CREATE TABLE IF NOT EXISTS allergy_cross_reactions ( " +
+            "    allergy_class VARCHAR(100) NOT NULL, " +
+            "    drug_class VARCHAR(100) NOT NULL, " +
+            "    description TEXT, " +
+            "    PRIMARY KEY (allergy_class, drug_class) " +
+            ")");
+        
+        stmt.execute("INSERT INTO drug_classes (drug_name, drug_class) VALUES " +
+            "    ('penicillin', 'penicillins'), ('amoxicillin', 'penicillins'), ('ampicillin', 'penicillins'), " +
+            "    ('piperacillin', 'penicillins'), ('flucloxacillin', 'penicillins'), " +
+            "    ('cephalexin', 'cephalosporins'), ('cefuroxime', 'cephalosporins'), ('ceftriaxone', 'cephalosporins'), " +
+            "    ('meropenem', 'carbapenems'), ('imipenem', 'carbapenems'), " +
+            "    ('sulfa', 'sulfonamide antibiotics'), ('sulfamethoxazole', 'sulfonamide antibiotics'), " +
+            "    ('clarithromycin', 'macrolides'), ('erythromycin', 'macrolides'), ('azithromycin', 'macrolides'), " +
+            "    ('ibuprofen', 'nsaids'), ('naproxen', 'nsaids'), ('diclofenac', 'nsaids'), ('aspirin', 'nsaids'), " +
+            "    ('aspirin', 'antiplatelets'), ('clopidogrel', 'antiplatelets'), " +
+            "    ('warfarin', 'anticoagulants'), ('warfarin', 'vitamin k antagonists'), " +
+            "    ('apixaban', 'anticoagulants'), ('rivaroxaban', 'anticoagulants'), ('heparin', 'anticoagulants'), " +
+            "    ('sertraline', 'ssris'), ('fluoxetine', 'ssris'), ('citalopram', 'ssris'), ('escitalopram', 'ssris'), " +
+            "    ('phenelzine', 'maois'), ('selegiline', 'maois'), " +
+            "    ('tramadol', 'opioids'), ('tramadol', 'serotonergic opioids'), " +
+            "    ('codeine', 'opioids'), ('morphine', 'opioids'), ('oxycodone', 'opioids'), " +
+            "    ('diazepam', 'benzodiazepines'), ('lorazepam', 'benzodiazepines'), ('alprazolam', 'benzodiazepines'), " +
+            "    ('lisinopril', 'ace inhibitors'), ('enalapril', 'ace inhibitors'), ('ramipril', 'ace inhibitors'), " +
+            "    ('spironolactone', 'potassium-sparing diuretics'), ('potassium chloride', 'potassium supplements'), " +
+            "    ('simvastatin', 'statins'), ('atorvastatin', 'statins') " +
+            "ON CONFLICT DO NOTHING");
+        stmt.execute("INSERT INTO drug_interactions (class_a, class_b, severity, description) VALUES " +
+            "    ('ssris', 'maois', 'contraindicated', 'serotonin syndrome'), " +
+            "    ('serotonergic opioids', 'maois', 'contraindicated', 'serotonin syndrome'), " +
+            "    ('ssris', 'serotonergic opioids', 'major', 'serotonin syndrome, lowered seizure threshold'), " +
+            "    ('anticoagulants', 'nsaids', 'major', 'bleeding risk'), " +
+            "    ('anticoagulants', 'antiplatelets', 'major', 'bleeding risk'), " +
+            "    ('opioids', 'benzodiazepines', 'major', 'respiratory depression'), " +
+            "    ('ace inhibitors', 'potassium-sparing diuretics', 'major', 'hyperkalaemia'), " +
+            "    ('statins', 'macrolides', 'major', 'myopathy, rhabdomyolysis'), " +
+            "    ('ace inhibitors', 'potassium supplements', 'moderate', 'hyperkalaemia'), " +
+            "    ('ssris', 'nsaids', 'moderate', 'gastrointestinal bleeding'), " +
+            "    ('vitamin k antagonists', 'macrolides', 'moderate', 'raised INR') " +
+            "ON CONFLICT DO NOTHING");
+        stmt.execute("INSERT INTO allergy_cross_reactions (allergy_class, drug_class, description) VALUES " +
+            "    ('penicillins', 'cephalosporins', 'penicillin allergy, low cross-reactivity with cephalosporins'), " +
+            "    ('penicillins', 'carbapenems', 'penicillin allergy, low cross-reactivity with carbapenems'), " +
+            "    ('cephalosporins', 'penicillins', 'cephalosporin allergy, low cross-reactivity with penicillins') " +
+            "ON CONFLICT DO NOTHING");
+    }
+
+    /**
+     * Summary table for the medication adherence job (same as schema.sql)
+     */
+    private static void createAdherenceTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS medication_adherence ( " +
+            "    patient_id INTEGER NOT NULL, " +
+            "    drug_name VARCHAR(255) NOT NULL, " +
+            "    period_start DATE NOT NULL, " +
+            "    period_end DATE NOT NULL, " +
+            "    days_covered INTEGER NOT NULL, " +
+            "    pdc NUMERIC(5,4) NOT NULL, " +
+            "    gap_days INTEGER NOT NULL, " +
+            "    longest_gap INTEGER NOT NULL, " +
+            "    episodes INTEGER NOT NULL, " +
+            "    duplicate_therapy BOOLEAN NOT NULL DEFAULT FALSE, " +
+            "    duplicate_with TEXT, " +
+            "    computed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "    PRIMARY KEY (patient_id, drug_name), " +
+            "    CONSTRAINT fk_medication_adherence_patient " +
+            "        FOREIGN KEY (patient_id) " +
+            "        REFERENCES patients (id) " +
+            "        ON DELETE CASCADE " +
+            ")");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_medication_adherence_low ON medication_adherence(pdc) WHERE pdc < 0.8");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_medication_adherence_duplicate ON medication_adherence(patient_id) WHERE duplicate_therapy");
+    }
+
+    /**
+     * Functions for the optional date partitioning of appointments and visits (same as schema.sql).
+     * db.partitioning=month or year converts the tables the first time, after that
+     * every start keeps a year of partitions ahead, reaches the latest row (series book
+     * years out) and moves rows that fell into the default partition into their own
+     */
+    private static void createDatePartitioning(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS date_partitioned_tables ( " +
+            "    table_name VARCHAR(63) PRIMARY KEY, " +
+            "    date_column VARCHAR(63) NOT NULL, " +
+            "    granularity VARCHAR(5) NOT NULL, " +
+            "    CONSTRAINT ck_date_partitioned_tables_granularity " +
+            "        CHECK (granularity IN ('month', 'year')) " +
+            ")");
+        stmt.execute("CREATE OR REPLACE FUNCTION create_date_partitions(tbl TEXT, grain TEXT, from_ts TIMESTAMP, to_ts TIMESTAMP) " +
+            "RETURNS INTEGER AS $$ " +
+            "DECLARE " +
+            "    step INTERVAL := ('1 ' || grain)::interval; " +
+            "    part_start TIMESTAMP := date_trunc(grain, from_ts); " +
+            "    part_name TEXT; " +
+            "    default_name TEXT := tbl || '_pdefault'; " +
+            "    date_col TEXT; " +
+            "    copy_columns TEXT; " +
+            "    has_rows BOOLEAN; " +
+            "    created INTEGER := 0; " +
+            "BEGIN " +
+            "    IF to_regclass(default_name) IS NOT NULL THEN " +
+            "        SELECT a.attname INTO date_col " +
+            "          FROM pg_partitioned_table p " +
+            "          JOIN pg_attribute a ON a.attrelid = p.partrelid AND a.attnum = p.partattrs[0] " +
+            "         WHERE p.partrelid = tbl::regclass; " +
+            "        SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) INTO copy_columns " +
+            "          FROM pg_attribute WHERE attrelid = tbl::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = ''; " +
+            "    END IF; " +
+            "    WHILE part_start < to_ts LOOP " +
+            "        part_name := tbl || '_p' || to_char(part_start, CASE grain WHEN 'year' THEN 'YYYY' ELSE 'YYYYMM' END); " +
+            "        IF to_regclass(part_name) IS NULL THEN " +
+            "            has_rows := FALSE; " +
+            "            IF date_col IS NOT NULL THEN " +
+            "                EXECUTE format('SELECT EXISTS (SELECT 1 FROM %1$I WHERE %2$I >= %3$L AND %2$I < %4$L)', " +
+            "                    default_name, date_col, part_start, part_start + step) INTO has_rows; " +
+            "            END IF; " +
+            "            IF has_rows THEN " +
+            "                EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', tbl, default_name); " +
+            "                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING CONSTRAINTS)', " +
+            "                    part_name, tbl); " +
+            "                EXECUTE format('INSERT INTO %1$I (%2$s) SELECT %2$s FROM %3$I WHERE %4$I >= %5$L AND %4$I < %6$L', " +
+            "                    part_name, copy_columns, default_name, date_col, part_start, part_start + step); " +
+            "                EXECUTE format('ALTER TABLE %I DISABLE TRIGGER USER', default_name); " +
+            "                EXECUTE format('DELETE FROM %1$I WHERE %2$I >= %3$L AND %2$I < %4$L', " +
+            "                    default_name, date_col, part_start, part_start + step); " +
+            "                EXECUTE format('ALTER TABLE %I ENABLE TRIGGER USER', default_name); " +
+            "                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', " +
+            "                    tbl, part_name, part_start, part_start + step); " +
+            "                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I DEFAULT', tbl, default_name); " +
+            "                RAISE NOTICE 'moved the rows of % out of the default partition', part_name; " +
+            "            ELSE " +
+            "                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)', " +
+            "                    part_name, tbl, part_start, part_start + step); " +
+            "            END IF; " +
+            "            created := created + 1; " +
+            "        END IF; " +
+            "        part_start := part_start + step; " +
+            "    END LOOP; " +
+            "    RETURN created; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION partition_by_date(tbl TEXT, date_col TEXT, grain TEXT) " +
+            "RETURNS BOOLEAN AS $$ " +
+            "DECLARE " +
+            "    legacy TEXT := tbl || '_unpartitioned'; " +
+            "    id_seq TEXT := pg_get_serial_sequence(tbl, 'id'); " +
+            "    table_comment TEXT := obj_description(tbl::regclass, 'pg_class'); " +
+            "    index_defs TEXT[]; " +
+            "    trigger_defs TEXT[]; " +
+            "    fk_defs TEXT[]; " +
+            "    copy_columns TEXT; " +
+            "    lo TIMESTAMP; " +
+            "    hi TIMESTAMP; " +
+            "    def TEXT; " +
+            "    fk RECORD; " +
+            "BEGIN " +
+            "    IF grain NOT IN ('month', 'year') THEN " +
+            "        RAISE EXCEPTION 'granularity must be month or year, got %', grain; " +
+            "    END IF; " +
+            "    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = tbl::regclass) THEN " +
+            "        RETURN FALSE; " +
+            "    END IF; " +
+            "    EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', tbl); " +
+            " " +
+            "    FOR fk IN SELECT conname, conrelid::regclass AS child FROM pg_constraint " +
+            "              WHERE contype = 'f' AND confrelid = tbl::regclass LOOP " +
+            "        RAISE NOTICE 'dropping foreign key % on %', fk.conname, fk.child; " +
+            "        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.child, fk.conname); " +
+            "    END LOOP; " +
+            " " +
+            "    SELECT array_agg(pg_get_indexdef(indexrelid)) INTO index_defs " +
+            "      FROM pg_index WHERE indrelid = tbl::regclass AND NOT indisprimary; " +
+            "    SELECT array_agg(pg_get_triggerdef(oid)) INTO trigger_defs " +
+            "      FROM pg_trigger WHERE tgrelid = tbl::regclass AND NOT tgisinternal; " +
+            "    SELECT array_agg(format('ALTER TABLE %I ADD CONSTRAINT %I %s', tbl, conname, pg_get_constraintdef(oid))) INTO fk_defs " +
+            "      FROM pg_constraint WHERE conrelid = tbl::regclass AND contype = 'f'; " +
+            "    SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) INTO copy_columns " +
+            "      FROM pg_attribute WHERE attrelid = tbl::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = ''; " +
+            " " +
+            "    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, legacy); " +
+            "    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING GENERATED INCLUDING CONSTRAINTS INCLUDING COMMENTS) ' || " +
+            "        'PARTITION BY RANGE (%I)', tbl, legacy, date_col); " +
+            " " +
+            "    EXECUTE format('SELECT min(%1$I), max(%1$I) FROM %2$I', date_col, legacy) INTO lo, hi; " +
+            "    PERFORM create_date_partitions(tbl, grain, COALESCE(lo, now()::timestamp), " +
+            "        GREATEST(hi, now()::timestamp) + interval '1 year'); " +
+            "    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_pdefault', tbl); " +
+            "    EXECUTE format('INSERT INTO %I (%s) SELECT %s FROM %I', tbl, copy_columns, copy_columns, legacy); " +
+            " " +
+            "    IF id_seq IS NOT NULL THEN " +
+            "        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', id_seq, tbl); " +
+            "    END IF; " +
+            "    EXECUTE format('DROP TABLE %I', legacy); " +
+            " " +
+            "    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, %I)', tbl, date_col); " +
+            "    FOREACH def IN ARRAY COALESCE(fk_defs, '{}') LOOP " +
+            "        EXECUTE def; " +
+            "    END LOOP; " +
+            "    FOREACH def IN ARRAY COALESCE(index_defs, '{}') LOOP " +
+            "        EXECUTE def; " +
+            "    END LOOP; " +
+            "    FOREACH def IN ARRAY COALESCE(trigger_defs, '{}') LOOP " +
+            "        EXECUTE def; " +
+            "    END LOOP; " +
+            "    IF table_comment IS NOT NULL THEN " +
+            "        EXECUTE format('COMMENT ON TABLE %I IS %L', tbl, table_comment); " +
+            "    END IF; " +
+            " " +
+            "    INSERT INTO date_partitioned_tables (table_name, date_column, granularity) " +
+            "    VALUES (tbl, date_col, grain) " +
+            "    ON CONFLICT (table_name) DO UPDATE SET date_column = EXCLUDED.date_column, granularity = EXCLUDED.granularity; " +
+            "    RETURN TRUE; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION delete_appointment_visits() " +
+            "RETURNS TRIGGER AS $$ " +
+            "BEGIN " +
+            "    IF NOT EXISTS (SELECT 1 FROM appointments WHERE id = OLD.id) THEN " +
+            "        DELETE FROM visits WHERE appointment_id = OLD.id; " +
+            "    END IF; " +
+            "    RETURN NULL; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION release_visit_prescriptions() " +
+            "RETURNS TRIGGER AS $$ " +
+            "BEGIN " +
+            "    IF NOT EXISTS (SELECT 1 FROM visits WHERE id = OLD.id) THEN " +
+            "        UPDATE prescriptions SET visit_id = NULL WHERE visit_id = OLD.id; " +
+            "    END IF; " +
+            "    RETURN NULL; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION partition_clinical_tables(grain TEXT) " +
+            "RETURNS BOOLEAN AS $$ " +
+            "DECLARE " +
+            "    changed BOOLEAN; " +
+            "BEGIN " +
+            "    changed := partition_by_date('appointments', 'appointment_date', grain); " +
+            "    changed := partition_by_date('visits', 'visit_date', grain) OR changed; " +
+            "    IF changed THEN " +
+            "        DROP TRIGGER IF EXISTS trg_appointments_delete_visits ON appointments; " +
+            "        CREATE TRIGGER trg_appointments_delete_visits " +
+            "            AFTER DELETE ON appointments " +
+            "            FOR EACH ROW " +
+            "            EXECUTE FUNCTION delete_appointment_visits(); " +
+            "        IF to_regclass('prescriptions') IS NOT NULL THEN " +
+            "            DROP TRIGGER IF EXISTS trg_visits_release_prescriptions ON visits; " +
+            "            CREATE TRIGGER trg_visits_release_prescriptions " +
+            "                AFTER DELETE ON visits " +
+            "                FOR EACH ROW " +
+            "                EXECUTE FUNCTION release_visit_prescriptions(); " +
+            "        END IF; " +
+            "    END IF; " +
+            "    RETURN changed; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION ensure_date_partitions() " +
+            "RETURNS INTEGER AS $$ " +
+            "DECLARE " +
+            "    t RECORD; " +
+            "    lo TIMESTAMP; " +
+            "    hi TIMESTAMP; " +
+            "    created INTEGER := 0; " +
+            "BEGIN " +
+            "    FOR t IN SELECT table_name, date_column, granularity FROM date_partitioned_tables LOOP " +
+            "        EXECUTE format('SELECT max(%I) FROM %I', t.date_column, t.table_name) INTO hi; " +
+            "        lo := NULL; " +
+            "        IF to_regclass(t.table_name || '_pdefault') IS NOT NULL THEN " +
+            "            EXECUTE format('SELECT min(%I) FROM %I', t.date_column, t.table_name || '_pdefault') INTO lo; " +
+            "        END IF; " +
+            "        created := created + create_date_partitions(t.table_name, t.granularity, " +
+            "            LEAST(lo, now()::timestamp), " +
+            "            GREATEST(hi + interval '1 day', now()::timestamp + interval '1 year')); " +
+            "    END LOOP; " +
+            "    RETURN created; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        stmt.execute("CREATE OR REPLACE FUNCTION archive_date_partitions(cutoff TIMESTAMP, archive_schema TEXT DEFAULT 'archive') " +
+            "RETURNS INTEGER AS $$ " +
+            "DECLARE " +
+            "    part RECORD; " +
+            "    moved INTEGER := 0; " +
+            "BEGIN " +
+            "    EXECUTE format('CREATE SCHEMA IF NOT EXISTS %I', archive_schema); " +
+            "    FOR part IN " +
+            "        SELECT t.table_name, c.oid::regclass AS partition_name, " +
+            "               substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \\(''([^'']+)''\\)')::timestamp AS upper_bound " +
+            "        FROM date_partitioned_tables t " +
+            "        JOIN pg_inherits i ON i.inhparent = t.table_name::regclass " +
+            "        JOIN pg_class c ON c.oid = i.inhrelid " +
+            "    LOOP " +
+            "        IF part.upper_bound IS NOT NULL AND part.upper_bound <= cutoff THEN " +
+            "            EXECUTE format('ALTER TABLE %I DETACH PARTITION %s', part.table_name, part.partition_name); " +
+            "            EXECUTE format('ALTER TABLE %s SET SCHEMA %I', part.partition_name, archive_schema); " +
+            "            moved := moved + 1; " +
+            "        END IF; " +
+            "    END LOOP; " +
+            "    RETURN moved; " +
+            "END; " +
+            "$$ language 'plpgsql'");
+        
+        String granularity = dbProperties.getProperty("db.partitioning", "").trim().toLowerCase();
+        if (granularity.equals("month") || granularity.equals("year")) {
+            // one statement, so the conversion commits or rolls back as a whole
+            stmt.execute("SELECT partition_clinical_tables('" + granularity + "')");
+        }
+        stmt.execute("SELECT ensure_date_partitions()");
+    }
+
     /**
      * Close the connection pool and release all resources
      */
@@ -0,0 +1,105 @@
+package clinicmanager.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Connection the UI's DAOs are built on. It looks like one connection, but every
+ * thread that uses it gets its own pooled connection: the EDT writes on one, the
+ * background loader (AsyncLoader) reads on another. So a load never runs inside a
+ * transaction the EDT opened (or the other way round), and neither side changes the
+ * other's autocommit. DAOs keep taking a plain Connection and dont notice.
+ * close() closes every thread's connection
+ */
+public final class ThreadBoundConnection implements InvocationHandler {
+    private final Map<Thread, Connection> connections = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private ThreadBoundConnection() {
+    }
+
+    /**
+     * Opens the calling thread's connection right away, so a database that isnt
+     * reachable shows up here and not on the first query
+     */
+    public static Connection create() throws SQLException {
+        ThreadBoundConnection handler = new ThreadBoundConnection();
+        handler.current();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                closeAll();
+                return null;
+            case "isClosed":
+                return closed;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ThreadBoundConnection" + connections.keySet();
+            default:
+                break;
+        }
+        try {
+            return method.invoke(current(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // only the owning thread ever puts its own entry, so get/put needs no lock
+    private Connection current() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+        Thread thread = Thread.currentThread();
+        Connection connection = connections.get(thread);
+        if (connection == null || connection.isClosed()) {
+            releaseFinishedThreads();
+            connection = DatabaseConnection.getConnection();
+            connections.put(thread, connection);
+        }
+        return connection;
+    }
+
+    // connections of threads that are gone (old SwingWorker threads) go back to the pool
+    private void releaseFinishedThreads() {
+        Iterator<Map.Entry<Thread, Connection>> it = connections.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Thread, Connection> entry = it.next();
+            if (!entry.getKey().isAlive()) {
+                it.remove();
+                closeQuietly(entry.getValue());
+            }
+        }
+    }
+
+    private void closeAll() {
+        closed = true;
+        for (Connection connection : connections.values()) {
+            closeQuietly(connection);
+        }
+        connections.clear();
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing connection: " + e.getMessage());
+        }
+    }
+}
@@ -1,33 +1,35 @@
 package clinicmanager.models;
 
+import java.time.LocalDateTime;
+
 public class Appointment {
     private int id;
     private int patientId;
-    private String appointmentDate;
+    private LocalDateTime appointmentDate;
     private String reason;
-    private String status;  // like scheduled, arrived, completed etc
-    private String createdAt;
-    private String updatedAt;
+    private AppointmentStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 
     // basic constructor
-    public Appointment(int id, int patientId, String appointmentDate, String reason) {
+    public Appointment(int id, int patientId, LocalDateTime appointmentDate, String reason) {
         this.id = id;
         this.patientId = patientId;
         this.appointmentDate = appointmentDate;
         this.reason = reason;
-        this.status = "scheduled";  // default
+        this.status = AppointmentStatus.SCHEDULED;  // default
         this.createdAt = null;
         this.updatedAt = null;
     }
     
     // constructor with all fields
-    public Appointment(int id, int patientId, String appointmentDate, String reason, 
-                      String status, String createdAt, String updatedAt) {
+    public Appointment(int id, int patientId, LocalDateTime appointmentDate, String reason, 
+                      AppointmentStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) {
         this.id = id;
         this.patientId = patientId;
         this.appointmentDate = appointmentDate;
         this.reason = reason;
-        this.status = status != null ? status : "scheduled";
+        this.status = status != null ? status : AppointmentStatus.SCHEDULED;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
@@ -49,11 +51,11 @@ public class Appointment {
         this.patientId = patientId;
     }
 
-    public String getAppointmentDate() {
+    public LocalDateTime getAppointmentDate() {
         return appointmentDate;
     }
 
-    public void setAppointmentDate(String appointmentDate) {
+    public void setAppointmentDate(LocalDateTime appointmentDate) {
         this.appointmentDate = appointmentDate;
     }
 
@@ -68,27 +70,27 @@ public class Appointment {
         this.reason = reason;
     }
     
-    public String getStatus() {
+    public AppointmentStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AppointmentStatus status) {
         this.status = status;
     }
     
-    public String getCreatedAt() {
+    public LocalDateTime getCreatedAt() {
         return createdAt;
     }
 
-    public void setCreatedAt(String createdAt) {
+    public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
     
-    public String getUpdatedAt() {
+    public LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
 
-    public void setUpdatedAt(String updatedAt) {
+    public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
 }
\ No newline at end of file
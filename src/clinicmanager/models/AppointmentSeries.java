@@ -0,0 +1,102 @@
+package clinicmanager.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class AppointmentSeries {
+    public static final String DAILY = "daily";
+    public static final String WEEKLY = "weekly";
+    public static final String MONTHLY = "monthly";
+
+    private int id;
+    private int patientId;
+    private String frequency;       // daily, weekly or monthly
+    private int intervalCount;      // every N days/weeks/months
+    private LocalDateTime startDate; // first occurrence
+    private LocalDate untilDate;     // optional last day
+    private int occurrenceCount;    // optional max occurrences, 0 = use untilDate
+    private String reason;
+
+    // empty constructor
+    public AppointmentSeries() {
+        this.intervalCount = 1;
+    }
+
+    // constructor with all fields
+    public AppointmentSeries(int id, int patientId, String frequency, int intervalCount, LocalDateTime startDate,
+                             LocalDate untilDate, int occurrenceCount, String reason) {
+        this.id = id;
+        this.patientId = patientId;
+        this.frequency = frequency;
+        this.intervalCount = intervalCount;
+        this.startDate = startDate;
+        this.untilDate = untilDate;
+        this.occurrenceCount = occurrenceCount;
+        this.reason = reason;
+    }
+
+    // getters/setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(int patientId) {
+        this.patientId = patientId;
+    }
+
+    public String getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+    }
+
+    public int getIntervalCount() {
+        return intervalCount;
+    }
+
+    public void setIntervalCount(int intervalCount) {
+        this.intervalCount = intervalCount;
+    }
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getUntilDate() {
+        return untilDate;
+    }
+
+    public void setUntilDate(LocalDate untilDate) {
+        this.untilDate = untilDate;
+    }
+
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    public void setOccurrenceCount(int occurrenceCount) {
+        this.occurrenceCount = occurrenceCount;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
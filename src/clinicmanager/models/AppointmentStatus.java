@@ -0,0 +1,45 @@
+package clinicmanager.models;
+
+// appointment status, value is what gets stored in the status column
+public enum AppointmentStatus {
+    SCHEDULED("scheduled"),
+    ARRIVED("arrived"),
+    IN_PROGRESS("in-progress"),
+    COMPLETED("completed"),
+    CANCELLED("cancelled"),
+    NO_SHOW("no_show"),
+    MISSED("missed");  // older rows and the appointment form still use missed
+
+    private final String value;
+
+    AppointmentStatus(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    // true for statuses that still take up a slot in the calendar
+    public boolean isActive() {
+        return this != CANCELLED && this != NO_SHOW;
+    }
+
+    // null means scheduled, same default the table uses
+    public static AppointmentStatus fromValue(String value) {
+        if (value == null) {
+            return SCHEDULED;
+        }
+        for (AppointmentStatus status : values()) {
+            if (status.value.equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown appointment status: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -1,12 +1,14 @@
 package clinicmanager.models;
 
+import java.time.LocalDate;
+
 public class MedicalCondition {
     private int id;
     private int patientId;
     private String conditionName;
-    private String diagnosisDate;
+    private LocalDate diagnosisDate;
     private String status;
-    private String resolvedDate;  // Date when condition was resolved
+    private LocalDate resolvedDate;  // Date when condition was resolved
     private String notes;
 
     // No-argument constructor
@@ -14,7 +16,7 @@ public class MedicalCondition {
     }
 
     // Constructor (backward compatibility - no resolvedDate)
-    public MedicalCondition(int id, int patientId, String conditionName, String diagnosisDate, String status, String notes) {
+    public MedicalCondition(int id, int patientId, String conditionName, LocalDate diagnosisDate, String status, String notes) {
         this.id = id;
         this.patientId = patientId;
         this.conditionName = conditionName;
@@ -25,8 +27,8 @@ public class MedicalCondition {
     }
     
     // New constructor with resolvedDate
-    public MedicalCondition(int id, int patientId, String conditionName, String diagnosisDate, 
-                           String status, String resolvedDate, String notes) {
+    public MedicalCondition(int id, int patientId, String conditionName, LocalDate diagnosisDate, 
+                           String status, LocalDate resolvedDate, String notes) {
         this.id = id;
         this.patientId = patientId;
         this.conditionName = conditionName;
@@ -61,11 +63,11 @@ public class MedicalCondition {
         this.conditionName = conditionName;
     }
 
-    public String getDiagnosisDate() {
+    public LocalDate getDiagnosisDate() {
         return diagnosisDate;
     }
 
-    public void setDiagnosisDate(String diagnosisDate) {
+    public void setDiagnosisDate(LocalDate diagnosisDate) {
         this.diagnosisDate = diagnosisDate;
     }
 
@@ -77,11 +79,11 @@ public class MedicalCondition {
         this.status = status;
     }
     
-    public String getResolvedDate() {
+    public LocalDate getResolvedDate() {
         return resolvedDate;
     }
 
-    public void setResolvedDate(String resolvedDate) {
+    public void setResolvedDate(LocalDate resolvedDate) {
         this.resolvedDate = resolvedDate;
     }
 
@@ -1,13 +1,15 @@
 package clinicmanager.models;
 
+import java.time.LocalDate;
+
 public class Medication {
     private int id;
     private int patientId;
     private String medicationName;
     private String dosage;
     private String frequency;
-    private String startDate;
-    private String endDate;
+    private LocalDate startDate;
+    private LocalDate endDate;
     private String status;
     private String notes;
 
@@ -17,7 +19,7 @@ public class Medication {
 
     // regular constructor
     public Medication(int id, int patientId, String medicationName, String dosage, String frequency, 
-                     String startDate, String endDate, String status, String notes) {
+                     LocalDate startDate, LocalDate endDate, String status, String notes) {
         this.id = id;
         this.patientId = patientId;
         this.medicationName = medicationName;
@@ -70,19 +72,19 @@ public class Medication {
         this.frequency = frequency;
     }
 
-    public String getStartDate() {
+    public LocalDate getStartDate() {
         return startDate;
     }
 
-    public void setStartDate(String startDate) {
+    public void setStartDate(LocalDate startDate) {
         this.startDate = startDate;
     }
 
-    public String getEndDate() {
+    public LocalDate getEndDate() {
         return endDate;
     }
 
-    public void setEndDate(String endDate) {
+    public void setEndDate(LocalDate endDate) {
         this.endDate = endDate;
     }
 
@@ -1,16 +1,18 @@
 package clinicmanager.models;
 
+import java.time.LocalDate;
+
 public class Patient {
     private int id;
     private String firstName;
     private String lastName;
-    private String dateOfBirth;
+    private LocalDate dateOfBirth;
     private String phoneNumber;
     private String email;
     private String address;
 
     // Constructor
-    public Patient(int id, String firstName, String lastName, String dateOfBirth, String phoneNumber, String email, String address) {
+    public Patient(int id, String firstName, String lastName, LocalDate dateOfBirth, String phoneNumber, String email, String address) {
         this.id = id;
         this.firstName = firstName;
         this.lastName = lastName;
@@ -45,11 +47,11 @@ public class Patient {
         this.lastName = lastName;
     }
 
-    public String getDateOfBirth() {
+    public LocalDate getDateOfBirth() {
         return dateOfBirth;
     }
 
-    public void setDateOfBirth(String dateOfBirth) {
+    public void setDateOfBirth(LocalDate dateOfBirth) {
         this.dateOfBirth = dateOfBirth;
     }
 
@@ -1,5 +1,7 @@
 package clinicmanager.models;
 
+import java.time.LocalDate;
+
 public class Prescription {
     private int id;
     private int patientId;
@@ -9,13 +11,14 @@ public class Prescription {
     private int quantity;
     private String frequency;
     private int durationDays;
-    private String prescribedDate;
-    private String refillDate;
+    private LocalDate prescribedDate;
+    private LocalDate refillDate;
     private String notes;
+    private int refillsRemaining;  // refills allowed before it has to be renewed
 
     // Constructor (backward compatibility - no visitId)
     public Prescription(int id, int patientId, String medicationName, String dosage, int quantity, 
-                       String frequency, int durationDays, String prescribedDate, String refillDate, String notes) {
+                       String frequency, int durationDays, LocalDate prescribedDate, LocalDate refillDate, String notes) {
         this.id = id;
         this.patientId = patientId;
         this.visitId = null;
@@ -31,7 +34,7 @@ public class Prescription {
     
     // New constructor with visitId
     public Prescription(int id, int patientId, Integer visitId, String medicationName, String dosage, int quantity, 
-                       String frequency, int durationDays, String prescribedDate, String refillDate, String notes) {
+                       String frequency, int durationDays, LocalDate prescribedDate, LocalDate refillDate, String notes) {
         this.id = id;
         this.patientId = patientId;
         this.visitId = visitId;
@@ -110,19 +113,19 @@ public class Prescription {
         this.durationDays = durationDays;
     }
 
-    public String getPrescribedDate() {
+    public LocalDate getPrescribedDate() {
         return prescribedDate;
     }
 
-    public void setPrescribedDate(String prescribedDate) {
+    public void setPrescribedDate(LocalDate prescribedDate) {
         this.prescribedDate = prescribedDate;
     }
 
-    public String getRefillDate() {
+    public LocalDate getRefillDate() {
         return refillDate;
     }
 
-    public void setRefillDate(String refillDate) {
+    public void setRefillDate(LocalDate refillDate) {
         this.refillDate = refillDate;
     }
 
@@ -133,4 +136,12 @@ public class Prescription {
     public void setNotes(String notes) {
         this.notes = notes;
     }
+
+    public int getRefillsRemaining() {
+        return refillsRemaining;
+    }
+
+    public void setRefillsRemaining(int refillsRemaining) {
+        this.refillsRemaining = refillsRemaining;
+    }
 }
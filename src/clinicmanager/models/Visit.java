@@ -1,19 +1,21 @@
 package clinicmanager.models;
 
+import java.time.LocalDateTime;
+
 public class Visit {
     private int id;
     private int patientId;  // Direct patient reference (required)
     private Integer appointmentId;  // Optional appointment reference (can be null for walk-ins)
-    private String visitDate;
+    private LocalDateTime visitDate;
     private String notes;
     private String clinicalNotes;
     private String diagnosis;
     private String treatment;
     private String followUpNotes;
-    private String status;  // in-progress, completed, cancelled
+    private VisitStatus status;
 
     // Constructor for backward compatibility (treats appointmentId as legacy)
-    public Visit(int id, int appointmentId, String visitDate, String notes) {
+    public Visit(int id, int appointmentId, LocalDateTime visitDate, String notes) {
         this.id = id;
         this.appointmentId = appointmentId;
         this.patientId = 0;  // Will be populated from database
@@ -23,11 +25,11 @@ public class Visit {
         this.diagnosis = "";
         this.treatment = "";
         this.followUpNotes = "";
-        this.status = "completed";
+        this.status = VisitStatus.COMPLETED;
     }
 
     // Constructor with clinical details (backward compatibility)
-    public Visit(int id, int appointmentId, String visitDate, String notes, String clinicalNotes, 
+    public Visit(int id, int appointmentId, LocalDateTime visitDate, String notes, String clinicalNotes, 
                  String diagnosis, String treatment, String followUpNotes) {
         this.id = id;
         this.appointmentId = appointmentId;
@@ -38,12 +40,12 @@ public class Visit {
         this.diagnosis = diagnosis;
         this.treatment = treatment;
         this.followUpNotes = followUpNotes;
-        this.status = "completed";
+        this.status = VisitStatus.COMPLETED;
     }
     
     // New constructor with patient_id (preferred for new code)
-    public Visit(int id, int patientId, Integer appointmentId, String visitDate, String notes, 
-                 String clinicalNotes, String diagnosis, String treatment, String followUpNotes, String status) {
+    public Visit(int id, int patientId, Integer appointmentId, LocalDateTime visitDate, String notes, 
+                 String clinicalNotes, String diagnosis, String treatment, String followUpNotes, VisitStatus status) {
         this.id = id;
         this.patientId = patientId;
         this.appointmentId = appointmentId;
@@ -53,7 +55,7 @@ public class Visit {
         this.diagnosis = diagnosis;
         this.treatment = treatment;
         this.followUpNotes = followUpNotes;
-        this.status = status != null ? status : "completed";
+        this.status = status != null ? status : VisitStatus.COMPLETED;
     }
 
     // Getters and Setters
@@ -81,11 +83,11 @@ public class Visit {
         this.appointmentId = appointmentId;
     }
 
-    public String getVisitDate() {
+    public LocalDateTime getVisitDate() {
         return visitDate;
     }
 
-    public void setVisitDate(String visitDate) {
+    public void setVisitDate(LocalDateTime visitDate) {
         this.visitDate = visitDate;
     }
 
@@ -129,11 +131,11 @@ public class Visit {
         this.followUpNotes = followUpNotes;
     }
     
-    public String getStatus() {
+    public VisitStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(VisitStatus status) {
         this.status = status;
     }
 }
\ No newline at end of file
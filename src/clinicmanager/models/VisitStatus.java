@@ -0,0 +1,36 @@
+package clinicmanager.models;
+
+// visit status, value is what gets stored in the status column
+public enum VisitStatus {
+    IN_PROGRESS("in-progress"),
+    COMPLETED("completed"),
+    CANCELLED("cancelled");
+
+    private final String value;
+
+    VisitStatus(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    // null means completed, same default the table uses
+    public static VisitStatus fromValue(String value) {
+        if (value == null) {
+            return COMPLETED;
+        }
+        for (VisitStatus status : values()) {
+            if (status.value.equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown visit status: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,49 @@
+package clinicmanager.models;
+
+import java.time.LocalDateTime;
+
+// the light columns of a visit for list views. the clinical text (notes, diagnosis,
+// treatment...) stays in the database until the visit is opened, see VisitDAO.getVisitById
+public class VisitSummary {
+    private final int id;
+    private final int patientId;
+    private final Integer appointmentId;  // null for walk-ins
+    private final LocalDateTime visitDate;
+    private final VisitStatus status;
+    // true when any of the text fields is filled in, checked without reading them
+    private final boolean hasNotes;
+
+    public VisitSummary(int id, int patientId, Integer appointmentId, LocalDateTime visitDate,
+                        VisitStatus status, boolean hasNotes) {
+        this.id = id;
+        this.patientId = patientId;
+        this.appointmentId = appointmentId;
+        this.visitDate = visitDate;
+        this.status = status != null ? status : VisitStatus.COMPLETED;
+        this.hasNotes = hasNotes;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public Integer getAppointmentId() {
+        return appointmentId;
+    }
+
+    public LocalDateTime getVisitDate() {
+        return visitDate;
+    }
+
+    public VisitStatus getStatus() {
+        return status;
+    }
+
+    public boolean hasNotes() {
+        return hasNotes;
+    }
+}
@@ -0,0 +1,80 @@
+package clinicmanager.reports;
+
+import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.util.DateTimeUtil;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.format.TextStyle;
+import java.util.List;
+import java.util.Locale;
+
+// writes an analytics result as one csv with a section per table
+// sections are separated by an empty row so they can be split apart in a spreadsheet
+public final class AnalyticsReport {
+    private AnalyticsReport() {
+    }
+
+    public static void write(AppointmentDAO.AppointmentAnalytics analytics, Path target) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8);
+             CsvWriter csv = new CsvWriter(out)) {
+            csv.writeRow("Metric", "Value");
+            csv.writeRow("From", DateTimeUtil.format(analytics.start));
+            csv.writeRow("To (exclusive)", DateTimeUtil.format(analytics.end));
+            csv.field("Total Appointments").field(analytics.total).endRow();
+            csv.field("No-shows").field(analytics.noShows).endRow();
+            csv.field("Cancelled").field(analytics.cancelled).endRow();
+            csv.writeRow("No-show Rate (%)", percent(analytics.noShows, analytics.total));
+            csv.writeRow("Cancellation Rate (%)", percent(analytics.cancelled, analytics.total));
+            csv.writeRow("Average Lead Time (days)", decimal(analytics.averageLeadDays));
+            csv.writeRow("Median Lead Time (days)", decimal(analytics.medianLeadDays));
+
+            writeVolume(csv, "Daily", analytics.daily);
+            writeVolume(csv, "Weekly", analytics.weekly);
+            writeVolume(csv, "Monthly", analytics.monthly);
+
+            csv.endRow();
+            csv.field("Weekday");
+            for (int hour = 0; hour < 24; hour++) {
+                csv.field(String.format("%02d:00", hour));
+            }
+            csv.endRow();
+            for (int day = 0; day < 7; day++) {
+                csv.field(DayOfWeek.of(day + 1).getDisplayName(TextStyle.FULL, Locale.ENGLISH));
+                for (int hour = 0; hour < 24; hour++) {
+                    csv.field(analytics.heatmap[day][hour]);
+                }
+                csv.endRow();
+            }
+        }
+    }
+
+    private static void writeVolume(CsvWriter csv, String period, List<AppointmentDAO.VolumeBucket> buckets) throws IOException {
+        csv.endRow();
+        csv.writeRow(period + " Period", "Total", "Completed", "No-shows", "Cancelled",
+            "No-show Rate (%)", "Cancellation Rate (%)", "Running Total", "Moving Average (7)");
+        for (AppointmentDAO.VolumeBucket bucket : buckets) {
+            csv.field(DateTimeUtil.format(bucket.start.toLocalDate()))
+                .field(bucket.total)
+                .field(bucket.completed)
+                .field(bucket.noShows)
+                .field(bucket.cancelled)
+                .field(decimal(bucket.noShowRate))
+                .field(decimal(bucket.cancellationRate))
+                .field(bucket.runningTotal)
+                .field(decimal(bucket.movingAverage))
+                .endRow();
+        }
+    }
+
+    private static String percent(int part, int total) {
+        return total == 0 ? "0.00" : decimal(part * 100.0 / total);
+    }
+
+    private static String decimal(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,147 @@
+package clinicmanager.reports;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// runs several exports at once on a small fixed pool
+// every export opens its own connection (from the pool when HikariCP is there), so
+// they dont share a transaction and one slow report doesnt hold up the others.
+// run() blocks until all are done, call it off the EDT. cancel() can come from any thread
+public class BatchExporter {
+    public static final int MAX_PARALLEL = 3;
+
+    // called from the export threads
+    public interface Listener {
+        void onProgress(String name, long rows);
+        void onFinished(Result result);
+    }
+
+    // how one report went
+    public static class Result {
+        public String name;
+        public Path file;
+        public long rows;
+        public long millis;
+        public boolean cancelled;
+        public Exception error;  // null if it worked
+    }
+
+    private final List<CsvExport> exports;
+    private final Path directory;
+    private final String suffix;
+    private final boolean fast;
+    private final Listener listener;
+    private final List<ReportExporter> exporters = new ArrayList<>();
+    private volatile boolean cancelled;
+    private ExecutorService executor;
+
+    // files go to directory/<name>_<suffix>.csv, fast uses COPY for exports that support it
+    public BatchExporter(List<CsvExport> exports, Path directory, String suffix, boolean fast, Listener listener) {
+        this.exports = exports;
+        this.directory = directory;
+        this.suffix = suffix;
+        this.fast = fast;
+        this.listener = listener;
+        for (CsvExport export : exports) {
+            exporters.add(fast && export.supportsCopy() ? new CopyExporter() : new CsvExporter());
+        }
+    }
+
+    // results in the same order as the exports
+    public List<Result> run() throws InterruptedException {
+        AtomicInteger threadCount = new AtomicInteger();
+        List<Future<Result>> futures = new ArrayList<>();
+        // everything is submitted under the lock, so cancel() cant shut the pool down halfway
+        // through (submit would throw RejectedExecutionException). tasks queued before a cancel
+        // see the flag in runOne and come back cancelled
+        synchronized (this) {
+            if (cancelled) {
+                return cancelledResults();
+            }
+            executor = Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_PARALLEL, exports.size())), r -> {
+                Thread t = new Thread(r, "report-export-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            for (int i = 0; i < exports.size(); i++) {
+                CsvExport export = exports.get(i);
+                ReportExporter exporter = exporters.get(i);
+                futures.add(executor.submit(() -> runOne(export, exporter)));
+            }
+        }
+        try {
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (CancellationException e) {
+                    // never started because the batch was cancelled
+                    Result result = newResult(exports.get(i));
+                    result.cancelled = true;
+                    results.add(result);
+                } catch (ExecutionException e) {
+                    // runOne catches everything, only an Error gets here
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // cancels the running queries with Statement.cancel()/cancelQuery and drops queued ones
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+        for (ReportExporter exporter : exporters) {
+            exporter.cancel();
+        }
+    }
+
+    private Result runOne(CsvExport export, ReportExporter exporter) {
+        Result result = newResult(export);
+        long start = System.nanoTime();
+        try {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            result.rows = exporter.export(export, result.file, rows -> listener.onProgress(export.getName(), rows));
+        } catch (CancellationException e) {
+            result.cancelled = true;
+        } catch (Exception e) {
+            result.error = e;
+        }
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        listener.onFinished(result);
+        return result;
+    }
+
+    private Result newResult(CsvExport export) {
+        Result result = new Result();
+        result.name = export.getName();
+        result.file = directory.resolve(export.getName() + "_" + suffix + ".csv");
+        return result;
+    }
+
+    private List<Result> cancelledResults() {
+        List<Result> results = new ArrayList<>();
+        for (CsvExport export : exports) {
+            Result result = newResult(export);
+            result.cancelled = true;
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,173 @@
+package clinicmanager.reports;
+
+import clinicmanager.dao.CohortQuery;
+import clinicmanager.util.DateTimeUtil;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// the exports on the reports tab
+// appointment exports join patients in the same query instead of a lookup per row
+public final class ClinicExports {
+    // export names, also the watermark keys for incremental exports
+    public static final String PATIENT_LIST = "PatientList";
+    public static final String APPOINTMENTS = "Appointments";
+    public static final String VISITS = "Visits";
+    public static final String[] INCREMENTAL_REPORTS = {PATIENT_LIST, APPOINTMENTS, VISITS};
+
+    private static final String[] PATIENT_HEADER = {
+        "ID", "First Name", "Last Name", "Phone", "Email", "Address", "Date of Birth"};
+    private static final String[] APPOINTMENT_HEADER = {
+        "ID", "Patient ID", "Patient Name", "Date & Time", "Reason", "Status"};
+
+    private static final String[] VISIT_HEADER = {
+        "ID", "Patient ID", "Patient Name", "Appointment ID", "Visit Date", "Diagnosis", "Treatment", "Status"};
+
+    private static final String PATIENT_SELECT =
+        "SELECT p.id, p.first_name, p.last_name, p.phone_number, p.email, p.address, p.date_of_birth FROM patients p";
+    private static final String APPOINTMENT_SELECT =
+        "SELECT a.id, a.patient_id, p.first_name, p.last_name, a.appointment_date, a.reason, a.status " +
+        "FROM appointments a LEFT JOIN patients p ON p.id = a.patient_id";
+    private static final String VISIT_SELECT =
+        "SELECT v.id, v.patient_id, p.first_name, p.last_name, v.appointment_id, v.visit_date, v.diagnosis, v.treatment, v.status " +
+        "FROM visits v LEFT JOIN patients p ON p.id = v.patient_id";
+
+    private ClinicExports() {
+    }
+
+    // the COPY versions format dates and fill defaults in SQL so the bytes from the
+    // server are the finished file, same columns as the JDBC path
+    public static CsvExport patientList() {
+        return new CsvExport(PATIENT_LIST, PATIENT_HEADER,
+            PATIENT_SELECT + " ORDER BY p.id",
+            null,
+            ClinicExports::encodePatient)
+            .withCopySql("SELECT id AS \"ID\", first_name AS \"First Name\", last_name AS \"Last Name\", " +
+                "phone_number AS \"Phone\", email AS \"Email\", address AS \"Address\", " +
+                "to_char(date_of_birth, 'YYYY-MM-DD') AS \"Date of Birth\" FROM patients ORDER BY id");
+    }
+
+    public static CsvExport appointments() {
+        return new CsvExport(APPOINTMENTS, APPOINTMENT_HEADER,
+            APPOINTMENT_SELECT + " ORDER BY a.appointment_date, a.id",
+            null,
+            ClinicExports::encodeAppointment)
+            .withCopySql("SELECT a.id AS \"ID\", a.patient_id AS \"Patient ID\", " +
+                "COALESCE(p.first_name || ' ' || p.last_name, 'Unknown') AS \"Patient Name\", " +
+                "to_char(a.appointment_date, 'YYYY-MM-DD HH24:MI') AS \"Date & Time\", " +
+                "a.reason AS \"Reason\", COALESCE(a.status, 'scheduled') AS \"Status\" " +
+                "FROM appointments a LEFT JOIN patients p ON p.id = a.patient_id ORDER BY a.appointment_date, a.id");
+    }
+
+    public static CsvExport visits() {
+        return new CsvExport(VISITS, VISIT_HEADER,
+            VISIT_SELECT + " ORDER BY v.visit_date, v.id",
+            null,
+            ClinicExports::encodeVisit)
+            .withCopySql("SELECT v.id AS \"ID\", v.patient_id AS \"Patient ID\", " +
+                "COALESCE(p.first_name || ' ' || p.last_name, 'Unknown') AS \"Patient Name\", " +
+                "v.appointment_id AS \"Appointment ID\", " +
+                "to_char(v.visit_date, 'YYYY-MM-DD HH24:MI') AS \"Visit Date\", " +
+                "v.diagnosis AS \"Diagnosis\", v.treatment AS \"Treatment\", COALESCE(v.status, 'completed') AS \"Status\" " +
+                "FROM visits v LEFT JOIN patients p ON p.id = v.patient_id ORDER BY v.visit_date, v.id");
+    }
+
+    // appointments in [start, end)
+    public static CsvExport appointmentsBetween(String name, LocalDateTime start, LocalDateTime end) {
+        return new CsvExport(name, APPOINTMENT_HEADER,
+            APPOINTMENT_SELECT + " WHERE a.appointment_date >= ? AND a.appointment_date < ? ORDER BY a.appointment_date, a.id",
+            stmt -> {
+                stmt.setObject(1, start);
+                stmt.setObject(2, end);
+            },
+            ClinicExports::encodeAppointment);
+    }
+
+    // patients matching the cohort criteria, same columns as the patient list
+    public static CsvExport cohort(String name, CohortQuery query) {
+        return new CsvExport(name, PATIENT_HEADER,
+            PATIENT_SELECT + query.whereClause() + " ORDER BY p.last_name, p.first_name, p.id",
+            query::bind,
+            ClinicExports::encodePatient);
+    }
+
+    public static CsvExport todaysAppointments() {
+        LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
+        return appointmentsBetween("TodaysAppointments", startOfToday, startOfToday.plusDays(1));
+    }
+
+    // rows of reportName created or updated in (since, until], since null = everything up to until.
+    // uses the updated_at indexes, the trigger keeps updated_at current on every UPDATE
+    public static CsvExport changedBetween(String reportName, LocalDateTime since, LocalDateTime until) {
+        String select;
+        String alias;
+        String[] header;
+        CsvExport.RowEncoder encoder;
+        if (PATIENT_LIST.equals(reportName)) {
+            select = PATIENT_SELECT;
+            alias = "p";
+            header = PATIENT_HEADER;
+            encoder = ClinicExports::encodePatient;
+        } else if (APPOINTMENTS.equals(reportName)) {
+            select = APPOINTMENT_SELECT;
+            alias = "a";
+            header = APPOINTMENT_HEADER;
+            encoder = ClinicExports::encodeAppointment;
+        } else if (VISITS.equals(reportName)) {
+            select = VISIT_SELECT;
+            alias = "v";
+            header = VISIT_HEADER;
+            encoder = ClinicExports::encodeVisit;
+        } else {
+            throw new IllegalArgumentException("No incremental export for " + reportName);
+        }
+
+        String sql = select + " WHERE " + alias + ".updated_at <= ?" +
+            (since != null ? " AND " + alias + ".updated_at > ?" : "") +
+            " ORDER BY " + alias + ".updated_at, " + alias + ".id";
+        return new CsvExport(reportName + "_Changes", header, sql,
+            stmt -> {
+                stmt.setObject(1, until);
+                if (since != null) {
+                    stmt.setObject(2, since);
+                }
+            },
+            encoder);
+    }
+
+    private static void encodePatient(ResultSet rs, CsvWriter csv) throws SQLException, IOException {
+        csv.field(rs.getInt("id"))
+            .field(rs.getString("first_name"))
+            .field(rs.getString("last_name"))
+            .field(rs.getString("phone_number"))
+            .field(rs.getString("email"))
+            .field(rs.getString("address"))
+            .field(DateTimeUtil.format(rs.getObject("date_of_birth", LocalDate.class)));
+    }
+
+    private static void encodeAppointment(ResultSet rs, CsvWriter csv) throws SQLException, IOException {
+        String firstName = rs.getString("first_name");
+        String status = rs.getString("status");
+        csv.field(rs.getInt("id"))
+            .field(rs.getInt("patient_id"))
+            .field(firstName != null ? firstName + " " + rs.getString("last_name") : "Unknown")
+            .field(DateTimeUtil.format(rs.getObject("appointment_date", LocalDateTime.class)))
+            .field(rs.getString("reason"))
+            .field(status != null ? status : "scheduled");
+    }
+
+    private static void encodeVisit(ResultSet rs, CsvWriter csv) throws SQLException, IOException {
+        String firstName = rs.getString("first_name");
+        String status = rs.getString("status");
+        csv.field(rs.getInt("id"))
+            .field(rs.getInt("patient_id"))
+            .field(firstName != null ? firstName + " " + rs.getString("last_name") : "Unknown")
+            .field(rs.getObject("appointment_id") != null ? Integer.toString(rs.getInt("appointment_id")) : null)
+            .field(DateTimeUtil.format(rs.getObject("visit_date", LocalDateTime.class)))
+            .field(rs.getString("diagnosis"))
+            .field(rs.getString("treatment"))
+            .field(status != null ? status : "completed");
+    }
+}
@@ -0,0 +1,112 @@
+package clinicmanager.reports;
+
+import clinicmanager.database.DatabaseConnection;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+// fast path for full-table exports: COPY (select) TO STDOUT WITH CSV HEADER
+// the server does the csv encoding and the bytes go straight into the file,
+// no ResultSet, no per-row objects on the java side
+public class CopyExporter implements ReportExporter {
+    public static final int BUFFER_SIZE = 256 * 1024;
+
+    private volatile Connection running;
+    private volatile boolean cancelled;
+
+    // writes export to target via COPY, returns the row count
+    @Override
+    public long export(CsvExport export, Path target, CsvExporter.ProgressListener listener) throws SQLException, IOException {
+        if (!export.supportsCopy()) {
+            throw new IllegalArgumentException("Export has no COPY query: " + export.getName());
+        }
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return export(connection, export, target, listener);
+        }
+    }
+
+    public long export(Connection connection, CsvExport export, Path target, CsvExporter.ProgressListener listener) throws SQLException, IOException {
+        // works through a pool wrapper too
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        String copySql = "COPY (" + export.getCopySql() + ") TO STDOUT WITH (FORMAT csv, HEADER true)";
+
+        long rows;
+        boolean finished = false;
+        running = connection;
+        try (OutputStream out = new ProgressOutputStream(
+                 new BufferedOutputStream(Files.newOutputStream(target), BUFFER_SIZE), listener)) {
+            rows = copyManager.copyOut(copySql, out);
+            finished = true;
+        } catch (InterruptedIOException e) {
+            throw new CancellationException("Export cancelled");
+        } catch (SQLException | IOException e) {
+            if (cancelled) {
+                throw new CancellationException("Export cancelled");
+            }
+            throw e;
+        } finally {
+            running = null;
+            if (!finished) {
+                Files.deleteIfExists(target);
+            }
+        }
+        if (listener != null) {
+            listener.onProgress(rows);
+        }
+        return rows;
+    }
+
+    // cancels the COPY on the server, also stops it before the first bytes arrive
+    @Override
+    public void cancel() {
+        cancelled = true;
+        Connection connection = running;
+        if (connection != null) {
+            try {
+                connection.unwrap(PGConnection.class).cancelQuery();
+            } catch (SQLException e) {
+                // already finished
+            }
+        }
+    }
+
+    // counts lines for progress (a quoted field with a line break counts twice, close enough)
+    // and stops the copy on cancel()/interrupt, pgjdbc cancels the COPY when a write fails
+    private class ProgressOutputStream extends FilterOutputStream {
+        private final CsvExporter.ProgressListener listener;
+        private long lines;
+        private long nextReport = CsvExporter.PROGRESS_EVERY;
+
+        ProgressOutputStream(OutputStream out, CsvExporter.ProgressListener listener) {
+            super(out);
+            this.listener = listener;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Export cancelled");
+            }
+            out.write(b, off, len);
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            if (listener != null && lines >= nextReport) {
+                // minus the header line
+                listener.onProgress(lines - 1);
+                nextReport = lines + CsvExporter.PROGRESS_EVERY;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package clinicmanager.reports;
+
+import clinicmanager.dao.CursorStream;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// what one export writes: file name prefix, header, the query and how a row becomes csv fields
+public class CsvExport {
+    // writes the current row's fields, CsvExporter ends the row
+    public interface RowEncoder {
+        void encode(ResultSet rs, CsvWriter csv) throws SQLException, IOException;
+    }
+
+    private final String name;
+    private final String[] header;
+    private final String sql;
+    private final CursorStream.Binder binder;
+    private final RowEncoder encoder;
+    private String copySql;
+
+    public CsvExport(String name, String[] header, String sql, CursorStream.Binder binder, RowEncoder encoder) {
+        this.name = name;
+        this.header = header;
+        this.sql = sql;
+        this.binder = binder;
+        this.encoder = encoder;
+    }
+
+    // parameterless SELECT that already produces the final csv columns (formatted, header
+    // names as aliases) so it can run as COPY ... TO STDOUT. COPY cant take bind parameters,
+    // so only exports without a binder can have one
+    public CsvExport withCopySql(String copySql) {
+        if (binder != null) {
+            throw new IllegalArgumentException("COPY export cannot use bind parameters: " + name);
+        }
+        this.copySql = copySql;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getHeader() {
+        return header;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public CursorStream.Binder getBinder() {
+        return binder;
+    }
+
+    public RowEncoder getEncoder() {
+        return encoder;
+    }
+
+    public String getCopySql() {
+        return copySql;
+    }
+
+    public boolean supportsCopy() {
+        return copySql != null;
+    }
+}
@@ -0,0 +1,145 @@
+package clinicmanager.reports;
+
+import clinicmanager.database.DatabaseConnection;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+
+// streams a CsvExport from a server-side cursor straight into a file
+// rows are encoded as they arrive, so heap use depends on the fetch size and
+// buffer size, not on how many rows there are.
+// meant to run off the EDT: it opens its own connection so the shared UI
+// connection keeps autocommit and is never used from two threads.
+public class CsvExporter implements ReportExporter {
+    public static final int FETCH_SIZE = 1000;
+    public static final int BUFFER_SIZE = 64 * 1024;
+    public static final int PROGRESS_EVERY = 5000;
+
+    private volatile PreparedStatement running;
+    private volatile boolean cancelled;
+
+    // called from the exporting thread with the number of rows written so far
+    public interface ProgressListener {
+        void onProgress(long rows);
+    }
+
+    // writes export to target (overwritten if it exists), returns the row count
+    // stops with CancellationException if cancelled or the thread is interrupted, the partial file is deleted
+    @Override
+    public long export(CsvExport export, Path target, ProgressListener listener) throws SQLException, IOException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return export(connection, export, target, listener);
+        }
+    }
+
+    // same with a caller owned connection, autocommit is turned off for the cursor and put back after.
+    // the cursor transaction is committed only if the file was written, rolled back otherwise
+    public long export(Connection connection, CsvExport export, Path target, ProgressListener listener) throws SQLException, IOException {
+        boolean oldAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long rows = 0;
+        boolean finished = false;
+        try {
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 CsvWriter csv = new CsvWriter(new BufferedWriter(
+                     new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE));
+                 PreparedStatement stmt = connection.prepareStatement(export.getSql(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                running = stmt;
+                if (cancelled) {
+                    throw new CancellationException("Export cancelled");
+                }
+                stmt.setFetchSize(FETCH_SIZE);
+                if (export.getBinder() != null) {
+                    export.getBinder().bind(stmt);
+                }
+                csv.writeRow(export.getHeader());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        export.getEncoder().encode(rs, csv);
+                        csv.endRow();
+                        rows++;
+                        if (rows % PROGRESS_EVERY == 0) {
+                            if (cancelled || Thread.currentThread().isInterrupted()) {
+                                throw new CancellationException("Export cancelled");
+                            }
+                            if (listener != null) {
+                                listener.onProgress(rows);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                // Statement.cancel() shows up as a "canceling statement" error
+                if (cancelled) {
+                    throw new CancellationException("Export cancelled");
+                }
+                throw e;
+            }
+            // only our own transaction is ended here, a caller that had autocommit off keeps its own
+            if (oldAutoCommit) {
+                connection.commit();
+            }
+            finished = true;
+        } finally {
+            running = null;
+            if (finished) {
+                connection.setAutoCommit(oldAutoCommit);
+            } else {
+                // the export already failed, cleanup errors are logged so they dont hide why
+                abandon(connection, oldAutoCommit, target);
+            }
+        }
+        if (listener != null) {
+            listener.onProgress(rows);
+        }
+        return rows;
+    }
+
+    // rolls back the cursor transaction, puts autocommit back and deletes the partial file
+    private static void abandon(Connection connection, boolean oldAutoCommit, Path target) {
+        if (oldAutoCommit) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                System.err.println("Error rolling back export: " + e.getMessage());
+            }
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error restoring autocommit: " + e.getMessage());
+            }
+        }
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException e) {
+            System.err.println("Error deleting partial export " + target + ": " + e.getMessage());
+        }
+    }
+
+    // Statement.cancel() asks the server to stop the query, the fetch loop then fails and cleans up
+    @Override
+    public void cancel() {
+        cancelled = true;
+        PreparedStatement stmt = running;
+        if (stmt != null) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                // already finished
+            }
+        }
+    }
+}
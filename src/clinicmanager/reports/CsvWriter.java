@@ -0,0 +1,91 @@
+package clinicmanager.reports;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+// RFC 4180 csv encoder, written one field at a time so a row never needs its own array
+// fields with a comma, quote or line break get quoted and inner quotes are doubled.
+// reuse one instance for the whole file, it does no buffering itself so give it a BufferedWriter
+public class CsvWriter implements Closeable {
+    private final Writer out;
+    private boolean firstField = true;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    // whole header (or any fixed row) at once
+    public void writeRow(String... fields) throws IOException {
+        for (String field : fields) {
+            field(field);
+        }
+        endRow();
+    }
+
+    // null is written as an empty field
+    public CsvWriter field(String value) throws IOException {
+        separator();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return this;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+        return this;
+    }
+
+    public CsvWriter field(long value) throws IOException {
+        separator();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        out.write("\r\n");
+        firstField = true;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void separator() throws IOException {
+        if (firstField) {
+            firstField = false;
+        } else {
+            out.write(',');
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        // leading/trailing spaces get quoted too so spreadsheet apps dont trim them
+        if (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package clinicmanager.reports;
+
+import clinicmanager.dao.ExportWatermarkDAO;
+import clinicmanager.database.DatabaseConnection;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+// exports only rows created or updated since the report's last run
+// the upper bound is read from the database before the query and becomes the new
+// watermark only after the file is written, so a failed run is simply repeated.
+// it stays behind every transaction still open (see ExportWatermarkDAO.safeUpperBound),
+// so rows committed after the run with an older updated_at are not skipped
+public class IncrementalExporter {
+    // what one run covered
+    public static class Result {
+        public long rows;
+        public LocalDateTime since;  // null on the first run
+        public LocalDateTime until;
+    }
+
+    private final CsvExporter exporter = new CsvExporter();
+
+    public Result export(String reportName, Path target, boolean reset, CsvExporter.ProgressListener listener) throws SQLException, IOException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            ExportWatermarkDAO watermarks = new ExportWatermarkDAO(connection);
+            if (reset) {
+                watermarks.resetWatermark(reportName);
+            }
+
+            Result result = new Result();
+            result.since = watermarks.getWatermark(reportName);
+            // a transaction open since before the last run holds the bound back, never move backwards
+            LocalDateTime bound = watermarks.safeUpperBound();
+            result.until = result.since != null && bound.isBefore(result.since) ? result.since : bound;
+            result.rows = exporter.export(connection,
+                ClinicExports.changedBetween(reportName, result.since, result.until), target, listener);
+            watermarks.saveWatermark(reportName, result.until);
+            return result;
+        }
+    }
+
+    // stops the running export query, export() then throws CancellationException
+    public void cancel() {
+        exporter.cancel();
+    }
+}
@@ -0,0 +1,14 @@
+package clinicmanager.reports;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+// one export run, CsvExporter (cursor) or CopyExporter (COPY TO STDOUT)
+// an instance runs one export at a time, cancel() may be called from any thread
+public interface ReportExporter {
+    long export(CsvExport export, Path target, CsvExporter.ProgressListener listener) throws SQLException, IOException;
+
+    // stops the running export on the server, export() then throws CancellationException
+    void cancel();
+}
@@ -3,6 +3,7 @@ package clinicmanager.util;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.time.LocalDate;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -20,11 +21,11 @@ public class DatePickerPanel extends JPanel {
     private static final SimpleDateFormat DISPLAY_FORMAT = new SimpleDateFormat("MMMM yyyy");
     private static final TimeZone TUNISIA_TZ = TimeZone.getTimeZone("Africa/Tunis");
 
-    public DatePickerPanel(Date initialDate, DateSelectionListener listener) {
+    public DatePickerPanel(LocalDate initialDate, DateSelectionListener listener) {
         this.listener = listener;
         this.calendar = Calendar.getInstance(TUNISIA_TZ);
         if (initialDate != null) {
-            calendar.setTime(initialDate);
+            calendar.set(initialDate.getYear(), initialDate.getMonthValue() - 1, initialDate.getDayOfMonth());
         }
         setLayout(new BorderLayout(5, 5));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -0,0 +1,72 @@
+package clinicmanager.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+
+// shared date formats, DateTimeFormatter is immutable so one instance is enough for everyone
+// (SimpleDateFormat had to be created per call because it isnt thread safe)
+public class DateTimeUtil {
+    public static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    public static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    public static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+    public static final DateTimeFormatter DATE_TIME_SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    public static final DateTimeFormatter DISPLAY_DATE_TIME = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+    public static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+
+    // accepts yyyy-MM-dd, yyyy-MM-dd HH:mm and yyyy-MM-dd HH:mm:ss in one pass, no fallback chain
+    private static final DateTimeFormatter LENIENT_DATE_TIME = new DateTimeFormatterBuilder()
+        .appendPattern("yyyy-MM-dd")
+        .optionalStart().appendPattern(" HH:mm").optionalStart().appendPattern(":ss").optionalEnd().optionalEnd()
+        .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+        .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+        .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+        .toFormatter();
+
+    private DateTimeUtil() {
+    }
+
+    // null/empty gives null, bad format throws DateTimeParseException
+    public static LocalDate parseDate(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        return LocalDate.parse(text.trim(), DATE);
+    }
+
+    public static LocalDateTime parseDateTime(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        return LocalDateTime.parse(text.trim(), LENIENT_DATE_TIME);
+    }
+
+    // same as parseDateTime but returns null instead of throwing, for form fields
+    public static LocalDateTime tryParseDateTime(String text) {
+        try {
+            return parseDateTime(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static LocalDate tryParseDate(String text) {
+        try {
+            return parseDate(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // null safe formatting for tables and exports
+    public static String format(LocalDate date) {
+        return date != null ? date.format(DATE) : null;
+    }
+
+    public static String format(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.format(DATE_TIME) : null;
+    }
+}
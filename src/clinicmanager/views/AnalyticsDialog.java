@@ -0,0 +1,146 @@
+package clinicmanager.views;
+
+import clinicmanager.controllers.ReportsController;
+import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.util.DateTimeUtil;
+import clinicmanager.views.async.AsyncLoader;
+import java.awt.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import javax.swing.*;
+
+// time-series analytics for a date range: volume, no-show/cancellation rates,
+// weekday x hour load and lead time. the numbers come from ReportsController which
+// caches them per range, so switching tabs or periods doesnt query again
+public class AnalyticsDialog extends JDialog {
+    private static final String[] PERIODS = {"Daily", "Weekly", "Monthly"};
+
+    private final ReportsController controller;
+    private final JTextField fromField;
+    private final JTextField toField;
+    private final JComboBox<String> periodCombo = new JComboBox<>(PERIODS);
+    private final JLabel summaryLabel = new JLabel(" ");
+    private final BarChartPanel volumeChart = new BarChartPanel("Appointments (line: 7 period moving average)", new Color(52, 152, 219));
+    private final BarChartPanel noShowChart = new BarChartPanel("No-show rate (%)", new Color(231, 76, 60));
+    private final BarChartPanel cancellationChart = new BarChartPanel("Cancellation rate (%)", new Color(241, 196, 15));
+    private final HeatmapPanel heatmap = new HeatmapPanel();
+    private final JButton loadButton = new JButton("Load");
+    private final JButton exportButton = new JButton("Export CSV");
+    private AppointmentDAO.AppointmentAnalytics analytics;
+    private final AsyncLoader<AppointmentDAO.AppointmentAnalytics> loader = new AsyncLoader<>(
+        loading -> {
+            loadButton.setEnabled(!loading);
+            summaryLabel.setText(loading ? "Loading..." : " ");
+        });
+
+    public AnalyticsDialog(Window owner, ReportsController controller) {
+        super(owner, "Clinic Analytics", Dialog.ModalityType.MODELESS);
+        this.controller = controller;
+        LocalDate today = LocalDate.now();
+        fromField = new JTextField(DateTimeUtil.format(today.minusDays(89)), 10);
+        toField = new JTextField(DateTimeUtil.format(today), 10);
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("From:"));
+        top.add(fromField);
+        top.add(new JLabel("To:"));
+        top.add(toField);
+        top.add(periodCombo);
+        top.add(loadButton);
+        top.add(exportButton);
+
+        JPanel rates = new JPanel(new GridLayout(2, 1, 0, 5));
+        rates.add(noShowChart);
+        rates.add(cancellationChart);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Volume", volumeChart);
+        tabs.addTab("No-shows & Cancellations", rates);
+        tabs.addTab("Load by Weekday & Hour", heatmap);
+
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        summaryLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+
+        add(top, BorderLayout.NORTH);
+        add(tabs, BorderLayout.CENTER);
+        add(summaryLabel, BorderLayout.SOUTH);
+
+        loadButton.addActionListener(e -> load());
+        periodCombo.addActionListener(e -> showCharts());
+        exportButton.addActionListener(e -> export());
+        exportButton.setEnabled(false);
+
+        setSize(900, 600);
+        setLocationRelativeTo(owner);
+    }
+
+    // runs the queries on the loader thread, a cached range comes back right away
+    public void load() {
+        LocalDate from = DateTimeUtil.tryParseDate(fromField.getText());
+        LocalDate to = DateTimeUtil.tryParseDate(toField.getText());
+        if (from == null || to == null || to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "Enter a valid range (yyyy-MM-dd).", "Analytics", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // the to date is inclusive in the form
+        loader.load(() -> controller.getAnalytics(from, to.plusDays(1)), loaded -> {
+            analytics = loaded;
+            exportButton.setEnabled(true);
+            showCharts();
+        }, e -> JOptionPane.showMessageDialog(this, "Error loading analytics: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void showCharts() {
+        if (analytics == null) return;
+        List<AppointmentDAO.VolumeBucket> buckets;
+        String period = (String) periodCombo.getSelectedItem();
+        if ("Monthly".equals(period)) {
+            buckets = analytics.monthly;
+        } else if ("Weekly".equals(period)) {
+            buckets = analytics.weekly;
+        } else {
+            buckets = analytics.daily;
+        }
+
+        int n = buckets.size();
+        String[] labels = new String[n];
+        double[] totals = new double[n];
+        double[] moving = new double[n];
+        double[] noShowRates = new double[n];
+        double[] cancellationRates = new double[n];
+        for (int i = 0; i < n; i++) {
+            AppointmentDAO.VolumeBucket bucket = buckets.get(i);
+            labels[i] = DateTimeUtil.format(bucket.start.toLocalDate()).substring(5);
+            totals[i] = bucket.total;
+            moving[i] = bucket.movingAverage;
+            noShowRates[i] = bucket.noShowRate;
+            cancellationRates[i] = bucket.cancellationRate;
+        }
+        volumeChart.setData(labels, totals, moving);
+        noShowChart.setData(labels, noShowRates, null);
+        cancellationChart.setData(labels, cancellationRates, null);
+        heatmap.setData(analytics.heatmap);
+
+        double total = Math.max(1, analytics.total);
+        summaryLabel.setText(String.format("%d appointments  |  no-show rate %.1f%%  |  cancellation rate %.1f%%  |  lead time avg %.1f days, median %.1f days",
+            analytics.total, analytics.noShows * 100.0 / total, analytics.cancelled * 100.0 / total,
+            analytics.averageLeadDays, analytics.medianLeadDays));
+    }
+
+    private void export() {
+        if (analytics == null) return;
+        try {
+            java.io.File reportsDir = new java.io.File("reports");
+            if (!reportsDir.exists()) {
+                reportsDir.mkdir();
+            }
+            String timestamp = LocalDateTime.now().format(DateTimeUtil.FILE_TIMESTAMP);
+            java.io.File file = new java.io.File(reportsDir, "Analytics_" + timestamp + ".csv");
+            controller.exportAnalytics(analytics, file.toPath());
+            JOptionPane.showMessageDialog(this, "Analytics exported successfully!\nFile: " + file.getAbsolutePath(), "Success", JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Error exporting analytics: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -2,14 +2,27 @@ package clinicmanager.views;
 
 import clinicmanager.controllers.AppointmentController;
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentSeriesDAO;
 import clinicmanager.dao.PatientDAO;
 import clinicmanager.models.Appointment;
+import clinicmanager.models.AppointmentSeries;
+import clinicmanager.models.AppointmentStatus;
 import clinicmanager.models.Patient;
+import clinicmanager.util.DateTimeUtil;
+import clinicmanager.views.async.AsyncLoader;
+import clinicmanager.views.async.LoadingIndicator;
 import java.awt.*;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
@@ -20,12 +33,36 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
     private JComboBox<PatientComboItem> patientCombo;
     private JPanel dateField;
     private JTextField reasonField;
-    private JComboBox<String> statusCombo;
-    private JButton saveButton, updateButton, clearButton, refreshButton;
+    private JComboBox<AppointmentStatus> statusCombo;
+    private JButton saveButton, seriesButton, updateButton, clearButton, refreshButton;
     private int selectedAppointmentId = -1;
+    private JComboBox<String> viewCombo;
+    private JLabel rangeLabel;
+    private LocalDate viewAnchor = LocalDate.now();
+    // table rows of neighbour windows loaded in the background, key is view + window start
+    private final Map<String, List<Object[]>> prefetched = new HashMap<>();
+    private final AsyncLoader<List<Object[]>> tableLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
+    // both neighbour windows in one load, keyed like prefetched
+    private final AsyncLoader<Map<String, List<Object[]>>> prefetchLoader = new AsyncLoader<>();
+    private final AsyncLoader<List<Patient>> patientLoader = new AsyncLoader<>();
+    // start of the window in the table, null until the first load lands
+    private LocalDate shownStart;
+    // appointments named by change events, reloaded by id instead of the whole window
+    private final Set<Integer> dirtyIds = new LinkedHashSet<>();
+    private final AsyncLoader<List<Object[]>> rowLoader = new AsyncLoader<>();
+    // series conflict check and save, the button stays off meanwhile so a series isnt saved twice
+    private final LoadingIndicator seriesIndicator = LoadingIndicator.all(LoadingIndicator.busyCursor(this),
+        loading -> seriesButton.setEnabled(!loading));
+    private final AsyncLoader<List<LocalDateTime>> seriesConflictLoader = new AsyncLoader<>(seriesIndicator);
+    private final AsyncLoader<Integer> seriesSaveLoader = new AsyncLoader<>(seriesIndicator);
+    private final AsyncLoader<List<LocalDateTime>> slotLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
 
     public AppointmentPanel(AppointmentDAO appointmentDAO, PatientDAO patientDAO) {
-        this.controller = new AppointmentController(appointmentDAO, patientDAO);
+        this(appointmentDAO, patientDAO, null);
+    }
+
+    public AppointmentPanel(AppointmentDAO appointmentDAO, PatientDAO patientDAO, AppointmentSeriesDAO seriesDAO) {
+        this.controller = new AppointmentController(appointmentDAO, patientDAO, seriesDAO);
         
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -82,6 +119,13 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         gbc.gridx = 1;
         panel.add(dateField, gbc);
 
+        // finds next free time instead of guessing
+        JButton nextSlotBtn = new JButton("Next Free Slot");
+        nextSlotBtn.setToolTipText("Find the next available times from the selected date");
+        nextSlotBtn.addActionListener(e -> pickNextFreeSlot());
+        gbc.gridx = 2;
+        panel.add(nextSlotBtn, gbc);
+
         // reason textfield
         gbc.gridx = 0; gbc.gridy = 2;
         panel.add(new JLabel("Reason:"), gbc);
@@ -93,7 +137,8 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         // status dropdown menu
         gbc.gridx = 0; gbc.gridy = 3;
         panel.add(new JLabel("Status *:"), gbc);
-        statusCombo = new JComboBox<>(new String[]{"scheduled", "completed", "missed", "cancelled"});
+        statusCombo = new JComboBox<>(new AppointmentStatus[]{
+            AppointmentStatus.SCHEDULED, AppointmentStatus.COMPLETED, AppointmentStatus.MISSED, AppointmentStatus.CANCELLED});
         statusCombo.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         statusCombo.setPreferredSize(new Dimension(250, 25));
         gbc.gridx = 1;
@@ -111,9 +156,40 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
 
         refreshButton = MainFrame.createModernButton("Refresh", 
             new Color(34, 139, 34), new Color(50, 160, 50), 100, 30);
-        refreshButton.addActionListener(e -> refreshTable());
+        refreshButton.addActionListener(e -> {
+            clearPrefetched();
+            refreshTable();
+        });
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         buttonPanel.add(refreshButton);
+
+        // calendar window controls, only the visible window is loaded
+        viewCombo = new JComboBox<>(new String[]{"Day", "Week", "Month"});
+        viewCombo.setSelectedItem("Week");
+        viewCombo.addActionListener(e -> refreshTable());
+        JButton prevBtn = new JButton("<");
+        prevBtn.addActionListener(e -> {
+            viewAnchor = shiftWindow(viewAnchor, -1);
+            refreshTable();
+        });
+        JButton todayBtn = new JButton("Today");
+        todayBtn.addActionListener(e -> {
+            viewAnchor = LocalDate.now();
+            refreshTable();
+        });
+        JButton nextBtn = new JButton(">");
+        nextBtn.addActionListener(e -> {
+            viewAnchor = shiftWindow(viewAnchor, 1);
+            refreshTable();
+        });
+        rangeLabel = new JLabel();
+        rangeLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        buttonPanel.add(new JLabel("View:"));
+        buttonPanel.add(viewCombo);
+        buttonPanel.add(prevBtn);
+        buttonPanel.add(todayBtn);
+        buttonPanel.add(nextBtn);
+        buttonPanel.add(rangeLabel);
         panel.add(buttonPanel, BorderLayout.NORTH);
 
         String[] columns = {"ID", "Patient ID", "Patient Name", "Date & Time", "Reason", "Status"};
@@ -148,6 +224,11 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
             new Color(34, 139, 34), new Color(50, 160, 50), 180, 40);
         saveButton.addActionListener(e -> saveAppointment());
 
+        // recurring follow-ups (weekly/monthly) in one go
+        seriesButton = MainFrame.createModernButton("Schedule Series", 
+            new Color(0, 128, 128), new Color(0, 150, 150), 180, 40);
+        seriesButton.addActionListener(e -> scheduleSeries());
+
         updateButton = MainFrame.createModernButton("Update Appointment", 
             new Color(0, 102, 204), new Color(0, 120, 240), 180, 40);
         updateButton.addActionListener(e -> updateAppointment());
@@ -157,6 +238,7 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         clearButton.addActionListener(e -> clearForm());
 
         panel.add(saveButton);
+        panel.add(seriesButton);
         panel.add(updateButton);
         panel.add(clearButton);
 
@@ -164,23 +246,20 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
     }
 
     private void loadPatients() {
-        try {
-            List<Patient> patients = controller.getAllPatients();
+        patientLoader.load(controller::getAllPatients, patients -> {
             patientCombo.removeAllItems();
             patientCombo.addItem(new PatientComboItem(-1, "Select Patient"));
             for (Patient patient : patients) {
                 patientCombo.addItem(new PatientComboItem(patient.getId(), 
                     controller.getPatientName(patient)));
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }, e -> JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
     }
 
     private void saveAppointment() {
         PatientComboItem selected = (PatientComboItem) patientCombo.getSelectedItem();
-        String dateTimeString = MainFrame.getDateTimeString(dateField);
-        String errorMsg = controller.validateAppointment(selected != null ? selected.getId() : -1, dateTimeString, (String) statusCombo.getSelectedItem());
+        LocalDateTime dateTime = MainFrame.getDateTime(dateField);
+        String errorMsg = controller.validateAppointment(selected != null ? selected.getId() : -1, dateTime, (AppointmentStatus) statusCombo.getSelectedItem());
         
         if (errorMsg != null) {
             JOptionPane.showMessageDialog(this, errorMsg, "Validation Error", JOptionPane.ERROR_MESSAGE);
@@ -188,22 +267,27 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         }
 
         try {
-            if (controller.hasConflict(dateTimeString)) {
+            if (controller.hasConflict(dateTime)) {
                 int confirm = JOptionPane.showConfirmDialog(this, 
                     "Another appointment exists at this time. Do you want to schedule anyway?",
                     "Conflict Warning", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
                 if (confirm != JOptionPane.YES_OPTION) return;
             }
 
-            Appointment appointment = new Appointment(0, selected.getId(), dateTimeString, 
-                reasonField.getText().trim(), (String) statusCombo.getSelectedItem(), null, null);
+            Appointment appointment = new Appointment(0, selected.getId(), dateTime, 
+                reasonField.getText().trim(), (AppointmentStatus) statusCombo.getSelectedItem(), null, null);
             
             controller.saveAppointment(appointment);
             JOptionPane.showMessageDialog(this, "Appointment scheduled successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
             clearForm();
-            refreshTable();
-            loadPatients();
-            DataChangeManager.getInstance().notifyAppointmentsChanged();
+            // jump to the window that holds the new appointment, if it's the one
+            // on screen the change event below adds the row on its own
+            viewAnchor = dateTime.toLocalDate();
+            if (!windowStart(viewAnchor).equals(shownStart)) {
+                clearPrefetched();
+                refreshTable();
+            }
+            DataChangeManager.getInstance().notifyAppointmentChanged(DataChangeEvent.Kind.CREATED, appointment.getId(), appointment.getPatientId());
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error scheduling appointment: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -216,14 +300,34 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         }
 
         PatientComboItem selected = (PatientComboItem) patientCombo.getSelectedItem();
-        String dateTimeString = MainFrame.getDateTimeString(dateField);
-        String errorMsg = controller.validateAppointment(selected != null ? selected.getId() : -1, dateTimeString, (String) statusCombo.getSelectedItem());
+        LocalDateTime dateTime = MainFrame.getDateTime(dateField);
+        String errorMsg = controller.validateAppointment(selected != null ? selected.getId() : -1, dateTime, (AppointmentStatus) statusCombo.getSelectedItem());
         
         if (errorMsg != null) {
             JOptionPane.showMessageDialog(this, errorMsg, "Validation Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        // part of a series: ask whether the later occurrences change too
+        Integer seriesId = null;
+        try {
+            seriesId = controller.getSeriesId(selectedAppointmentId);
+        } catch (SQLException e) {
+            // treat as single appointment
+        }
+        if (seriesId != null) {
+            Object[] options = {"This Appointment", "This and Following", "Cancel"};
+            int scope = JOptionPane.showOptionDialog(this,
+                "This appointment is part of a recurring series.\nWhich appointments do you want to update?",
+                "Update Series", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE,
+                null, options, options[0]);
+            if (scope == 1) {
+                updateThisAndFollowing(seriesId, dateTime);
+                return;
+            }
+            if (scope != 0) return;
+        }
+
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to update this appointment?", 
             "Confirm Update", JOptionPane.YES_NO_OPTION);
@@ -231,26 +335,196 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         if (confirm == JOptionPane.YES_OPTION) {
             try {
                 Appointment appointment = new Appointment(selectedAppointmentId, selected.getId(), 
-                    dateTimeString, reasonField.getText().trim(), (String) statusCombo.getSelectedItem(), null, null);
+                    dateTime, reasonField.getText().trim(), (AppointmentStatus) statusCombo.getSelectedItem(), null, null);
                 
                 controller.updateAppointment(appointment);
                 JOptionPane.showMessageDialog(this, "appointment updated", "Success", JOptionPane.INFORMATION_MESSAGE);
                 clearForm();
-                refreshTable();
-                loadPatients();
                 appointmentTable.clearSelection();
-                DataChangeManager.getInstance().notifyAppointmentsChanged();
+                DataChangeManager.getInstance().notifyAppointmentChanged(DataChangeEvent.Kind.UPDATED, appointment.getId(), appointment.getPatientId());
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(this, "Error updating appointment: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
+    // one set-based update for the selected occurrence and every later one in the series
+    private void updateThisAndFollowing(int seriesId, LocalDateTime dateTime) {
+        LocalDateTime originalDateTime = null;
+        int row = appointmentTable.getSelectedRow();
+        if (row >= 0) {
+            originalDateTime = DateTimeUtil.tryParseDateTime((String) tableModel.getValueAt(row, 3));
+        }
+        if (originalDateTime == null) {
+            JOptionPane.showMessageDialog(this, "Please select an appointment to update.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        AppointmentStatus status = (AppointmentStatus) statusCombo.getSelectedItem();
+        // blank keeps each occurrence's own reason
+        String reason = reasonField.getText().trim();
+        try {
+            if (status == null || status.isActive()) {
+                List<LocalDateTime> conflicts = controller.findMoveConflicts(seriesId, originalDateTime, dateTime);
+                if (!conflicts.isEmpty()) {
+                    StringBuilder msg = new StringBuilder();
+                    msg.append(conflicts.size()).append(" of the moved appointments land on fully booked times:\n");
+                    for (int i = 0; i < conflicts.size() && i < 10; i++) {
+                        msg.append("  ").append(DateTimeUtil.format(conflicts.get(i))).append("\n");
+                    }
+                    if (conflicts.size() > 10) {
+                        msg.append("  ...\n");
+                    }
+                    msg.append("Move them anyway?");
+                    int choice = JOptionPane.showConfirmDialog(this, msg.toString(),
+                        "Conflict Warning", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                    if (choice != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                }
+            }
+            int updated = controller.updateThisAndFollowing(seriesId, originalDateTime, dateTime,
+                reason.isEmpty() ? null : reason, status);
+            JOptionPane.showMessageDialog(this, updated + " appointments updated", "Success", JOptionPane.INFORMATION_MESSAGE);
+            clearForm();
+            appointmentTable.clearSelection();
+            // no single id for a set-based update, the bulk event reloads the window
+            DataChangeManager.getInstance().notifyAppointmentsChanged();
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Error updating series: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // recurring appointments starting at the date in the form
+    private void scheduleSeries() {
+        PatientComboItem selected = (PatientComboItem) patientCombo.getSelectedItem();
+        LocalDateTime dateTime = MainFrame.getDateTime(dateField);
+        String errorMsg = controller.validateAppointment(selected != null ? selected.getId() : -1, dateTime, AppointmentStatus.SCHEDULED);
+        if (errorMsg != null) {
+            JOptionPane.showMessageDialog(this, errorMsg, "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        JComboBox<String> frequencyCombo = new JComboBox<>(new String[]{
+            AppointmentSeries.WEEKLY, AppointmentSeries.MONTHLY, AppointmentSeries.DAILY});
+        JSpinner intervalSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 12, 1));
+        JSpinner countSpinner = new JSpinner(new SpinnerNumberModel(52, 1, AppointmentController.MAX_SERIES_OCCURRENCES, 1));
+        JTextField untilField = new JTextField(10);
+        untilField.setToolTipText("Optional, YYYY-MM-DD");
+
+        JPanel form = new JPanel(new GridLayout(0, 2, 5, 5));
+        form.add(new JLabel("Repeat:"));
+        form.add(frequencyCombo);
+        form.add(new JLabel("Every:"));
+        form.add(intervalSpinner);
+        form.add(new JLabel("Occurrences:"));
+        form.add(countSpinner);
+        form.add(new JLabel("Until (optional):"));
+        form.add(untilField);
+
+        int result = JOptionPane.showConfirmDialog(this, form, "Schedule Series",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        LocalDate untilDate;
+        try {
+            untilDate = DateTimeUtil.parseDate(untilField.getText());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Until date must be YYYY-MM-DD.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        AppointmentSeries series = new AppointmentSeries(0, selected.getId(), (String) frequencyCombo.getSelectedItem(),
+            (Integer) intervalSpinner.getValue(), dateTime, untilDate,
+            (Integer) countSpinner.getValue(), reasonField.getText().trim());
+
+        List<LocalDateTime> occurrences;
+        try {
+            occurrences = controller.generateOccurrences(series);
+        } catch (SQLException e) {
+            JOptionPane.showMessageDialog(this, "Error scheduling series: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // the conflict query and the insert run on the loader thread, the choice in between on the EDT
+        seriesConflictLoader.load(() -> controller.findSeriesConflicts(occurrences),
+            conflicts -> confirmSeries(series, occurrences, conflicts, dateTime),
+            e -> JOptionPane.showMessageDialog(this, "Error scheduling series: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // asks what to do with fully booked occurrences, then saves the series
+    private void confirmSeries(AppointmentSeries series, List<LocalDateTime> occurrences, List<LocalDateTime> conflicts,
+                               LocalDateTime dateTime) {
+        List<LocalDateTime> toSchedule = occurrences;
+        if (!conflicts.isEmpty()) {
+            StringBuilder msg = new StringBuilder();
+            msg.append(conflicts.size()).append(" of ").append(occurrences.size())
+                .append(" occurrences are already fully booked:\n");
+            for (int i = 0; i < conflicts.size() && i < 10; i++) {
+                msg.append("  ").append(DateTimeUtil.format(conflicts.get(i))).append("\n");
+            }
+            if (conflicts.size() > 10) {
+                msg.append("  ...\n");
+            }
+            Object[] options = {"Skip Conflicts", "Schedule All", "Cancel"};
+            int choice = JOptionPane.showOptionDialog(this, msg.toString(), "Conflict Warning",
+                JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+            if (choice == 0) {
+                toSchedule = new ArrayList<>(occurrences);
+                toSchedule.removeAll(conflicts);
+            } else if (choice != 1) {
+                return;
+            }
+        }
+
+        List<LocalDateTime> chosen = toSchedule;
+        seriesSaveLoader.load(() -> {
+            controller.createSeries(series, chosen);
+            return chosen.size();
+        }, count -> {
+            JOptionPane.showMessageDialog(this, count + " appointments scheduled", "Success", JOptionPane.INFORMATION_MESSAGE);
+            clearForm();
+            // the bulk event reloads the table at the new anchor
+            viewAnchor = dateTime.toLocalDate();
+            DataChangeManager.getInstance().notifyAppointmentsChanged();
+        }, e -> JOptionPane.showMessageDialog(this, "Error scheduling series: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // show the next free slots and put the chosen one in the date field
+    private void pickNextFreeSlot() {
+        LocalDateTime from = MainFrame.getDateTime(dateField);
+        LocalDateTime now = LocalDateTime.now();
+        if (from == null || from.isBefore(now)) {
+            from = now;
+        }
+
+        LocalDateTime searchFrom = from;
+        slotLoader.load(() -> controller.findNextAvailableSlots(searchFrom,
+            AppointmentController.DEFAULT_APPOINTMENT_MINUTES, AppointmentController.DEFAULT_MAX_CONCURRENT, 10),
+            this::chooseSlot,
+            e -> JOptionPane.showMessageDialog(this, "Error finding free slots: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void chooseSlot(List<LocalDateTime> slots) {
+        if (slots.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No free slot in the next " + AppointmentController.SLOT_SEARCH_HORIZON_DAYS + " days.",
+                "Next Free Slot", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        String[] choices = new String[slots.size()];
+        for (int i = 0; i < choices.length; i++) {
+            choices[i] = DateTimeUtil.format(slots.get(i));
+        }
+        Object choice = JOptionPane.showInputDialog(this, "Available times:", "Next Free Slot",
+            JOptionPane.QUESTION_MESSAGE, null, choices, choices[0]);
+        if (choice != null) {
+            MainFrame.setDateTimeFromString(dateField, (String) choice);
+        }
+    }
 
     private void clearForm() {
         selectedAppointmentId = -1;
         patientCombo.setSelectedIndex(0);
-        MainFrame.setDateTimeFromString(dateField, new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date()));
+        MainFrame.setDateTime(dateField, LocalDateTime.now());
         reasonField.setText("");
         statusCombo.setSelectedIndex(0);
         appointmentTable.clearSelection();
@@ -273,7 +547,7 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
             
             MainFrame.setDateTimeFromString(dateField, (String) tableModel.getValueAt(row, 3));
             reasonField.setText((String) tableModel.getValueAt(row, 4));
-            String status = (String) tableModel.getValueAt(row, 5);
+            AppointmentStatus status = (AppointmentStatus) tableModel.getValueAt(row, 5);
             if (status != null) {
                 statusCombo.setSelectedItem(status);
             }
@@ -281,26 +555,161 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
     }
 
     private void refreshTable() {
-        try {
-            List<Appointment> appointments = controller.getAllAppointments();
-            tableModel.setRowCount(0);
-            for (Appointment appointment : appointments) {
-                try {
-                    String patientName = controller.getPatientNameById(appointment.getPatientId());
-                    tableModel.addRow(new Object[]{
-                        appointment.getId(), appointment.getPatientId(), patientName,
-                        appointment.getAppointmentDate(), appointment.getReason(), appointment.getStatus()
-                    });
-                } catch (SQLException e) {
-                    tableModel.addRow(new Object[]{
-                        appointment.getId(), appointment.getPatientId(), "Error loading",
-                        appointment.getAppointmentDate(), appointment.getReason(), appointment.getStatus()
-                    });
-                }
+        LocalDate start = windowStart(viewAnchor);
+        LocalDate end = windowEnd(start);
+        rangeLabel.setText(start.equals(end.minusDays(1)) ? start.toString() : start + "  to  " + end.minusDays(1));
+        List<Object[]> rows = prefetched.get(windowKey(start));
+        if (rows != null) {
+            tableLoader.cancel();
+            showWindow(start, rows);
+            return;
+        }
+        tableLoader.load(() -> loadWindowRows(start, end, null), loaded -> showWindow(start, loaded),
+            e -> JOptionPane.showMessageDialog(this, "Error loading appointments: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void showWindow(LocalDate start, List<Object[]> rows) {
+        shownStart = start;
+        rowLoader.cancel();
+        dirtyIds.clear();
+        tableModel.setRowCount(0);
+        for (Object[] row : rows) {
+            tableModel.addRow(row);
+        }
+        prefetchNeighbours(start);
+    }
+
+    // load all pages of one window as table rows, names come from the same query
+    private List<Object[]> loadWindowRows(LocalDate start, LocalDate end, AppointmentDAO.AppointmentFilter filter) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        String token = null;
+        do {
+            AppointmentDAO.AppointmentPage page = controller.getAppointmentsBetween(start, end, filter, token);
+            for (Appointment appointment : page.appointments) {
+                rows.add(new Object[]{
+                    appointment.getId(), appointment.getPatientId(), page.patientNames.get(appointment.getPatientId()),
+                    DateTimeUtil.format(appointment.getAppointmentDate()), appointment.getReason(), appointment.getStatus()
+                });
+            }
+            token = page.nextPageToken;
+        } while (token != null);
+        return rows;
+    }
+
+    // load the previous and next window in the background so paging feels instant
+    private void prefetchNeighbours(LocalDate start) {
+        List<LocalDate> starts = new ArrayList<>();
+        for (LocalDate neighbour : new LocalDate[] {windowStart(shiftWindow(start, -1)), windowStart(shiftWindow(start, 1))}) {
+            if (!prefetched.containsKey(windowKey(neighbour))) {
+                starts.add(neighbour);
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading appointments: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
+        if (starts.isEmpty()) {
+            return;
+        }
+        if (prefetched.size() > 12) {
+            prefetched.clear();
+        }
+        // key -> {start, end}, worked out here since windowKey/windowEnd read the view combo
+        Map<String, LocalDate[]> ranges = new HashMap<>();
+        for (LocalDate neighbour : starts) {
+            ranges.put(windowKey(neighbour), new LocalDate[] {neighbour, windowEnd(neighbour)});
+        }
+        prefetchLoader.load(() -> {
+            Map<String, List<Object[]>> windows = new HashMap<>();
+            for (Map.Entry<String, LocalDate[]> range : ranges.entrySet()) {
+                windows.put(range.getKey(), loadWindowRows(range.getValue()[0], range.getValue()[1], null));
+            }
+            return windows;
+        }, prefetched::putAll, e -> {
+            // prefetch is best effort, the window loads normally when opened
+        });
+    }
+
+    // a data change makes every loaded window stale, including one still loading
+    private void clearPrefetched() {
+        prefetchLoader.cancel();
+        prefetched.clear();
+    }
+
+    // reloads the dirty rows of the shown window by id. an id that doesnt come back
+    // was deleted or moved out of the window, so its row goes
+    private void reloadDirtyRows() {
+        if (dirtyIds.isEmpty() || shownStart == null) {
+            return;
+        }
+        LocalDate start = shownStart;
+        LocalDate end = windowEnd(start);
+        AppointmentDAO.AppointmentFilter filter = new AppointmentDAO.AppointmentFilter();
+        filter.ids = new ArrayList<>(dirtyIds);
+        rowLoader.load(() -> loadWindowRows(start, end, filter), rows -> {
+            if (!start.equals(shownStart)) {
+                return;
+            }
+            for (Integer id : filter.ids) {
+                dirtyIds.remove(id);
+                removeRow(id);
+            }
+            for (Object[] row : rows) {
+                insertRow(row);
+            }
+        }, e -> onAppointmentsChanged());
+    }
+
+    private int findRow(int appointmentId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((Integer) tableModel.getValueAt(row, 0) == appointmentId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void removeRow(int appointmentId) {
+        int row = findRow(appointmentId);
+        if (row >= 0) {
+            tableModel.removeRow(row);
+        }
+    }
+
+    // keeps the date then id order of the window query, the formatted dates sort as text
+    private void insertRow(Object[] values) {
+        String date = (String) values[3];
+        int id = (Integer) values[0];
+        int row = 0;
+        while (row < tableModel.getRowCount()) {
+            int cmp = ((String) tableModel.getValueAt(row, 3)).compareTo(date);
+            if (cmp > 0 || (cmp == 0 && (Integer) tableModel.getValueAt(row, 0) > id)) {
+                break;
+            }
+            row++;
+        }
+        tableModel.insertRow(row, values);
+    }
+
+    private String windowKey(LocalDate start) {
+        return viewCombo.getSelectedItem() + ":" + start;
+    }
+
+    private LocalDate windowStart(LocalDate anchor) {
+        String view = (String) viewCombo.getSelectedItem();
+        if ("Day".equals(view)) return anchor;
+        if ("Month".equals(view)) return anchor.withDayOfMonth(1);
+        return anchor.with(DayOfWeek.MONDAY);
+    }
+
+    private LocalDate windowEnd(LocalDate start) {
+        String view = (String) viewCombo.getSelectedItem();
+        if ("Day".equals(view)) return start.plusDays(1);
+        if ("Month".equals(view)) return start.plusMonths(1);
+        return start.plusWeeks(1);
+    }
+
+    private LocalDate shiftWindow(LocalDate anchor, int direction) {
+        String view = (String) viewCombo.getSelectedItem();
+        if ("Day".equals(view)) return anchor.plusDays(direction);
+        if ("Month".equals(view)) return anchor.plusMonths(direction);
+        return anchor.plusWeeks(direction);
     }
 
     class PatientComboItem {
@@ -321,6 +730,42 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
         }
     }
 
+    @Override
+    public void onDataChanged(DataChangeBatch batch) {
+        boolean patients = batch.has(DataChangeEvent.Entity.PATIENT);
+        boolean appointments = batch.has(DataChangeEvent.Entity.APPOINTMENT);
+        if (patients) {
+            onPatientsChanged();
+        }
+        if (!patients && !appointments) {
+            return;
+        }
+        // deleted patients take their appointments with them, and a change without ids
+        // could be anywhere, so those reload the window
+        if (batch.needsFullReload(DataChangeEvent.Entity.APPOINTMENT)
+                || batch.needsFullReload(DataChangeEvent.Entity.PATIENT)
+                || !batch.ids(DataChangeEvent.Entity.PATIENT, DataChangeEvent.Kind.DELETED).isEmpty()) {
+            onAppointmentsChanged();
+            return;
+        }
+        if (appointments) {
+            // other windows and the free slot cache may hold the old times
+            controller.invalidateAvailability();
+            clearPrefetched();
+            dirtyIds.addAll(batch.ids(DataChangeEvent.Entity.APPOINTMENT));
+        }
+        // the patient name column comes from the same query, so renamed patients reload their rows
+        Set<Integer> renamed = batch.ids(DataChangeEvent.Entity.PATIENT, DataChangeEvent.Kind.UPDATED);
+        if (!renamed.isEmpty()) {
+            for (int row = 0; row < tableModel.getRowCount(); row++) {
+                if (renamed.contains((Integer) tableModel.getValueAt(row, 1))) {
+                    dirtyIds.add((Integer) tableModel.getValueAt(row, 0));
+                }
+            }
+        }
+        reloadDirtyRows();
+    }
+
     @Override
     public void onPatientsChanged() {
         // reload patient list when patients change
@@ -330,6 +775,8 @@ public class AppointmentPanel extends JPanel implements DataChangeListener {
     @Override
     public void onAppointmentsChanged() {
         // rfresh appointment table when appointments change
+        controller.invalidateAvailability();
+        clearPrefetched();
         refreshTable();
     }
 
@@ -0,0 +1,100 @@
+package clinicmanager.views;
+
+import java.awt.*;
+import javax.swing.*;
+
+// minimal bar chart, one series with an optional line drawn over it (moving average etc)
+// painted by hand since the app has no chart library
+public class BarChartPanel extends JPanel {
+    private static final int PAD_LEFT = 50;
+    private static final int PAD_RIGHT = 15;
+    private static final int PAD_TOP = 30;
+    private static final int PAD_BOTTOM = 40;
+
+    private final String title;
+    private final Color barColor;
+    private String[] labels = new String[0];
+    private double[] values = new double[0];
+    private double[] line;
+
+    public BarChartPanel(String title, Color barColor) {
+        this.title = title;
+        this.barColor = barColor;
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(700, 300));
+    }
+
+    // line can be null, otherwise same length as values
+    public void setData(String[] labels, double[] values, double[] line) {
+        this.labels = labels;
+        this.values = values;
+        this.line = line;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        g2.setColor(new Color(0, 102, 204));
+        g2.drawString(title, PAD_LEFT, 20);
+
+        int width = getWidth() - PAD_LEFT - PAD_RIGHT;
+        int height = getHeight() - PAD_TOP - PAD_BOTTOM;
+        if (values.length == 0 || width <= 0 || height <= 0) {
+            g2.setColor(Color.GRAY);
+            g2.drawString("No data", PAD_LEFT, PAD_TOP + 20);
+            g2.dispose();
+            return;
+        }
+
+        double max = 0;
+        for (int i = 0; i < values.length; i++) {
+            max = Math.max(max, values[i]);
+            if (line != null) max = Math.max(max, line[i]);
+        }
+        if (max == 0) max = 1;
+
+        // axes and the max value on the y axis
+        int baseY = PAD_TOP + height;
+        g2.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+        g2.setColor(Color.LIGHT_GRAY);
+        g2.drawLine(PAD_LEFT, PAD_TOP, PAD_LEFT, baseY);
+        g2.drawLine(PAD_LEFT, baseY, PAD_LEFT + width, baseY);
+        g2.setColor(Color.DARK_GRAY);
+        g2.drawString(format(max), 5, PAD_TOP + 5);
+        g2.drawString("0", 5, baseY);
+
+        double slot = (double) width / values.length;
+        int barWidth = Math.max(1, (int) (slot * 0.8));
+        // only label every nth bar so the text doesnt overlap
+        int labelEvery = Math.max(1, (int) Math.ceil(70 / slot));
+        for (int i = 0; i < values.length; i++) {
+            int x = PAD_LEFT + (int) (i * slot + (slot - barWidth) / 2);
+            int barHeight = (int) (values[i] / max * height);
+            g2.setColor(barColor);
+            g2.fillRect(x, baseY - barHeight, barWidth, barHeight);
+            if (i % labelEvery == 0 && i < labels.length) {
+                g2.setColor(Color.DARK_GRAY);
+                g2.drawString(labels[i], PAD_LEFT + (int) (i * slot), baseY + 15);
+            }
+        }
+
+        if (line != null) {
+            g2.setColor(new Color(231, 76, 60));
+            g2.setStroke(new BasicStroke(2f));
+            for (int i = 1; i < line.length; i++) {
+                int x1 = PAD_LEFT + (int) ((i - 0.5) * slot);
+                int x2 = PAD_LEFT + (int) ((i + 0.5) * slot);
+                g2.drawLine(x1, baseY - (int) (line[i - 1] / max * height), x2, baseY - (int) (line[i] / max * height));
+            }
+        }
+        g2.dispose();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format("%.1f", value);
+    }
+}
@@ -0,0 +1,119 @@
+package clinicmanager.views;
+
+import clinicmanager.controllers.ReportsController;
+import clinicmanager.dao.ClinicalSearchDAO;
+import clinicmanager.util.DateTimeUtil;
+import clinicmanager.views.async.AsyncLoader;
+import java.awt.*;
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+
+// ranked search over visit notes, diagnoses, appointment reasons and condition notes.
+// shows one page at a time, "More" appends the next page using the keyset token
+public class ClinicalSearchDialog extends JDialog {
+    private final ReportsController controller;
+    private final JTextField queryField = new JTextField(30);
+    private final JButton searchButton = new JButton("Search");
+    private final JButton moreButton = new JButton("More");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final DefaultTableModel tableModel;
+    // query and token of what the table shows, the next page continues from them
+    private String shownQuery;
+    private String nextPageToken;
+    private final AsyncLoader<ClinicalSearchDAO.SearchPage> loader = new AsyncLoader<>(
+        loading -> {
+            searchButton.setEnabled(!loading);
+            moreButton.setEnabled(!loading && nextPageToken != null);
+            if (loading) statusLabel.setText("Searching...");
+        });
+
+    public ClinicalSearchDialog(Window owner, ReportsController controller) {
+        super(owner, "Clinical Search", Dialog.ModalityType.MODELESS);
+        this.controller = controller;
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Search:"));
+        top.add(queryField);
+        top.add(searchButton);
+        top.add(new JLabel("words, \"a phrase\", or, -exclude"));
+
+        tableModel = new DefaultTableModel(new String[] {"Type", "Date", "Patient", "Match"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(tableModel);
+        table.setRowHeight(40);
+        table.getColumnModel().getColumn(0).setPreferredWidth(90);
+        table.getColumnModel().getColumn(1).setPreferredWidth(120);
+        table.getColumnModel().getColumn(2).setPreferredWidth(150);
+        table.getColumnModel().getColumn(3).setPreferredWidth(540);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        bottom.add(statusLabel, BorderLayout.CENTER);
+        bottom.add(moreButton, BorderLayout.EAST);
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+
+        searchButton.addActionListener(e -> search());
+        queryField.addActionListener(e -> search());
+        moreButton.addActionListener(e -> loadPage(shownQuery, nextPageToken));
+        moreButton.setEnabled(false);
+
+        setSize(950, 550);
+        setLocationRelativeTo(owner);
+    }
+
+    private void search() {
+        String query = queryField.getText().trim();
+        if (query.isEmpty()) {
+            return;
+        }
+        tableModel.setRowCount(0);
+        shownQuery = query;
+        nextPageToken = null;
+        loadPage(query, null);
+    }
+
+    private void loadPage(String query, String pageToken) {
+        loader.load(() -> controller.searchClinicalNotes(query, pageToken), page -> {
+            for (ClinicalSearchDAO.SearchHit hit : page.hits) {
+                tableModel.addRow(new Object[] {
+                    typeLabel(hit.source),
+                    hit.at != null ? DateTimeUtil.format(hit.at) : "",
+                    hit.patientName != null ? hit.patientName : "#" + hit.patientId,
+                    toHtml(hit.snippet)
+                });
+            }
+            nextPageToken = page.nextPageToken;
+            moreButton.setEnabled(nextPageToken != null);
+            int shown = tableModel.getRowCount();
+            statusLabel.setText(shown == 0 ? "No matches" : shown + (nextPageToken != null ? "+ matches, best first" : " matches, best first"));
+        }, e -> {
+            statusLabel.setText(" ");
+            JOptionPane.showMessageDialog(this, "Error searching: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private static String typeLabel(ClinicalSearchDAO.Source source) {
+        switch (source) {
+            case VISIT: return "Visit";
+            case APPOINTMENT: return "Appointment";
+            default: return "Condition";
+        }
+    }
+
+    // the snippet is plain note text, escape it before turning the highlight markers into bold
+    private static String toHtml(String snippet) {
+        if (snippet == null) {
+            return "";
+        }
+        String escaped = snippet.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\n", " ");
+        return "<html>" + escaped.replace(ClinicalSearchDAO.HIGHLIGHT_START, "<b>")
+            .replace(ClinicalSearchDAO.HIGHLIGHT_END, "</b>") + "</html>";
+    }
+}
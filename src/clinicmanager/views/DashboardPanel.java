@@ -1,23 +1,47 @@
 package clinicmanager.views;
 
+import clinicmanager.controllers.DashboardController;
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentStatsDAO;
 import clinicmanager.dao.PatientDAO;
-import clinicmanager.models.Appointment;
-import clinicmanager.models.Patient;
+import clinicmanager.dao.RefillQueueDAO;
+import clinicmanager.models.AppointmentStatus;
+import clinicmanager.views.async.AsyncLoader;
+import clinicmanager.views.async.LoadingIndicator;
 import java.awt.*;
-import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 
 public class DashboardPanel extends JPanel implements DataChangeListener {
-    private final PatientDAO patientDAO;
-    private final AppointmentDAO appointmentDAO;
+    private final DashboardController controller;
+    private final AsyncLoader<Snapshot> statsLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
+    private final AsyncLoader<Integer> rebuildLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
+    private final AsyncLoader<RefillQueueDAO.QueuePage> refillLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
+    private final AsyncLoader<Void> refillActionLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
 
-    public DashboardPanel(PatientDAO patientDAO, AppointmentDAO appointmentDAO) {
-        this.patientDAO = patientDAO;
-        this.appointmentDAO = appointmentDAO;
+    // refill queue widget, one page at a time. tokens of the pages shown so far so Previous can go back
+    private DefaultTableModel refillModel;
+    private final List<RefillQueueDAO.QueueEntry> refillEntries = new ArrayList<>();
+    private final List<String> refillPageTokens = new ArrayList<>();
+    private String refillNextToken;
+    private JTable refillTable;
+    private JButton refillPrevBtn;
+    private JButton refillNextBtn;
+    private JLabel refillPageLabel;
+
+    // everything one refresh shows, loaded together so the cards and the list update at once
+    private static class Snapshot {
+        int totalPatients;
+        AppointmentStatsDAO.StatusTotals totals;
+        List<DashboardController.AppointmentInfo> today;
+    }
+
+    public DashboardPanel(PatientDAO patientDAO, AppointmentDAO appointmentDAO, AppointmentStatsDAO statsDAO,
+                          RefillQueueDAO refillQueueDAO) {
+        this.controller = new DashboardController(patientDAO, appointmentDAO, statsDAO, refillQueueDAO);
         
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
@@ -33,6 +57,7 @@ public class DashboardPanel extends JPanel implements DataChangeListener {
         DataChangeManager.getInstance().addListener(this);
         
         refreshStats();
+        loadRefillPage(null, 0);
     }
 
     private JPanel createStatsPanel() {
@@ -113,20 +138,171 @@ public class DashboardPanel extends JPanel implements DataChangeListener {
         
         JButton refreshBtn = MainFrame.createModernButton("Refresh", 
             new Color(52, 152, 219), new Color(41, 128, 185), 120, 35);
-        refreshBtn.addActionListener(e -> refreshStats());
+        refreshBtn.addActionListener(e -> {
+            refreshStats();
+            reloadRefillPage();
+        });
+        
+        // recomputes the statistics rollup, only needed if it ever drifts from the appointments
+        JButton rebuildBtn = MainFrame.createModernButton("Rebuild Stats", 
+            new Color(149, 165, 166), new Color(127, 140, 141), 140, 35);
+        rebuildBtn.addActionListener(e -> rebuildStats());
         
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         buttonPanel.setBackground(new Color(245, 250, 255));
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(rebuildBtn);
+        
+        JPanel listsPanel = new JPanel(new GridLayout(1, 2, 15, 0));
+        listsPanel.setBackground(new Color(245, 250, 255));
+        listsPanel.add(todayPanel);
+        listsPanel.add(createRefillQueuePanel());
         
         JPanel wrapperPanel = new JPanel(new BorderLayout());
         wrapperPanel.setBackground(new Color(245, 250, 255));
-        wrapperPanel.add(todayPanel, BorderLayout.CENTER);
+        wrapperPanel.add(listsPanel, BorderLayout.CENTER);
         wrapperPanel.add(buttonPanel, BorderLayout.SOUTH);
         
         return wrapperPanel;
     }
 
+    // prescriptions due in the next week (overdue first) that need a refill or a renewal
+    private JPanel createRefillQueuePanel() {
+        JPanel refillPanel = new JPanel(new BorderLayout(5, 5));
+        refillPanel.setBackground(new Color(245, 250, 255));
+        refillPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
+            "Refill Queue", javax.swing.border.TitledBorder.LEFT, javax.swing.border.TitledBorder.TOP,
+            new Font("Segoe UI", Font.BOLD, 14), new Color(0, 102, 204)));
+        
+        refillModel = new DefaultTableModel(new String[] {"Due", "Patient", "Medication", "Action"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        refillTable = new JTable(refillModel);
+        refillTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        refillTable.setRowHeight(24);
+        
+        JButton filledBtn = MainFrame.createModernButton("Mark Filled",
+            new Color(46, 204, 113), new Color(39, 174, 96), 120, 30);
+        filledBtn.addActionListener(e -> markFilled());
+        JButton renewBtn = MainFrame.createModernButton("Renew",
+            new Color(155, 89, 182), new Color(142, 68, 173), 100, 30);
+        renewBtn.addActionListener(e -> renewSelected());
+        refillPrevBtn = new JButton("< Previous");
+        refillPrevBtn.addActionListener(e -> {
+            int depth = refillPageTokens.size() - 2;
+            loadRefillPage(refillPageTokens.get(depth), depth);
+        });
+        refillNextBtn = new JButton("Next >");
+        refillNextBtn.addActionListener(e -> loadRefillPage(refillNextToken, refillPageTokens.size()));
+        refillPrevBtn.setEnabled(false);
+        refillNextBtn.setEnabled(false);
+        refillPageLabel = new JLabel(" ");
+        
+        JPanel actionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        actionsPanel.setBackground(new Color(245, 250, 255));
+        actionsPanel.add(filledBtn);
+        actionsPanel.add(renewBtn);
+        
+        JPanel pagingPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        pagingPanel.setBackground(new Color(245, 250, 255));
+        pagingPanel.add(refillPageLabel);
+        pagingPanel.add(refillPrevBtn);
+        pagingPanel.add(refillNextBtn);
+        
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.setBackground(new Color(245, 250, 255));
+        bottomPanel.add(actionsPanel, BorderLayout.WEST);
+        bottomPanel.add(pagingPanel, BorderLayout.EAST);
+        
+        refillPanel.add(new JScrollPane(refillTable), BorderLayout.CENTER);
+        refillPanel.add(bottomPanel, BorderLayout.SOUTH);
+        return refillPanel;
+    }
+
+    // depth is how many pages come before this one, the token stack is only trimmed once the page is in
+    private void loadRefillPage(String pageToken, int depth) {
+        refillLoader.load(() -> controller.getRefillQueue(pageToken), page -> {
+            refillPageTokens.subList(depth, refillPageTokens.size()).clear();
+            refillPageTokens.add(pageToken);
+            refillNextToken = page.nextPageToken;
+            refillEntries.clear();
+            refillEntries.addAll(page.entries);
+            refillModel.setRowCount(0);
+            LocalDate today = LocalDate.now();
+            for (RefillQueueDAO.QueueEntry entry : page.entries) {
+                String due = entry.refillDate.isBefore(today) ? entry.refillDate + " (overdue)" : entry.refillDate.toString();
+                String medication = entry.medicationName + (entry.dosage != null ? " " + entry.dosage : "");
+                String action = entry.action == RefillQueueDAO.Action.REFILL ?
+                    "Refill (" + entry.refillsRemaining + " left)" : "Renewal needed";
+                refillModel.addRow(new Object[] {due, entry.patientName, medication, action});
+            }
+            refillPrevBtn.setEnabled(refillPageTokens.size() > 1);
+            refillNextBtn.setEnabled(refillNextToken != null);
+            refillPageLabel.setText(page.entries.isEmpty() ? "Nothing due" : "Page " + refillPageTokens.size());
+        }, e -> {
+            refillPageLabel.setText(" ");
+            JOptionPane.showMessageDialog(this, "Error loading refill queue: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    // same page again after an action, rows that left the queue drop out of it
+    private void reloadRefillPage() {
+        if (refillPageTokens.isEmpty()) {
+            loadRefillPage(null, 0);
+        } else {
+            int depth = refillPageTokens.size() - 1;
+            loadRefillPage(refillPageTokens.get(depth), depth);
+        }
+    }
+
+    private RefillQueueDAO.QueueEntry selectedRefill() {
+        int row = refillTable.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "Please select a prescription from the refill queue.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            return null;
+        }
+        return refillEntries.get(row);
+    }
+
+    private void markFilled() {
+        RefillQueueDAO.QueueEntry entry = selectedRefill();
+        if (entry == null) return;
+        if (entry.action == RefillQueueDAO.Action.RENEW) {
+            JOptionPane.showMessageDialog(this, "No refills left on this prescription, it has to be renewed first.", "Renewal Needed", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        refillActionLoader.load(() -> {
+            controller.recordRefill(entry.prescriptionId);
+            return null;
+        }, v -> prescriptionChanged(entry),
+            e -> JOptionPane.showMessageDialog(this, "Error recording refill: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void renewSelected() {
+        RefillQueueDAO.QueueEntry entry = selectedRefill();
+        if (entry == null) return;
+        JSpinner refillsSpinner = new JSpinner(new SpinnerNumberModel(3, 1, 12, 1));
+        int result = JOptionPane.showConfirmDialog(this, new Object[] {
+            "Renew " + entry.medicationName + " for " + entry.patientName + ".", "Refills:", refillsSpinner
+        }, "Renew Prescription", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+        int refills = (Integer) refillsSpinner.getValue();
+        refillActionLoader.load(() -> {
+            controller.renewPrescription(entry.prescriptionId, refills);
+            return null;
+        }, v -> prescriptionChanged(entry),
+            e -> JOptionPane.showMessageDialog(this, "Error renewing prescription: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // same event as a prescription edit, so the prescription views catch up too.
+    // the refill page reloads from onMedicalHistoryChanged
+    private void prescriptionChanged(RefillQueueDAO.QueueEntry entry) {
+        DataChangeManager.getInstance().notifyMedicalHistoryChanged(entry.patientId);
+    }
+
     private JPanel createStatusBar(String label, String value, Color color, String name) {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(Color.WHITE);
@@ -225,70 +401,43 @@ public class DashboardPanel extends JPanel implements DataChangeListener {
     }
 
     private void refreshStats() {
-        try {
-            List<Patient> patients = patientDAO.getAllPatients();
-            int totalPatients = patients.size();
-            
-            List<Appointment> appointments = appointmentDAO.getAllAppointments();
-            int totalAppts = appointments.size();
-            int completedAppts = 0;
-            int missedAppts = 0;
-            int canceledAppts = 0;
+        statsLoader.load(() -> {
+            Snapshot snapshot = new Snapshot();
+            snapshot.totalPatients = controller.getTotalPatients();
+            // counts come from the daily rollup, so this doesnt scan appointments
+            snapshot.totals = controller.getAppointmentTotals();
+            snapshot.today = controller.getTodayAppointments();
+            return snapshot;
+        }, snapshot -> {
+            AppointmentStatsDAO.StatusTotals totals = snapshot.totals;
+            updateStatCard("Total Patients", snapshot.totalPatients);
+            updateStatCard("Total Appointments", totals.total);
+            updateStatCard("Completed Appointments", totals.get(AppointmentStatus.COMPLETED));
+            updateStatCard("Missed Appointments", totals.get(AppointmentStatus.MISSED));
+            updateStatCard("Canceled Appointments", totals.get(AppointmentStatus.CANCELLED));
 
-            for (Appointment apt : appointments) {
-                String status = apt.getStatus();
-                if (status != null) {
-                    if (status.equals("completed")) completedAppts++;
-                    else if (status.equals("missed")) missedAppts++;
-                    else if (status.equals("cancelled")) canceledAppts++;
-                }
-            }
-
-            updateStatCard("Total Patients", totalPatients);
-            updateStatCard("Total Appointments", totalAppts);
-            updateStatCard("Completed Appointments", completedAppts);
-            updateStatCard("Missed Appointments", missedAppts);
-            updateStatCard("Canceled Appointments", canceledAppts);
-
-            updateTodayAppointments(appointments);
+            updateTodayAppointments(snapshot.today);
+        }, e -> updateTodayAppointmentsError("Error loading data: " + e.getMessage()));
+    }
 
-        } catch (SQLException e) {
-            updateTodayAppointmentsError("Error loading data: " + e.getMessage());
-        }
+    private void rebuildStats() {
+        rebuildLoader.load(controller::rebuildStats, rows -> {
+            refreshStats();
+            JOptionPane.showMessageDialog(this, "Statistics rebuilt (" + rows + " day/status rows).", "Statistics", JOptionPane.INFORMATION_MESSAGE);
+        }, e -> JOptionPane.showMessageDialog(this, "Error rebuilding statistics: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
     }
 
-    private void updateTodayAppointments(List<Appointment> appointments) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String today = dateFormat.format(new Date());
-        
+    private void updateTodayAppointments(List<DashboardController.AppointmentInfo> appointments) {
         JPanel listPanel = findAppointmentListPanel(this);
         if (listPanel == null) return;
         
         listPanel.removeAll();
         
-        boolean hasTodayAppointments = false;
+        boolean hasTodayAppointments = !appointments.isEmpty();
         
-        for (Appointment apt : appointments) {
-            String status = apt.getStatus() != null ? apt.getStatus() : "scheduled";
-            // dont show cancelled appointments
-            if ("cancelled".equalsIgnoreCase(status) || "no_show".equalsIgnoreCase(status)) {
-                continue;
-            }
-            
-            if (apt.getAppointmentDate() != null && apt.getAppointmentDate().startsWith(today)) {
-                hasTodayAppointments = true;
-                try {
-                    Patient patient = patientDAO.getPatientById(apt.getPatientId());
-                    String patientName = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown Patient";
-                    String time = apt.getAppointmentDate().substring(11);
-                    String reason = apt.getReason() != null ? apt.getReason() : "";
-                    
-                    JPanel card = createAppointmentCard(time, patientName, reason, status);
-                    listPanel.add(card);
-                } catch (SQLException e) {
-                    // skip if cant load patient
-                }
-            }
+        for (DashboardController.AppointmentInfo apt : appointments) {
+            JPanel card = createAppointmentCard(apt.time, apt.patientName, apt.reason, apt.status.getValue());
+            listPanel.add(card);
         }
         
         if (!hasTodayAppointments) {
@@ -372,6 +521,7 @@ public class DashboardPanel extends JPanel implements DataChangeListener {
 
     @Override
     public void onMedicalHistoryChanged() {
-        // Can be implemented if needed
+        // prescriptions are part of the medical history
+        reloadRefillPage();
     }
 }
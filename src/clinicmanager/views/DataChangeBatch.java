@@ -0,0 +1,94 @@
+package clinicmanager.views;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// the changes collected during one debounce window, already merged per row:
+// created+updated stays created, anything+deleted is deleted, created+deleted cancels out
+public final class DataChangeBatch {
+    private final Map<String, DataChangeEvent> byRow = new LinkedHashMap<>();
+    // entities that had a bulk change, listeners reload those completely
+    private final Set<DataChangeEvent.Entity> bulk = EnumSet.noneOf(DataChangeEvent.Entity.class);
+    // patients touched per entity, kept even when the row changes cancel out
+    private final Map<DataChangeEvent.Entity, Set<Integer>> patients = new LinkedHashMap<>();
+
+    DataChangeBatch() {
+    }
+
+    void add(DataChangeEvent event) {
+        if (event.getPatientId() != DataChangeEvent.UNKNOWN_ID) {
+            patients.computeIfAbsent(event.getEntity(), e -> new LinkedHashSet<>()).add(event.getPatientId());
+        }
+        if (!event.hasId()) {
+            if (event.getEntity() != DataChangeEvent.Entity.MEDICAL_HISTORY || event.getPatientId() == DataChangeEvent.UNKNOWN_ID) {
+                bulk.add(event.getEntity());
+            }
+            return;
+        }
+        String key = event.getEntity() + ":" + event.getId();
+        DataChangeEvent previous = byRow.get(key);
+        if (previous == null) {
+            byRow.put(key, event);
+        } else if (event.getKind() == DataChangeEvent.Kind.DELETED) {
+            if (previous.getKind() == DataChangeEvent.Kind.CREATED) {
+                byRow.remove(key);
+            } else {
+                byRow.put(key, event);
+            }
+        } else if (previous.getKind() != DataChangeEvent.Kind.CREATED) {
+            byRow.put(key, event);
+        }
+    }
+
+    boolean isEmpty() {
+        return byRow.isEmpty() && bulk.isEmpty() && patients.isEmpty();
+    }
+
+    // anything at all changed for the entity
+    public boolean has(DataChangeEvent.Entity entity) {
+        return bulk.contains(entity) || patients.containsKey(entity) || !events(entity).isEmpty();
+    }
+
+    // a bulk change happened, targeted updates arent possible
+    public boolean needsFullReload(DataChangeEvent.Entity entity) {
+        return bulk.contains(entity);
+    }
+
+    public List<DataChangeEvent> events(DataChangeEvent.Entity entity) {
+        List<DataChangeEvent> events = new ArrayList<>();
+        for (DataChangeEvent event : byRow.values()) {
+            if (event.getEntity() == entity) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    // ids of rows of the entity that changed in one of the given ways
+    public Set<Integer> ids(DataChangeEvent.Entity entity, DataChangeEvent.Kind... kinds) {
+        Set<DataChangeEvent.Kind> wanted = kinds.length == 0 ? EnumSet.allOf(DataChangeEvent.Kind.class) : EnumSet.of(kinds[0], kinds);
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (DataChangeEvent event : events(entity)) {
+            if (wanted.contains(event.getKind())) {
+                ids.add(event.getId());
+            }
+        }
+        return ids;
+    }
+
+    // patients whose rows of the entity changed
+    public Set<Integer> patientIds(DataChangeEvent.Entity entity) {
+        return Collections.unmodifiableSet(patients.getOrDefault(entity, Collections.emptySet()));
+    }
+
+    @Override
+    public String toString() {
+        return "bulk=" + bulk + " rows=" + byRow.values() + " patients=" + patients;
+    }
+}
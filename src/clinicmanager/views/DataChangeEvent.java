@@ -0,0 +1,56 @@
+package clinicmanager.views;
+
+// one change published on the DataChangeManager bus
+// id is the changed row, or UNKNOWN_ID for bulk changes (series, "this and following")
+// which listeners handle with a full reload. patientId is the owning patient for
+// appointments and medical history so panels showing one patient can skip the rest
+public final class DataChangeEvent {
+    public static final int UNKNOWN_ID = -1;
+
+    public enum Entity { PATIENT, APPOINTMENT, MEDICAL_HISTORY }
+
+    public enum Kind { CREATED, UPDATED, DELETED }
+
+    private final Entity entity;
+    private final Kind kind;
+    private final int id;
+    private final int patientId;
+
+    public DataChangeEvent(Entity entity, Kind kind, int id, int patientId) {
+        this.entity = entity;
+        this.kind = kind;
+        this.id = id;
+        this.patientId = patientId;
+    }
+
+    public static DataChangeEvent patient(Kind kind, int patientId) {
+        return new DataChangeEvent(Entity.PATIENT, kind, patientId, patientId);
+    }
+
+    public static DataChangeEvent appointment(Kind kind, int appointmentId, int patientId) {
+        return new DataChangeEvent(Entity.APPOINTMENT, kind, appointmentId, patientId);
+    }
+
+    // many rows changed at once, listeners reload everything for the entity
+    public static DataChangeEvent bulk(Entity entity) {
+        return new DataChangeEvent(entity, Kind.UPDATED, UNKNOWN_ID, UNKNOWN_ID);
+    }
+
+    public static DataChangeEvent medicalHistory(int patientId) {
+        return new DataChangeEvent(Entity.MEDICAL_HISTORY, Kind.UPDATED, UNKNOWN_ID, patientId);
+    }
+
+    public Entity getEntity() { return entity; }
+    public Kind getKind() { return kind; }
+    public int getId() { return id; }
+    public int getPatientId() { return patientId; }
+
+    public boolean hasId() {
+        return id != UNKNOWN_ID;
+    }
+
+    @Override
+    public String toString() {
+        return entity + " " + kind + " id=" + id + " patient=" + patientId;
+    }
+}
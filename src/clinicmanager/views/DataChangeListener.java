@@ -19,4 +19,21 @@ public interface DataChangeListener {
      * Called when medical history data has changed
      */
     void onMedicalHistoryChanged();
+
+    /**
+     * Called on the EDT with every change from one debounce window.
+     * The default calls the methods above once per changed entity (full reload),
+     * override it to update only the rows in the batch
+     */
+    default void onDataChanged(DataChangeBatch batch) {
+        if (batch.has(DataChangeEvent.Entity.PATIENT)) {
+            onPatientsChanged();
+        }
+        if (batch.has(DataChangeEvent.Entity.APPOINTMENT)) {
+            onAppointmentsChanged();
+        }
+        if (batch.has(DataChangeEvent.Entity.MEDICAL_HISTORY)) {
+            onMedicalHistoryChanged();
+        }
+    }
 }
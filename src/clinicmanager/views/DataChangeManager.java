@@ -1,75 +1,113 @@
 package clinicmanager.views;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+// Singleton event bus for data changes across panels
+  //Panels publish typed DataChangeEvents and listeners get them merged into one
+  //DataChangeBatch per debounce window, delivered later on the EDT
 
-// Singleton manager for broadcasting data changes across panels
-  //Allows panels to register as listeners and be notified when data changes
- 
 public class DataChangeManager {
+    // changes published within this window reach listeners as one batch
+    public static final int DEBOUNCE_MS = 100;
+
     private static DataChangeManager instance;
-    private List<DataChangeListener> listeners = new ArrayList<>();
-    
+    // copy on write: listeners can (un)register while a batch is being delivered
+    private final CopyOnWriteArrayList<DataChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "data-change-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // guarded by this
+    private DataChangeBatch pending;
+
     private DataChangeManager() {
     }
-    
+
     // Get the singleton instance
-     
+
     public static synchronized DataChangeManager getInstance() {
         if (instance == null) {
             instance = new DataChangeManager();
         }
         return instance;
     }
-    
+
     // Register a listener to be notified of data changes
-   
+
     public void addListener(DataChangeListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+        listeners.addIfAbsent(listener);
     }
-    
+
     // Unregister a listener
-   
+
     public void removeListener(DataChangeListener listener) {
         listeners.remove(listener);
     }
-    
-    // Notify all listeners that patients have changed
-   
-    public void notifyPatientsChanged() {
-        for (DataChangeListener listener : listeners) {
-            try {
-                listener.onPatientsChanged();
-            } catch (Exception e) {
-                e.printStackTrace();
+
+    // queue a change, returns right away. the first change of a window schedules
+    // the flush so a burst costs one delivery and nothing waits longer than DEBOUNCE_MS
+    public void publish(DataChangeEvent event) {
+        synchronized (this) {
+            if (pending == null) {
+                pending = new DataChangeBatch();
+                scheduler.schedule(this::flush, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
             }
+            pending.add(event);
         }
     }
-    
-    // Notify all listeners that appointments have changed
-     
-    public void notifyAppointmentsChanged() {
-        for (DataChangeListener listener : listeners) {
-            try {
-                listener.onAppointmentsChanged();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+
+    private void flush() {
+        DataChangeBatch batch;
+        synchronized (this) {
+            batch = pending;
+            pending = null;
+        }
+        if (batch == null || batch.isEmpty()) {
+            return;
         }
+        SwingUtilities.invokeLater(() -> {
+            for (DataChangeListener listener : listeners) {
+                try {
+                    listener.onDataChanged(batch);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
     }
-    
+
+    // Notify all listeners that patients have changed (no id, everyone reloads)
+
+    public void notifyPatientsChanged() {
+        publish(DataChangeEvent.bulk(DataChangeEvent.Entity.PATIENT));
+    }
+
+    public void notifyPatientChanged(DataChangeEvent.Kind kind, int patientId) {
+        publish(DataChangeEvent.patient(kind, patientId));
+    }
+
+    // Notify all listeners that appointments have changed (no id, everyone reloads)
+
+    public void notifyAppointmentsChanged() {
+        publish(DataChangeEvent.bulk(DataChangeEvent.Entity.APPOINTMENT));
+    }
+
+    public void notifyAppointmentChanged(DataChangeEvent.Kind kind, int appointmentId, int patientId) {
+        publish(DataChangeEvent.appointment(kind, appointmentId, patientId));
+    }
+
     // Notify all listeners that medical history has changed
-    
+
     public void notifyMedicalHistoryChanged() {
-        for (DataChangeListener listener : listeners) {
-            try {
-                listener.onMedicalHistoryChanged();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish(DataChangeEvent.bulk(DataChangeEvent.Entity.MEDICAL_HISTORY));
+    }
+
+    public void notifyMedicalHistoryChanged(int patientId) {
+        publish(DataChangeEvent.medicalHistory(patientId));
     }
 }
-//
\ No newline at end of file
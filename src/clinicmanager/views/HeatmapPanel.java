@@ -0,0 +1,70 @@
+package clinicmanager.views;
+
+import java.awt.*;
+import java.time.DayOfWeek;
+import java.time.format.TextStyle;
+import java.util.Locale;
+import javax.swing.*;
+
+// weekday x hour grid, darker cells have more appointments
+public class HeatmapPanel extends JPanel {
+    private static final int PAD_LEFT = 45;
+    private static final int PAD_TOP = 30;
+    private static final Color LOW = new Color(235, 245, 255);
+    private static final Color HIGH = new Color(0, 82, 164);
+
+    private int[][] counts = new int[7][24];
+
+    public HeatmapPanel() {
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(700, 260));
+    }
+
+    // counts[iso weekday - 1][hour]
+    public void setData(int[][] counts) {
+        this.counts = counts;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        int max = 1;
+        for (int[] day : counts) {
+            for (int c : day) {
+                max = Math.max(max, c);
+            }
+        }
+
+        int cellWidth = Math.max(1, (getWidth() - PAD_LEFT - 10) / 24);
+        int cellHeight = Math.max(1, (getHeight() - PAD_TOP - 10) / 7);
+        g2.setFont(new Font("Segoe UI", Font.PLAIN, 10));
+        for (int hour = 0; hour < 24; hour += 2) {
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString(String.format("%02d", hour), PAD_LEFT + hour * cellWidth + 2, PAD_TOP - 5);
+        }
+        for (int day = 0; day < 7; day++) {
+            int y = PAD_TOP + day * cellHeight;
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString(DayOfWeek.of(day + 1).getDisplayName(TextStyle.SHORT, Locale.ENGLISH), 5, y + cellHeight / 2 + 4);
+            for (int hour = 0; hour < 24; hour++) {
+                int x = PAD_LEFT + hour * cellWidth;
+                g2.setColor(blend((double) counts[day][hour] / max));
+                g2.fillRect(x, y, cellWidth - 1, cellHeight - 1);
+                if (counts[day][hour] > 0 && cellWidth >= 18) {
+                    g2.setColor(counts[day][hour] * 2 > max ? Color.WHITE : Color.DARK_GRAY);
+                    g2.drawString(String.valueOf(counts[day][hour]), x + 3, y + cellHeight / 2 + 4);
+                }
+            }
+        }
+        g2.dispose();
+    }
+
+    private static Color blend(double t) {
+        return new Color(
+            (int) (LOW.getRed() + (HIGH.getRed() - LOW.getRed()) * t),
+            (int) (LOW.getGreen() + (HIGH.getGreen() - LOW.getGreen()) * t),
+            (int) (LOW.getBlue() + (HIGH.getBlue() - LOW.getBlue()) * t));
+    }
+}
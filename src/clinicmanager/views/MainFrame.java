@@ -1,25 +1,36 @@
 package clinicmanager.views;
 
+import clinicmanager.controllers.DrugSafetyChecker;
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentSeriesDAO;
+import clinicmanager.dao.AppointmentStatsDAO;
+import clinicmanager.dao.ClinicalSearchDAO;
+import clinicmanager.dao.RefillQueueDAO;
+import clinicmanager.dao.DrugSafetyDAO;
 import clinicmanager.dao.PatientDAO;
 import clinicmanager.dao.MedicalConditionDAO;
 import clinicmanager.dao.AllergyDAO;
 import clinicmanager.dao.MedicationDAO;
-import clinicmanager.database.DatabaseConnection;
+import clinicmanager.dao.PatientChartDAO;
+import clinicmanager.database.ThreadBoundConnection;
 import clinicmanager.models.Appointment;
 import clinicmanager.models.Patient;
 import clinicmanager.models.Visit;
 import clinicmanager.util.ValidationUtil;
 import clinicmanager.util.DatePickerPanel;
+import clinicmanager.util.DateTimeUtil;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
@@ -27,25 +38,42 @@ import javax.swing.table.DefaultTableModel;
 public class MainFrame extends JFrame {
     private PatientDAO patientDAO;
     private AppointmentDAO appointmentDAO;
+    private AppointmentSeriesDAO appointmentSeriesDAO;
+    private AppointmentStatsDAO appointmentStatsDAO;
     private MedicalConditionDAO medicalConditionDAO;
     private AllergyDAO allergyDAO;
     private MedicationDAO medicationDAO;
+    private PatientChartDAO patientChartDAO;
+    private ClinicalSearchDAO clinicalSearchDAO;
+    private RefillQueueDAO refillQueueDAO;
+    private DrugSafetyChecker drugSafetyChecker;
     private Connection connection;
+    // tab index -> factory, null once the panel is built
+    private final List<Supplier<JPanel>> tabFactories = new ArrayList<>();
+    private final StartupTimer startupTimer = new StartupTimer();
 
     public MainFrame() {
         try {
-            connection = DatabaseConnection.getConnection();
+            // one pooled connection per thread: EDT writes and background loads never share a transaction
+            connection = ThreadBoundConnection.create();
             patientDAO = new PatientDAO(connection);
             appointmentDAO = new AppointmentDAO(connection);
+            appointmentSeriesDAO = new AppointmentSeriesDAO(connection);
+            appointmentStatsDAO = new AppointmentStatsDAO(connection);
             medicalConditionDAO = new MedicalConditionDAO(connection);
             allergyDAO = new AllergyDAO(connection);
             medicationDAO = new MedicationDAO(connection);
+            patientChartDAO = new PatientChartDAO(connection);
+            clinicalSearchDAO = new ClinicalSearchDAO(connection);
+            refillQueueDAO = new RefillQueueDAO(connection);
+            drugSafetyChecker = new DrugSafetyChecker(new DrugSafetyDAO(connection));
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, 
                 "Database connection error: " + e.getMessage(), 
                 "Error", JOptionPane.ERROR_MESSAGE);
             System.exit(1);
         }
+        startupTimer.mark("connection + daos");
 
         setTitle("Clinic Manager - Patient Management System");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -63,12 +91,14 @@ public class MainFrame extends JFrame {
         tabbedPane.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         tabbedPane.setBackground(new Color(240, 248, 255));
         
-        // adding all tabs
-        tabbedPane.addTab("Dashboard", new DashboardPanel(patientDAO, appointmentDAO));
-        tabbedPane.addTab("Patients", new PatientPanel(patientDAO, appointmentDAO));
-        tabbedPane.addTab("Appointments", new AppointmentPanel(appointmentDAO, patientDAO));
-        tabbedPane.addTab("Medical History", new MedicalHistoryPanel(patientDAO, medicalConditionDAO, allergyDAO, medicationDAO));
-        tabbedPane.addTab("Reports", new ReportsPanel(patientDAO, appointmentDAO));
+        // adding all tabs. panels are built the first time their tab is selected,
+        // each one starts its own first load, so login only waits for the frame
+        addLazyTab(tabbedPane, "Dashboard", () -> new DashboardPanel(patientDAO, appointmentDAO, appointmentStatsDAO, refillQueueDAO));
+        addLazyTab(tabbedPane, "Patients", () -> new PatientPanel(patientDAO, appointmentDAO));
+        addLazyTab(tabbedPane, "Appointments", () -> new AppointmentPanel(appointmentDAO, patientDAO, appointmentSeriesDAO));
+        addLazyTab(tabbedPane, "Medical History", () -> new MedicalHistoryPanel(patientDAO, medicalConditionDAO, allergyDAO, medicationDAO, patientChartDAO, drugSafetyChecker));
+        addLazyTab(tabbedPane, "Reports", () -> new ReportsPanel(patientDAO, appointmentDAO, appointmentStatsDAO, clinicalSearchDAO));
+        tabbedPane.addChangeListener(e -> buildTab(tabbedPane, tabbedPane.getSelectedIndex()));
 
         // putting it in the frame
         add(tabbedPane, BorderLayout.CENTER);
@@ -78,6 +108,49 @@ public class MainFrame extends JFrame {
         statusBar.setBorder(BorderFactory.createLoweredBevelBorder());
         statusBar.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         add(statusBar, BorderLayout.SOUTH);
+        startupTimer.mark("frame");
+
+        // the first tab is built once the frame has painted, not before
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                startupTimer.mark("first paint");
+                SwingUtilities.invokeLater(() -> buildTab(tabbedPane, tabbedPane.getSelectedIndex()));
+            }
+        });
+    }
+
+    private void addLazyTab(JTabbedPane tabbedPane, String title, Supplier<JPanel> factory) {
+        JPanel holder = new JPanel(new BorderLayout());
+        holder.setBackground(new Color(245, 250, 255));
+        tabbedPane.addTab(title, holder);
+        tabFactories.add(factory);
+    }
+
+    private void buildTab(JTabbedPane tabbedPane, int index) {
+        if (index < 0 || tabFactories.get(index) == null) {
+            return;
+        }
+        Supplier<JPanel> factory = tabFactories.set(index, null);
+        JPanel holder = (JPanel) tabbedPane.getComponentAt(index);
+        holder.add(factory.get(), BorderLayout.CENTER);
+        holder.revalidate();
+        holder.repaint();
+        startupTimer.mark(tabbedPane.getTitleAt(index) + " tab built");
+    }
+
+    // startup timing breakdown on stdout, each mark shows the time since the last one.
+    // time to the first paint is the number that should stay under a second
+    static class StartupTimer {
+        private final long start = System.nanoTime();
+        private long last = start;
+
+        void mark(String phase) {
+            long now = System.nanoTime();
+            System.out.println(String.format("startup: %-28s +%5d ms  (%d ms total)",
+                phase, (now - last) / 1_000_000, (now - start) / 1_000_000));
+            last = now;
+        }
     }
 
     @Override
@@ -102,8 +175,7 @@ public class MainFrame extends JFrame {
         dateField.setBackground(Color.WHITE);
         
         // setting default date
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        dateField.setText(sdf.format(new Date()));
+        dateField.setText(LocalDate.now().format(DateTimeUtil.DATE));
         
         // storing the text field so i can get it later
         panel.putClientProperty("dateField", dateField);
@@ -140,8 +212,7 @@ public class MainFrame extends JFrame {
         dateTimeField.setBackground(Color.WHITE);
         
         // default date/time
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-        dateTimeField.setText(sdf.format(new Date()));
+        dateTimeField.setText(LocalDateTime.now().format(DateTimeUtil.DATE_TIME));
         
         // saving reference
         panel.putClientProperty("dateTimeField", dateTimeField);
@@ -181,17 +252,8 @@ public class MainFrame extends JFrame {
         dialog.setLocationRelativeTo(dateField);
         dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         
-        // trying to parse the date
-        java.util.Date selectedDate = new java.util.Date();
-        String currentDate = dateField.getText();
-        if (currentDate != null && !currentDate.trim().isEmpty()) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                selectedDate = sdf.parse(currentDate);
-            } catch (Exception e) {
-                // whatever just use todays date
-            }
-        }
+        // trying to parse the date, null means the picker opens on today
+        LocalDate selectedDate = DateTimeUtil.tryParseDate(dateField.getText());
         
         // date picker panel
         DatePickerPanel datePickerPanel = new DatePickerPanel(selectedDate, date -> {
@@ -222,27 +284,16 @@ public class MainFrame extends JFrame {
         dateField.setBackground(Color.WHITE);
         
         // Parse existing date/time if available
-        String currentDateTime = dateTimeField.getText();
-        Calendar cal = Calendar.getInstance();
-        int defaultHour = cal.get(Calendar.HOUR_OF_DAY);
-        int defaultMinute = cal.get(Calendar.MINUTE);
-        String defaultDate = new SimpleDateFormat("yyyy-MM-dd").format(cal.getTime());
-        
-        if (currentDateTime != null && !currentDateTime.trim().isEmpty()) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                Date dt = sdf.parse(currentDateTime.trim());
-                cal.setTime(dt);
-                defaultHour = cal.get(Calendar.HOUR_OF_DAY);
-                defaultMinute = cal.get(Calendar.MINUTE);
-                defaultDate = new SimpleDateFormat("yyyy-MM-dd").format(dt);
-            } catch (Exception e) {
-                // Use defaults if parsing fails
-            }
+        // Use now if the field is empty or doesnt parse
+        LocalDateTime current = DateTimeUtil.tryParseDateTime(dateTimeField.getText());
+        if (current == null) {
+            current = LocalDateTime.now();
         }
+        int defaultHour = current.getHour();
+        int defaultMinute = current.getMinute();
         
         // Initialize dateField with default date
-        dateField.setText(defaultDate);
+        dateField.setText(current.toLocalDate().format(DateTimeUtil.DATE));
         
         JButton dateBtn = new JButton("📅");
         dateBtn.addActionListener(e -> {
@@ -362,8 +413,7 @@ public class MainFrame extends JFrame {
             if (dateString != null && !dateString.trim().isEmpty()) {
                 textField.setText(dateString);
             } else {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                textField.setText(sdf.format(new Date()));
+                textField.setText(LocalDate.now().format(DateTimeUtil.DATE));
             }
             return;
         }
@@ -376,8 +426,7 @@ public class MainFrame extends JFrame {
                 if (dateString != null && !dateString.trim().isEmpty()) {
                     textField.setText(dateString);
                 } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-                    textField.setText(sdf.format(new Date()));
+                    textField.setText(LocalDate.now().format(DateTimeUtil.DATE));
                 }
                 return;
             }
@@ -393,8 +442,7 @@ public class MainFrame extends JFrame {
             if (dateTimeString != null && !dateTimeString.trim().isEmpty()) {
                 textField.setText(dateTimeString);
             } else {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                textField.setText(sdf.format(new Date()));
+                textField.setText(LocalDateTime.now().format(DateTimeUtil.DATE_TIME));
             }
             return;
         }
@@ -407,14 +455,30 @@ public class MainFrame extends JFrame {
                 if (dateTimeString != null && !dateTimeString.trim().isEmpty()) {
                     textField.setText(dateTimeString);
                 } else {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-                    textField.setText(sdf.format(new Date()));
+                    textField.setText(LocalDateTime.now().format(DateTimeUtil.DATE_TIME));
                 }
                 return;
             }
         }
     }
 
+    // typed versions of the helpers above, null when the field is empty or not a valid date
+    public static LocalDate getDate(JPanel datePickerPanel) {
+        return DateTimeUtil.tryParseDate(getDateString(datePickerPanel));
+    }
+
+    public static LocalDateTime getDateTime(JPanel dateTimePickerPanel) {
+        return DateTimeUtil.tryParseDateTime(getDateTimeString(dateTimePickerPanel));
+    }
+
+    public static void setDate(JPanel datePickerPanel, LocalDate date) {
+        setDateFromString(datePickerPanel, DateTimeUtil.format(date));
+    }
+
+    public static void setDateTime(JPanel dateTimePickerPanel, LocalDateTime dateTime) {
+        setDateTimeFromString(dateTimePickerPanel, DateTimeUtil.format(dateTime));
+    }
+
     // Helper method to create modern styled buttons
     public static JButton createModernButton(String text, Color bgColor, Color hoverColor, int width, int height) {
         JButton button = new JButton(text) {
@@ -1,9 +1,14 @@
 package clinicmanager.views;
 
+import clinicmanager.controllers.DrugSafetyChecker;
+import clinicmanager.controllers.DrugSafetyIndex;
 import clinicmanager.dao.*;
 import clinicmanager.models.*;
+import clinicmanager.views.async.AsyncLoader;
+import clinicmanager.views.async.LoadingIndicator;
 import java.awt.*;
-import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import javax.swing.*;
 
@@ -12,16 +17,29 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
     private final MedicalConditionDAO medicalConditionDAO;
     private final AllergyDAO allergyDAO;
     private final MedicationDAO medicationDAO;
+    private final PatientChartDAO patientChartDAO;
+    private final DrugSafetyChecker drugSafetyChecker;
     private JComboBox<PatientComboItem> patientCombo;
     private JTabbedPane historyTabs;
     private int selectedPatientId = -1;
+    private final JLabel loadingLabel = new JLabel("Loading...");
+    private final AsyncLoader<List<Patient>> patientLoader = new AsyncLoader<>();
+    // switching patients quickly supersedes the previous patient's load
+    private final AsyncLoader<PatientChartDAO.Snapshot> historyLoader = new AsyncLoader<>(
+        LoadingIndicator.all(LoadingIndicator.busyCursor(this), LoadingIndicator.visibleWhileLoading(loadingLabel)));
+    // the tabs are built once, a patient switch only swaps the text in these
+    private JTextArea conditionsArea, allergiesArea, medicationsArea;
+    private final StringBuilder text = new StringBuilder();
 
     public MedicalHistoryPanel(PatientDAO patientDAO, MedicalConditionDAO medicalConditionDAO, 
-                              AllergyDAO allergyDAO, MedicationDAO medicationDAO) {
+                              AllergyDAO allergyDAO, MedicationDAO medicationDAO, PatientChartDAO patientChartDAO,
+                              DrugSafetyChecker drugSafetyChecker) {
         this.patientDAO = patientDAO;
         this.medicalConditionDAO = medicalConditionDAO;
         this.allergyDAO = allergyDAO;
         this.medicationDAO = medicationDAO;
+        this.patientChartDAO = patientChartDAO;
+        this.drugSafetyChecker = drugSafetyChecker;
         
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -44,11 +62,13 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
         refreshPatientsBtn.setPreferredSize(new Dimension(80, 25));
         refreshPatientsBtn.addActionListener(e -> loadPatients());
         patientPanel.add(refreshPatientsBtn);
+        loadingLabel.setVisible(false);
+        patientPanel.add(loadingLabel);
         
         historyTabs = new JTabbedPane();
-        historyTabs.addTab("Medical Conditions", new JPanel());
-        historyTabs.addTab("Allergies", new JPanel());
-        historyTabs.addTab("Medications", new JPanel());
+        historyTabs.addTab("Medical Conditions", createConditionsPanel());
+        historyTabs.addTab("Allergies", createAllergiesPanel());
+        historyTabs.addTab("Medications", createMedicationsPanel());
         
         add(patientPanel, BorderLayout.NORTH);
         add(historyTabs, BorderLayout.CENTER);
@@ -58,29 +78,93 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
     }
 
     private void loadPatients() {
-        try {
+        patientLoader.load(patientDAO::getAllPatients, patients -> {
             patientCombo.removeAllItems();
             patientCombo.addItem(new PatientComboItem(-1, "Select a patient..."));
-            for (Patient p : patientDAO.getAllPatients()) {
+            for (Patient p : patients) {
                 patientCombo.addItem(new PatientComboItem(p.getId(), p.getFirstName() + " " + p.getLastName()));
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage());
-        }
+        }, e -> JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage()));
     }
 
     private void loadMedicalHistory() {
-        if (selectedPatientId == -1) return;
-        try {
-            historyTabs.setComponentAt(0, createConditionsPanel());
-            historyTabs.setComponentAt(1, createAllergiesPanel());
-            historyTabs.setComponentAt(2, createMedicationsPanel());
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading medical history: " + e.getMessage());
+        if (selectedPatientId == -1) {
+            historyLoader.cancel();
+            conditionsArea.setText("");
+            allergiesArea.setText("");
+            medicationsArea.setText("");
+            return;
+        }
+        int patientId = selectedPatientId;
+        historyLoader.load(() -> patientChartDAO.loadSnapshot(patientId), this::showHistory,
+            e -> JOptionPane.showMessageDialog(this, "Error loading medical history: " + e.getMessage()));
+    }
+
+    // the forms are there before a patient is picked, so the add buttons check
+    private boolean requirePatient() {
+        if (selectedPatientId == -1) {
+            JOptionPane.showMessageDialog(this, "Please select a patient first");
+            return false;
         }
+        return true;
     }
 
-    private JPanel createConditionsPanel() throws SQLException {
+    private void showHistory(PatientChartDAO.Snapshot history) {
+        text.setLength(0);
+        for (MedicalCondition cond : history.conditions) {
+            text.append("* ").append(cond.getConditionName()).append(" [").append(cond.getStatus()).append("]\n");
+            text.append("  Diagnosed: ").append(cond.getDiagnosisDate()).append("\n");
+            text.append("  Notes: ").append(cond.getNotes()).append("\n\n");
+        }
+        showText(conditionsArea);
+
+        for (Allergy allergy : history.allergies) {
+            text.append("* ").append(allergy.getAllergen()).append(" [").append(allergy.getSeverity()).append("]\n");
+            text.append("  Reaction: ").append(allergy.getReaction()).append("\n");
+            text.append("  Notes: ").append(allergy.getNotes()).append("\n\n");
+        }
+        showText(allergiesArea);
+
+        appendMedications(history.activeMedications);
+        if (!history.pastMedications.isEmpty()) {
+            text.append("--- Past medications ---\n\n");
+            appendMedications(history.pastMedications);
+        }
+        if (!history.recentPrescriptions.isEmpty()) {
+            text.append("--- Recent prescriptions ---\n\n");
+            for (Prescription rx : history.recentPrescriptions) {
+                text.append("* ").append(rx.getMedicationName()).append(" (").append(rx.getPrescribedDate()).append(")\n");
+                text.append("  Dosage: ").append(rx.getDosage()).append(" | Frequency: ").append(rx.getFrequency())
+                    .append(" | Qty: ").append(rx.getQuantity()).append("\n");
+                if (rx.getRefillDate() != null) {
+                    text.append("  Refill: ").append(rx.getRefillDate()).append("\n");
+                }
+                text.append("\n");
+            }
+        }
+        showText(medicationsArea);
+    }
+
+    private void appendMedications(List<Medication> medications) {
+        for (Medication med : medications) {
+            text.append("* ").append(med.getMedicationName()).append(" [").append(med.getStatus()).append("]\n");
+            text.append("  Dosage: ").append(med.getDosage()).append(" | Frequency: ").append(med.getFrequency()).append("\n");
+            text.append("  Started: ").append(med.getStartDate()).append("\n");
+            if (med.getEndDate() != null) {
+                text.append("  End date: ").append(med.getEndDate()).append("\n");
+            }
+            text.append("  Notes: ").append(med.getNotes()).append("\n\n");
+        }
+    }
+
+    // moves the buffer into the area and empties it for the next one, scrolled back to the top
+    private void showText(JTextArea area) {
+        area.setText(text.toString());
+        area.setCaretPosition(0);
+        text.setLength(0);
+    }
+
+    private JPanel createConditionsPanel() {
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -120,6 +204,9 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
         formPanel.add(btnPanel);
         
         addBtn.addActionListener(e -> {
+            if (!requirePatient()) {
+                return;
+            }
             try {
                 String condName = nameField.getText().trim();
                 if (condName.isEmpty()) {
@@ -127,7 +214,7 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
                     return;
                 }
                 
-                String diagDate = MainFrame.getDateString(diagnosisDatePanel);
+                LocalDate diagDate = MainFrame.getDate(diagnosisDatePanel);
                 String status = (String) statusCombo.getSelectedItem();
                 String notes = notesArea.getText().trim();
                 
@@ -143,8 +230,8 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
                 nameField.setText("");
                 notesArea.setText("");
                 statusCombo.setSelectedIndex(0);
-                loadMedicalHistory();
-                DataChangeManager.getInstance().notifyMedicalHistoryChanged();
+                // the change event reloads the history, here and anywhere else showing this patient
+                DataChangeManager.getInstance().notifyMedicalHistoryChanged(selectedPatientId);
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error adding condition: " + ex.getMessage());
             }
@@ -158,29 +245,17 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
 
         JPanel displayPanel = new JPanel(new BorderLayout());
         displayPanel.setBorder(BorderFactory.createTitledBorder("Medical Conditions History"));
-        JTextArea displayArea = new JTextArea(12, 50);
-        displayArea.setFont(new Font("Monospaced", Font.PLAIN, 11));
-        displayArea.setEditable(false);
-        displayPanel.add(new JScrollPane(displayArea), BorderLayout.CENTER);
-
-        try {
-            StringBuilder text = new StringBuilder();
-            for (MedicalCondition cond : medicalConditionDAO.getMedicalConditionsByPatientId(selectedPatientId)) {
-                text.append("* ").append(cond.getConditionName()).append(" [").append(cond.getStatus()).append("]\n");
-                text.append("  Diagnosed: ").append(cond.getDiagnosisDate()).append("\n");
-                text.append("  Notes: ").append(cond.getNotes()).append("\n\n");
-            }
-            displayArea.setText(text.toString());
-        } catch (SQLException ex) {
-            displayArea.setText("Error loading conditions");
-        }
+        conditionsArea = new JTextArea(12, 50);
+        conditionsArea.setFont(new Font("Monospaced", Font.PLAIN, 11));
+        conditionsArea.setEditable(false);
+        displayPanel.add(new JScrollPane(conditionsArea), BorderLayout.CENTER);
 
         mainPanel.add(formPanel, BorderLayout.NORTH);
         mainPanel.add(displayPanel, BorderLayout.CENTER);
         return mainPanel;
     }
 
-    private JPanel createAllergiesPanel() throws SQLException {
+    private JPanel createAllergiesPanel() {
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -220,6 +295,9 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
         formPanel.add(btnPanel);
         
         addBtn.addActionListener(e -> {
+            if (!requirePatient()) {
+                return;
+            }
             try {
                 String allergen = allergenField.getText().trim();
                 if (allergen.isEmpty()) {
@@ -244,8 +322,8 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
                 notesArea.setText("");
                 severityCombo.setSelectedIndex(0);
                 reactionCombo.setSelectedIndex(0);
-                loadMedicalHistory();
-                DataChangeManager.getInstance().notifyMedicalHistoryChanged();
+                // the change event reloads the history, here and anywhere else showing this patient
+                DataChangeManager.getInstance().notifyMedicalHistoryChanged(selectedPatientId);
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error adding allergy: " + ex.getMessage());
             }
@@ -260,29 +338,17 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
 
         JPanel displayPanel = new JPanel(new BorderLayout());
         displayPanel.setBorder(BorderFactory.createTitledBorder("Patient Allergies"));
-        JTextArea displayArea = new JTextArea(12, 50);
-        displayArea.setFont(new Font("Monospaced", Font.PLAIN, 11));
-        displayArea.setEditable(false);
-        displayPanel.add(new JScrollPane(displayArea), BorderLayout.CENTER);
-
-        try {
-            StringBuilder text = new StringBuilder();
-            for (Allergy allergy : allergyDAO.getAllergiesByPatientId(selectedPatientId)) {
-                text.append("* ").append(allergy.getAllergen()).append(" [").append(allergy.getSeverity()).append("]\n");
-                text.append("  Reaction: ").append(allergy.getReaction()).append("\n");
-                text.append("  Notes: ").append(allergy.getNotes()).append("\n\n");
-            }
-            displayArea.setText(text.toString());
-        } catch (SQLException ex) {
-            displayArea.setText("Error loading allergies");
-        }
+        allergiesArea = new JTextArea(12, 50);
+        allergiesArea.setFont(new Font("Monospaced", Font.PLAIN, 11));
+        allergiesArea.setEditable(false);
+        displayPanel.add(new JScrollPane(allergiesArea), BorderLayout.CENTER);
 
         mainPanel.add(formPanel, BorderLayout.NORTH);
         mainPanel.add(displayPanel, BorderLayout.CENTER);
         return mainPanel;
     }
 
-    private JPanel createMedicationsPanel() throws SQLException {
+    private JPanel createMedicationsPanel() {
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -332,8 +398,14 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
         btnPanel.add(addBtn);
         btnPanel.add(clearBtn);
         formPanel.add(btnPanel);
+        // the safety lookups run off the EDT, Add stays off until the check is answered
+        AsyncLoader<List<DrugSafetyIndex.SafetyAlert>> safetyLoader = new AsyncLoader<>(
+            LoadingIndicator.all(LoadingIndicator.busyCursor(this), loading -> addBtn.setEnabled(!loading)));
         
         addBtn.addActionListener(e -> {
+            if (!requirePatient()) {
+                return;
+            }
             try {
                 String medName = medNameField.getText().trim();
                 if (medName.isEmpty()) {
@@ -343,8 +415,9 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
                 
                 String dosage = dosageField.getText().trim();
                 String frequency = frequencyField.getText().trim();
-                String startDate = MainFrame.getDateString(startDatePanel);
-                String endDate = MainFrame.getDateString(endDatePanel);
+                // bad or empty dates are stored as null like before
+                LocalDate startDate = MainFrame.getDate(startDatePanel);
+                LocalDate endDate = MainFrame.getDate(endDatePanel);
                 String status = (String) statusCombo.getSelectedItem();
                 String notes = notesArea.getText().trim();
                 
@@ -358,15 +431,34 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
                 medication.setStatus(status);
                 medication.setNotes(notes);
                 
-                medicationDAO.addMedication(medication);
-                JOptionPane.showMessageDialog(this, "Medication added successfully!");
-                medNameField.setText("");
-                dosageField.setText("");
-                frequencyField.setText("");
-                notesArea.setText("");
-                statusCombo.setSelectedIndex(0);
-                loadMedicalHistory();
-                DataChangeManager.getInstance().notifyMedicalHistoryChanged();
+                Runnable save = () -> {
+                    try {
+                        medicationDAO.addMedication(medication);
+                        JOptionPane.showMessageDialog(this, "Medication added successfully!");
+                        medNameField.setText("");
+                        dosageField.setText("");
+                        frequencyField.setText("");
+                        notesArea.setText("");
+                        statusCombo.setSelectedIndex(0);
+                        // the change event reloads the history, here and anywhere else showing this patient
+                        DataChangeManager.getInstance().notifyMedicalHistoryChanged(medication.getPatientId());
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(this, "Error adding medication: " + ex.getMessage());
+                    }
+                };
+                // only something the patient will actually take needs checking
+                if (!"active".equalsIgnoreCase(status)) {
+                    save.run();
+                    return;
+                }
+                int patientId = selectedPatientId;
+                safetyLoader.load(() -> drugSafetyChecker.checkNewMedications(patientId, Collections.singletonList(medName)),
+                    alerts -> {
+                        if (confirmSafety(medName, alerts)) {
+                            save.run();
+                        }
+                    },
+                    ex -> JOptionPane.showMessageDialog(this, "Error checking medication safety: " + ex.getMessage()));
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "Error adding medication: " + ex.getMessage());
             }
@@ -381,33 +473,31 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
         });
 
         JPanel displayPanel = new JPanel(new BorderLayout());
-        displayPanel.setBorder(BorderFactory.createTitledBorder("Current Medications"));
-        JTextArea displayArea = new JTextArea(12, 50);
-        displayArea.setFont(new Font("Monospaced", Font.PLAIN, 11));
-        displayArea.setEditable(false);
-        displayPanel.add(new JScrollPane(displayArea), BorderLayout.CENTER);
-
-        try {
-            StringBuilder text = new StringBuilder();
-            for (Medication med : medicationDAO.getMedicationsByPatientId(selectedPatientId)) {
-                text.append("* ").append(med.getMedicationName()).append(" [").append(med.getStatus()).append("]\n");
-                text.append("  Dosage: ").append(med.getDosage()).append(" | Frequency: ").append(med.getFrequency()).append("\n");
-                text.append("  Started: ").append(med.getStartDate()).append("\n");
-                if (med.getEndDate() != null && !med.getEndDate().isEmpty()) {
-                    text.append("  End date: ").append(med.getEndDate()).append("\n");
-                }
-                text.append("  Notes: ").append(med.getNotes()).append("\n\n");
-            }
-            displayArea.setText(text.toString());
-        } catch (SQLException ex) {
-            displayArea.setText("Error loading medications");
-        }
+        displayPanel.setBorder(BorderFactory.createTitledBorder("Medications & Prescriptions"));
+        medicationsArea = new JTextArea(12, 50);
+        medicationsArea.setFont(new Font("Monospaced", Font.PLAIN, 11));
+        medicationsArea.setEditable(false);
+        displayPanel.add(new JScrollPane(medicationsArea), BorderLayout.CENTER);
 
         mainPanel.add(formPanel, BorderLayout.NORTH);
         mainPanel.add(displayPanel, BorderLayout.CENTER);
         return mainPanel;
     }
 
+    // shows allergy / interaction warnings for a new medication, the clinician can still go ahead
+    private boolean confirmSafety(String medName, List<DrugSafetyIndex.SafetyAlert> alerts) {
+        if (alerts.isEmpty()) {
+            return true;
+        }
+        StringBuilder message = new StringBuilder("Safety check for ").append(medName).append(":\n\n");
+        for (DrugSafetyIndex.SafetyAlert alert : alerts) {
+            message.append("- ").append(alert).append('\n');
+        }
+        message.append("\nAdd it anyway?");
+        return JOptionPane.showConfirmDialog(this, message.toString(), "Prescribing Safety",
+            JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
     class PatientComboItem {
         private final int id;
         private final String name;
@@ -426,6 +516,18 @@ public class MedicalHistoryPanel extends JPanel implements DataChangeListener {
         }
     }
 
+    @Override
+    public void onDataChanged(DataChangeBatch batch) {
+        if (batch.has(DataChangeEvent.Entity.PATIENT)) {
+            onPatientsChanged();
+        }
+        // only the selected patient's history is on screen
+        if (selectedPatientId != -1 && (batch.needsFullReload(DataChangeEvent.Entity.MEDICAL_HISTORY)
+                || batch.patientIds(DataChangeEvent.Entity.MEDICAL_HISTORY).contains(selectedPatientId))) {
+            onMedicalHistoryChanged();
+        }
+    }
+
     @Override
     public void onPatientsChanged() {
         loadPatients();
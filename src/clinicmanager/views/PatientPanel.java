@@ -4,12 +4,19 @@ import clinicmanager.controllers.PatientController;
 import clinicmanager.dao.AppointmentDAO;
 import clinicmanager.dao.PatientDAO;
 import clinicmanager.models.Patient;
+import clinicmanager.util.DateTimeUtil;
 import clinicmanager.util.ValidationUtil;
+import clinicmanager.views.async.AsyncLoader;
+import clinicmanager.views.async.LoadingIndicator;
 import java.awt.*;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
@@ -23,6 +30,12 @@ public class PatientPanel extends JPanel implements DataChangeListener {
     private JTextField searchField;
     private JButton saveButton, updateButton, deleteButton, clearButton, searchButton, refreshButton;
     private int selectedPatientId = -1;
+    // refresh and search both fill the table, so they share one loader
+    private final AsyncLoader<List<Object[]>> tableLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
+    // rows named by change events, reloaded one by one instead of the whole table.
+    // ids stay here until their row is applied so a superseded load doesnt lose them
+    private final Set<Integer> dirtyIds = new LinkedHashSet<>();
+    private final AsyncLoader<Map<Integer, Object[]>> rowLoader = new AsyncLoader<>(LoadingIndicator.NONE);
 
     public PatientPanel(PatientDAO patientDAO, AppointmentDAO appointmentDAO) {
         this.controller = new PatientController(patientDAO);
@@ -231,7 +244,7 @@ public class PatientPanel extends JPanel implements DataChangeListener {
             Patient patient = new Patient(0,
                 firstNameField.getText().trim(),
                 lastNameField.getText().trim(),
-                dobString,
+                DateTimeUtil.tryParseDate(dobString),
                 phoneField.getText().trim(),
                 emailField.getText().trim(),
                 addressField.getText().trim());
@@ -239,9 +252,8 @@ public class PatientPanel extends JPanel implements DataChangeListener {
             controller.savePatient(patient);
             JOptionPane.showMessageDialog(this, "Patient saved", "Success", JOptionPane.INFORMATION_MESSAGE);
             clearForm();
-            refreshTable();
-            // tell everyone patients changed
-            DataChangeManager.getInstance().notifyPatientsChanged();
+            // tell everyone (this panel too) which patient was added, the row comes back with the event
+            DataChangeManager.getInstance().notifyPatientChanged(DataChangeEvent.Kind.CREATED, patient.getId());
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error saving patient: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -272,7 +284,7 @@ public class PatientPanel extends JPanel implements DataChangeListener {
                 Patient patient = new Patient(selectedPatientId,
                     firstNameField.getText().trim(),
                     lastNameField.getText().trim(),
-                    dobString,
+                    DateTimeUtil.tryParseDate(dobString),
                     phoneField.getText().trim(),
                     emailField.getText().trim(),
                     addressField.getText().trim());
@@ -280,9 +292,8 @@ public class PatientPanel extends JPanel implements DataChangeListener {
                 controller.updatePatient(patient);
                 JOptionPane.showMessageDialog(this, "Patient updated", "Success", JOptionPane.INFORMATION_MESSAGE);
                 clearForm();
-                refreshTable();
 
-                DataChangeManager.getInstance().notifyPatientsChanged();
+                DataChangeManager.getInstance().notifyPatientChanged(DataChangeEvent.Kind.UPDATED, patient.getId());
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(this, "Error updating patient: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -301,12 +312,12 @@ public class PatientPanel extends JPanel implements DataChangeListener {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                controller.deletePatient(selectedPatientId);
+                int patientId = selectedPatientId;
+                controller.deletePatient(patientId);
                 JOptionPane.showMessageDialog(this, "Patient deleted", "Success", JOptionPane.INFORMATION_MESSAGE);
                 clearForm();
-                refreshTable();
 
-                DataChangeManager.getInstance().notifyPatientsChanged();
+                DataChangeManager.getInstance().notifyPatientChanged(DataChangeEvent.Kind.DELETED, patientId);
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(this, "Error deleting patient: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -317,7 +328,7 @@ public class PatientPanel extends JPanel implements DataChangeListener {
         selectedPatientId = -1;
         firstNameField.setText("");
         lastNameField.setText("");
-        MainFrame.setDateFromString(dobField, new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+        MainFrame.setDate(dobField, LocalDate.now());
         phoneField.setText("");
         emailField.setText("");
         addressField.setText("");
@@ -338,55 +349,114 @@ public class PatientPanel extends JPanel implements DataChangeListener {
     }
 
     private void refreshTable() {
-        try {
-            List<Patient> patients = controller.getAllPatients();
-            tableModel.setRowCount(0);
-            for (Patient patient : patients) {
-                String summary = appointmentDAO.getStatusSummaryForPatient(patient.getId());
-                tableModel.addRow(new Object[]{
-                    patient.getId(),
-                    patient.getFirstName(),
-                    patient.getLastName(),
-                    patient.getDateOfBirth(),
-                    patient.getPhoneNumber(),
-                    patient.getEmail(),
-                    patient.getAddress(),
-                    summary
-                });
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        tableLoader.load(() -> toRows(controller.getAllPatients()), this::showRows,
+            e -> JOptionPane.showMessageDialog(this, "Error loading patients: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
     }
 
     private void searchPatients() {
+        searchPatients(true);
+    }
+
+    // announceEmpty is off when a change event reruns the search, no popup for that
+    private void searchPatients(boolean announceEmpty) {
         String searchTerm = searchField.getText().trim();
         if (searchTerm.isEmpty()) {
             refreshTable();
             return;
         }
 
-        try {
-            List<Patient> patients = controller.searchPatients(searchTerm);
-            tableModel.setRowCount(0);
-            for (Patient patient : patients) {
-                String summary = appointmentDAO.getStatusSummaryForPatient(patient.getId());
-                tableModel.addRow(new Object[]{
-                    patient.getId(),
-                    patient.getFirstName(),
-                    patient.getLastName(),
-                    patient.getDateOfBirth(),
-                    patient.getPhoneNumber(),
-                    patient.getEmail(),
-                    patient.getAddress(),
-                    summary
-                });
-            }
-            if (patients.isEmpty()) {
+        tableLoader.load(() -> toRows(controller.searchPatients(searchTerm)), rows -> {
+            showRows(rows);
+            if (rows.isEmpty() && announceEmpty) {
                 JOptionPane.showMessageDialog(this, "No patients found matching: " + searchTerm, "Search Results", JOptionPane.INFORMATION_MESSAGE);
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error searching patients: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }, e -> JOptionPane.showMessageDialog(this, "Error searching patients: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // runs on the loader thread, summaries are loaded here too so the table fills in one go
+    private List<Object[]> toRows(List<Patient> patients) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (Patient patient : patients) {
+            rows.add(toRow(patient));
+        }
+        return rows;
+    }
+
+    private Object[] toRow(Patient patient) throws SQLException {
+        String summary = appointmentDAO.getStatusSummaryForPatient(patient.getId());
+        return new Object[]{
+            patient.getId(),
+            patient.getFirstName(),
+            patient.getLastName(),
+            DateTimeUtil.format(patient.getDateOfBirth()),
+            patient.getPhoneNumber(),
+            patient.getEmail(),
+            patient.getAddress(),
+            summary
+        };
+    }
+
+    // reloads just the dirty rows, a null value means the patient is gone
+    private void reloadDirtyRows() {
+        if (dirtyIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(dirtyIds);
+        rowLoader.load(() -> {
+            Map<Integer, Object[]> rows = new LinkedHashMap<>();
+            for (int id : ids) {
+                Patient patient = controller.getPatientById(id);
+                rows.put(id, patient != null ? toRow(patient) : null);
+            }
+            return rows;
+        }, rows -> {
+            for (Map.Entry<Integer, Object[]> entry : rows.entrySet()) {
+                dirtyIds.remove(entry.getKey());
+                if (entry.getValue() == null) {
+                    removeRow(entry.getKey());
+                } else {
+                    upsertRow(entry.getValue());
+                }
+            }
+        }, e -> {
+            dirtyIds.clear();
+            refreshTable();
+        });
+    }
+
+    private int findRow(int patientId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((Integer) tableModel.getValueAt(row, 0) == patientId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void removeRow(int patientId) {
+        int row = findRow(patientId);
+        if (row >= 0) {
+            tableModel.removeRow(row);
+        }
+    }
+
+    // replaces the cells in place so the selection and scroll position stay put,
+    // new patients go at the end like the id order of the full list
+    private void upsertRow(Object[] values) {
+        int row = findRow((Integer) values[0]);
+        if (row < 0) {
+            tableModel.addRow(values);
+            return;
+        }
+        for (int column = 0; column < values.length; column++) {
+            tableModel.setValueAt(values[column], row, column);
+        }
+    }
+
+    private void showRows(List<Object[]> rows) {
+        tableModel.setRowCount(0);
+        for (Object[] row : rows) {
+            tableModel.addRow(row);
         }
     }
 
@@ -394,6 +464,38 @@ public class PatientPanel extends JPanel implements DataChangeListener {
         return MainFrame.createDatePickerPanel();
     }
 
+    @Override
+    public void onDataChanged(DataChangeBatch batch) {
+        boolean patients = batch.has(DataChangeEvent.Entity.PATIENT);
+        boolean appointments = batch.has(DataChangeEvent.Entity.APPOINTMENT);
+        if (!patients && !appointments) {
+            return;
+        }
+        // a search shows a filtered list, the new values might not match it anymore so run it again
+        if (!searchField.getText().trim().isEmpty()) {
+            if (patients || !batch.needsFullReload(DataChangeEvent.Entity.APPOINTMENT)) {
+                rowLoader.cancel();
+                dirtyIds.clear();
+                searchPatients(false);
+            }
+            return;
+        }
+        if (batch.needsFullReload(DataChangeEvent.Entity.PATIENT)) {
+            rowLoader.cancel();
+            dirtyIds.clear();
+            onPatientsChanged();
+            return;
+        }
+        for (int id : batch.ids(DataChangeEvent.Entity.PATIENT, DataChangeEvent.Kind.DELETED)) {
+            dirtyIds.remove(id);
+            removeRow(id);
+        }
+        dirtyIds.addAll(batch.ids(DataChangeEvent.Entity.PATIENT, DataChangeEvent.Kind.CREATED, DataChangeEvent.Kind.UPDATED));
+        // the status column summarises appointments, so their patients need a fresh row too
+        dirtyIds.addAll(batch.patientIds(DataChangeEvent.Entity.APPOINTMENT));
+        reloadDirtyRows();
+    }
+
     @Override
     public void onPatientsChanged() {
 
@@ -1,23 +1,49 @@
 package clinicmanager.views;
 
+import clinicmanager.controllers.ReportsController;
 import clinicmanager.dao.AppointmentDAO;
+import clinicmanager.dao.AppointmentStatsDAO;
+import clinicmanager.dao.ClinicalSearchDAO;
+import clinicmanager.dao.CohortQuery;
 import clinicmanager.dao.PatientDAO;
-import clinicmanager.models.Appointment;
-import clinicmanager.models.Patient;
+import clinicmanager.models.AppointmentStatus;
+import clinicmanager.reports.BatchExporter;
+import clinicmanager.reports.ClinicExports;
+import clinicmanager.reports.CsvExport;
+import clinicmanager.reports.CsvExporter;
+import clinicmanager.reports.IncrementalExporter;
+import clinicmanager.reports.ReportExporter;
+import clinicmanager.util.DateTimeUtil;
+import clinicmanager.views.async.AsyncLoader;
+import clinicmanager.views.async.LoadingIndicator;
 import java.awt.*;
-import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import javax.swing.*;
 
 public class ReportsPanel extends JPanel implements DataChangeListener {
     private final PatientDAO patientDAO;
     private final AppointmentDAO appointmentDAO;
+    private final ReportsController controller;
+    private JCheckBox fastExportCheck;
+    private JProgressBar progressBar;
+    private JButton cancelExportButton;
+    private SwingWorker<String, Long> exportWorker;
+    // cancels the running export on the server, set while exportWorker runs
+    private Runnable cancelExport;
+    private boolean exportCancelled;
+    private final AsyncLoader<java.io.File> statisticsLoader = new AsyncLoader<>(LoadingIndicator.busyCursor(this));
 
-    public ReportsPanel(PatientDAO patientDAO, AppointmentDAO appointmentDAO) {
+    public ReportsPanel(PatientDAO patientDAO, AppointmentDAO appointmentDAO, AppointmentStatsDAO statsDAO,
+                        ClinicalSearchDAO searchDAO) {
         this.patientDAO = patientDAO;
         this.appointmentDAO = appointmentDAO;
+        this.controller = new ReportsController(appointmentDAO, patientDAO, statsDAO, searchDAO);
         
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -36,11 +62,45 @@ public class ReportsPanel extends JPanel implements DataChangeListener {
         mainContent.add(buttonPanel, BorderLayout.CENTER);
         
         add(mainContent, BorderLayout.NORTH);
+        add(createProgressPanel(), BorderLayout.SOUTH);
         
         // Register as data change listener
         DataChangeManager.getInstance().addListener(this);
     }
 
+    private JPanel createProgressPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 0));
+        panel.setBackground(new Color(245, 250, 255));
+
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        progressBar.setVisible(false);
+
+        // COPY path for the full-table exports, much faster on big tables
+        fastExportCheck = new JCheckBox("Fast export (COPY) for full exports", true);
+        fastExportCheck.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        fastExportCheck.setBackground(new Color(245, 250, 255));
+
+        cancelExportButton = new JButton("Cancel");
+        cancelExportButton.setVisible(false);
+        // stops the query itself (Statement.cancel()/cancelQuery), interrupting the worker alone
+        // leaves it running until the next progress check. the worker then ends with CancellationException
+        cancelExportButton.addActionListener(e -> {
+            if (cancelExport != null && !exportCancelled) {
+                exportCancelled = true;
+                cancelExportButton.setEnabled(false);
+                progressBar.setString("Cancelling...");
+                cancelExport.run();
+            }
+        });
+
+        panel.add(fastExportCheck, BorderLayout.WEST);
+        panel.add(progressBar, BorderLayout.CENTER);
+        panel.add(cancelExportButton, BorderLayout.EAST);
+        return panel;
+    }
+
     private JPanel createTitlePanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(new Color(245, 250, 255));
@@ -61,7 +121,7 @@ public class ReportsPanel extends JPanel implements DataChangeListener {
     }
 
     private JPanel createButtonPanel() {
-        JPanel panel = new JPanel(new GridLayout(2, 2, 25, 25));
+        JPanel panel = new JPanel(new GridLayout(0, 3, 25, 25));
         panel.setBackground(Color.WHITE);
         panel.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createTitledBorder(BorderFactory.createEtchedBorder(),
@@ -85,6 +145,30 @@ public class ReportsPanel extends JPanel implements DataChangeListener {
             "Export only today's appointments to CSV", new Color(241, 196, 15), e -> exportTodaysAppointments());
         panel.add(todayApptCard);
 
+        JPanel visitsCard = createReportCard("Export Visits", 
+            "Export all visit records to CSV", new Color(26, 188, 156), e -> exportVisits());
+        panel.add(visitsCard);
+
+        JPanel changesCard = createReportCard("Export Changes Only", 
+            "Rows added or updated since the last run", new Color(52, 73, 94), e -> exportChanges());
+        panel.add(changesCard);
+
+        JPanel batchCard = createReportCard("Batch Export", 
+            "Run several exports at the same time", new Color(192, 57, 43), e -> exportBatch());
+        panel.add(batchCard);
+
+        JPanel analyticsCard = createReportCard("Clinic Analytics", 
+            "Volume, no-show rates and load over time", new Color(41, 128, 185), e -> showAnalytics());
+        panel.add(analyticsCard);
+
+        JPanel cohortCard = createReportCard("Export Patient Cohort", 
+            "Patients by condition, medication, allergy and last visit", new Color(142, 68, 173), e -> exportCohort());
+        panel.add(cohortCard);
+
+        JPanel searchCard = createReportCard("Clinical Search", 
+            "Search visit notes, diagnoses and reasons", new Color(127, 140, 141), e -> showClinicalSearch());
+        panel.add(searchCard);
+
         JPanel folderCard = createReportCard("Open Reports Folder", 
             "Open the reports directory in file explorer", new Color(230, 126, 34), e -> openReportsFolder());
         panel.add(folderCard);
@@ -93,51 +177,7 @@ public class ReportsPanel extends JPanel implements DataChangeListener {
     }
 
     private void exportTodaysAppointments() {
-        try {
-            List<Appointment> appointments = appointmentDAO.getAllAppointments();
-            String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-
-            java.io.File reportsDir = new java.io.File("reports");
-            if (!reportsDir.exists()) {
-                reportsDir.mkdir();
-            }
-
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(new Date());
-            java.io.File file = new java.io.File("reports/TodaysAppointments_" + timestamp + ".csv");
-            java.io.FileWriter writer = new java.io.FileWriter(file);
-
-            writer.write("ID,Patient ID,Patient Name,Date & Time,Reason,Status\n");
-
-            int count = 0;
-            for (Appointment apt : appointments) {
-                if (apt.getAppointmentDate() != null && apt.getAppointmentDate().startsWith(today)) {
-                    try {
-                        Patient patient = patientDAO.getPatientById(apt.getPatientId());
-                        String patientName = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
-                        writer.write(String.format("%d,%d,\"%s\",\"%s\",\"%s\",\"%s\"\n",
-                            apt.getId(),
-                            apt.getPatientId(),
-                            patientName,
-                            apt.getAppointmentDate(),
-                            apt.getReason() != null ? apt.getReason() : "",
-                            apt.getStatus() != null ? apt.getStatus() : "scheduled"
-                        ));
-                        count++;
-                    } catch (SQLException e) {
-                        System.err.println("Error getting patient for appointment: " + e.getMessage());
-                    }
-                }
-            }
-
-            writer.close();
-            JOptionPane.showMessageDialog(this, 
-                "Successfully exported " + count + " appointments for today!\nFile: " + file.getAbsolutePath(), 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error exporting today's appointments: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    // removed extra closing brace here
-
+        runExport(ClinicExports.todaysAppointments(), "today's appointments");
     }
 
     private JPanel createReportCard(String title, String description, Color bgColor, java.awt.event.ActionListener action) {
@@ -180,135 +220,309 @@ public class ReportsPanel extends JPanel implements DataChangeListener {
     }
 
     private void exportPatientList() {
-        try {
-            List<Patient> patients = patientDAO.getAllPatients();
-            
-            java.io.File reportsDir = new java.io.File("reports");
-            if (!reportsDir.exists()) {
-                reportsDir.mkdir();
+        runExport(ClinicExports.patientList(), "patients");
+    }
+
+    private void exportAppointments() {
+        runExport(ClinicExports.appointments(), "appointments");
+    }
+
+    private void exportVisits() {
+        runExport(ClinicExports.visits(), "visits");
+    }
+
+    // pick some exports and run them in parallel, one progress bar each
+    private void exportBatch() {
+        if (exportWorker != null && !exportWorker.isDone()) {
+            JOptionPane.showMessageDialog(this, "An export is already running.", "Export", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        CsvExport[] choices = {ClinicExports.patientList(), ClinicExports.appointments(),
+            ClinicExports.visits(), ClinicExports.todaysAppointments()};
+        JPanel form = new JPanel(new GridLayout(0, 1, 5, 5));
+        form.add(new JLabel("Reports to export:"));
+        JCheckBox[] checks = new JCheckBox[choices.length];
+        for (int i = 0; i < choices.length; i++) {
+            checks[i] = new JCheckBox(choices[i].getName(), true);
+            form.add(checks[i]);
+        }
+        int result = JOptionPane.showConfirmDialog(this, form, "Batch Export",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        List<CsvExport> selected = new ArrayList<>();
+        for (int i = 0; i < choices.length; i++) {
+            if (checks[i].isSelected()) {
+                selected.add(choices[i]);
             }
-            
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(new Date());
-            java.io.File file = new java.io.File("reports/PatientList_" + timestamp + ".csv");
-            java.io.FileWriter writer = new java.io.FileWriter(file);
-            
-            writer.write("ID,First Name,Last Name,Phone,Email,Address,Date of Birth\n");
-            
-            for (Patient p : patients) {
-                String dob = p.getDateOfBirth();
-                if (dob == null || dob.isEmpty()) {
-                    dob = "";
+        }
+        if (selected.isEmpty()) return;
+
+        java.io.File reportsDir = new java.io.File("reports");
+        if (!reportsDir.exists()) {
+            reportsDir.mkdir();
+        }
+        String timestamp = LocalDateTime.now().format(DateTimeUtil.FILE_TIMESTAMP);
+
+        // progress dialog, one bar per report
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), "Batch Export", Dialog.ModalityType.MODELESS);
+        JPanel bars = new JPanel(new GridLayout(0, 1, 5, 5));
+        bars.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        Map<String, JProgressBar> barsByName = new HashMap<>();
+        for (CsvExport export : selected) {
+            JProgressBar bar = new JProgressBar();
+            bar.setIndeterminate(true);
+            bar.setStringPainted(true);
+            bar.setString(export.getName() + ": starting...");
+            barsByName.put(export.getName(), bar);
+            bars.add(bar);
+        }
+        JButton cancelButton = new JButton("Cancel");
+        JPanel buttonRow = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonRow.add(cancelButton);
+        dialog.add(bars, BorderLayout.CENTER);
+        dialog.add(buttonRow, BorderLayout.SOUTH);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialog.setSize(420, 90 + 40 * selected.size());
+        dialog.setLocationRelativeTo(this);
+
+        BatchExporter batch = controller.createBatchExport(selected, reportsDir.toPath(), timestamp,
+            fastExportCheck.isSelected(), new BatchExporter.Listener() {
+                @Override
+                public void onProgress(String name, long rows) {
+                    SwingUtilities.invokeLater(() -> barsByName.get(name).setString(name + ": " + rows + " rows"));
                 }
-                
-                writer.write(String.format("%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",%s\n",
-                    p.getId(),
-                    p.getFirstName(),
-                    p.getLastName(),
-                    p.getPhoneNumber() != null ? p.getPhoneNumber() : "",
-                    p.getEmail() != null ? p.getEmail() : "",
-                    p.getAddress() != null ? p.getAddress().replace("\"", "\"\"") : "",
-                    dob
-                ));
+
+                @Override
+                public void onFinished(BatchExporter.Result result) {
+                    SwingUtilities.invokeLater(() -> {
+                        JProgressBar bar = barsByName.get(result.name);
+                        bar.setIndeterminate(false);
+                        bar.setValue(bar.getMaximum());
+                        bar.setString(result.name + ": " + describe(result));
+                    });
+                }
+            });
+        cancelButton.addActionListener(e -> {
+            cancelButton.setEnabled(false);
+            batch.cancel();
+        });
+
+        SwingWorker<List<BatchExporter.Result>, Void> worker = new SwingWorker<List<BatchExporter.Result>, Void>() {
+            @Override
+            protected List<BatchExporter.Result> doInBackground() throws Exception {
+                return batch.run();
             }
-            
-            writer.close();
-            JOptionPane.showMessageDialog(this, 
-                "Successfully exported " + patients.size() + " patients!\nFile: " + file.getAbsolutePath(), 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error exporting patient list: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+
+            @Override
+            protected void done() {
+                dialog.dispose();
+                try {
+                    StringBuilder summary = new StringBuilder("Batch export finished:\n\n");
+                    for (BatchExporter.Result result : get()) {
+                        summary.append(result.name).append(": ").append(describe(result))
+                            .append(String.format(" (%.1f s)", result.millis / 1000.0)).append("\n");
+                    }
+                    summary.append("\nFolder: ").append(reportsDir.getAbsolutePath());
+                    JOptionPane.showMessageDialog(ReportsPanel.this, summary.toString(), "Batch Export", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(ReportsPanel.this, "Error running batch export: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+        dialog.setVisible(true);
+    }
+
+    private static String describe(BatchExporter.Result result) {
+        if (result.cancelled) return "cancelled";
+        if (result.error != null) return "failed - " + result.error.getMessage();
+        return result.rows + " rows";
+    }
+
+    // incremental export for feeds: asks which report, then only exports what changed
+    private void exportChanges() {
+        JComboBox<String> reportCombo = new JComboBox<>(ClinicExports.INCREMENTAL_REPORTS);
+        JCheckBox resetCheck = new JCheckBox("Start over (export everything again)");
+        JPanel form = new JPanel(new GridLayout(0, 1, 5, 5));
+        form.add(new JLabel("Report:"));
+        form.add(reportCombo);
+        form.add(resetCheck);
+        int result = JOptionPane.showConfirmDialog(this, form, "Export Changes Only",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        String reportName = (String) reportCombo.getSelectedItem();
+        boolean reset = resetCheck.isSelected();
+        IncrementalExporter incremental = controller.createIncrementalExport();
+        runExport(reportName + "_Changes", "changes", (target, listener) -> {
+            IncrementalExporter.Result changes = incremental.export(reportName, target, reset, listener);
+            return "Exported " + changes.rows + " new or updated rows"
+                + (changes.since != null ? " since " + DateTimeUtil.format(changes.since) : "") + ".";
+        }, incremental::cancel);
+    }
+
+    // asks for the cohort criteria and exports the matching patients. several names can be
+    // given comma separated, a patient has to match all of them
+    private void exportCohort() {
+        JTextField conditionsField = new JTextField(25);
+        JTextField medicationsField = new JTextField(25);
+        JTextField notOnField = new JTextField(25);
+        JTextField allergiesField = new JTextField(25);
+        JSpinner monthsSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 120, 1));
+        JPanel form = new JPanel(new GridLayout(0, 2, 5, 5));
+        form.add(new JLabel("Active condition(s):"));
+        form.add(conditionsField);
+        form.add(new JLabel("On medication(s):"));
+        form.add(medicationsField);
+        form.add(new JLabel("Not on medication(s):"));
+        form.add(notOnField);
+        form.add(new JLabel("Allergic to:"));
+        form.add(allergiesField);
+        form.add(new JLabel("No visit in the last months (0 = any):"));
+        form.add(monthsSpinner);
+        int result = JOptionPane.showConfirmDialog(this, form, "Export Patient Cohort",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        CohortQuery query = new CohortQuery();
+        for (String name : splitNames(conditionsField.getText())) query.withActiveCondition(name);
+        for (String name : splitNames(medicationsField.getText())) query.onMedication(name);
+        for (String name : splitNames(notOnField.getText())) query.notOnMedication(name);
+        for (String name : splitNames(allergiesField.getText())) query.withAllergy(name);
+        int months = (Integer) monthsSpinner.getValue();
+        if (months > 0) {
+            query.noVisitSince(LocalDateTime.now().minusMonths(months));
+        }
+        if (query.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Enter at least one criterion, or use Export Patient List.",
+                "Export Patient Cohort", JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
+        runExport(ClinicExports.cohort("PatientCohort", query), "patients");
     }
 
-    private void exportAppointments() {
-        try {
-            List<Appointment> appointments = appointmentDAO.getAllAppointments();
-            
-            java.io.File reportsDir = new java.io.File("reports");
-            if (!reportsDir.exists()) {
-                reportsDir.mkdir();
+    private static List<String> splitNames(String text) {
+        List<String> names = new ArrayList<>();
+        for (String name : text.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
             }
-            
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(new Date());
-            java.io.File file = new java.io.File("reports/Appointments_" + timestamp + ".csv");
-            java.io.FileWriter writer = new java.io.FileWriter(file);
-            
-            writer.write("ID,Patient ID,Patient Name,Date & Time,Reason,Status\n");
-            
-            for (Appointment apt : appointments) {
+        }
+        return names;
+    }
+
+    // one export job, returns the success message
+    private interface ExportTask {
+        String run(Path target, CsvExporter.ProgressListener listener) throws Exception;
+    }
+
+    private void runExport(CsvExport export, String label) {
+        ReportExporter exporter = controller.createExporter(export, fastExportCheck.isSelected());
+        runExport(export.getName(), label, (target, listener) ->
+            "Successfully exported " + exporter.export(export, target, listener) + " " + label + "!", exporter::cancel);
+    }
+
+    // runs the export into reports/<name>_<timestamp>.csv on a background thread
+    // the progress bar counts rows since the total isnt known up front, cancel stops the export
+    private void runExport(String name, String label, ExportTask task, Runnable cancel) {
+        if (exportWorker != null && !exportWorker.isDone()) {
+            JOptionPane.showMessageDialog(this, "An export is already running.", "Export", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        java.io.File reportsDir = new java.io.File("reports");
+        if (!reportsDir.exists()) {
+            reportsDir.mkdir();
+        }
+        String timestamp = LocalDateTime.now().format(DateTimeUtil.FILE_TIMESTAMP);
+        java.io.File file = new java.io.File(reportsDir, name + "_" + timestamp + ".csv");
+
+        progressBar.setIndeterminate(true);
+        progressBar.setString("Exporting " + label + "...");
+        progressBar.setVisible(true);
+        cancelExportButton.setEnabled(true);
+        cancelExportButton.setVisible(true);
+        cancelExport = cancel;
+        exportCancelled = false;
+
+        exportWorker = new SwingWorker<String, Long>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return task.run(file.toPath(), rows -> publish(rows));
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                if (exportCancelled) return;
+                progressBar.setString("Exporting " + label + "... " + chunks.get(chunks.size() - 1) + " rows");
+            }
+
+            @Override
+            protected void done() {
+                progressBar.setVisible(false);
+                cancelExportButton.setVisible(false);
+                cancelExport = null;
                 try {
-                    Patient patient = patientDAO.getPatientById(apt.getPatientId());
-                    String patientName = patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Unknown";
-                    
-                    writer.write(String.format("%d,%d,\"%s\",\"%s\",\"%s\",\"%s\"\n",
-                        apt.getId(),
-                        apt.getPatientId(),
-                        patientName,
-                        apt.getAppointmentDate(),
-                        apt.getReason() != null ? apt.getReason() : "",
-                        apt.getStatus() != null ? apt.getStatus() : "scheduled"
-                    ));
-                } catch (SQLException e) {
-                    System.err.println("Error getting patient for appointment: " + e.getMessage());
+                    JOptionPane.showMessageDialog(ReportsPanel.this, 
+                        get() + "\nFile: " + file.getAbsolutePath(), 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        // the exporters delete what they wrote, this also covers a file left half written
+                        file.delete();
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(ReportsPanel.this, "Error exporting " + label + ": " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
-            
-            writer.close();
-            JOptionPane.showMessageDialog(this, 
-                "Successfully exported " + appointments.size() + " appointments!\nFile: " + file.getAbsolutePath(), 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error exporting appointments: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        };
+        exportWorker.execute();
+    }
+
+    private void showAnalytics() {
+        AnalyticsDialog dialog = new AnalyticsDialog(SwingUtilities.getWindowAncestor(this), controller);
+        dialog.setVisible(true);
+        dialog.load();
+    }
+
+    private void showClinicalSearch() {
+        ClinicalSearchDialog dialog = new ClinicalSearchDialog(SwingUtilities.getWindowAncestor(this), controller);
+        dialog.setVisible(true);
     }
 
     private void exportStatistics() {
-        try {
-            List<Patient> patients = patientDAO.getAllPatients();
-            List<Appointment> appointments = appointmentDAO.getAllAppointments();
-            
-            int completedAppts = 0;
-            int missedAppts = 0;
-            int scheduledAppts = 0;
-            int cancelledAppts = 0;
-            
-            for (Appointment apt : appointments) {
-                String status = apt.getStatus();
-                if (status != null) {
-                    if (status.equals("completed")) completedAppts++;
-                    else if (status.equals("missed")) missedAppts++;
-                    else if (status.equals("scheduled")) scheduledAppts++;
-                    else if (status.equals("cancelled")) cancelledAppts++;
-                }
-            }
+        statisticsLoader.load(() -> {
+            // totals come from the daily rollup instead of loading every appointment
+            int totalPatients = controller.getTotalPatients();
+            AppointmentStatsDAO.StatusTotals totals = controller.getAppointmentTotals();
+            int completedAppts = totals.get(AppointmentStatus.COMPLETED);
             
             java.io.File reportsDir = new java.io.File("reports");
             if (!reportsDir.exists()) {
                 reportsDir.mkdir();
             }
             
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd_HHmmss").format(new Date());
+            String timestamp = LocalDateTime.now().format(DateTimeUtil.FILE_TIMESTAMP);
             java.io.File file = new java.io.File("reports/Statistics_" + timestamp + ".csv");
-            java.io.FileWriter writer = new java.io.FileWriter(file);
-            
-            writer.write("Metric,Value\n");
-            writer.write("Total Patients," + patients.size() + "\n");
-            writer.write("Total Appointments," + appointments.size() + "\n");
-            writer.write("Scheduled Appointments," + scheduledAppts + "\n");
-            writer.write("Completed Appointments," + completedAppts + "\n");
-            writer.write("Missed Appointments," + missedAppts + "\n");
-            writer.write("Cancelled Appointments," + cancelledAppts + "\n");
-            
-            if (appointments.size() > 0) {
-                double completionRate = (completedAppts * 100.0) / appointments.size();
-                writer.write("Completion Rate (%)," + String.format("%.2f", completionRate) + "\n");
+            try (java.io.FileWriter writer = new java.io.FileWriter(file)) {
+                writer.write("Metric,Value\n");
+                writer.write("Total Patients," + totalPatients + "\n");
+                writer.write("Total Appointments," + totals.total + "\n");
+                writer.write("Scheduled Appointments," + totals.get(AppointmentStatus.SCHEDULED) + "\n");
+                writer.write("Completed Appointments," + completedAppts + "\n");
+                writer.write("Missed Appointments," + totals.get(AppointmentStatus.MISSED) + "\n");
+                writer.write("Cancelled Appointments," + totals.get(AppointmentStatus.CANCELLED) + "\n");
+                
+                if (totals.total > 0) {
+                    double completionRate = (completedAppts * 100.0) / totals.total;
+                    writer.write("Completion Rate (%)," + String.format("%.2f", completionRate) + "\n");
+                }
             }
-            
-            writer.close();
-            JOptionPane.showMessageDialog(this, "Statistics exported successfully!\nFile: " + file.getAbsolutePath(), "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error exporting statistics: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+            return file;
+        }, file -> JOptionPane.showMessageDialog(this, "Statistics exported successfully!\nFile: " + file.getAbsolutePath(), "Success", JOptionPane.INFORMATION_MESSAGE),
+            e -> JOptionPane.showMessageDialog(this, "Error exporting statistics: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
     }
 
     private void openReportsFolder() {
@@ -335,6 +549,8 @@ public class ReportsPanel extends JPanel implements DataChangeListener {
 
     @Override
     public void onAppointmentsChanged() {
+        // cached analytics are stale now
+        controller.invalidateAnalytics();
     }
 
     @Override
@@ -0,0 +1,93 @@
+package clinicmanager.views.async;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+// runs panel refreshes off the EDT. one loader per thing a panel refreshes (its table,
+// its patient combo, ...): starting a new load supersedes the previous one, a load that
+// hasnt started yet is cancelled and one that is already running has its result dropped,
+// so only the latest refresh ever reaches the screen.
+// load/cancel must be called on the EDT (they hop over if not), callbacks run on the EDT.
+public class AsyncLoader<T> {
+    // all loads share one thread, so they run one after the other. the panels' DAOs sit on
+    // a ThreadBoundConnection, which gives this thread its own connection: loads never
+    // share a transaction with writes the EDT makes at the same time
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ui-loader-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LoadingIndicator indicator;
+    // only touched on the EDT
+    private Future<?> pending;
+    private long generation;
+
+    public AsyncLoader() {
+        this(LoadingIndicator.NONE);
+    }
+
+    public AsyncLoader(LoadingIndicator indicator) {
+        this.indicator = indicator;
+    }
+
+    public void load(LoadTask<T> task, Consumer<T> onLoaded, Consumer<Exception> onError) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> load(task, onLoaded, onError));
+            return;
+        }
+        cancel();
+        long loadGeneration = generation;
+        indicator.setLoading(true);
+        pending = EXECUTOR.submit(() -> {
+            T result = null;
+            Exception error = null;
+            try {
+                result = task.load();
+            } catch (Exception e) {
+                error = e;
+            }
+            T loaded = result;
+            Exception failure = error;
+            SwingUtilities.invokeLater(() -> finish(loadGeneration, loaded, failure, onLoaded, onError));
+        });
+    }
+
+    // drop whatever is in flight, nothing is called back for it
+    public void cancel() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::cancel);
+            return;
+        }
+        generation++;
+        if (pending != null) {
+            // a running JDBC call cant be interrupted safely, its result is ignored instead
+            pending.cancel(false);
+            pending = null;
+            indicator.setLoading(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return pending != null;
+    }
+
+    private void finish(long loadGeneration, T result, Exception error, Consumer<T> onLoaded, Consumer<Exception> onError) {
+        if (loadGeneration != generation) {
+            // superseded by a newer load or cancelled
+            return;
+        }
+        pending = null;
+        indicator.setLoading(false);
+        if (error != null) {
+            onError.accept(error);
+        } else {
+            onLoaded.accept(result);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package clinicmanager.views.async;
+
+// the background part of a refresh, runs on the loader thread so it must not touch Swing.
+// load everything the refresh needs here so the result reaches the EDT in one piece
+public interface LoadTask<T> {
+    T load() throws Exception;
+}
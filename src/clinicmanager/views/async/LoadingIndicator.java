@@ -0,0 +1,31 @@
+package clinicmanager.views.async;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import javax.swing.JComponent;
+
+// shows that a load is running, always called on the EDT
+public interface LoadingIndicator {
+    LoadingIndicator NONE = loading -> { };
+
+    void setLoading(boolean loading);
+
+    // wait cursor over the component while loading
+    static LoadingIndicator busyCursor(Component component) {
+        return loading -> component.setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
+
+    // component (a "Loading..." label, a progress bar) only visible while loading
+    static LoadingIndicator visibleWhileLoading(JComponent component) {
+        return component::setVisible;
+    }
+
+    // several indicators at once
+    static LoadingIndicator all(LoadingIndicator... indicators) {
+        return loading -> {
+            for (LoadingIndicator indicator : indicators) {
+                indicator.setLoading(loading);
+            }
+        };
+    }
+}